@@ -3,15 +3,53 @@ package com.secp.api.auth;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
 import java.security.SecureRandom;
 import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class SmsCodeService {
 
+  private static final long SEND_OK = 1L;
+  private static final long SEND_COOLDOWN = -1L;
+  private static final long SEND_DAILY_LIMIT = -2L;
+
+  private static final Duration DAILY_COUNTER_TTL = Duration.ofHours(26);
+
+  /**
+   * KEYS: cooldown, daily counter, code.
+   * ARGV: code, code ttl (s), cooldown ttl (s), daily max, daily counter ttl (s).
+   */
+  private static final DefaultRedisScript<Long> SEND_SCRIPT = new DefaultRedisScript<>(
+      """
+      if redis.call('exists', KEYS[1]) == 1 then
+        return -1
+      end
+      local cnt = redis.call('incr', KEYS[2])
+      if cnt == 1 then
+        redis.call('expire', KEYS[2], ARGV[5])
+      end
+      if cnt > tonumber(ARGV[4]) then
+        return -2
+      end
+      redis.call('set', KEYS[3], ARGV[1], 'EX', ARGV[2])
+      redis.call('set', KEYS[1], '1', 'EX', ARGV[3])
+      return 1
+      """,
+      Long.class
+  );
+
+  // Compare-and-delete: a code can be consumed by at most one verification.
+  private static final DefaultRedisScript<Long> VERIFY_SCRIPT = new DefaultRedisScript<>(
+      "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+      Long.class
+  );
+
   private final StringRedisTemplate redis;
   private final SecureRandom random = new SecureRandom();
 
@@ -26,37 +64,43 @@ public class SmsCodeService {
 
   public void sendCode(String phone) {
     String cooldownKey = "sms:cooldown:" + phone;
-    if (Boolean.TRUE.equals(redis.hasKey(cooldownKey))) {
-      throw new IllegalStateException("SMS_COOLDOWN");
-    }
-
     String dailyKey = "sms:daily:" + phone + ":" + java.time.LocalDate.now();
-    Long cnt = redis.opsForValue().increment(dailyKey);
-    if (cnt != null && cnt == 1) {
-      redis.expire(dailyKey, Duration.ofHours(26));
+    String codeKey = codeKey(phone);
+
+    String code = String.format("%06d", random.nextInt(1_000_000));
+    Long result = redis.execute(
+        SEND_SCRIPT,
+        List.of(cooldownKey, dailyKey, codeKey),
+        code,
+        String.valueOf(codeTtlSeconds),
+        String.valueOf(cooldownSeconds),
+        String.valueOf(dailyMax),
+        String.valueOf(DAILY_COUNTER_TTL.toSeconds())
+    );
+
+    if (result != null && result == SEND_COOLDOWN) {
+      throw new IllegalStateException("SMS_COOLDOWN");
     }
-    if (cnt != null && cnt > dailyMax) {
+    if (result != null && result == SEND_DAILY_LIMIT) {
       throw new IllegalStateException("SMS_DAILY_LIMIT");
     }
-
-    String code = String.format("%06d", random.nextInt(1_000_000));
-    redis.opsForValue().set("sms:code:" + phone, code, Duration.ofSeconds(codeTtlSeconds));
-    redis.opsForValue().set(cooldownKey, "1", Duration.ofSeconds(cooldownSeconds));
+    if (result == null || result != SEND_OK) {
+      throw new IllegalStateException("SMS_SEND_FAILED");
+    }
 
     // V1 demo: log the code instead of sending real SMS.
     System.out.println("[sms] phone=" + phone + " code=" + code);
   }
 
   public boolean verify(String phone, String code) {
-    String key = "sms:code:" + phone;
-    String expected = redis.opsForValue().get(key);
-    if (expected == null) {
+    if (code == null || code.isEmpty()) {
       return false;
     }
-    boolean ok = expected.equals(code);
-    if (ok) {
-      redis.delete(key);
-    }
-    return ok;
+    Long deleted = redis.execute(VERIFY_SCRIPT, Collections.singletonList(codeKey(phone)), code);
+    return deleted != null && deleted > 0;
+  }
+
+  private static String codeKey(String phone) {
+    return "sms:code:" + phone;
   }
 }
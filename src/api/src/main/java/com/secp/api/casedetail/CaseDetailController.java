@@ -4,6 +4,7 @@ import com.secp.api.auth.AuthContext;
 import com.secp.api.auth.AuthPrincipal;
 import com.secp.api.casedetail.dto.CaseDetailResponse;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -13,6 +14,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.UUID;
@@ -30,21 +32,26 @@ public class CaseDetailController {
     return ResponseEntity.ok(caseDetailService.getDetail(principal, caseId, httpReq));
   }
 
-  @GetMapping("/{caseId}/a4.pdf")
-  public ResponseEntity<byte[]> exportA4(@PathVariable UUID caseId, HttpServletRequest httpReq) {
+  @GetMapping(value = "/{caseId}/detail", params = "stream=true")
+  public void streamDetail(@PathVariable UUID caseId, HttpServletRequest httpReq, HttpServletResponse resp)
+      throws IOException {
     AuthPrincipal principal = AuthContext.getRequired();
-    CaseDetailService.PdfResult r = caseDetailService.exportA4Pdf(principal, caseId, httpReq);
-    byte[] bytes = r.bytes();
+    caseDetailService.prepareDetailStream(principal, caseId, httpReq);
 
-    String code = r.code() == null ? String.valueOf(caseId) : String.valueOf(r.code());
-    String safe = code.replaceAll("[^A-Za-z0-9_-]", "_");
+    resp.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    caseDetailService.writeDetailStream(principal, caseId, resp.getOutputStream());
+  }
 
-    HttpHeaders headers = new HttpHeaders();
-    headers.setContentType(MediaType.APPLICATION_PDF);
-    String filename = "Case_" + safe + ".pdf";
-    headers.add(HttpHeaders.CONTENT_DISPOSITION,
-        "inline; filename=\"" + filename + "\"; filename*=UTF-8''" + URLEncoder.encode(filename, StandardCharsets.UTF_8));
+  @GetMapping("/{caseId}/a4.pdf")
+  public void exportA4(@PathVariable UUID caseId, HttpServletRequest httpReq, HttpServletResponse resp)
+      throws IOException {
+    AuthPrincipal principal = AuthContext.getRequired();
+    CaseDetailService.A4Export r = caseDetailService.prepareA4(principal, caseId, httpReq);
 
-    return ResponseEntity.ok().headers(headers).body(bytes);
+    resp.setContentType(MediaType.APPLICATION_PDF_VALUE);
+    String filename = r.filename();
+    resp.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+        "inline; filename=\"" + filename + "\"; filename*=UTF-8''" + URLEncoder.encode(filename, StandardCharsets.UTF_8));
+    caseDetailService.writeA4Pdf(principal, r, resp.getOutputStream());
   }
 }
@@ -1,14 +1,17 @@
 package com.secp.api.casedetail;
 
+import com.secp.api.infra.db.CursorReads;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Repository
 public class CaseDetailRepository {
@@ -19,8 +22,57 @@ public class CaseDetailRepository {
     this.jdbc = jdbc;
   }
 
-  public Optional<Map<String, Object>> findCaseWithProject(UUID caseId) {
-    List<Map<String, Object>> rows = jdbc.queryForList(
+  public record CaseWithProjectRow(UUID caseId,
+                                   String caseCode,
+                                   LocalDate caseAcceptedAt,
+                                   String caseTitle,
+                                   String caseStatus,
+                                   UUID caseGroupId,
+                                   UUID projectId,
+                                   OffsetDateTime caseCreatedAt,
+                                   OffsetDateTime caseUpdatedAt,
+                                   String projectCode,
+                                   String projectName) {
+  }
+
+  public record MemberRow(UUID userId, String memberRole, String username, String phone) {
+  }
+
+  public record TaskRow(UUID id, String title, String status, String priority, OffsetDateTime planEnd, UUID assigneeUserId) {
+  }
+
+  static final RowMapper<CaseWithProjectRow> CASE_WITH_PROJECT_ROW = (rs, rowNum) -> new CaseWithProjectRow(
+      rs.getObject("case_id", UUID.class),
+      rs.getString("case_code"),
+      rs.getObject("case_accepted_at", LocalDate.class),
+      rs.getString("case_title"),
+      rs.getString("case_status"),
+      rs.getObject("case_group_id", UUID.class),
+      rs.getObject("project_id", UUID.class),
+      rs.getObject("case_created_at", OffsetDateTime.class),
+      rs.getObject("case_updated_at", OffsetDateTime.class),
+      rs.getString("project_code"),
+      rs.getString("project_name")
+  );
+
+  static final RowMapper<MemberRow> MEMBER_ROW = (rs, rowNum) -> new MemberRow(
+      rs.getObject("user_id", UUID.class),
+      rs.getString("member_role"),
+      rs.getString("username"),
+      rs.getString("phone")
+  );
+
+  static final RowMapper<TaskRow> TASK_ROW = (rs, rowNum) -> new TaskRow(
+      rs.getObject("id", UUID.class),
+      rs.getString("title"),
+      rs.getString("status"),
+      rs.getString("priority"),
+      rs.getObject("plan_end", OffsetDateTime.class),
+      rs.getObject("assignee_user_id", UUID.class)
+  );
+
+  public Optional<CaseWithProjectRow> findCaseWithProject(UUID caseId) {
+    List<CaseWithProjectRow> rows = jdbc.query(
         """
         select c.id as case_id,
                c.code as case_code,
@@ -37,44 +89,62 @@ public class CaseDetailRepository {
           join project p on p.id = c.project_id
          where c.id = ?
         """,
+        CASE_WITH_PROJECT_ROW,
         caseId
     );
     if (rows.isEmpty()) return Optional.empty();
     return Optional.of(rows.getFirst());
   }
 
-  public List<Map<String, Object>> listMembers(UUID caseId) {
-    return jdbc.queryForList(
-        """
-        select cm.user_id,
-               cm.member_role,
-               u.username,
-               u.phone
-          from case_member cm
-          join app_user u on u.id = cm.user_id
-         where cm.case_id = ?
-         order by cm.created_at
-        """,
-        caseId
-    );
+  private static final String MEMBERS_SQL = """
+      select cm.user_id,
+             cm.member_role,
+             u.username,
+             u.phone
+        from case_member cm
+        join app_user u on u.id = cm.user_id
+       where cm.case_id = ?
+       order by cm.created_at
+      """;
+
+  /**
+   * Every task of the case; {@link #listTasks} caps it at 500, the streamed detail reads all of it.
+   */
+  private static final String ALL_TASKS_SQL = """
+      select t.id,
+             t.title,
+             t.status,
+             t.priority,
+             t.plan_end,
+             t.assignee_user_id
+        from task t
+       where t.case_id = ?
+       order by t.created_at desc
+      """;
+
+  private static final String ALL_INSTRUCTIONS_SQL = """
+      select i.id,
+             i.title,
+             i.status,
+             i.version,
+             max(ii.due_at) as deadline,
+             i.issued_at,
+             count(ii.id) as item_total,
+             sum(case when ii.status = 'DONE' then 1 else 0 end) as item_done,
+             sum(case when ii.status <> 'DONE' and ii.due_at is not null and ii.due_at < now() then 1 else 0 end) as item_overdue
+        from instruction i
+        left join instruction_item ii on ii.instruction_id = i.id
+       where i.ref_type = 'case' and i.ref_id = ?
+       group by i.id, i.title, i.status, i.version, i.issued_at
+       order by max(i.created_at) desc
+      """;
+
+  public List<MemberRow> listMembers(UUID caseId) {
+    return jdbc.query(MEMBERS_SQL, MEMBER_ROW, caseId);
   }
 
-  public List<Map<String, Object>> listTasks(UUID caseId) {
-    return jdbc.queryForList(
-        """
-        select t.id,
-               t.title,
-               t.status,
-               t.priority,
-               t.plan_end,
-               t.assignee_user_id
-          from task t
-         where t.case_id = ?
-         order by t.created_at desc
-         limit 500
-        """,
-        caseId
-    );
+  public List<TaskRow> listTasks(UUID caseId) {
+    return jdbc.query(ALL_TASKS_SQL + " limit 500\n", TASK_ROW, caseId);
   }
 
   public record InstructionAggRow(UUID instructionId,
@@ -88,45 +158,41 @@ public class CaseDetailRepository {
                                   int itemOverdue) {
   }
 
+  static final RowMapper<InstructionAggRow> INSTRUCTION_AGG_ROW = (rs, rowNum) -> new InstructionAggRow(
+      rs.getObject("id", UUID.class),
+      rs.getString("title"),
+      rs.getString("status"),
+      rs.getInt("version"),
+      rs.getObject("deadline", OffsetDateTime.class),
+      rs.getObject("issued_at", OffsetDateTime.class),
+      rs.getInt("item_total"),
+      rs.getInt("item_done"),
+      rs.getInt("item_overdue")
+  );
+
   public List<InstructionAggRow> listInstructionAgg(UUID caseId) {
-    return jdbc.query(
-        """
-        select i.id,
-               i.title,
-               i.status,
-               i.version,
-               max(ii.due_at) as deadline,
-               i.issued_at,
-               count(ii.id) as item_total,
-               sum(case when ii.status = 'DONE' then 1 else 0 end) as item_done,
-               sum(case when ii.status <> 'DONE' and ii.due_at is not null and ii.due_at < now() then 1 else 0 end) as item_overdue
-          from instruction i
-          left join instruction_item ii on ii.instruction_id = i.id
-         where i.ref_type = 'case' and i.ref_id = ?
-         group by i.id, i.title, i.status, i.version, i.issued_at
-         order by max(i.created_at) desc
-         limit 500
-        """,
-        (rs, rowNum) -> new InstructionAggRow(
-            rs.getObject("id", UUID.class),
-            rs.getString("title"),
-            rs.getString("status"),
-            rs.getInt("version"),
-            rs.getObject("deadline", OffsetDateTime.class),
-            rs.getObject("issued_at", OffsetDateTime.class),
-            rs.getInt("item_total"),
-            rs.getInt("item_done"),
-            rs.getInt("item_overdue")
-        ),
-        caseId
-    );
+    return jdbc.query(ALL_INSTRUCTIONS_SQL + " limit 500\n", INSTRUCTION_AGG_ROW, caseId);
+  }
+
+  // -------------------- Streamed detail (cursor reads; call inside the request transaction) --------------------
+
+  public void forEachMember(UUID caseId, Consumer<MemberRow> sink) {
+    CursorReads.forEach(jdbc, MEMBERS_SQL, MEMBER_ROW, sink, caseId);
+  }
+
+  public void forEachTask(UUID caseId, Consumer<TaskRow> sink) {
+    CursorReads.forEach(jdbc, ALL_TASKS_SQL, TASK_ROW, sink, caseId);
+  }
+
+  public void forEachInstructionAgg(UUID caseId, Consumer<InstructionAggRow> sink) {
+    CursorReads.forEach(jdbc, ALL_INSTRUCTIONS_SQL, INSTRUCTION_AGG_ROW, sink, caseId);
   }
 
   public record PaymentsAggRow(BigDecimal sumAll, BigDecimal sum30d, int effectiveCount, OffsetDateTime latestPaidAt) {
   }
 
   public PaymentsAggRow getPaymentsAgg(UUID caseId) {
-    Map<String, Object> row = jdbc.queryForMap(
+    return jdbc.queryForObject(
         """
         select
           coalesce(sum(p.amount), 0) as sum_all,
@@ -137,14 +203,59 @@ public class CaseDetailRepository {
         where p.case_id = ?
           and not exists (select 1 from payment p2 where p2.corrected_from_payment_id = p.id)
         """,
+        (rs, rowNum) -> new PaymentsAggRow(
+            rs.getBigDecimal("sum_all"),
+            rs.getBigDecimal("sum_30d"),
+            rs.getInt("effective_count"),
+            rs.getObject("latest_paid_at", OffsetDateTime.class)
+        ),
         caseId
     );
+  }
+
+  public record A4Version(UUID groupId, String caseCode, String dataVersion) {
+  }
 
-    return new PaymentsAggRow(
-        (BigDecimal) row.get("sum_all"),
-        (BigDecimal) row.get("sum_30d"),
-        ((Number) row.get("effective_count")).intValue(),
-        row.get("latest_paid_at") == null ? null : (OffsetDateTime) row.get("latest_paid_at")
+  /**
+   * Digest of everything the case A4 export reads, as visible to the current session (see
+   * ProjectDetailRepository#findA4Version).
+   */
+  public Optional<A4Version> findA4Version(UUID caseId) {
+    List<A4Version> rows = jdbc.query(
+        """
+        select c.group_id,
+               c.code,
+               md5(concat_ws('|',
+                 c.updated_at,
+                 p.updated_at,
+                 (select md5(coalesce(string_agg(cm.user_id || ':' || cm.member_role || ':' || u.username || ':' || u.phone,
+                                                 ',' order by cm.user_id), ''))
+                    from case_member cm
+                    join app_user u on u.id = cm.user_id
+                   where cm.case_id = c.id),
+                 (select count(1) || ':' || coalesce(max(t.updated_at)::text, '')
+                    from task t where t.case_id = c.id),
+                 (select count(distinct i.id) || ':' || coalesce(max(i.updated_at)::text, '')
+                         || ':' || count(ii.id) || ':' || coalesce(max(ii.updated_at)::text, '')
+                         || ':' || count(ii.id) filter (where ii.status <> 'DONE' and ii.due_at < now())
+                    from instruction i
+                    left join instruction_item ii on ii.instruction_id = i.id
+                   where i.ref_type = 'case' and i.ref_id = c.id),
+                 (select count(1) || ':' || coalesce(max(pay.updated_at)::text, '')
+                         || ':' || count(1) filter (where pay.paid_at >= now() - interval '30 days')
+                    from payment pay where pay.case_id = c.id)
+               )) as data_version
+          from "case" c
+          join project p on p.id = c.project_id
+         where c.id = ?
+        """,
+        (rs, rowNum) -> new A4Version(
+            rs.getObject("group_id", UUID.class),
+            rs.getString("code"),
+            rs.getString("data_version")
+        ),
+        caseId
     );
+    return rows.isEmpty() ? Optional.empty() : Optional.of(rows.getFirst());
   }
 }
@@ -1,23 +1,24 @@
 package com.secp.api.casedetail;
 
-import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.secp.api.auth.AuthPrincipal;
 import com.secp.api.infra.RequestIdFilter;
+import com.secp.api.infra.json.JsonSpool;
+import com.secp.api.infra.json.JsonStreamWriter;
+import com.secp.api.infra.pdf.A4ExportCache;
+import com.secp.api.infra.pdf.A4ExportOrigin;
+import com.secp.api.infra.template.HtmlTemplate;
 import com.secp.api.infra.tx.TransactionalExecutor;
 import com.secp.api.casedetail.dto.CaseDetailResponse;
 import jakarta.servlet.http.HttpServletRequest;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
-import java.sql.Timestamp;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -29,11 +30,25 @@ public class CaseDetailService {
   private final TransactionalExecutor tx;
   private final JdbcTemplate jdbc;
   private final CaseDetailRepository repo;
-
-  public CaseDetailService(TransactionalExecutor tx, JdbcTemplate jdbc, CaseDetailRepository repo) {
+  /**
+   * Bump when renderHtml output changes for the same data, so cached exports are not reused.
+   */
+  private static final int A4_LAYOUT_VER = 1;
+
+  private final A4ExportCache a4Cache;
+  private final HtmlTemplate a4Template;
+  private final String a4LayoutVersion;
+  private final ObjectMapper objectMapper;
+
+  public CaseDetailService(TransactionalExecutor tx, JdbcTemplate jdbc, CaseDetailRepository repo, A4ExportCache a4Cache,
+                           ObjectMapper objectMapper) {
     this.tx = tx;
+    this.objectMapper = objectMapper;
     this.jdbc = jdbc;
     this.repo = repo;
+    this.a4Cache = a4Cache;
+    this.a4Template = HtmlTemplate.classpath("templates/case_a4.html");
+    this.a4LayoutVersion = A4_LAYOUT_VER + "-" + a4Template.fingerprint();
   }
 
   public CaseDetailResponse getDetail(AuthPrincipal principal, UUID caseId, HttpServletRequest httpReq) {
@@ -45,28 +60,96 @@ public class CaseDetailService {
     });
   }
 
-  public record PdfResult(String code, byte[] bytes) {
+  /**
+   * Visibility check and audit for the streamed detail, committed before anything is written so
+   * a missing case is still a plain 404. The body follows from {@link #writeDetailStream}.
+   */
+  public void prepareDetailStream(AuthPrincipal principal, UUID caseId, HttpServletRequest httpReq) {
+    tx.run(principal, () -> {
+      CaseDetailRepository.CaseWithProjectRow row = repo.findCaseWithProject(caseId).orElseThrow(CaseNotFoundException::new);
+      writeAudit(httpReq, principal.userId(), row.caseGroupId(), "case_detail_view", "case", caseId,
+          "{\"caseId\":\"" + caseId + "\",\"stream\":true}");
+    });
+  }
+
+  /**
+   * The {@link #getDetail} document written from server-side cursors as the rows arrive; tasks
+   * and instructions are not capped at 500. Spooled to a temp file inside the read transaction and
+   * sent once that has committed (see {@link JsonSpool}).
+   */
+  public void writeDetailStream(AuthPrincipal principal, UUID caseId, OutputStream out) throws IOException {
+    try (JsonSpool spool = JsonSpool.create()) {
+      tx.run(principal, () -> writeDetailDocument(caseId, spool));
+      spool.copyTo(out);
+    }
+  }
+
+  private void writeDetailDocument(UUID caseId, JsonSpool spool) {
+    CaseDetailRepository.CaseWithProjectRow row = repo.findCaseWithProject(caseId).orElseThrow(CaseNotFoundException::new);
+    try (OutputStream file = spool.openOutput(); JsonStreamWriter json = JsonStreamWriter.open(objectMapper, file)) {
+      json.startObject();
+      json.field("caze", toCaseDto(row));
+      json.field("project", toProjectDto(row));
+      json.array("members", sink -> repo.forEachMember(caseId, r -> sink.accept(toMemberDto(r))));
+      json.array("tasks", sink -> repo.forEachTask(caseId, r -> sink.accept(toTaskDto(r))));
+      json.array("instructions", sink -> repo.forEachInstructionAgg(caseId, r -> sink.accept(toInstructionDto(r))));
+      json.field("payments", toPaymentsSummaryDto(repo.getPaymentsAgg(caseId)));
+      json.endObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @param prepared cache hit or HTML to render, streamed by {@link #writeA4Pdf}
+   */
+  public record A4Export(UUID caseId, String code, A4ExportCache.Prepared prepared) {
+
+    /**
+     * {@code Case_<code>.pdf}, reduced to {@code [A-Za-z0-9_-]}; the id when the case has no code.
+     */
+    public String filename() {
+      String c = code == null ? String.valueOf(caseId) : code;
+      return "Case_" + c.replaceAll("[^A-Za-z0-9_-]", "_") + ".pdf";
+    }
   }
 
-  public PdfResult exportA4Pdf(AuthPrincipal principal, UUID caseId, HttpServletRequest httpReq) {
-    CaseDetailBundle b = tx.execute(principal, () -> {
-      CaseDetailBundle bundle = loadBundle(caseId);
-      writeAudit(httpReq, principal.userId(), bundle.groupId, "case_a4_export", "case", caseId,
-          "{\"caseId\":\"" + caseId + "\",\"code\":\"" + bundle.caseCode() + "\"}");
-      return bundle;
+  /**
+   * Audits the export and checks the PDF cache in one transaction; the bundle is only loaded on a miss.
+   */
+  public A4Export prepareA4(AuthPrincipal principal, UUID caseId, HttpServletRequest httpReq) {
+    return prepareA4(principal, caseId, A4ExportOrigin.of(httpReq));
+  }
+
+  public A4Export prepareA4(AuthPrincipal principal, UUID caseId, A4ExportOrigin origin) {
+    return tx.execute(principal, () -> {
+      CaseDetailRepository.A4Version version = repo.findA4Version(caseId).orElseThrow(CaseNotFoundException::new);
+      A4ExportCache.Key key = new A4ExportCache.Key("case", caseId, principal.userId(),
+          version.dataVersion(), a4LayoutVersion);
+      String cached = a4Cache.find(key);
+      writeAudit(origin.requestId(), origin.ip(), origin.userAgent(), principal.userId(), version.groupId(),
+          "case_a4_export", "case", caseId,
+          "{\"caseId\":\"" + caseId + "\",\"code\":\"" + version.caseCode() + "\",\"cached\":" + (cached != null)
+              + origin.summarySuffix() + "}");
+      A4ExportCache.Prepared prepared = cached != null
+          ? A4ExportCache.Prepared.hit(key, cached)
+          : A4ExportCache.Prepared.miss(key, renderHtml(loadBundle(caseId)));
+      return new A4Export(caseId, version.caseCode(), prepared);
     });
+  }
 
-    String html = renderHtml(b);
-    return new PdfResult(b.caseCode(), htmlToPdfBytes(html));
+  public void writeA4Pdf(AuthPrincipal principal, A4Export export, OutputStream out) {
+    a4Cache.write(principal, export.prepared(),
+        () -> tx.execute(principal, () -> renderHtml(loadBundle(export.caseId()))), out);
   }
 
   private CaseDetailBundle loadBundle(UUID caseId) {
-    Map<String, Object> row = repo.findCaseWithProject(caseId).orElseThrow(CaseNotFoundException::new);
+    CaseDetailRepository.CaseWithProjectRow row = repo.findCaseWithProject(caseId).orElseThrow(CaseNotFoundException::new);
 
-    UUID groupId = (UUID) row.get("case_group_id");
+    UUID groupId = row.caseGroupId();
 
-    List<Map<String, Object>> members = repo.listMembers(caseId);
-    List<Map<String, Object>> tasks = repo.listTasks(caseId);
+    List<CaseDetailRepository.MemberRow> members = repo.listMembers(caseId);
+    List<CaseDetailRepository.TaskRow> tasks = repo.listTasks(caseId);
     List<CaseDetailRepository.InstructionAggRow> instructions = repo.listInstructionAgg(caseId);
     CaseDetailRepository.PaymentsAggRow payments = repo.getPaymentsAgg(caseId);
 
@@ -76,132 +159,140 @@ public class CaseDetailService {
   private record CaseDetailBundle(
       UUID caseId,
       UUID groupId,
-      Map<String, Object> row,
-      List<Map<String, Object>> memberRows,
-      List<Map<String, Object>> taskRows,
+      CaseDetailRepository.CaseWithProjectRow row,
+      List<CaseDetailRepository.MemberRow> memberRows,
+      List<CaseDetailRepository.TaskRow> taskRows,
       List<CaseDetailRepository.InstructionAggRow> instructionRows,
       CaseDetailRepository.PaymentsAggRow paymentsAgg
   ) {
 
     String caseCode() {
-      return String.valueOf(row.get("case_code"));
+      return String.valueOf(row.caseCode());
     }
 
     String caseTitle() {
-      return String.valueOf(row.get("case_title"));
+      return row.caseTitle();
     }
 
     String projectName() {
-      return String.valueOf(row.get("project_name"));
+      return row.projectName();
     }
 
     String projectCode() {
-      return String.valueOf(row.get("project_code"));
+      return String.valueOf(row.projectCode());
     }
 
     CaseDetailResponse toApiResponse() {
-      CaseDetailResponse.CaseDto caze = new CaseDetailResponse.CaseDto(
-          (UUID) row.get("case_id"),
-          String.valueOf(row.get("case_code")),
-            toLocalDate(row.get("case_accepted_at")),
-          String.valueOf(row.get("case_title")),
-          String.valueOf(row.get("case_status")),
-          (UUID) row.get("case_group_id"),
-          (UUID) row.get("project_id"),
-          toOffsetDateTime(row.get("case_created_at")),
-          toOffsetDateTime(row.get("case_updated_at"))
+      return new CaseDetailResponse(
+          toCaseDto(row),
+          toProjectDto(row),
+          memberRows.stream().map(CaseDetailService::toMemberDto).toList(),
+          taskRows.stream().map(CaseDetailService::toTaskDto).toList(),
+          instructionRows.stream().map(CaseDetailService::toInstructionDto).toList(),
+          toPaymentsSummaryDto(paymentsAgg)
       );
+    }
+  }
 
-      CaseDetailResponse.ProjectDto project = new CaseDetailResponse.ProjectDto(
-          (UUID) row.get("project_id"),
-          String.valueOf(row.get("project_code")),
-          String.valueOf(row.get("project_name"))
-      );
+  private static CaseDetailResponse.CaseDto toCaseDto(CaseDetailRepository.CaseWithProjectRow row) {
+    return new CaseDetailResponse.CaseDto(
+        row.caseId(),
+        String.valueOf(row.caseCode()),
+        row.caseAcceptedAt(),
+        row.caseTitle(),
+        row.caseStatus(),
+        row.caseGroupId(),
+        row.projectId(),
+        row.caseCreatedAt(),
+        row.caseUpdatedAt()
+    );
+  }
 
-      List<CaseDetailResponse.MemberDto> members = new ArrayList<>();
-      for (Map<String, Object> r : memberRows) {
-        members.add(new CaseDetailResponse.MemberDto(
-            (UUID) r.get("user_id"),
-            String.valueOf(r.get("member_role")),
-            String.valueOf(r.get("username")),
-            maskPhone(String.valueOf(r.get("phone")))
-        ));
-      }
-
-      List<CaseDetailResponse.TaskDto> tasks = new ArrayList<>();
-      for (Map<String, Object> r : taskRows) {
-        tasks.add(new CaseDetailResponse.TaskDto(
-            (UUID) r.get("id"),
-            String.valueOf(r.get("title")),
-            String.valueOf(r.get("status")),
-            String.valueOf(r.get("priority")),
-            toOffsetDateTime(r.get("plan_end")),
-            (UUID) r.get("assignee_user_id")
-        ));
-      }
-
-      List<CaseDetailResponse.InstructionDto> ins = new ArrayList<>();
-      for (CaseDetailRepository.InstructionAggRow r : instructionRows) {
-        ins.add(new CaseDetailResponse.InstructionDto(
-            r.instructionId(),
-            r.title(),
-            r.status(),
-            r.version(),
-            r.deadline(),
-            r.issuedAt(),
-            r.itemTotal(),
-            r.itemDone(),
-            r.itemOverdue()
-        ));
-      }
-
-      CaseDetailResponse.PaymentsSummaryDto pay = new CaseDetailResponse.PaymentsSummaryDto(
-          paymentsAgg.sumAll(),
-          paymentsAgg.sum30d(),
-          paymentsAgg.effectiveCount(),
-          paymentsAgg.latestPaidAt()
-      );
+  private static CaseDetailResponse.ProjectDto toProjectDto(CaseDetailRepository.CaseWithProjectRow row) {
+    return new CaseDetailResponse.ProjectDto(
+        row.projectId(),
+        String.valueOf(row.projectCode()),
+        row.projectName()
+    );
+  }
 
-      return new CaseDetailResponse(caze, project, members, tasks, ins, pay);
-    }
+  private static CaseDetailResponse.MemberDto toMemberDto(CaseDetailRepository.MemberRow r) {
+    return new CaseDetailResponse.MemberDto(
+        r.userId(),
+        String.valueOf(r.memberRole()),
+        r.username(),
+        maskPhone(r.phone())
+    );
+  }
+
+  private static CaseDetailResponse.TaskDto toTaskDto(CaseDetailRepository.TaskRow r) {
+    return new CaseDetailResponse.TaskDto(
+        r.id(),
+        r.title(),
+        r.status(),
+        String.valueOf(r.priority()),
+        r.planEnd(),
+        r.assigneeUserId()
+    );
+  }
+
+  private static CaseDetailResponse.InstructionDto toInstructionDto(CaseDetailRepository.InstructionAggRow r) {
+    return new CaseDetailResponse.InstructionDto(
+        r.instructionId(),
+        r.title(),
+        r.status(),
+        r.version(),
+        r.deadline(),
+        r.issuedAt(),
+        r.itemTotal(),
+        r.itemDone(),
+        r.itemOverdue()
+    );
+  }
+
+  private static CaseDetailResponse.PaymentsSummaryDto toPaymentsSummaryDto(CaseDetailRepository.PaymentsAggRow r) {
+    return new CaseDetailResponse.PaymentsSummaryDto(
+        r.sumAll(),
+        r.sum30d(),
+        r.effectiveCount(),
+        r.latestPaidAt()
+    );
   }
 
   private String renderHtml(CaseDetailBundle b) {
-    String template = readClasspathText("templates/case_a4.html");
-
-    String infoRows = "";
-    infoRows += tr("案件编号", b.caseCode());
-    infoRows += tr("案件ID", b.caseId.toString());
-    infoRows += tr("案件标题", b.caseTitle());
-    infoRows += tr("所属项目", b.projectCode() + " " + b.projectName());
-
-    String membersRows = "";
-    for (Map<String, Object> r : b.memberRows) {
-      membersRows += tr4(
-          String.valueOf(r.get("user_id")),
-          String.valueOf(r.get("member_role")),
-          String.valueOf(r.get("username")),
-          maskPhone(String.valueOf(r.get("phone")))
+    StringBuilder infoRows = new StringBuilder(512);
+    tr(infoRows, "案件编号", b.caseCode());
+    tr(infoRows, "案件ID", b.caseId.toString());
+    tr(infoRows, "案件标题", b.caseTitle());
+    tr(infoRows, "所属项目", b.projectCode() + " " + b.projectName());
+
+    StringBuilder membersRows = new StringBuilder(Math.max(256, b.memberRows.size() * 160));
+    for (CaseDetailRepository.MemberRow r : b.memberRows) {
+      row(membersRows,
+          String.valueOf(r.userId()),
+          String.valueOf(r.memberRole()),
+          r.username(),
+          maskPhone(r.phone())
       );
     }
 
-    String tasksRows = "";
-    for (Map<String, Object> r : b.taskRows) {
-      tasksRows += tr6(
-          String.valueOf(r.get("id")),
-          String.valueOf(r.get("title")),
-          String.valueOf(r.get("status")),
-          String.valueOf(r.get("priority")),
-          String.valueOf(r.get("assignee_user_id")),
-          fmtDateTime(r.get("plan_end"))
+    StringBuilder tasksRows = new StringBuilder(Math.max(256, b.taskRows.size() * 256));
+    for (CaseDetailRepository.TaskRow r : b.taskRows) {
+      row(tasksRows,
+          String.valueOf(r.id()),
+          r.title(),
+          r.status(),
+          String.valueOf(r.priority()),
+          String.valueOf(r.assigneeUserId()),
+          fmtDateTime(r.planEnd())
       );
     }
 
-    String insRows = "";
+    StringBuilder insRows = new StringBuilder(Math.max(256, b.instructionRows.size() * 320));
     int overdueTotal = 0;
     for (CaseDetailRepository.InstructionAggRow r : b.instructionRows) {
       overdueTotal += r.itemOverdue();
-      insRows += tr9(
+      row(insRows,
           String.valueOf(r.instructionId()),
           String.valueOf(r.title()),
           String.valueOf(r.status()),
@@ -214,54 +305,44 @@ public class CaseDetailService {
       );
     }
 
-    String paymentsRows = "";
-    paymentsRows += tr("合计金额", fmtMoney(b.paymentsAgg.sumAll()));
-    paymentsRows += tr("近30天金额", fmtMoney(b.paymentsAgg.sum30d()));
-    paymentsRows += tr("有效回款笔数", String.valueOf(b.paymentsAgg.effectiveCount()));
-    paymentsRows += tr("最近回款时间", fmtDateTime(b.paymentsAgg.latestPaidAt()));
-
-    return template
-        .replace("{{CASE_ID}}", esc(b.caseId.toString()))
-        .replace("{{CASE_CODE}}", esc(b.caseCode()))
-        .replace("{{CASE_INFO_ROWS}}", infoRows)
-        .replace("{{MEMBERS_ROWS}}", membersRows)
-        .replace("{{TASKS_ROWS}}", tasksRows)
-        .replace("{{INSTRUCTION_OVERDUE_TOTAL}}", String.valueOf(overdueTotal))
-        .replace("{{INSTRUCTIONS_ROWS}}", insRows)
-        .replace("{{PAYMENTS_ROWS}}", paymentsRows);
-  }
-
-  private byte[] htmlToPdfBytes(String html) {
-    try {
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
-      PdfRendererBuilder builder = new PdfRendererBuilder();
-      builder.withHtmlContent(html, null);
-      builder.toStream(out);
-      builder.run();
-      return out.toByteArray();
-    } catch (Exception e) {
-      throw new IllegalStateException("PDF_RENDER_FAILED");
-    }
+    StringBuilder paymentsRows = new StringBuilder(512);
+    tr(paymentsRows, "合计金额", fmtMoney(b.paymentsAgg.sumAll()));
+    tr(paymentsRows, "近30天金额", fmtMoney(b.paymentsAgg.sum30d()));
+    tr(paymentsRows, "有效回款笔数", String.valueOf(b.paymentsAgg.effectiveCount()));
+    tr(paymentsRows, "最近回款时间", fmtDateTime(b.paymentsAgg.latestPaidAt()));
+
+    return a4Template.render(Map.of(
+        "CASE_ID", esc(b.caseId.toString()),
+        "CASE_CODE", esc(b.caseCode()),
+        "CASE_INFO_ROWS", infoRows,
+        "MEMBERS_ROWS", membersRows,
+        "TASKS_ROWS", tasksRows,
+        "INSTRUCTION_OVERDUE_TOTAL", String.valueOf(overdueTotal),
+        "INSTRUCTIONS_ROWS", insRows,
+        "PAYMENTS_ROWS", paymentsRows
+    ), null);
   }
 
-  private static String readClasspathText(String path) {
-    try {
-      ClassPathResource r = new ClassPathResource(path);
-      byte[] bytes = r.getInputStream().readAllBytes();
-      return new String(bytes, StandardCharsets.UTF_8);
-    } catch (Exception e) {
-      throw new IllegalStateException("TEMPLATE_NOT_FOUND");
-    }
+  private void writeAudit(HttpServletRequest httpReq,
+                          UUID actorUserId,
+                          UUID groupId,
+                          String action,
+                          String targetType,
+                          UUID targetId,
+                          String detailJson) {
+    writeAudit((String) httpReq.getAttribute(RequestIdFilter.REQ_ID_ATTR), httpReq.getRemoteAddr(),
+        httpReq.getHeader("User-Agent"), actorUserId, groupId, action, targetType, targetId, detailJson);
   }
 
-  private void writeAudit(HttpServletRequest httpReq,
+  private void writeAudit(String requestId,
+                          String ip,
+                          String userAgent,
                           UUID actorUserId,
                           UUID groupId,
                           String action,
                           String targetType,
                           UUID targetId,
                           String detailJson) {
-    String rid = (String) httpReq.getAttribute(RequestIdFilter.REQ_ID_ATTR);
     jdbc.update(
         """
         insert into audit_log(group_id, actor_user_id, action, object_type, object_id, request_id, ip, user_agent, summary)
@@ -272,37 +353,33 @@ public class CaseDetailService {
         action,
         targetType,
         targetId,
-        rid,
-        httpReq.getRemoteAddr(),
-        httpReq.getHeader("User-Agent"),
+        requestId,
+        ip,
+        userAgent,
         detailJson
     );
   }
 
   private static String esc(String s) {
-    if (s == null) return "";
-    return s
-        .replace("&", "&amp;")
-        .replace("<", "&lt;")
-        .replace(">", "&gt;")
-        .replace("\"", "&quot;")
-        .replace("'", "&#39;");
+    return HtmlTemplate.escape(s);
   }
 
-  private static String tr(String k, String v) {
-    return "<tr><th class=\"k\">" + esc(k) + "</th><td>" + esc(v) + "</td></tr>";
+  private static void tr(StringBuilder out, String k, String v) {
+    out.append("<tr><th class=\"k\">");
+    HtmlTemplate.appendEscaped(out, k);
+    out.append("</th><td>");
+    HtmlTemplate.appendEscaped(out, v);
+    out.append("</td></tr>");
   }
 
-  private static String tr4(String c1, String c2, String c3, String c4) {
-    return "<tr><td>" + esc(c1) + "</td><td>" + esc(c2) + "</td><td>" + esc(c3) + "</td><td>" + esc(c4) + "</td></tr>";
-  }
-
-  private static String tr6(String c1, String c2, String c3, String c4, String c5, String c6) {
-    return "<tr><td>" + esc(c1) + "</td><td>" + esc(c2) + "</td><td>" + esc(c3) + "</td><td>" + esc(c4) + "</td><td>" + esc(c5) + "</td><td>" + esc(c6) + "</td></tr>";
-  }
-
-  private static String tr9(String c1, String c2, String c3, String c4, String c5, String c6, String c7, String c8, String c9) {
-    return "<tr><td>" + esc(c1) + "</td><td>" + esc(c2) + "</td><td>" + esc(c3) + "</td><td>" + esc(c4) + "</td><td>" + esc(c5) + "</td><td>" + esc(c6) + "</td><td>" + esc(c7) + "</td><td>" + esc(c8) + "</td><td>" + esc(c9) + "</td></tr>";
+  private static void row(StringBuilder out, String... cells) {
+    out.append("<tr>");
+    for (String c : cells) {
+      out.append("<td>");
+      HtmlTemplate.appendEscaped(out, c);
+      out.append("</td>");
+    }
+    out.append("</tr>");
   }
 
   private static String fmtMoney(BigDecimal v) {
@@ -310,27 +387,8 @@ public class CaseDetailService {
     return v.stripTrailingZeros().toPlainString();
   }
 
-  private static OffsetDateTime toOffsetDateTime(Object v) {
-    if (v == null) return null;
-    if (v instanceof OffsetDateTime odt) return odt;
-    if (v instanceof Timestamp ts) return ts.toInstant().atOffset(ZoneOffset.UTC);
-    if (v instanceof LocalDateTime ldt) return ldt.toInstant(ZoneOffset.UTC).atOffset(ZoneOffset.UTC);
-    return null;
-  }
-
-  private static LocalDate toLocalDate(Object v) {
-    if (v == null) return null;
-    if (v instanceof LocalDate ld) return ld;
-    if (v instanceof java.sql.Date d) return d.toLocalDate();
-    if (v instanceof Timestamp ts) return ts.toLocalDateTime().toLocalDate();
-    if (v instanceof LocalDateTime ldt) return ldt.toLocalDate();
-    return LocalDate.parse(String.valueOf(v));
-  }
-
-  private static String fmtDateTime(Object v) {
-    OffsetDateTime odt = toOffsetDateTime(v);
-    if (odt == null) return "";
-    return odt.toString();
+  private static String fmtDateTime(OffsetDateTime v) {
+    return v == null ? "" : v.toString();
   }
 
   private static String maskPhone(String phone) {
@@ -0,0 +1,49 @@
+package com.secp.api.export;
+
+import com.secp.api.auth.AuthContext;
+import com.secp.api.auth.AuthPrincipal;
+import com.secp.api.export.dto.A4BulkExportResponse;
+import com.secp.api.export.dto.CreateA4BulkExportRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/exports/a4")
+public class A4BulkExportController {
+
+  private final A4BulkExportService service;
+
+  @PostMapping
+  public ResponseEntity<A4BulkExportResponse> submit(@Valid @RequestBody CreateA4BulkExportRequest req,
+                                                     HttpServletRequest httpReq) {
+    AuthPrincipal principal = AuthContext.getRequired();
+    return ResponseEntity.accepted().body(service.submit(principal, req, httpReq));
+  }
+
+  @GetMapping("/{jobId}")
+  public A4BulkExportResponse status(@PathVariable UUID jobId) {
+    AuthPrincipal principal = AuthContext.getRequired();
+    return service.status(principal, jobId);
+  }
+
+  @GetMapping("/{jobId}/download")
+  public void download(@PathVariable UUID jobId, HttpServletRequest httpReq, HttpServletResponse resp)
+      throws IOException {
+    AuthPrincipal principal = AuthContext.getRequired();
+    A4BulkExportService.Download download = service.prepareDownload(principal, jobId, httpReq);
+
+    resp.setContentType("application/zip");
+    resp.setContentLengthLong(download.sizeBytes());
+    resp.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + download.filename() + "\"");
+    service.writeZip(download, resp.getOutputStream());
+  }
+}
@@ -0,0 +1,29 @@
+package com.secp.api.export;
+
+import com.secp.api.infra.ErrorResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class A4BulkExportExceptionHandler {
+
+  @ExceptionHandler(A4BulkExportNotFoundException.class)
+  public ResponseEntity<ErrorResponse> notFound(A4BulkExportNotFoundException ex) {
+    return ResponseEntity.status(404).body(ErrorResponse.of("NOT_FOUND", "导出任务不存在或已过期。"));
+  }
+
+  @ExceptionHandler(A4BulkExportNotReadyException.class)
+  public ResponseEntity<ErrorResponse> notReady(A4BulkExportNotReadyException ex) {
+    if ("failed".equals(ex.status())) {
+      return ResponseEntity.status(409).body(ErrorResponse.of("EXPORT_FAILED", "导出任务失败，请重新提交。", ex.status()));
+    }
+    return ResponseEntity.status(409).body(ErrorResponse.of("NOT_READY", "导出任务尚未完成，请稍后再试。", ex.status()));
+  }
+
+  @ExceptionHandler(A4BulkExportTooLargeException.class)
+  public ResponseEntity<ErrorResponse> tooLarge(A4BulkExportTooLargeException ex) {
+    return ResponseEntity.status(413)
+        .body(ErrorResponse.of("TOO_MANY_ITEMS", "单次导出数量超过上限（" + ex.maxItems() + "）。"));
+  }
+}
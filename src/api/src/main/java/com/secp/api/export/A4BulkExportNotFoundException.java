@@ -0,0 +1,7 @@
+package com.secp.api.export;
+
+public class A4BulkExportNotFoundException extends RuntimeException {
+  public A4BulkExportNotFoundException() {
+    super("NOT_FOUND");
+  }
+}
@@ -0,0 +1,18 @@
+package com.secp.api.export;
+
+/**
+ * Download of a job that is still queued/running, or failed without a zip.
+ */
+public class A4BulkExportNotReadyException extends RuntimeException {
+
+  private final String status;
+
+  public A4BulkExportNotReadyException(String status) {
+    super("NOT_READY");
+    this.status = status;
+  }
+
+  public String status() {
+    return status;
+  }
+}
@@ -0,0 +1,422 @@
+package com.secp.api.export;
+
+import com.secp.api.auth.AuthPrincipal;
+import com.secp.api.casedetail.CaseDetailService;
+import com.secp.api.casedetail.CaseNotFoundException;
+import com.secp.api.infra.RlsSessionJdbc;
+import com.secp.api.infra.pdf.A4ExportCache;
+import com.secp.api.infra.pdf.A4ExportOrigin;
+import com.secp.api.infra.pdf.PdfProperties;
+import com.secp.api.infra.s3.S3Storage;
+import com.secp.api.project.ProjectDetailService;
+import com.secp.api.project.ProjectNotFoundException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Runs queued a4_bulk_export_job rows off the request threads.
+ * <p>
+ * A job is claimed in a short transaction (SKIP LOCKED, so any number of instances can run jobs)
+ * and its items are rendered as the requester, through the same RLS, PDF cache and audit as a
+ * single export, on a dedicated pool of {@code secp.pdf.bulk.concurrency} threads. Each rendered
+ * item is spooled to a temp file and appended to the zip in submit order as soon as it is next in
+ * line, with at most two items per thread in flight, so neither the zip nor the PDFs are ever held
+ * in memory. Item results are written back in batches. While a job runs (slow items and the zip
+ * upload included) a timer refreshes its heartbeat every {@link #HEARTBEAT_SECONDS}.
+ * <p>
+ * Rendering needs this application's loaders, templates and fonts, which is why jobs run here and
+ * not in the worker; instances that should only serve requests set
+ * {@code secp.pdf.bulk.runner-enabled=false}. The worker deletes expired jobs and their zips.
+ */
+@Component
+public class A4BulkExportRunner {
+
+  private static final Logger log = LoggerFactory.getLogger(A4BulkExportRunner.class);
+
+  private static final int FLUSH_EVERY = 50;
+  /**
+   * A running job whose heartbeat is older than this lost its runner (crash, redeploy) and is
+   * queued again, up to {@link #MAX_ATTEMPTS} claims.
+   */
+  private static final long STALE_SECONDS = 600;
+  /** Well below {@link #STALE_SECONDS}, so a few missed beats (DB hiccup, GC) do not requeue a live job. */
+  private static final long HEARTBEAT_SECONDS = 60;
+  private static final int MAX_ATTEMPTS = 3;
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final RlsSessionJdbc rlsSessionJdbc;
+  private final S3Storage s3;
+  private final ProjectDetailService projects;
+  private final CaseDetailService cases;
+  private final PdfProperties.Bulk props;
+  private final int concurrency;
+  private final ExecutorService pool;
+  private final ScheduledExecutorService heartbeats;
+
+  public A4BulkExportRunner(JdbcTemplate jdbc,
+                            PlatformTransactionManager txManager,
+                            RlsSessionJdbc rlsSessionJdbc,
+                            S3Storage s3,
+                            ProjectDetailService projects,
+                            CaseDetailService cases,
+                            PdfProperties props) {
+    this.jdbc = jdbc;
+    this.tx = new TransactionTemplate(txManager);
+    this.rlsSessionJdbc = rlsSessionJdbc;
+    this.s3 = s3;
+    this.projects = projects;
+    this.cases = cases;
+    this.props = props.bulk();
+    this.concurrency = Math.max(1, this.props.concurrency());
+    this.pool = Executors.newFixedThreadPool(concurrency, r -> {
+      Thread t = new Thread(r, "a4-bulk-export");
+      t.setDaemon(true);
+      return t;
+    });
+    this.heartbeats = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "a4-bulk-heartbeat");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    pool.shutdownNow();
+    heartbeats.shutdownNow();
+  }
+
+  @Scheduled(fixedDelayString = "${secp.pdf.bulk.poll-ms:1000}", initialDelayString = "${secp.pdf.bulk.poll-ms:1000}")
+  public void tick() {
+    if (!props.runnerEnabled()) {
+      return;
+    }
+    try {
+      requeueStale();
+      Job job;
+      while (!pool.isShutdown() && (job = asRunner(this::claimNext)) != null) {
+        process(job);
+      }
+    } catch (RuntimeException e) {
+      log.warn("A4 bulk export poll failed", e);
+    }
+  }
+
+  record Job(UUID id, String objectType, String requestId, AuthPrincipal requester, List<Item> items) {
+  }
+
+  record Item(int seq, UUID objectId) {
+  }
+
+  /**
+   * @param pdf null when the item failed
+   */
+  private record Rendered(Item item, String entryName, Path pdf, String error) {
+  }
+
+  private Job claimNext() {
+    List<Job> claimed = jdbc.query(
+        """
+        update a4_bulk_export_job j
+           set status = 'running', attempts = j.attempts + 1, started_at = now(), heartbeat_at = now(),
+               done_count = 0, failed_count = 0
+          from app_user u
+         where j.id = (
+                 select id
+                   from a4_bulk_export_job
+                  where status = 'queued'
+                  order by created_at
+                  limit 1
+                  for update skip locked
+               )
+           and u.id = j.requester_user_id
+        returning j.id, j.object_type, j.request_id, u.id as user_id, u.is_admin, u.username, u.user_type
+        """,
+        (rs, i) -> new Job(
+            rs.getObject("id", UUID.class),
+            rs.getString("object_type"),
+            rs.getString("request_id"),
+            // current flags, not the ones at submit time
+            new AuthPrincipal(rs.getObject("user_id", UUID.class), rs.getBoolean("is_admin"),
+                rs.getString("username"), rs.getString("user_type")),
+            List.of()
+        )
+    );
+    if (claimed.isEmpty()) {
+      return null;
+    }
+    Job job = claimed.getFirst();
+    // a retried job starts over; its finished items are cheap cache hits
+    jdbc.update(
+        "update a4_bulk_export_item set status = 'queued', error = null, entry_name = null where job_id = ? and status <> 'queued'",
+        job.id()
+    );
+    List<Item> items = jdbc.query(
+        "select seq, object_id from a4_bulk_export_item where job_id = ? order by seq",
+        (rs, i) -> new Item(rs.getInt("seq"), rs.getObject("object_id", UUID.class)),
+        job.id()
+    );
+    return new Job(job.id(), job.objectType(), job.requestId(), job.requester(), items);
+  }
+
+  void process(Job job) {
+    Path zip = null;
+    ScheduledFuture<?> beat = heartbeats.scheduleWithFixedDelay(
+        () -> heartbeat(job), HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    try {
+      zip = Files.createTempFile("secp-a4-bulk-", ".zip");
+      int exported = writeZip(job, zip);
+      if (exported == 0) {
+        finish(job, "failed", "NOTHING_EXPORTED", null, null);
+        return;
+      }
+      String key = "a4-bulk/" + job.id() + ".zip";
+      s3.putFile(key, zip, "application/zip");
+      finish(job, "done", null, key, Files.size(zip));
+    } catch (JobLostException e) {
+      log.warn("A4 bulk export job lost while running jobId={}", job.id());
+    } catch (Exception e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      if (pool.isShutdown()) {
+        // shutting down: left 'running', requeued once its heartbeat is stale
+        log.info("A4 bulk export interrupted by shutdown jobId={}", job.id());
+        return;
+      }
+      log.warn("A4 bulk export failed jobId={}", job.id(), e);
+      finish(job, "failed", "EXPORT_FAILED", null, null);
+    } finally {
+      beat.cancel(false);
+      deleteQuietly(zip);
+    }
+  }
+
+  /**
+   * Runs on the heartbeat timer; must not throw, or the timer stops beating for this job.
+   */
+  private void heartbeat(Job job) {
+    try {
+      asRunner(() -> jdbc.update(
+          "update a4_bulk_export_job set heartbeat_at = now() where id = ? and status = 'running'",
+          job.id()
+      ));
+    } catch (RuntimeException e) {
+      log.warn("A4 bulk export heartbeat failed jobId={}", job.id(), e);
+    }
+  }
+
+  /**
+   * @return items written to the zip
+   */
+  private int writeZip(Job job, Path zipFile) throws IOException, InterruptedException, ExecutionException {
+    A4ExportOrigin origin = A4ExportOrigin.bulkJob(job.id(), job.requestId());
+    Deque<Future<Rendered>> inFlight = new ArrayDeque<>();
+    List<Rendered> unflushed = new ArrayList<>();
+    Set<String> names = new HashSet<>();
+    int exported = 0;
+    try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(zipFile)))) {
+      // PDF streams are already compressed
+      zip.setLevel(Deflater.BEST_SPEED);
+      Iterator<Item> pending = job.items().iterator();
+      while (pending.hasNext() || !inFlight.isEmpty()) {
+        while (pending.hasNext() && inFlight.size() < concurrency * 2) {
+          Item item = pending.next();
+          inFlight.addLast(pool.submit(() -> render(job, origin, item)));
+        }
+        Rendered r = inFlight.removeFirst().get();
+        if (r.pdf() != null) {
+          try {
+            zip.putNextEntry(new ZipEntry(uniqueName(names, r)));
+            Files.copy(r.pdf(), zip);
+            zip.closeEntry();
+            exported++;
+          } finally {
+            deleteQuietly(r.pdf());
+          }
+        }
+        unflushed.add(r);
+        if (unflushed.size() >= FLUSH_EVERY) {
+          flush(job, unflushed);
+        }
+      }
+    } finally {
+      for (Future<Rendered> f : inFlight) {
+        discard(f);
+      }
+    }
+    flush(job, unflushed);
+    return exported;
+  }
+
+  private Rendered render(Job job, A4ExportOrigin origin, Item item) {
+    Path pdf = null;
+    try {
+      pdf = Files.createTempFile("secp-a4-bulk-item-", ".pdf");
+      String name;
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(pdf))) {
+        AuthPrincipal principal = job.requester();
+        if ("project".equals(job.objectType())) {
+          A4ExportCache.Prepared prepared = projects.prepareA4(principal, item.objectId(), origin);
+          projects.writeA4Pdf(principal, item.objectId(), prepared, out);
+          name = "Project_" + item.objectId() + ".pdf";
+        } else {
+          CaseDetailService.A4Export export = cases.prepareA4(principal, item.objectId(), origin);
+          cases.writeA4Pdf(principal, export, out);
+          name = export.filename();
+        }
+      }
+      return new Rendered(item, name, pdf, null);
+    } catch (ProjectNotFoundException | CaseNotFoundException e) {
+      deleteQuietly(pdf);
+      return new Rendered(item, null, null, "NOT_FOUND");
+    } catch (Exception e) {
+      deleteQuietly(pdf);
+      log.warn("A4 bulk export item failed jobId={} objectId={}", job.id(), item.objectId(), e);
+      return new Rendered(item, null, null, "RENDER_FAILED");
+    }
+  }
+
+  /**
+   * Entry names come from case codes and may repeat; later ones get their position appended.
+   */
+  private static String uniqueName(Set<String> names, Rendered r) {
+    String name = r.entryName();
+    if (!names.add(name)) {
+      name = name.substring(0, name.length() - ".pdf".length()) + "_" + r.item().seq() + ".pdf";
+      names.add(name);
+    }
+    return name;
+  }
+
+  private void flush(Job job, List<Rendered> results) {
+    if (results.isEmpty()) {
+      return;
+    }
+    int failed = 0;
+    List<Object[]> args = new ArrayList<>(results.size());
+    for (Rendered r : results) {
+      if (r.error() != null) {
+        failed++;
+      }
+      args.add(new Object[]{r.error() == null ? "done" : "failed", r.error(), r.entryName(), job.id(), r.item().seq()});
+    }
+    int done = results.size() - failed;
+    int failedCount = failed;
+    int updated = asRunner(() -> {
+      jdbc.batchUpdate(
+          "update a4_bulk_export_item set status = ?, error = ?, entry_name = ? where job_id = ? and seq = ?",
+          args
+      );
+      return jdbc.update(
+          """
+          update a4_bulk_export_job
+             set done_count = done_count + ?, failed_count = failed_count + ?, heartbeat_at = now()
+           where id = ? and status = 'running'
+          """,
+          done, failedCount, job.id()
+      );
+    });
+    results.clear();
+    if (updated == 0) {
+      // requeued as stale or deleted meanwhile; whoever owns it now finishes it
+      throw new JobLostException();
+    }
+  }
+
+  private void finish(Job job, String status, String error, String s3Key, Long sizeBytes) {
+    asRunner(() -> jdbc.update(
+        """
+        update a4_bulk_export_job
+           set status = ?, error = ?, s3_key = ?, size_bytes = ?, finished_at = now(),
+               expires_at = now() + make_interval(secs => ?)
+         where id = ? and status = 'running'
+        """,
+        status, error, s3Key, sizeBytes, props.ttlSeconds(), job.id()
+    ));
+  }
+
+  private void requeueStale() {
+    asRunner(() -> jdbc.update(
+        """
+        update a4_bulk_export_job
+           set status = case when attempts >= ? then 'failed' else 'queued' end,
+               error = case when attempts >= ? then 'RUNNER_LOST' end,
+               finished_at = case when attempts >= ? then now() end
+         where status = 'running'
+           and heartbeat_at < now() - make_interval(secs => ?)
+        """,
+        MAX_ATTEMPTS, MAX_ATTEMPTS, MAX_ATTEMPTS, STALE_SECONDS
+    ));
+  }
+
+  /**
+   * Job bookkeeping spans users, so it runs as admin; items are rendered as the requester.
+   */
+  private <T> T asRunner(Supplier<T> body) {
+    return tx.execute(s -> {
+      rlsSessionJdbc.applyRlsSession("", true, "");
+      return body.get();
+    });
+  }
+
+  /**
+   * Wait for an item the zip will not take and delete its spool file. Not cancelled: a render
+   * cancelled mid-way would still finish and leave its file behind.
+   */
+  private static void discard(Future<Rendered> f) {
+    try {
+      deleteQuietly(f.get().pdf());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException ignored) {
+      // render threw: nothing spooled
+    }
+  }
+
+  private static void deleteQuietly(Path p) {
+    if (p == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(p);
+    } catch (IOException ignored) {
+      // best-effort
+    }
+  }
+
+  private static class JobLostException extends RuntimeException {
+  }
+}
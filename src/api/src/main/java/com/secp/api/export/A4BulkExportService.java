@@ -0,0 +1,237 @@
+package com.secp.api.export;
+
+import com.secp.api.auth.AuthPrincipal;
+import com.secp.api.export.dto.A4BulkExportResponse;
+import com.secp.api.export.dto.CreateA4BulkExportRequest;
+import com.secp.api.infra.RequestIdFilter;
+import com.secp.api.infra.pdf.PdfProperties;
+import com.secp.api.infra.s3.S3Storage;
+import com.secp.api.infra.tx.TransactionalExecutor;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Submit, poll and download bulk A4 exports. Submitting only records the job and its items; the
+ * rendering is done by {@link A4BulkExportRunner}.
+ */
+@Service
+public class A4BulkExportService {
+
+  private static final int MAX_LISTED_FAILURES = 100;
+
+  private final TransactionalExecutor tx;
+  private final JdbcTemplate jdbc;
+  private final S3Storage s3;
+  private final PdfProperties.Bulk props;
+
+  public A4BulkExportService(TransactionalExecutor tx, JdbcTemplate jdbc, S3Storage s3, PdfProperties props) {
+    this.tx = tx;
+    this.jdbc = jdbc;
+    this.s3 = s3;
+    this.props = props.bulk();
+  }
+
+  /**
+   * A finished job's zip.
+   */
+  public record Download(UUID jobId, String s3Key, long sizeBytes) {
+
+    public String filename() {
+      return "A4_" + jobId + ".zip";
+    }
+  }
+
+  /**
+   * Group exports resolve their items here, under the requester's RLS, so the job exports exactly
+   * what the requester could see at submit time. Listed ids are not checked up front: ones the
+   * requester cannot see fail as NOT_FOUND when rendered, like a single export would.
+   */
+  public A4BulkExportResponse submit(AuthPrincipal principal, CreateA4BulkExportRequest req, HttpServletRequest httpReq) {
+    String objectType = req.objectType();
+    if (!"project".equals(objectType) && !"case".equals(objectType)) {
+      throw new IllegalArgumentException("BAD_REQUEST");
+    }
+    boolean byIds = req.ids() != null && !req.ids().isEmpty();
+    if (byIds == (req.groupId() != null)) {
+      throw new IllegalArgumentException("BAD_REQUEST");
+    }
+    int maxItems = Math.max(1, props.maxItems());
+    Set<UUID> listed = new LinkedHashSet<>();
+    if (byIds) {
+      listed.addAll(req.ids());
+      listed.remove(null);
+    }
+    if (listed.size() > maxItems) {
+      throw new A4BulkExportTooLargeException(maxItems);
+    }
+
+    return tx.execute(principal, () -> {
+      List<UUID> ids = byIds ? List.copyOf(listed) : listGroupObjects(objectType, req.groupId(), maxItems + 1);
+      if (ids.isEmpty()) {
+        throw new IllegalArgumentException("BAD_REQUEST");
+      }
+      if (ids.size() > maxItems) {
+        throw new A4BulkExportTooLargeException(maxItems);
+      }
+
+      String rid = (String) httpReq.getAttribute(RequestIdFilter.REQ_ID_ATTR);
+      UUID jobId = jdbc.queryForObject(
+          """
+          insert into a4_bulk_export_job(requester_user_id, object_type, item_count, request_id, expires_at)
+          values (?,?,?,?, now() + make_interval(secs => ?))
+          returning id
+          """,
+          UUID.class,
+          principal.userId(), objectType, ids.size(), rid, props.ttlSeconds()
+      );
+      UUID[] idArray = ids.toArray(UUID[]::new);
+      jdbc.update(
+          """
+          insert into a4_bulk_export_item(job_id, seq, object_id)
+          select ?, t.ord::int, t.id
+            from unnest(?::uuid[]) with ordinality as t(id, ord)
+          """,
+          ps -> {
+            ps.setObject(1, jobId);
+            ps.setArray(2, ps.getConnection().createArrayOf("uuid", idArray));
+          }
+      );
+
+      jdbc.update(
+          """
+          insert into audit_log(group_id, actor_user_id, action, object_type, object_id, request_id, ip, user_agent, summary)
+          values (?,?,?,?,?,?,?,?, ?::jsonb)
+          """,
+          req.groupId(),
+          principal.userId(),
+          "a4_bulk_export_submit",
+          "a4_bulk_export",
+          jobId,
+          rid,
+          httpReq.getRemoteAddr(),
+          httpReq.getHeader("User-Agent"),
+          "{\"objectType\":\"" + objectType + "\",\"items\":" + ids.size()
+              + (req.groupId() == null ? "" : ",\"groupId\":\"" + req.groupId() + "\"") + "}"
+      );
+      return loadStatus(jobId);
+    });
+  }
+
+  public A4BulkExportResponse status(AuthPrincipal principal, UUID jobId) {
+    return tx.execute(principal, () -> loadStatus(jobId));
+  }
+
+  /**
+   * @throws A4BulkExportNotReadyException while the job is queued/running, or when it failed
+   */
+  public Download prepareDownload(AuthPrincipal principal, UUID jobId, HttpServletRequest httpReq) {
+    return tx.execute(principal, () -> {
+      List<Map<String, Object>> rows = jdbc.queryForList(
+          """
+          select status, s3_key, size_bytes
+            from a4_bulk_export_job
+           where id = ? and expires_at > now()
+          """,
+          jobId
+      );
+      if (rows.isEmpty()) {
+        throw new A4BulkExportNotFoundException();
+      }
+      Map<String, Object> row = rows.getFirst();
+      String status = String.valueOf(row.get("status"));
+      if (!"done".equals(status)) {
+        throw new A4BulkExportNotReadyException(status);
+      }
+      jdbc.update(
+          """
+          insert into audit_log(group_id, actor_user_id, action, object_type, object_id, request_id, ip, user_agent, summary)
+          values (null,?,?,?,?,?,?,?, ?::jsonb)
+          """,
+          principal.userId(),
+          "a4_bulk_export_download",
+          "a4_bulk_export",
+          jobId,
+          httpReq.getAttribute(RequestIdFilter.REQ_ID_ATTR),
+          httpReq.getRemoteAddr(),
+          httpReq.getHeader("User-Agent"),
+          "{\"jobId\":\"" + jobId + "\"}"
+      );
+      return new Download(jobId, String.valueOf(row.get("s3_key")), ((Number) row.get("size_bytes")).longValue());
+    });
+  }
+
+  public void writeZip(Download download, OutputStream out) {
+    try (InputStream in = s3.openStream(download.s3Key())) {
+      in.transferTo(out);
+    } catch (IOException e) {
+      throw new IllegalStateException("A4_BULK_DOWNLOAD_FAILED", e);
+    }
+  }
+
+  private List<UUID> listGroupObjects(String objectType, UUID groupId, int limit) {
+    String table = "project".equals(objectType) ? "project" : "\"case\"";
+    return jdbc.queryForList(
+        "select id from " + table + " where group_id = ? order by created_at, id limit ?",
+        UUID.class,
+        groupId, limit
+    );
+  }
+
+  private A4BulkExportResponse loadStatus(UUID jobId) {
+    List<A4BulkExportResponse> jobs = jdbc.query(
+        """
+        select id, object_type, status, error, item_count, done_count, failed_count, size_bytes,
+               created_at, finished_at, expires_at
+          from a4_bulk_export_job
+         where id = ?
+        """,
+        (rs, i) -> new A4BulkExportResponse(
+            rs.getObject("id", UUID.class),
+            rs.getString("object_type"),
+            rs.getString("status"),
+            rs.getString("error"),
+            rs.getInt("item_count"),
+            rs.getInt("done_count"),
+            rs.getInt("failed_count"),
+            rs.getObject("size_bytes", Long.class),
+            rs.getObject("created_at", OffsetDateTime.class),
+            rs.getObject("finished_at", OffsetDateTime.class),
+            rs.getObject("expires_at", OffsetDateTime.class),
+            List.of()
+        ),
+        jobId
+    );
+    if (jobs.isEmpty()) {
+      throw new A4BulkExportNotFoundException();
+    }
+    A4BulkExportResponse job = jobs.getFirst();
+    if (job.failedCount() == 0) {
+      return job;
+    }
+    List<A4BulkExportResponse.Failure> failures = jdbc.query(
+        """
+        select object_id, error
+          from a4_bulk_export_item
+         where job_id = ? and status = 'failed'
+         order by seq
+         limit ?
+        """,
+        (rs, i) -> new A4BulkExportResponse.Failure(rs.getObject("object_id", UUID.class), rs.getString("error")),
+        jobId, MAX_LISTED_FAILURES
+    );
+    return new A4BulkExportResponse(job.jobId(), job.objectType(), job.status(), job.error(), job.itemCount(),
+        job.doneCount(), job.failedCount(), job.sizeBytes(), job.createdAt(), job.finishedAt(), job.expiresAt(),
+        failures);
+  }
+}
@@ -0,0 +1,15 @@
+package com.secp.api.export;
+
+public class A4BulkExportTooLargeException extends RuntimeException {
+
+  private final int maxItems;
+
+  public A4BulkExportTooLargeException(int maxItems) {
+    super("TOO_MANY_ITEMS");
+    this.maxItems = maxItems;
+  }
+
+  public int maxItems() {
+    return maxItems;
+  }
+}
@@ -0,0 +1,28 @@
+package com.secp.api.export.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * @param status   queued, running, done (zip downloadable until {@code expiresAt}) or failed
+ * @param failures items left out of the zip (first 100, in submit order)
+ */
+public record A4BulkExportResponse(
+    UUID jobId,
+    String objectType,
+    String status,
+    String error,
+    int itemCount,
+    int doneCount,
+    int failedCount,
+    Long sizeBytes,
+    OffsetDateTime createdAt,
+    OffsetDateTime finishedAt,
+    OffsetDateTime expiresAt,
+    List<Failure> failures
+) {
+
+  public record Failure(UUID objectId, String error) {
+  }
+}
@@ -0,0 +1,19 @@
+package com.secp.api.export.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Either {@code ids} (exported in the given order) or {@code groupId} (every project/case of the
+ * group visible to the requester).
+ *
+ * @param objectType {@code project} or {@code case}
+ */
+public record CreateA4BulkExportRequest(
+    @NotBlank String objectType,
+    List<UUID> ids,
+    UUID groupId
+) {
+}
@@ -2,6 +2,12 @@ package com.secp.api.file;
 
 import com.secp.api.auth.AuthContext;
 import com.secp.api.auth.AuthPrincipal;
+import com.secp.api.file.dto.MultipartPartUrlsRequest;
+import com.secp.api.file.dto.MultipartPartUrlsResponse;
+import com.secp.api.file.dto.MultipartUploadCompleteRequest;
+import com.secp.api.file.dto.MultipartUploadInitRequest;
+import com.secp.api.file.dto.MultipartUploadInitResponse;
+import com.secp.api.file.dto.MultipartUploadStatusResponse;
 import com.secp.api.file.dto.UploadCompleteRequest;
 import com.secp.api.file.dto.UploadCompleteResponse;
 import com.secp.api.file.dto.UploadInitRequest;
@@ -12,6 +18,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.UUID;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/files")
@@ -32,4 +40,38 @@ public class FileUploadController {
     UploadCompleteResponse resp = fileUploadService.uploadComplete(principal, req, httpReq);
     return ResponseEntity.ok(resp);
   }
+
+  @PostMapping("/multipart-init")
+  public MultipartUploadInitResponse multipartInit(@Valid @RequestBody MultipartUploadInitRequest req) {
+    AuthPrincipal principal = AuthContext.getRequired();
+    return fileUploadService.multipartInit(principal, req);
+  }
+
+  @PostMapping("/multipart/{fileId}/part-urls")
+  public MultipartPartUrlsResponse multipartPartUrls(@PathVariable UUID fileId,
+                                                     @Valid @RequestBody MultipartPartUrlsRequest req) {
+    AuthPrincipal principal = AuthContext.getRequired();
+    return fileUploadService.multipartPartUrls(principal, fileId, req);
+  }
+
+  @GetMapping("/multipart/{fileId}")
+  public MultipartUploadStatusResponse multipartStatus(@PathVariable UUID fileId) {
+    AuthPrincipal principal = AuthContext.getRequired();
+    return fileUploadService.multipartStatus(principal, fileId);
+  }
+
+  @PostMapping("/multipart/{fileId}/complete")
+  public ResponseEntity<UploadCompleteResponse> multipartComplete(@PathVariable UUID fileId,
+                                                                  @RequestBody(required = false) MultipartUploadCompleteRequest req,
+                                                                  HttpServletRequest httpReq) {
+    AuthPrincipal principal = AuthContext.getRequired();
+    return ResponseEntity.ok(fileUploadService.multipartComplete(principal, fileId, req, httpReq));
+  }
+
+  @DeleteMapping("/multipart/{fileId}")
+  public ResponseEntity<Void> multipartAbort(@PathVariable UUID fileId) {
+    AuthPrincipal principal = AuthContext.getRequired();
+    fileUploadService.multipartAbort(principal, fileId);
+    return ResponseEntity.noContent().build();
+  }
 }
@@ -0,0 +1,26 @@
+package com.secp.api.file;
+
+import com.secp.api.infra.ErrorResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class FileUploadExceptionHandler {
+
+  @ExceptionHandler(FileUploadNotFoundException.class)
+  public ResponseEntity<ErrorResponse> notFound(FileUploadNotFoundException ex) {
+    return ResponseEntity.status(404).body(ErrorResponse.of("NOT_FOUND", "上传任务不存在或已过期。"));
+  }
+
+  @ExceptionHandler(FileUploadIncompleteException.class)
+  public ResponseEntity<ErrorResponse> incomplete(FileUploadIncompleteException ex) {
+    return ResponseEntity.status(409).body(ErrorResponse.of("UPLOAD_INCOMPLETE", "文件分片尚未全部上传。",
+        String.valueOf(ex.missingParts())));
+  }
+
+  @ExceptionHandler(FileUploadHashMismatchException.class)
+  public ResponseEntity<ErrorResponse> hashMismatch(FileUploadHashMismatchException ex) {
+    return ResponseEntity.status(422).body(ErrorResponse.of("SHA256_MISMATCH", "文件内容与声明的 SHA-256 不一致，请重新上传。"));
+  }
+}
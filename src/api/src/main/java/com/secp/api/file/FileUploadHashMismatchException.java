@@ -0,0 +1,7 @@
+package com.secp.api.file;
+
+public class FileUploadHashMismatchException extends RuntimeException {
+  public FileUploadHashMismatchException() {
+    super("SHA256_MISMATCH");
+  }
+}
@@ -0,0 +1,17 @@
+package com.secp.api.file;
+
+import java.util.List;
+
+public class FileUploadIncompleteException extends RuntimeException {
+
+  private final List<Integer> missingParts;
+
+  public FileUploadIncompleteException(List<Integer> missingParts) {
+    super("UPLOAD_INCOMPLETE");
+    this.missingParts = missingParts;
+  }
+
+  public List<Integer> missingParts() {
+    return missingParts;
+  }
+}
@@ -0,0 +1,7 @@
+package com.secp.api.file;
+
+public class FileUploadNotFoundException extends RuntimeException {
+  public FileUploadNotFoundException() {
+    super("NOT_FOUND");
+  }
+}
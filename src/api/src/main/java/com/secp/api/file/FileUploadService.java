@@ -1,6 +1,12 @@
 package com.secp.api.file;
 
 import com.secp.api.auth.AuthPrincipal;
+import com.secp.api.file.dto.MultipartPartUrlsRequest;
+import com.secp.api.file.dto.MultipartPartUrlsResponse;
+import com.secp.api.file.dto.MultipartUploadCompleteRequest;
+import com.secp.api.file.dto.MultipartUploadInitRequest;
+import com.secp.api.file.dto.MultipartUploadInitResponse;
+import com.secp.api.file.dto.MultipartUploadStatusResponse;
 import com.secp.api.file.dto.UploadCompleteRequest;
 import com.secp.api.file.dto.UploadCompleteResponse;
 import com.secp.api.file.dto.UploadInitRequest;
@@ -11,24 +17,48 @@ import com.secp.api.infra.s3.S3Storage;
 import com.secp.api.infra.tx.TransactionalExecutor;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class FileUploadService {
 
+  private static final Logger log = LoggerFactory.getLogger(FileUploadService.class);
+
   private static final Duration UPLOAD_URL_TTL = Duration.ofMinutes(10);
+  /**
+   * How long an unfinished multipart upload can be resumed before the worker aborts it.
+   */
+  private static final Duration MULTIPART_SESSION_TTL = Duration.ofHours(24);
+  /**
+   * S3 limits: parts of at least 5 MiB (except the last), at most 10,000 parts, objects up to 5 TiB.
+   */
+  static final long MIN_PART_SIZE = 8L * 1024 * 1024;
+  static final int MAX_PARTS = 10_000;
+  static final long MAX_OBJECT_SIZE = 5L * 1024 * 1024 * 1024 * 1024;
+  private static final int MAX_REPORTED_MISSING_PARTS = 50;
 
   private final TransactionalExecutor tx;
   private final JdbcTemplate jdbc;
   private final S3Storage s3;
   private final ResponseJson responseJson;
+  private final UploadProperties props;
 
   public UploadInitResponse uploadInit(AuthPrincipal principal, UploadInitRequest req) {
     // Internal-only: client/external are blocked here by InternalApiGuardFilter already.
@@ -42,8 +72,7 @@ public class FileUploadService {
       }
 
       UUID fileId = UUID.randomUUID();
-      String safeName = req.filename().replaceAll("[^a-zA-Z0-9._-]", "_");
-      String key = "raw/" + fileId + "/" + safeName;
+      String key = rawKey(fileId, req.filename());
 
       var presigned = s3.presignPut(key, req.contentType(), UPLOAD_URL_TTL);
       return new UploadInitResponse(
@@ -55,121 +84,454 @@ public class FileUploadService {
     });
   }
 
+  /**
+   * Hashes the uploaded object outside the transaction (the hash, not the client, decides what
+   * the content is), then registers it; the uploaded copy is deleted once the file points at its
+   * blob. Only the key upload-init issued for {@code req.fileId()} is read, copied or deleted.
+   */
   public UploadCompleteResponse uploadComplete(AuthPrincipal principal, UploadCompleteRequest req, HttpServletRequest httpReq) {
+    if (!rawKey(req.fileId(), req.filename()).equals(req.s3KeyRaw())) {
+      throw new IllegalArgumentException("BAD_S3_KEY");
+    }
+    UploadedObject uploaded = inspectUpload(req.s3KeyRaw(), req.sha256());
+    Registered r = tx.execute(principal, () -> registerUpload(principal, req, uploaded, httpReq));
+    deleteUploadedObject(r);
+    return r.response();
+  }
+
+  /**
+   * The key upload-init issues: {@code raw/{fileId}/} plus the sanitized filename.
+   */
+  static String rawKey(UUID fileId, String filename) {
+    return rawPrefix(fileId) + filename.replaceAll("[^a-zA-Z0-9._-]", "_");
+  }
+
+  private static String rawPrefix(UUID fileId) {
+    return "raw/" + fileId + "/";
+  }
+
+  /**
+   * @param uploadedKeyToDelete the object the client uploaded, now superseded by the blob; null when nothing changed
+   */
+  private record Registered(UploadCompleteResponse response, String uploadedKeyToDelete) {
+  }
+
+  /**
+   * The uploaded object as read before registering it.
+   *
+   * @param sha256 verified content hash; null when the object is above {@code maxHashBytes} and was not hashed
+   * @param eTag   version the hash (and size) belong to
+   */
+  private record UploadedObject(String key, String sha256, String eTag, long sizeBytes) {
+  }
+
+  /**
+   * Hashes objects up to {@link UploadProperties#maxHashBytes()}, which bounds the time this
+   * request spends streaming from S3; a larger object is only HEADed and a claimed sha256 is not
+   * checked. The hashing GET reads the HEADed version only, so an overwrite cannot make it stream
+   * more; one in between is refused like a mismatch and the client retries.
+   *
+   * @return null when the object is gone (an earlier attempt registered it and deleted it)
+   */
+  private UploadedObject inspectUpload(String key, String claimed) {
+    S3Storage.ObjectDigest digest;
+    try {
+      var head = s3.head(key);
+      long size = head.contentLength() == null ? 0L : head.contentLength();
+      if (size > props.maxHashBytes()) {
+        return new UploadedObject(key, null, head.eTag(), size);
+      }
+      digest = s3.sha256(key, head.eTag());
+    } catch (NoSuchKeyException e) {
+      return null;
+    } catch (S3Exception e) {
+      if (e.statusCode() == 412) {
+        throw new FileUploadHashMismatchException();
+      }
+      throw e;
+    }
+    if (claimed != null && !claimed.isBlank() && !claimed.equalsIgnoreCase(digest.sha256Hex())) {
+      throw new FileUploadHashMismatchException();
+    }
+    return new UploadedObject(key, digest.sha256Hex(), digest.eTag(), digest.sizeBytes());
+  }
+
+  private void deleteUploadedObject(Registered r) {
+    String key = r.uploadedKeyToDelete();
+    if (key == null) {
+      return;
+    }
+    if (!key.startsWith(rawPrefix(r.response().fileId()))) {
+      log.warn("Refusing to delete an object outside the file's raw prefix fileId={} key={}", r.response().fileId(), key);
+      return;
+    }
+    try {
+      s3.delete(key);
+    } catch (RuntimeException e) {
+      log.warn("Uploaded object not deleted after linking its blob key={}", key, e);
+    }
+  }
+
+  /**
+   * Records the uploaded object as a READY file_store row (audit + outbox once), linked to the
+   * blob of its hash, or under its own key when it was not hashed; runs inside the caller's
+   * transaction.
+   */
+  private Registered registerUpload(AuthPrincipal principal, UploadCompleteRequest req, UploadedObject uploaded,
+                                    HttpServletRequest httpReq) {
+    var caseRow = jdbc.queryForMap("select group_id, project_id from \"case\" where id=?", req.caseId());
+    UUID groupId = (UUID) caseRow.get("group_id");
+    UUID projectId = (UUID) caseRow.get("project_id");
+
+    Boolean allowed = jdbc.queryForObject("select app_can_write_group(?)", Boolean.class, groupId);
+    if (!Boolean.TRUE.equals(allowed)) {
+      throw new IllegalArgumentException("FORBIDDEN");
+    }
+
+    // Already registered: idempotent success without duplicate audit/outbox.
+    Registered existing = findRegistered(req.fileId());
+    if (existing != null) {
+      return existing;
+    }
+    if (uploaded == null) {
+      throw new IllegalStateException("FILE_NOT_FOUND");
+    }
+
+    String sha256 = uploaded.sha256();
+    long size = uploaded.sizeBytes();
+    String etag = uploaded.eTag();
+    Blob blob = sha256 == null ? null : linkBlob(uploaded, req.contentType());
+    String storedKey = blob == null ? uploaded.key() : blob.s3Key();
+
+    var inserted = jdbc.queryForList(
+        """
+        insert into file_store(
+          id, group_id, project_id, case_id,
+          filename, content_type, size_bytes, sha256,
+          s3_key_raw, blob_sha256,
+          created_by,
+          status,
+          etag
+        ) values (?,?,?,?,?,?,?,?,?,?,?,?,?)
+        on conflict (id) do nothing
+        returning id
+        """,
+        req.fileId(),
+        groupId,
+        projectId,
+        req.caseId(),
+        req.filename(),
+        req.contentType(),
+        size,
+        sha256,
+        storedKey,
+        sha256,
+        principal.userId(),
+        "READY",
+        etag
+    );
+    if (inserted.isEmpty()) {
+      // registered concurrently by another attempt, which also cleans up the uploaded object
+      Registered concurrent = findRegistered(req.fileId());
+      if (concurrent == null) {
+        throw new IllegalStateException("FILE_NOT_FOUND");
+      }
+      return concurrent;
+    }
+
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("fileId", req.fileId());
+    summary.put("caseId", req.caseId());
+    summary.put("projectId", projectId);
+    summary.put("etag", etag);
+    summary.put("sha256", sha256);
+    summary.put("deduplicated", blob != null && blob.deduplicated());
+    writeAudit(httpReq, principal.userId(), groupId, "upload_complete", "file_store", req.fileId(),
+        responseJson.toJson(summary));
+
+    writeOutbox(groupId, projectId, req.caseId(), principal.userId(),
+        "File.Uploaded",
+        "File.Uploaded:file:" + req.fileId() + ":v1",
+        responseJson.toJson(Map.of(
+            "fileId", req.fileId(),
+            "caseId", req.caseId(),
+            "projectId", projectId,
+            "s3KeyRaw", storedKey,
+            "contentType", req.contentType(),
+            "sizeBytes", size,
+            "etag", etag
+        ))
+    );
+
+    return new Registered(new UploadCompleteResponse(req.fileId()), blob == null ? null : uploaded.key());
+  }
+
+  private Registered findRegistered(UUID fileId) {
+    List<String> status = jdbc.queryForList("select status from file_store where id=?", String.class, fileId);
+    if (status.isEmpty()) {
+      return null;
+    }
+    if (!"READY".equals(status.getFirst())) {
+      throw new IllegalStateException("FILE_NOT_READY");
+    }
+    return new Registered(new UploadCompleteResponse(fileId), null);
+  }
+
+  /**
+   * @param deduplicated the content was already stored; the new file only links to it
+   */
+  private record Blob(String s3Key, boolean deduplicated) {
+  }
+
+  /**
+   * Finds or creates the blob of the uploaded object's hash. A new blob gets its own
+   * content-addressed copy of the uploaded object, of the version that was hashed: an object
+   * overwritten since fails the copy (412) and is refused like a hash mismatch. The upsert locks
+   * an existing row, so the worker cannot delete an unreferenced blob while it is being linked
+   * again (the file_store insert then raises ref_count).
+   */
+  private Blob linkBlob(UploadedObject uploaded, String contentType) {
+    Blob blob = jdbc.queryForObject(
+        """
+        insert into file_blob(sha256, s3_key, size_bytes, content_type)
+        values (?,?,?,?)
+        on conflict (sha256) do update set updated_at = now()
+        returning s3_key, (xmax <> 0) as deduplicated
+        """,
+        (rs, i) -> new Blob(rs.getString("s3_key"), rs.getBoolean("deduplicated")),
+        uploaded.sha256(),
+        blobKey(uploaded.sha256()),
+        uploaded.sizeBytes(),
+        contentType
+    );
+    if (!blob.deduplicated()) {
+      try {
+        s3.copy(uploaded.key(), uploaded.eTag(), blob.s3Key(), uploaded.sizeBytes());
+      } catch (S3Exception e) {
+        if (e.statusCode() == 412) {
+          throw new FileUploadHashMismatchException();
+        }
+        throw e;
+      }
+    }
+    return blob;
+  }
+
+  static String blobKey(String sha256) {
+    return "blob/" + sha256;
+  }
+
+  // -------------------- Multipart upload --------------------
+
+  /**
+   * Starts a multipart upload for files too large (or links too flaky) for one presigned PUT.
+   * The part size is chosen here so that the object stays within S3's 10,000 parts.
+   */
+  public MultipartUploadInitResponse multipartInit(AuthPrincipal principal, MultipartUploadInitRequest req) {
+    long sizeBytes = req.sizeBytes();
+    if (sizeBytes > MAX_OBJECT_SIZE) {
+      throw new IllegalArgumentException("FILE_TOO_LARGE");
+    }
+    long partSize = partSize(sizeBytes);
+    int partCount = (int) ((sizeBytes + partSize - 1) / partSize);
+
     return tx.execute(principal, () -> {
-      var caseRow = jdbc.queryForMap("select group_id, project_id from \"case\" where id=?", req.caseId());
-      UUID groupId = (UUID) caseRow.get("group_id");
-      UUID projectId = (UUID) caseRow.get("project_id");
+      var row = jdbc.queryForMap("select group_id, project_id from \"case\" where id=?", req.caseId());
+      UUID groupId = (UUID) row.get("group_id");
+      UUID projectId = (UUID) row.get("project_id");
 
       Boolean allowed = jdbc.queryForObject("select app_can_write_group(?)", Boolean.class, groupId);
       if (!Boolean.TRUE.equals(allowed)) {
         throw new IllegalArgumentException("FORBIDDEN");
       }
 
-      // Ensure object exists
-      var head = s3.head(req.s3KeyRaw());
-      long size = head.contentLength() == null ? 0L : head.contentLength();
-      String etag = head.eTag();
-
-      // Ensure file_store exists at least as INIT (for retry safety)
-      jdbc.update(
-          """
-          insert into file_store(
-            id, group_id, project_id, case_id,
-            filename, content_type, size_bytes, sha256,
-            s3_key_raw,
-            created_by,
-            status,
-            etag
-          ) values (?,?,?,?,?,?,?,?,?,?,?,?,?)
-          on conflict (id) do nothing
-          """,
-          req.fileId(),
-          groupId,
-          projectId,
-          req.caseId(),
-          req.filename(),
-          req.contentType(),
-          req.sizeBytes() != null ? req.sizeBytes() : size,
-          req.sha256(),
-          req.s3KeyRaw(),
-          principal.userId(),
-          "INIT",
-          etag
-      );
+      UUID fileId = UUID.randomUUID();
+      String key = rawKey(fileId, req.filename());
+      OffsetDateTime expiresAt = OffsetDateTime.now().plus(MULTIPART_SESSION_TTL);
 
-      // Transition INIT -> READY exactly once
-      var transitioned = jdbc.queryForList(
-          """
-          update file_store
-             set filename = ?,
-                 content_type = ?,
-                 size_bytes = ?,
-                 sha256 = ?,
-                 s3_key_raw = ?,
-                 status = 'READY',
-                 etag = ?
-           where id = ?
-             and group_id = ?
-             and project_id = ?
-             and case_id = ?
-             and status = 'INIT'
-          returning id
-          """,
-          req.filename(),
-          req.contentType(),
-          req.sizeBytes() != null ? req.sizeBytes() : size,
-          req.sha256(),
-          req.s3KeyRaw(),
-          etag,
-          req.fileId(),
-          groupId,
-          projectId,
-          req.caseId()
-      );
+      String uploadId = s3.createMultipartUpload(key, req.contentType());
+      try {
+        jdbc.update(
+            """
+            insert into file_multipart_upload(
+              file_id, upload_id, group_id, project_id, case_id,
+              filename, content_type, size_bytes, s3_key_raw,
+              part_size, part_count, created_by, expires_at
+            ) values (?,?,?,?,?,?,?,?,?,?,?,?,?)
+            """,
+            fileId,
+            uploadId,
+            groupId,
+            projectId,
+            req.caseId(),
+            req.filename(),
+            req.contentType(),
+            sizeBytes,
+            key,
+            partSize,
+            partCount,
+            principal.userId(),
+            expiresAt
+        );
+      } catch (RuntimeException e) {
+        s3.abortMultipartUpload(key, uploadId);
+        throw e;
+      }
+      return new MultipartUploadInitResponse(fileId, key, partSize, partCount, expiresAt);
+    });
+  }
 
-      boolean didTransition = !transitioned.isEmpty();
+  public MultipartPartUrlsResponse multipartPartUrls(AuthPrincipal principal, UUID fileId, MultipartPartUrlsRequest req) {
+    MultipartSession session = tx.execute(principal, () -> findSession(fileId));
+    List<MultipartPartUrlsResponse.PartUrl> urls = new ArrayList<>(req.partNumbers().size());
+    for (Integer n : req.partNumbers()) {
+      if (n == null || n < 1 || n > session.partCount()) {
+        throw new IllegalArgumentException("BAD_PART_NUMBER");
+      }
+      urls.add(new MultipartPartUrlsResponse.PartUrl(n,
+          s3.presignUploadPart(session.s3KeyRaw(), session.uploadId(), n, UPLOAD_URL_TTL).url()));
+    }
+    return new MultipartPartUrlsResponse(urls, OffsetDateTime.now().plus(UPLOAD_URL_TTL));
+  }
 
-      if (!didTransition) {
-        // If already READY, treat as idempotent success without duplicate audit/outbox.
-        var rows = jdbc.queryForList("select status from file_store where id=?", req.fileId());
-        if (rows.isEmpty()) {
-          throw new IllegalStateException("FILE_NOT_FOUND");
-        }
-        String status = String.valueOf(rows.getFirst().get("status"));
-        if (!"READY".equals(status)) {
-          throw new IllegalStateException("FILE_NOT_READY");
-        }
-        return new UploadCompleteResponse(req.fileId());
+  public MultipartUploadStatusResponse multipartStatus(AuthPrincipal principal, UUID fileId) {
+    MultipartSession session = tx.execute(principal, () -> findSession(fileId));
+    List<S3Storage.UploadedPart> parts;
+    try {
+      parts = s3.listParts(session.s3KeyRaw(), session.uploadId());
+    } catch (NoSuchUploadException e) {
+      throw new FileUploadNotFoundException();
+    }
+    return new MultipartUploadStatusResponse(
+        fileId,
+        session.partSize(),
+        session.partCount(),
+        parts.stream()
+            .map(p -> new MultipartUploadStatusResponse.UploadedPart(p.partNumber(), p.eTag(), p.sizeBytes()))
+            .toList(),
+        session.expiresAt()
+    );
+  }
+
+  /**
+   * Stitches the parts S3 holds into the object, then hashes and registers it exactly like
+   * {@link #uploadComplete}. Safe to retry: when an earlier attempt completed the object in S3
+   * but failed before registering it, the upload id is gone and the object is registered as is;
+   * once registered, the session row is gone and the READY file is returned.
+   */
+  public UploadCompleteResponse multipartComplete(AuthPrincipal principal, UUID fileId, MultipartUploadCompleteRequest req,
+                                                  HttpServletRequest httpReq) {
+    MultipartSession session = tx.execute(principal, () -> {
+      MultipartSession found = findSessionOrNull(fileId);
+      if (found == null && findRegistered(fileId) == null) {
+        throw new FileUploadNotFoundException();
       }
+      return found;
+    });
+    if (session == null) {
+      return new UploadCompleteResponse(fileId);
+    }
 
-      writeAudit(httpReq, principal.userId(), groupId, "upload_complete", "file_store", req.fileId(),
-          responseJson.toJson(Map.of(
-              "fileId", req.fileId(),
-              "caseId", req.caseId(),
-              "projectId", projectId,
-              "etag", etag
-          ))
-      );
+    try {
+      List<S3Storage.UploadedPart> parts = s3.listParts(session.s3KeyRaw(), session.uploadId());
+      checkAllPartsUploaded(session, parts);
+      s3.completeMultipartUpload(session.s3KeyRaw(), session.uploadId(), parts);
+    } catch (NoSuchUploadException e) {
+      // completed by an earlier attempt; hashing below fails if the object is not there
+    }
 
-      writeOutbox(groupId, projectId, req.caseId(), principal.userId(),
-          "File.Uploaded",
-          "File.Uploaded:file:" + req.fileId() + ":v1",
-          responseJson.toJson(Map.of(
-              "fileId", req.fileId(),
-              "caseId", req.caseId(),
-              "projectId", projectId,
-              "s3KeyRaw", req.s3KeyRaw(),
-              "contentType", req.contentType(),
-              "sizeBytes", req.sizeBytes() != null ? req.sizeBytes() : size,
-              "etag", etag
-          ))
-      );
+    UploadCompleteRequest complete = new UploadCompleteRequest(
+        fileId,
+        session.caseId(),
+        session.filename(),
+        session.contentType(),
+        session.sizeBytes(),
+        req == null ? null : req.sha256(),
+        session.s3KeyRaw()
+    );
+    UploadedObject uploaded = inspectUpload(complete.s3KeyRaw(), complete.sha256());
+    Registered r = tx.execute(principal, () -> {
+      jdbc.update("delete from file_multipart_upload where file_id=?", fileId);
+      return registerUpload(principal, complete, uploaded, httpReq);
+    });
+    deleteUploadedObject(r);
+    return r.response();
+  }
 
-      return new UploadCompleteResponse(req.fileId());
+  public void multipartAbort(AuthPrincipal principal, UUID fileId) {
+    tx.run(principal, () -> {
+      MultipartSession session = findSession(fileId);
+      s3.abortMultipartUpload(session.s3KeyRaw(), session.uploadId());
+      jdbc.update("delete from file_multipart_upload where file_id=?", fileId);
     });
   }
 
+  /**
+   * At least {@link #MIN_PART_SIZE}, grown in whole MiB until the file fits in {@link #MAX_PARTS} parts.
+   */
+  static long partSize(long sizeBytes) {
+    long needed = (sizeBytes + MAX_PARTS - 1) / MAX_PARTS;
+    long mib = 1024L * 1024L;
+    return Math.max(MIN_PART_SIZE, (needed + mib - 1) / mib * mib);
+  }
+
+  private static void checkAllPartsUploaded(MultipartSession session, List<S3Storage.UploadedPart> parts) {
+    Set<Integer> uploaded = new HashSet<>();
+    long total = 0;
+    for (S3Storage.UploadedPart p : parts) {
+      uploaded.add(p.partNumber());
+      total += p.sizeBytes();
+    }
+    List<Integer> missing = new ArrayList<>();
+    for (int n = 1; n <= session.partCount() && missing.size() < MAX_REPORTED_MISSING_PARTS; n++) {
+      if (!uploaded.contains(n)) {
+        missing.add(n);
+      }
+    }
+    if (!missing.isEmpty() || parts.size() != session.partCount() || total != session.sizeBytes()) {
+      throw new FileUploadIncompleteException(missing);
+    }
+  }
+
+  private record MultipartSession(UUID caseId, String uploadId, String filename, String contentType, long sizeBytes,
+                                  String s3KeyRaw, long partSize, int partCount, OffsetDateTime expiresAt) {
+  }
+
+  /**
+   * The caller's own unexpired session (RLS limits rows to the uploader).
+   */
+  private MultipartSession findSession(UUID fileId) {
+    MultipartSession session = findSessionOrNull(fileId);
+    if (session == null) {
+      throw new FileUploadNotFoundException();
+    }
+    return session;
+  }
+
+  private MultipartSession findSessionOrNull(UUID fileId) {
+    List<MultipartSession> rows = jdbc.query(
+        """
+        select case_id, upload_id, filename, content_type, size_bytes, s3_key_raw, part_size, part_count, expires_at
+          from file_multipart_upload
+         where file_id = ?
+           and expires_at > now()
+        """,
+        (rs, i) -> new MultipartSession(
+            rs.getObject("case_id", UUID.class),
+            rs.getString("upload_id"),
+            rs.getString("filename"),
+            rs.getString("content_type"),
+            rs.getLong("size_bytes"),
+            rs.getString("s3_key_raw"),
+            rs.getLong("part_size"),
+            rs.getInt("part_count"),
+            rs.getObject("expires_at", OffsetDateTime.class)
+        ),
+        fileId
+    );
+    return rows.isEmpty() ? null : rows.getFirst();
+  }
+
   private void writeAudit(HttpServletRequest req,
                           UUID actorUserId,
                           UUID groupId,
@@ -0,0 +1,21 @@
+package com.secp.api.file;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Raw file uploads (see {@link FileUploadService}).
+ *
+ * @param maxHashBytes largest object upload-complete hashes and deduplicates. The object is
+ *                     streamed from S3 inside the request, so this bounds how long the request
+ *                     can take; a larger object keeps its own raw key and no blob, like a file
+ *                     uploaded before deduplication
+ */
+@ConfigurationProperties(prefix = "secp.upload")
+public record UploadProperties(
+    Long maxHashBytes
+) {
+
+  public UploadProperties {
+    maxHashBytes = maxHashBytes == null ? 1024L * 1024 * 1024 : maxHashBytes;
+  }
+}
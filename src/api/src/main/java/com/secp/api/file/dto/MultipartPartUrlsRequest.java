@@ -0,0 +1,11 @@
+package com.secp.api.file.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record MultipartPartUrlsRequest(
+    @NotEmpty @Size(max = 100) List<Integer> partNumbers
+) {
+}
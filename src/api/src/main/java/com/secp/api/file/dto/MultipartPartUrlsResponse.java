@@ -0,0 +1,16 @@
+package com.secp.api.file.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Each part is sent as {@code PUT url} with the raw part bytes as the body.
+ */
+public record MultipartPartUrlsResponse(
+    List<PartUrl> parts,
+    OffsetDateTime expiresAt
+) {
+
+  public record PartUrl(int partNumber, String url) {
+  }
+}
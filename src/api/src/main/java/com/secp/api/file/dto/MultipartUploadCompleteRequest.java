@@ -0,0 +1,9 @@
+package com.secp.api.file.dto;
+
+/**
+ * The parts are taken from what S3 holds for the upload, so the client only sends the hash.
+ */
+public record MultipartUploadCompleteRequest(
+    String sha256
+) {
+}
@@ -0,0 +1,18 @@
+package com.secp.api.file.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.util.UUID;
+
+/**
+ * @param sizeBytes exact size of the file; the server splits it into parts from this
+ */
+public record MultipartUploadInitRequest(
+    @NotNull UUID caseId,
+    @NotBlank String filename,
+    @NotBlank String contentType,
+    @NotNull @Positive Long sizeBytes
+) {
+}
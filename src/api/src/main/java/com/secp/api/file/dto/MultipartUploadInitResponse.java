@@ -0,0 +1,19 @@
+package com.secp.api.file.dto;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Part {@code n} (1-based) covers bytes {@code (n-1)*partSize} up to the next part boundary or the
+ * end of the file; every part except the last is exactly {@code partSize} bytes.
+ *
+ * @param expiresAt after this the session is aborted and its parts discarded
+ */
+public record MultipartUploadInitResponse(
+    UUID fileId,
+    String s3KeyRaw,
+    long partSize,
+    int partCount,
+    OffsetDateTime expiresAt
+) {
+}
@@ -0,0 +1,21 @@
+package com.secp.api.file.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * What S3 already holds for an unfinished upload, so a client can resume by sending only the
+ * missing parts.
+ */
+public record MultipartUploadStatusResponse(
+    UUID fileId,
+    long partSize,
+    int partCount,
+    List<UploadedPart> uploadedParts,
+    OffsetDateTime expiresAt
+) {
+
+  public record UploadedPart(int partNumber, String eTag, long sizeBytes) {
+  }
+}
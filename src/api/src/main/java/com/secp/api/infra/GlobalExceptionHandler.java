@@ -1,15 +1,21 @@
 package com.secp.api.infra;
 
+import com.secp.api.infra.tx.DbBusyException;
 import jakarta.validation.ConstraintViolationException;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
+import java.sql.SQLTransientConnectionException;
+
 @Order(Ordered.LOWEST_PRECEDENCE)
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -32,6 +38,46 @@ public class GlobalExceptionHandler {
     return ResponseEntity.status(500).body(ErrorResponse.of("SERVER_ERROR", "服务器开小差了，请稍后再试。", msg));
   }
 
+  /**
+   * Connection admission rejected: fail fast so the client can retry instead of holding a thread.
+   */
+  @ExceptionHandler(DbBusyException.class)
+  public ResponseEntity<ErrorResponse> dbBusy(DbBusyException ex) {
+    return serviceBusy();
+  }
+
+  /**
+   * Only a Hikari pool timeout (every connection in use for connection-timeout) is load; a
+   * database that is down or refuses the credentials is an outage and must not invite retries.
+   */
+  @ExceptionHandler({CannotGetJdbcConnectionException.class, CannotCreateTransactionException.class})
+  public ResponseEntity<ErrorResponse> noConnection(Exception ex) {
+    if (isPoolTimeout(ex)) {
+      return serviceBusy();
+    }
+    return ResponseEntity.status(500).body(ErrorResponse.of("DB_UNAVAILABLE", "服务器开小差了，请稍后再试。",
+        ex.getClass().getName()));
+  }
+
+  /**
+   * Hikari reports a pool timeout as SQLTransientConnectionException; when connections could not
+   * be created at all it attaches the last connection failure as the cause.
+   */
+  static boolean isPoolTimeout(Throwable ex) {
+    for (Throwable t = ex; t != null; t = t.getCause()) {
+      if (t instanceof SQLTransientConnectionException) {
+        return t.getCause() == null;
+      }
+    }
+    return false;
+  }
+
+  private static ResponseEntity<ErrorResponse> serviceBusy() {
+    return ResponseEntity.status(503)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body(ErrorResponse.of("SERVICE_BUSY", "系统繁忙，请稍后重试。"));
+  }
+
   @ExceptionHandler(HttpMessageNotReadableException.class)
   public ResponseEntity<ErrorResponse> badJson(HttpMessageNotReadableException ex) {
     return ResponseEntity.status(422).body(ErrorResponse.of("BAD_JSON", "请求体不是合法 JSON。"));
@@ -0,0 +1,51 @@
+package com.secp.api.infra.db;
+
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.function.Consumer;
+
+/**
+ * Row-at-a-time reads for result sets too large to hold as a list.
+ * <p>
+ * pgjdbc only fetches through a server-side cursor when the statement is forward-only, has a
+ * fetch size and runs with autocommit off, so call this inside a transaction (e.g.
+ * {@code TransactionalExecutor}); otherwise the driver silently buffers the whole result. Each
+ * mapped row is handed to {@code sink} and can be dropped right after, so memory stays at about
+ * one fetch batch however many rows there are.
+ */
+public final class CursorReads {
+
+  public static final int DEFAULT_FETCH_SIZE = 500;
+
+  private CursorReads() {
+  }
+
+  public static <T> void forEach(JdbcTemplate jdbc, String sql, RowMapper<T> mapper, Consumer<? super T> sink,
+                                 Object... args) {
+    forEach(jdbc, DEFAULT_FETCH_SIZE, sql, mapper, sink, args);
+  }
+
+  public static <T> void forEach(JdbcTemplate jdbc, int fetchSize, String sql, RowMapper<T> mapper,
+                                 Consumer<? super T> sink, Object... args) {
+    jdbc.query(
+        con -> {
+          PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+          ps.setFetchSize(fetchSize);
+          new ArgumentPreparedStatementSetter(args).setValues(ps);
+          return ps;
+        },
+        (ResultSetExtractor<Void>) rs -> {
+          int rowNum = 0;
+          while (rs.next()) {
+            sink.accept(mapper.mapRow(rs, rowNum++));
+          }
+          return null;
+        }
+    );
+  }
+}
@@ -0,0 +1,27 @@
+package com.secp.api.infra.db;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DbTraceConfig {
+
+  @Bean
+  static BeanPostProcessor tracingDataSourcePostProcessor(ObjectProvider<DbTraceProperties> props,
+                                                          ObjectProvider<MeterRegistry> registry) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource ds && !(bean instanceof TracingDataSource)) {
+          return new TracingDataSource(ds, props.getObject(), registry.getObject());
+        }
+        return bean;
+      }
+    };
+  }
+}
@@ -0,0 +1,20 @@
+package com.secp.api.infra.db;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * JDBC tracing: every statement is timed and counted per request, and published as metrics
+ * ({@code secp.db.statement}, {@code secp.db.statement.slow}, {@code secp.db.request.statements}).
+ *
+ * @param slowQueryMs     statements at or above this duration are logged with their SQL template
+ * @param maxSqlLength    SQL template is truncated to this many characters in logs
+ * @param responseHeaders expose {@code X-Db-Query-Count} / {@code X-Db-Time-Ms} on responses; for local
+ *                        debugging only, they tell every client how the request hit the database
+ */
+@ConfigurationProperties(prefix = "secp.db-trace")
+public record DbTraceProperties(
+    long slowQueryMs,
+    int maxSqlLength,
+    boolean responseHeaders
+) {
+}
@@ -0,0 +1,110 @@
+package com.secp.api.infra.db;
+
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Independent SELECTs sent to PostgreSQL in one round trip.
+ * <p>
+ * pgjdbc accepts several {@code ;}-separated statements in one PreparedStatement (placeholders are
+ * numbered across all of them): it sends them back to back behind a single Sync and returns one
+ * result set per statement. N reads then cost one network round trip instead of N, on the
+ * caller's connection, so they run in its transaction and under its RLS settings.
+ * <pre>{@code
+ * PipelinedReads reads = new PipelinedReads();
+ * PipelinedReads.Result<List<Row>> rows = reads.add(ROWS_SQL, ROW_MAPPER, id);
+ * PipelinedReads.Result<Long> total = reads.add(COUNT_SQL, rs -> rs.next() ? rs.getLong(1) : 0L, id);
+ * reads.execute(jdbc);
+ * }</pre>
+ */
+public final class PipelinedReads {
+
+  private final StringBuilder sql = new StringBuilder();
+  private final List<Object> args = new ArrayList<>();
+  private final List<Result<?>> results = new ArrayList<>();
+  private boolean executed;
+
+  /**
+   * Filled in by {@link #execute}.
+   */
+  public static final class Result<T> {
+
+    private final ResultSetExtractor<T> extractor;
+    private T value;
+    private boolean set;
+
+    private Result(ResultSetExtractor<T> extractor) {
+      this.extractor = extractor;
+    }
+
+    public T get() {
+      if (!set) {
+        throw new IllegalStateException("PipelinedReads not executed");
+      }
+      return value;
+    }
+
+    private void extract(ResultSet rs) throws SQLException {
+      value = extractor.extractData(rs);
+      set = true;
+    }
+  }
+
+  /**
+   * @param statement one SELECT, without a trailing semicolon
+   */
+  public <T> Result<T> add(String statement, ResultSetExtractor<T> extractor, Object... statementArgs) {
+    if (executed) {
+      throw new IllegalStateException("PipelinedReads already executed");
+    }
+    if (!sql.isEmpty()) {
+      sql.append(";\n");
+    }
+    sql.append(statement.strip());
+    args.addAll(List.of(statementArgs));
+    Result<T> r = new Result<>(extractor);
+    results.add(r);
+    return r;
+  }
+
+  public <T> Result<List<T>> add(String statement, RowMapper<T> rowMapper, Object... statementArgs) {
+    return add(statement, new RowMapperResultSetExtractor<>(rowMapper), statementArgs);
+  }
+
+  public void execute(JdbcTemplate jdbc) {
+    if (executed) {
+      throw new IllegalStateException("PipelinedReads already executed");
+    }
+    executed = true;
+    if (results.isEmpty()) {
+      return;
+    }
+    Object[] bound = args.toArray();
+    jdbc.execute(
+        con -> con.prepareStatement(sql.toString()),
+        (PreparedStatement ps) -> {
+          new ArgumentPreparedStatementSetter(bound).setValues(ps);
+          boolean isResultSet = ps.execute();
+          for (Result<?> r : results) {
+            if (!isResultSet) {
+              throw new IllegalStateException("PipelinedReads statement returned no result set");
+            }
+            try (ResultSet rs = ps.getResultSet()) {
+              r.extract(rs);
+            }
+            isResultSet = ps.getMoreResults();
+          }
+          return null;
+        }
+    );
+  }
+}
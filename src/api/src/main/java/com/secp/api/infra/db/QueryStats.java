@@ -0,0 +1,55 @@
+package com.secp.api.infra.db;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statement count and cumulative DB time of one HTTP request, keyed by its request id.
+ * Bound to the request thread by {@link QueryStatsFilter}; counters are atomic so work handed
+ * to helper threads via {@link #bind(QueryStats)} can report into the same request.
+ */
+public final class QueryStats {
+
+  private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+  private final String requestId;
+  private final AtomicInteger count = new AtomicInteger();
+  private final AtomicLong nanos = new AtomicLong();
+
+  public QueryStats(String requestId) {
+    this.requestId = requestId;
+  }
+
+  public static QueryStats current() {
+    return CURRENT.get();
+  }
+
+  public static void bind(QueryStats stats) {
+    if (stats == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(stats);
+    }
+  }
+
+  public static void clear() {
+    CURRENT.remove();
+  }
+
+  void record(long elapsedNanos) {
+    count.incrementAndGet();
+    nanos.addAndGet(elapsedNanos);
+  }
+
+  public String requestId() {
+    return requestId;
+  }
+
+  public int count() {
+    return count.get();
+  }
+
+  public long timeMillis() {
+    return nanos.get() / 1_000_000L;
+  }
+}
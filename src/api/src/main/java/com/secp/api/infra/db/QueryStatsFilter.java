@@ -0,0 +1,74 @@
+package com.secp.api.infra.db;
+
+import com.secp.api.infra.RequestIdFilter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Binds a {@link QueryStats} to the request thread (keyed by the request id assigned by
+ * {@link RequestIdFilter}), records the per-request statement count in
+ * {@code secp.db.request.statements} and logs it with the DB time.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class QueryStatsFilter extends OncePerRequestFilter {
+
+  public static final String QUERY_COUNT_HEADER = "X-Db-Query-Count";
+  public static final String QUERY_TIME_HEADER = "X-Db-Time-Ms";
+
+  private static final Logger log = LoggerFactory.getLogger(QueryStatsFilter.class);
+
+  private final DbTraceProperties props;
+  private final ObjectProvider<QueryStatsListener> listeners;
+  private final DistributionSummary requestStatements;
+
+  public QueryStatsFilter(DbTraceProperties props, ObjectProvider<QueryStatsListener> listeners,
+                          MeterRegistry registry) {
+    this.props = props;
+    this.listeners = listeners;
+    this.requestStatements = DistributionSummary.builder("secp.db.request.statements").register(registry);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    Object rid = request.getAttribute(RequestIdFilter.REQ_ID_ATTR);
+    QueryStats stats = new QueryStats(rid == null ? "-" : rid.toString());
+    QueryStats.bind(stats);
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      QueryStats.clear();
+      // Bodies written by message converters are committed before we get here; those get
+      // their headers from QueryStatsResponseAdvice.
+      writeHeaders(response, stats);
+      requestStatements.record(stats.count());
+      listeners.orderedStream().forEach(l -> l.requestCompleted(request, stats));
+      if (log.isDebugEnabled()) {
+        log.debug("[db] rid={} {} {} queries={} dbMs={}",
+            stats.requestId(), request.getMethod(), request.getRequestURI(), stats.count(), stats.timeMillis());
+      }
+    }
+  }
+
+  void writeHeaders(HttpServletResponse response, QueryStats stats) {
+    if (!props.responseHeaders() || response.isCommitted()) {
+      return;
+    }
+    response.setHeader(QUERY_COUNT_HEADER, String.valueOf(stats.count()));
+    response.setHeader(QUERY_TIME_HEADER, String.valueOf(stats.timeMillis()));
+  }
+}
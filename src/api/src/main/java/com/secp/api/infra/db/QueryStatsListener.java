@@ -0,0 +1,12 @@
+package com.secp.api.infra.db;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Receives the statement count / DB time of every traced request once its handler finished
+ * (e.g. for N+1 regression tests). Beans implementing this are picked up by {@link QueryStatsFilter}.
+ */
+public interface QueryStatsListener {
+
+  void requestCompleted(HttpServletRequest request, QueryStats stats);
+}
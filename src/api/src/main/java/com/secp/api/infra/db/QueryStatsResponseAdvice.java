@@ -0,0 +1,38 @@
+package com.secp.api.infra.db;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the DB stats headers right before a response body is serialized, i.e. after the
+ * handler (and its queries) finished but before the response is committed.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class QueryStatsResponseAdvice implements ResponseBodyAdvice<Object> {
+
+  private final DbTraceProperties props;
+
+  @Override
+  public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return props.responseHeaders();
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                ServerHttpRequest request, ServerHttpResponse response) {
+    QueryStats stats = QueryStats.current();
+    if (stats != null) {
+      response.getHeaders().set(QueryStatsFilter.QUERY_COUNT_HEADER, String.valueOf(stats.count()));
+      response.getHeaders().set(QueryStatsFilter.QUERY_TIME_HEADER, String.valueOf(stats.timeMillis()));
+    }
+    return body;
+  }
+}
@@ -0,0 +1,149 @@
+package com.secp.api.infra.db;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataSource wrapper that times every executed statement, reports it into the current
+ * request's {@link QueryStats} and the {@code secp.db.statement} timer. Statements slower than
+ * {@code secp.db-trace.slow-query-ms} are counted in {@code secp.db.statement.slow} and logged with
+ * their SQL template (placeholders only, never bound values).
+ */
+public class TracingDataSource extends DelegatingDataSource {
+
+  private static final Logger log = LoggerFactory.getLogger(TracingDataSource.class);
+
+  private static final Set<String> EXECUTE_METHODS = Set.of(
+      "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch"
+  );
+
+  private final DbTraceProperties props;
+  private final Timer statements;
+  private final Counter slowStatements;
+
+  public TracingDataSource(DataSource target, DbTraceProperties props, MeterRegistry registry) {
+    super(target);
+    this.props = props;
+    this.statements = Timer.builder("secp.db.statement").register(registry);
+    this.slowStatements = Counter.builder("secp.db.statement.slow").register(registry);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return wrapConnection(super.getConnection());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return wrapConnection(super.getConnection(username, password));
+  }
+
+  private Connection wrapConnection(Connection target) {
+    return (Connection) Proxy.newProxyInstance(
+        Connection.class.getClassLoader(),
+        new Class<?>[] {Connection.class},
+        new ConnectionHandler(target)
+    );
+  }
+
+  private final class ConnectionHandler implements InvocationHandler {
+
+    private final Connection target;
+
+    private ConnectionHandler(Connection target) {
+      this.target = target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Object result = invokeTarget(target, method, args);
+      String name = method.getName();
+      if (result instanceof CallableStatement cs && name.equals("prepareCall")) {
+        return wrapStatement(cs, CallableStatement.class, (String) args[0]);
+      }
+      if (result instanceof PreparedStatement ps && name.equals("prepareStatement")) {
+        return wrapStatement(ps, PreparedStatement.class, (String) args[0]);
+      }
+      if (result instanceof Statement st && name.equals("createStatement")) {
+        return wrapStatement(st, Statement.class, null);
+      }
+      return result;
+    }
+  }
+
+  private Object wrapStatement(Statement target, Class<? extends Statement> type, String sql) {
+    return Proxy.newProxyInstance(
+        type.getClassLoader(),
+        new Class<?>[] {type},
+        new StatementHandler(target, sql)
+    );
+  }
+
+  private final class StatementHandler implements InvocationHandler {
+
+    private final Statement target;
+    private final String preparedSql;
+
+    private StatementHandler(Statement target, String preparedSql) {
+      this.target = target;
+      this.preparedSql = preparedSql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (!EXECUTE_METHODS.contains(method.getName())) {
+        return invokeTarget(target, method, args);
+      }
+      long t0 = System.nanoTime();
+      try {
+        return invokeTarget(target, method, args);
+      } finally {
+        long elapsed = System.nanoTime() - t0;
+        statements.record(elapsed, TimeUnit.NANOSECONDS);
+        QueryStats stats = QueryStats.current();
+        if (stats != null) {
+          stats.record(elapsed);
+        }
+        long ms = elapsed / 1_000_000L;
+        if (ms >= props.slowQueryMs()) {
+          slowStatements.increment();
+          String sql = preparedSql != null ? preparedSql
+              : (args != null && args.length > 0 && args[0] instanceof String s ? s : "?");
+          log.warn("[slow-sql] rid={} ms={} sql={}",
+              stats == null ? "-" : stats.requestId(), ms, template(sql));
+        }
+      }
+    }
+  }
+
+  private String template(String sql) {
+    String compact = sql.replaceAll("\\s+", " ").trim();
+    int max = props.maxSqlLength();
+    return max > 0 && compact.length() > max ? compact.substring(0, max) + "..." : compact;
+  }
+
+  private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getTargetException();
+    }
+  }
+}
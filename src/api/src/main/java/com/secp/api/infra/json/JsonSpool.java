@@ -0,0 +1,62 @@
+package com.secp.api.infra.json;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A temp file a streamed document is written to inside its read transaction and copied to the
+ * client only after that transaction has committed, so a slow client never pins a pooled (and
+ * admission-gated) connection. Heap use stays as flat as with direct streaming; the file is
+ * deleted on close.
+ * <pre>{@code
+ * try (JsonSpool spool = JsonSpool.create()) {
+ *   tx.run(principal, () -> {
+ *     try (OutputStream file = spool.openOutput(); JsonStreamWriter json = JsonStreamWriter.open(objectMapper, file)) {
+ *       ...
+ *     }
+ *   });
+ *   spool.copyTo(out);
+ * }
+ * }</pre>
+ */
+public final class JsonSpool implements AutoCloseable {
+
+  private final Path file;
+
+  private JsonSpool(Path file) {
+    this.file = file;
+  }
+
+  public static JsonSpool create() {
+    try {
+      return new JsonSpool(Files.createTempFile("secp-json-", ".json"));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public OutputStream openOutput() {
+    try {
+      return new BufferedOutputStream(Files.newOutputStream(file));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public void copyTo(OutputStream out) throws IOException {
+    Files.copy(file, out);
+  }
+
+  @Override
+  public void close() {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException ignored) {
+      // best-effort
+    }
+  }
+}
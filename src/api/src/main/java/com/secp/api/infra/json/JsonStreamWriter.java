@@ -0,0 +1,109 @@
+package com.secp.api.infra.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes a JSON document piece by piece straight to an output stream, with the application's
+ * {@link ObjectMapper} settings for each value. Meant for responses whose arrays are fed from
+ * {@link com.secp.api.infra.db.CursorReads}: every element is serialized as it arrives and then
+ * dropped, so the full response is never held in memory. IO errors surface as
+ * {@link UncheckedIOException} so the writer can be used inside row callbacks.
+ * <pre>{@code
+ * try (JsonStreamWriter json = JsonStreamWriter.open(objectMapper, out)) {
+ *   json.startObject();
+ *   json.field("project", projectDto);
+ *   json.array("cases", sink -> repo.forEachCase(id, r -> sink.accept(toCaseDto(r))));
+ *   json.endObject();
+ * }
+ * }</pre>
+ * Closing flushes the generator but leaves {@code out} open, and does not close unfinished
+ * arrays or objects: a response cut short by an error is left as invalid JSON rather than a
+ * well-formed document that silently misses rows.
+ */
+public final class JsonStreamWriter implements AutoCloseable {
+
+  private final JsonGenerator gen;
+
+  private JsonStreamWriter(JsonGenerator gen) {
+    this.gen = gen;
+  }
+
+  public static JsonStreamWriter open(ObjectMapper objectMapper, OutputStream out) {
+    try {
+      JsonGenerator gen = objectMapper.createGenerator(out);
+      gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      gen.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+      return new JsonStreamWriter(gen);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public void startObject() {
+    try {
+      gen.writeStartObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public void startObject(String field) {
+    try {
+      gen.writeObjectFieldStart(field);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public void endObject() {
+    try {
+      gen.writeEndObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public void field(String field, Object value) {
+    try {
+      gen.writeObjectField(field, value);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Writes {@code field: [...]}; {@code rows} is handed a sink that serializes each element it receives.
+   */
+  public void array(String field, Consumer<Consumer<Object>> rows) {
+    try {
+      gen.writeArrayFieldStart(field);
+      rows.accept(this::element);
+      gen.writeEndArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void element(Object value) {
+    try {
+      gen.writeObject(value);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      gen.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
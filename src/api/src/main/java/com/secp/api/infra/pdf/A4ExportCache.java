@@ -0,0 +1,183 @@
+package com.secp.api.infra.pdf;
+
+import com.secp.api.auth.AuthPrincipal;
+import com.secp.api.infra.s3.S3Storage;
+import com.secp.api.infra.tx.TransactionalExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Rendered A4 PDFs in S3, indexed by a4_export_index.
+ * <p>
+ * An entry is keyed by object, viewer (exports are read under the viewer's RLS), the data version
+ * the caller computed in its export transaction, and a layout version (template + render code).
+ * Changed data never invalidates anything: it produces a new version, which misses and renders a
+ * new object; the old entry expires and the worker collects it.
+ */
+@Component
+public class A4ExportCache {
+
+  private static final Logger log = LoggerFactory.getLogger(A4ExportCache.class);
+
+  private final JdbcTemplate jdbc;
+  private final TransactionalExecutor tx;
+  private final S3Storage s3;
+  private final HtmlPdfRenderer renderer;
+  private final PdfProperties.Cache props;
+
+  public A4ExportCache(JdbcTemplate jdbc, TransactionalExecutor tx, S3Storage s3, HtmlPdfRenderer renderer,
+                       PdfProperties props) {
+    this.jdbc = jdbc;
+    this.tx = tx;
+    this.s3 = s3;
+    this.renderer = renderer;
+    this.props = props.cache();
+  }
+
+  public record Key(String objectType, UUID objectId, UUID viewerUserId, String dataVersion, String layoutVersion) {
+
+    String s3Key() {
+      return "a4/" + objectType + "/" + objectId + "/" + viewerUserId + "/" + dataVersion + "-" + layoutVersion + ".pdf";
+    }
+  }
+
+  /**
+   * An export decided inside the caller's transaction: either a cache hit ({@code cachedS3Key}) or
+   * the HTML to render.
+   */
+  public record Prepared(Key key, String cachedS3Key, String html) {
+
+    public static Prepared hit(Key key, String cachedS3Key) {
+      return new Prepared(key, cachedS3Key, null);
+    }
+
+    public static Prepared miss(Key key, String html) {
+      return new Prepared(key, null, html);
+    }
+
+    public boolean cached() {
+      return cachedS3Key != null;
+    }
+  }
+
+  /**
+   * Look up a live entry; run inside the caller's RLS transaction. Always null when disabled.
+   */
+  public String find(Key key) {
+    if (!props.enabled()) {
+      return null;
+    }
+    List<String> rows = jdbc.queryForList(
+        """
+        select s3_key
+          from a4_export_index
+         where object_type = ?
+           and object_id = ?
+           and viewer_user_id = ?
+           and data_version = ?
+           and layout_version = ?
+           and expires_at > now()
+           and size_bytes > 0
+        """,
+        String.class,
+        key.objectType(), key.objectId(), key.viewerUserId(), key.dataVersion(), key.layoutVersion()
+    );
+    return rows.isEmpty() ? null : rows.getFirst();
+  }
+
+  /**
+   * Stream the export into {@code out}: the cached object on a hit, otherwise render, store and stream.
+   * A render always completes into a temp file before the first byte is written, so a late render
+   * error surfaces as an error response instead of a truncated 200.
+   *
+   * @param reload HTML for a hit whose object has vanished (collected between lookup and read)
+   */
+  public void write(AuthPrincipal principal, Prepared prepared, Supplier<String> reload, OutputStream out) {
+    String html = prepared.html();
+    if (prepared.cached()) {
+      try (InputStream in = s3.openStream(prepared.cachedS3Key())) {
+        in.transferTo(out);
+        return;
+      } catch (NoSuchKeyException e) {
+        tx.run(principal, () -> evict(prepared.key()));
+        html = reload.get();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    Path tmp = null;
+    try {
+      tmp = Files.createTempFile("secp-a4-", ".pdf");
+      try (OutputStream file = Files.newOutputStream(tmp)) {
+        renderer.render(html, file);
+      }
+      if (props.enabled()) {
+        store(principal, prepared.key(), tmp);
+      }
+      Files.copy(tmp, out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      if (tmp != null) {
+        try {
+          Files.deleteIfExists(tmp);
+        } catch (IOException ignored) {
+          // best-effort
+        }
+      }
+    }
+  }
+
+  /**
+   * Best-effort: a failed upload only costs the next export a re-render.
+   */
+  private void store(AuthPrincipal principal, Key key, Path pdf) {
+    try {
+      long size = Files.size(pdf);
+      s3.putFile(key.s3Key(), pdf, "application/pdf");
+      tx.run(principal, () -> jdbc.update(
+          """
+          insert into a4_export_index(object_type, object_id, viewer_user_id, data_version, layout_version,
+                                      s3_key, size_bytes, expires_at)
+          values (?,?,?,?,?,?,?, now() + make_interval(secs => ?))
+          on conflict (object_type, object_id, viewer_user_id, data_version, layout_version)
+          do update set s3_key = excluded.s3_key,
+                        size_bytes = excluded.size_bytes,
+                        created_at = now(),
+                        expires_at = excluded.expires_at
+          """,
+          key.objectType(), key.objectId(), key.viewerUserId(), key.dataVersion(), key.layoutVersion(),
+          key.s3Key(), size, props.ttlSeconds()
+      ));
+    } catch (IOException | RuntimeException e) {
+      log.warn("A4 export cache store failed key={}", key.s3Key(), e);
+    }
+  }
+
+  private void evict(Key key) {
+    jdbc.update(
+        """
+        delete from a4_export_index
+         where object_type = ?
+           and object_id = ?
+           and viewer_user_id = ?
+           and data_version = ?
+           and layout_version = ?
+        """,
+        key.objectType(), key.objectId(), key.viewerUserId(), key.dataVersion(), key.layoutVersion()
+    );
+  }
+}
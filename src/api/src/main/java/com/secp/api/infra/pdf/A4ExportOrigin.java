@@ -0,0 +1,29 @@
+package com.secp.api.infra.pdf;
+
+import com.secp.api.infra.RequestIdFilter;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.UUID;
+
+/**
+ * What an A4 export's audit row is attributed to: the HTTP request that asked for it, or an item
+ * of a bulk export job (attributed to the request that submitted the job).
+ */
+public record A4ExportOrigin(String requestId, String ip, String userAgent, UUID bulkJobId) {
+
+  public static A4ExportOrigin of(HttpServletRequest req) {
+    return new A4ExportOrigin((String) req.getAttribute(RequestIdFilter.REQ_ID_ATTR), req.getRemoteAddr(),
+        req.getHeader("User-Agent"), null);
+  }
+
+  public static A4ExportOrigin bulkJob(UUID jobId, String requestId) {
+    return new A4ExportOrigin(requestId, null, null, jobId);
+  }
+
+  /**
+   * @return {@code ,"bulkJobId":"..."} to append to the audit summary, or "" for a single export
+   */
+  public String summarySuffix() {
+    return bulkJobId == null ? "" : ",\"bulkJobId\":\"" + bulkJobId + "\"";
+  }
+}
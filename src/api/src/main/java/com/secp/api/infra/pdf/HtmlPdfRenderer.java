@@ -0,0 +1,100 @@
+package com.secp.api.infra.pdf;
+
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.impl.FSDefaultCacheStore;
+import com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.awt.Font;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared openhtmltopdf setup for the A4 exports.
+ * <p>
+ * Font files are read once at startup and kept in memory; every render registers them from those
+ * bytes (PDFBox still subsets/embeds per document, which is unavoidable). Parsed font metrics live in
+ * one process-wide cache store, so only the first export after startup pays for reading the font
+ * tables. Output goes straight to the caller's stream, no intermediate byte[].
+ * <p>
+ * Startup fails when no configured face covers CJK (unless {@code secp.pdf.require-cjk-font} is
+ * off): the built-in fonts have no CJK glyphs, so every export would silently come out unreadable.
+ */
+@Component
+public class HtmlPdfRenderer {
+
+  private static final Logger log = LoggerFactory.getLogger(HtmlPdfRenderer.class);
+
+  private final List<LoadedFont> fonts;
+  private final FSCacheEx<String, FSCacheValue> fontMetrics = new FSDefaultCacheStore();
+
+  public HtmlPdfRenderer(PdfProperties props, ResourceLoader resources) {
+    this.fonts = loadFonts(props.fonts(), resources);
+    if (props.requireCjkFont() && fonts.stream().noneMatch(HtmlPdfRenderer::coversCjk)) {
+      throw new IllegalStateException("No CJK font for A4 exports: point SECP_PDF_FONT at a CJK TrueType .ttf "
+          + "(configured: " + props.fonts().stream().map(PdfProperties.FontFace::location).toList() + ")");
+    }
+  }
+
+  private static boolean coversCjk(LoadedFont f) {
+    try {
+      // 中文 (CJK unified ideographs)
+      Font font = Font.createFont(Font.TRUETYPE_FONT, new ByteArrayInputStream(f.bytes()));
+      return font.canDisplayUpTo("\u4e2d\u6587") < 0;
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  private record LoadedFont(byte[] bytes, String family, int weight) {
+  }
+
+  /**
+   * Render {@code html} (well-formed XHTML) as PDF into {@code out}. {@code out} is not closed.
+   */
+  public void render(String html, OutputStream out) {
+    try {
+      PdfRendererBuilder builder = new PdfRendererBuilder();
+      builder.useFastMode();
+      builder.useCacheStore(PdfRendererBuilder.CacheStore.PDF_FONT_METRICS, fontMetrics);
+      for (LoadedFont f : fonts) {
+        builder.useFont(() -> new ByteArrayInputStream(f.bytes()), f.family(), f.weight(),
+            BaseRendererBuilder.FontStyle.NORMAL, true);
+      }
+      builder.withHtmlContent(html, null);
+      builder.toStream(out);
+      builder.run();
+    } catch (Exception e) {
+      throw new IllegalStateException("PDF_RENDER_FAILED", e);
+    }
+  }
+
+  private static List<LoadedFont> loadFonts(List<PdfProperties.FontFace> faces, ResourceLoader resources) {
+    List<LoadedFont> loaded = new ArrayList<>();
+    for (PdfProperties.FontFace face : faces) {
+      if (face.location() == null || face.location().isBlank()) {
+        continue;
+      }
+      Resource r = resources.getResource(face.location());
+      if (!r.exists()) {
+        log.warn("PDF font not found, exports fall back to built-in fonts: {}", face.location());
+        continue;
+      }
+      try (InputStream in = r.getInputStream()) {
+        loaded.add(new LoadedFont(in.readAllBytes(), face.family(), face.weight() <= 0 ? 400 : face.weight()));
+      } catch (Exception e) {
+        log.warn("PDF font unreadable, skipped: {}", face.location(), e);
+      }
+    }
+    return List.copyOf(loaded);
+  }
+}
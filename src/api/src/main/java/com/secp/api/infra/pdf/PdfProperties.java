@@ -0,0 +1,72 @@
+package com.secp.api.infra.pdf;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/**
+ * HTML-to-PDF export (A4 project/case reports, see {@link HtmlPdfRenderer}).
+ *
+ * @param fonts          font faces embedded into exported PDFs; openhtmltopdf only sees registered
+ *                       fonts, so CJK text needs at least one CJK TrueType face here
+ * @param requireCjkFont refuse to start unless one of {@code fonts} loads and covers CJK; off only
+ *                       where exports are never read (tests), since without it every Chinese
+ *                       character renders as a placeholder glyph
+ * @param cache          rendered-PDF cache (see {@link A4ExportCache})
+ * @param bulk           bulk export jobs (see {@code A4BulkExportRunner})
+ */
+@ConfigurationProperties(prefix = "secp.pdf")
+public record PdfProperties(
+    List<FontFace> fonts,
+    Boolean requireCjkFont,
+    Cache cache,
+    Bulk bulk
+) {
+
+  public PdfProperties {
+    fonts = fonts == null ? List.of() : List.copyOf(fonts);
+    requireCjkFont = requireCjkFont == null || requireCjkFont;
+    cache = cache == null ? new Cache(true, 604800) : cache;
+    bulk = bulk == null ? new Bulk(true, 1000, 2, 5000, 86400) : bulk;
+  }
+
+  /**
+   * @param enabled    serve repeat exports of unchanged data from S3 instead of re-rendering
+   * @param ttlSeconds lifetime of a cached export; expired ones are deleted by the worker
+   */
+  public record Cache(
+      boolean enabled,
+      long ttlSeconds
+  ) {
+  }
+
+  /**
+   * @param runnerEnabled run queued jobs in this instance; turn off on instances that should only
+   *                      serve requests (jobs are claimed with SKIP LOCKED, any number may run)
+   * @param pollMs        delay between checks for queued jobs
+   * @param concurrency   items of one job rendered at once
+   * @param maxItems      items a single job may contain
+   * @param ttlSeconds    how long a finished job's zip can be downloaded
+   */
+  public record Bulk(
+      boolean runnerEnabled,
+      long pollMs,
+      int concurrency,
+      int maxItems,
+      long ttlSeconds
+  ) {
+  }
+
+  /**
+   * @param location Spring resource location of a .ttf ({@code classpath:...} or {@code file:...});
+   *                 TrueType collections (.ttc) and CFF-flavoured .otf are not supported by PDFBox
+   * @param family   CSS font-family the face is registered under
+   * @param weight   CSS font-weight (400 regular, 700 bold)
+   */
+  public record FontFace(
+      String location,
+      String family,
+      int weight
+  ) {
+  }
+}
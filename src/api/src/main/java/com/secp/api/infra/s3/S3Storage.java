@@ -5,17 +5,45 @@ import org.springframework.stereotype.Component;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListPartsRequest;
+import software.amazon.awssdk.services.s3.model.ListPartsResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.Part;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedUploadPartRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 
 @Component
 public class S3Storage {
@@ -26,6 +54,12 @@ public class S3Storage {
   @Value("${secp.s3.bucket}")
   private String bucket;
 
+  /**
+   * CopyObject handles at most 5 GiB; larger objects are copied in {@link #COPY_PART_SIZE} parts.
+   */
+  static final long MAX_COPY_OBJECT_SIZE = 5L * 1024 * 1024 * 1024;
+  static final long COPY_PART_SIZE = 512L * 1024 * 1024;
+
   public S3Storage(S3Client s3, S3Presigner presigner) {
     this.s3 = s3;
     this.presigner = presigner;
@@ -51,6 +85,181 @@ public class S3Storage {
     return new PresignedPut(presigned.url().toString(), ttl);
   }
 
+  /**
+   * @param sha256Hex hex SHA-256 of the bytes read
+   * @param eTag      ETag of the object version those bytes came from
+   */
+  public record ObjectDigest(String sha256Hex, String eTag, long sizeBytes) {
+  }
+
+  /**
+   * SHA-256 of the object's bytes, streamed from S3 (never buffered whole). The returned ETag
+   * identifies the version that was hashed; pass it to {@link #copy} so an overwrite in between
+   * fails the copy instead of copying other bytes.
+   *
+   * @param eTag when set, only that version is read
+   * @throws S3Exception status 412 when the object no longer has {@code eTag}
+   */
+  public ObjectDigest sha256(String key, String eTag) {
+    try (ResponseInputStream<GetObjectResponse> in = s3.getObject(GetObjectRequest.builder()
+        .bucket(bucket)
+        .key(key)
+        .ifMatch(eTag)
+        .build())) {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      byte[] buf = new byte[64 * 1024];
+      long size = 0;
+      int n;
+      while ((n = in.read(buf)) >= 0) {
+        md.update(buf, 0, n);
+        size += n;
+      }
+      return new ObjectDigest(HexFormat.of().formatHex(md.digest()), in.response().eTag(), size);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Server-side copy within the bucket, of the source version {@code sourceETag} only; objects
+   * above {@link #MAX_COPY_OBJECT_SIZE} are copied part by part, each part pinned to that version.
+   *
+   * @throws S3Exception status 412 when the source no longer has {@code sourceETag}
+   */
+  public void copy(String sourceKey, String sourceETag, String targetKey, long sizeBytes) {
+    if (sizeBytes <= MAX_COPY_OBJECT_SIZE) {
+      s3.copyObject(CopyObjectRequest.builder()
+          .sourceBucket(bucket)
+          .sourceKey(sourceKey)
+          .copySourceIfMatch(sourceETag)
+          .destinationBucket(bucket)
+          .destinationKey(targetKey)
+          .build());
+      return;
+    }
+    HeadObjectResponse source = head(sourceKey);
+    String uploadId = createMultipartUpload(targetKey, source.contentType());
+    try {
+      List<UploadedPart> parts = new ArrayList<>();
+      int partNumber = 1;
+      for (long start = 0; start < sizeBytes; start += COPY_PART_SIZE, partNumber++) {
+        long end = Math.min(sizeBytes, start + COPY_PART_SIZE) - 1;
+        UploadPartCopyResponse resp = s3.uploadPartCopy(UploadPartCopyRequest.builder()
+            .sourceBucket(bucket)
+            .sourceKey(sourceKey)
+            .copySourceIfMatch(sourceETag)
+            .destinationBucket(bucket)
+            .destinationKey(targetKey)
+            .uploadId(uploadId)
+            .partNumber(partNumber)
+            .copySourceRange("bytes=" + start + "-" + end)
+            .build());
+        parts.add(new UploadedPart(partNumber, resp.copyPartResult().eTag(), end - start + 1));
+      }
+      completeMultipartUpload(targetKey, uploadId, parts);
+    } catch (RuntimeException e) {
+      abortMultipartUpload(targetKey, uploadId);
+      throw e;
+    }
+  }
+
+  public void delete(String key) {
+    s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
+  }
+
+  // -------------------- Multipart upload --------------------
+
+  /**
+   * Starts a multipart upload of {@code key}; parts are then PUT by the client to
+   * {@link #presignUploadPart} URLs and stitched together by {@link #completeMultipartUpload}.
+   *
+   * @return the S3 upload id
+   */
+  public String createMultipartUpload(String key, String contentType) {
+    return s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+        .bucket(bucket)
+        .key(key)
+        .contentType(contentType)
+        .build()).uploadId();
+  }
+
+  public PresignedPut presignUploadPart(String key, String uploadId, int partNumber, Duration ttl) {
+    PresignedUploadPartRequest presigned = presigner.presignUploadPart(
+        UploadPartPresignRequest.builder()
+            .signatureDuration(ttl)
+            .uploadPartRequest(UploadPartRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .build())
+            .build()
+    );
+    return new PresignedPut(presigned.url().toString(), ttl);
+  }
+
+  public record UploadedPart(int partNumber, String eTag, long sizeBytes) {
+  }
+
+  /**
+   * Parts S3 has received so far, in part-number order (follows pagination).
+   *
+   * @throws NoSuchUploadException when the upload was completed, aborted or never existed
+   */
+  public List<UploadedPart> listParts(String key, String uploadId) {
+    List<UploadedPart> parts = new ArrayList<>();
+    Integer marker = null;
+    while (true) {
+      ListPartsResponse resp = s3.listParts(ListPartsRequest.builder()
+          .bucket(bucket)
+          .key(key)
+          .uploadId(uploadId)
+          .partNumberMarker(marker)
+          .build());
+      for (Part p : resp.parts()) {
+        parts.add(new UploadedPart(p.partNumber(), p.eTag(), p.size() == null ? 0L : p.size()));
+      }
+      if (!Boolean.TRUE.equals(resp.isTruncated())) {
+        return parts;
+      }
+      marker = resp.nextPartNumberMarker();
+    }
+  }
+
+  /**
+   * @param parts every part of the object, in ascending part-number order
+   * @throws NoSuchUploadException when the upload was already completed or aborted
+   */
+  public void completeMultipartUpload(String key, String uploadId, List<UploadedPart> parts) {
+    s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+        .bucket(bucket)
+        .key(key)
+        .uploadId(uploadId)
+        .multipartUpload(CompletedMultipartUpload.builder()
+            .parts(parts.stream()
+                .map(p -> CompletedPart.builder().partNumber(p.partNumber()).eTag(p.eTag()).build())
+                .toList())
+            .build())
+        .build());
+  }
+
+  /**
+   * Drops the upload and every part stored for it; an upload that is already gone is not an error.
+   */
+  public void abortMultipartUpload(String key, String uploadId) {
+    try {
+      s3.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+          .bucket(bucket)
+          .key(key)
+          .uploadId(uploadId)
+          .build());
+    } catch (NoSuchUploadException ignored) {
+      // already completed or aborted
+    }
+  }
+
   public HeadObjectResponse head(String key) {
     return s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
   }
@@ -63,6 +272,42 @@ public class S3Storage {
     }
   }
 
+  /**
+   * Open the object as a stream; caller must close it. Content length is on {@code response()}.
+   */
+  public ResponseInputStream<GetObjectResponse> openStream(String key) {
+    return s3.getObject(GetObjectRequest.builder().bucket(bucket).key(key).build());
+  }
+
+  /**
+   * Ranged GET of bytes {@code start..end} (inclusive); caller must close the stream.
+   */
+  public ResponseInputStream<GetObjectResponse> openRange(String key, long start, long end) {
+    return s3.getObject(GetObjectRequest.builder()
+        .bucket(bucket)
+        .key(key)
+        .range("bytes=" + start + "-" + end)
+        .build());
+  }
+
+  /**
+   * Stream the object into {@code target} (replacing it) without buffering it on the heap.
+   */
+  public void downloadToFile(String key, Path target) {
+    try (InputStream in = openStream(key)) {
+      Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public void putFile(String key, Path file, String contentType) {
+    s3.putObject(
+        PutObjectRequest.builder().bucket(bucket).key(key).contentType(contentType).build(),
+        RequestBody.fromFile(file)
+    );
+  }
+
   public void putBytes(String key, byte[] bytes, String contentType) {
     s3.putObject(
         PutObjectRequest.builder().bucket(bucket).key(key).contentType(contentType).build(),
@@ -0,0 +1,153 @@
+package com.secp.api.infra.template;
+
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An HTML template compiled once into literal segments and {@code {{NAME}}} slots
+ * ({@code NAME} = {@code [A-Z0-9_]+}).
+ * <p>
+ * {@link #render} writes segments and slot values into one exactly presized StringBuilder, instead
+ * of one full-template {@code String.replace} pass per placeholder. Slot values are inserted as is
+ * (callers escape them), and are never rescanned for placeholders.
+ */
+public final class HtmlTemplate {
+
+  private final String[] segments;
+  private final String[] slots;
+  private final int literalLength;
+  private final String fingerprint;
+
+  private HtmlTemplate(String[] segments, String[] slots, String fingerprint) {
+    this.segments = segments;
+    this.slots = slots;
+    this.fingerprint = fingerprint;
+    int n = 0;
+    for (String s : segments) {
+      n += s.length();
+    }
+    this.literalLength = n;
+  }
+
+  public static HtmlTemplate classpath(String path) {
+    try (InputStream in = new ClassPathResource(path).getInputStream()) {
+      return compile(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    } catch (Exception e) {
+      throw new IllegalStateException("TEMPLATE_NOT_FOUND: " + path, e);
+    }
+  }
+
+  public static HtmlTemplate compile(String text) {
+    List<String> segments = new ArrayList<>();
+    List<String> slots = new ArrayList<>();
+    int literalStart = 0;
+    int i = 0;
+    while ((i = text.indexOf("{{", i)) >= 0) {
+      int end = text.indexOf("}}", i + 2);
+      if (end < 0) {
+        break;
+      }
+      String name = text.substring(i + 2, end);
+      if (!isSlotName(name)) {
+        i += 2;
+        continue;
+      }
+      segments.add(text.substring(literalStart, i));
+      slots.add(name);
+      i = end + 2;
+      literalStart = i;
+    }
+    segments.add(text.substring(literalStart));
+    return new HtmlTemplate(segments.toArray(String[]::new), slots.toArray(String[]::new), sha256Prefix(text));
+  }
+
+  /**
+   * @return 16 hex chars of the template source's SHA-256; changes whenever the template does
+   */
+  public String fingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * @param missing written for slots absent from {@code values}; null keeps the {@code {{NAME}}} text
+   */
+  public String render(Map<String, ? extends CharSequence> values, String missing) {
+    int capacity = literalLength;
+    for (String slot : slots) {
+      CharSequence v = values.get(slot);
+      capacity += v != null ? v.length() : missing != null ? missing.length() : slot.length() + 4;
+    }
+    StringBuilder out = new StringBuilder(capacity);
+    for (int i = 0; i < slots.length; i++) {
+      out.append(segments[i]);
+      CharSequence v = values.get(slots[i]);
+      if (v != null) {
+        out.append(v);
+      } else if (missing != null) {
+        out.append(missing);
+      } else {
+        out.append("{{").append(slots[i]).append("}}");
+      }
+    }
+    out.append(segments[slots.length]);
+    return out.toString();
+  }
+
+  /**
+   * Append {@code s} HTML-escaped ({@code & < > " '}); null appends nothing.
+   */
+  public static StringBuilder appendEscaped(StringBuilder out, String s) {
+    if (s == null) {
+      return out;
+    }
+    for (int i = 0, n = s.length(); i < n; i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '&' -> out.append("&amp;");
+        case '<' -> out.append("&lt;");
+        case '>' -> out.append("&gt;");
+        case '"' -> out.append("&quot;");
+        case '\'' -> out.append("&#39;");
+        default -> out.append(c);
+      }
+    }
+    return out;
+  }
+
+  public static String escape(String s) {
+    if (s == null) {
+      return "";
+    }
+    return appendEscaped(new StringBuilder(s.length() + 16), s).toString();
+  }
+
+  private static String sha256Prefix(String text) {
+    try {
+      byte[] d = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(d, 0, 8);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static boolean isSlotName(String name) {
+    if (name.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (!((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_')) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
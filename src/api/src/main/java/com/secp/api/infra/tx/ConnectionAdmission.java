@@ -0,0 +1,50 @@
+package com.secp.api.infra.tx;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds how many requests may hold (or wait for) a pooled connection at once. Excess requests
+ * wait up to {@code acquireTimeoutMs} and are then rejected with {@link DbBusyException} instead
+ * of piling up inside Hikari's own (much longer) connection timeout.
+ */
+@Component
+public class ConnectionAdmission {
+
+  private final boolean enabled;
+  private final long acquireTimeoutMs;
+  private final Semaphore permits;
+
+  public ConnectionAdmission(DbAdmissionProperties props) {
+    this.enabled = props.enabled();
+    this.acquireTimeoutMs = Math.max(0, props.acquireTimeoutMs());
+    this.permits = new Semaphore(Math.max(1, props.maxConcurrent()), true);
+  }
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  public void acquire() {
+    boolean ok;
+    try {
+      ok = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DbBusyException();
+    }
+    if (!ok) {
+      throw new DbBusyException();
+    }
+  }
+
+  public void release() {
+    permits.release();
+  }
+
+  public int availablePermits() {
+    return permits.availablePermits();
+  }
+}
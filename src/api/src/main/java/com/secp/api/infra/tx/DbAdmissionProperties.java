@@ -0,0 +1,19 @@
+package com.secp.api.infra.tx;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Connection-acquisition admission in front of the Hikari pool.
+ *
+ * @param enabled          gate {@link TransactionalExecutor} with a semaphore (meant for virtual-thread mode,
+ *                         where request concurrency is no longer bounded by the Tomcat pool)
+ * @param maxConcurrent    permits; keep at or below {@code spring.datasource.hikari.maximum-pool-size}
+ * @param acquireTimeoutMs how long a request may wait for a permit before failing fast with 503
+ */
+@ConfigurationProperties(prefix = "secp.db-admission")
+public record DbAdmissionProperties(
+    boolean enabled,
+    int maxConcurrent,
+    long acquireTimeoutMs
+) {
+}
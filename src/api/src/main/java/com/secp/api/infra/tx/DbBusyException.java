@@ -0,0 +1,7 @@
+package com.secp.api.infra.tx;
+
+public class DbBusyException extends RuntimeException {
+  public DbBusyException() {
+    super("DB_BUSY");
+  }
+}
@@ -5,6 +5,7 @@ import com.secp.api.auth.UserGroupService;
 import com.secp.api.infra.RlsSessionJdbc;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
@@ -17,18 +18,34 @@ public class TransactionalExecutor {
   private final TransactionTemplate tx;
   private final RlsSessionJdbc rlsSessionJdbc;
   private final UserGroupService userGroupService;
+  private final ConnectionAdmission admission;
 
   public TransactionalExecutor(
       PlatformTransactionManager txManager,
       RlsSessionJdbc rlsSessionJdbc,
-      UserGroupService userGroupService
+      UserGroupService userGroupService,
+      ConnectionAdmission admission
   ) {
     this.tx = new TransactionTemplate(txManager);
     this.rlsSessionJdbc = rlsSessionJdbc;
     this.userGroupService = userGroupService;
+    this.admission = admission;
   }
 
   public <T> T execute(AuthPrincipal principal, Supplier<T> supplier) {
+    // Nested calls join the outer transaction (same connection), so only the outermost call is gated.
+    if (!admission.enabled() || TransactionSynchronizationManager.isActualTransactionActive()) {
+      return doExecute(principal, supplier);
+    }
+    admission.acquire();
+    try {
+      return doExecute(principal, supplier);
+    } finally {
+      admission.release();
+    }
+  }
+
+  private <T> T doExecute(AuthPrincipal principal, Supplier<T> supplier) {
     return tx.execute(status -> {
       List<UUID> groupIds = userGroupService.getGroupIds(principal.userId());
       String csv = String.join(",", groupIds.stream().map(UUID::toString).toList());
@@ -1,19 +1,21 @@
 package com.secp.api.instruction;
 
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 import com.secp.api.instruction.dto.InstructionDetailResponse;
 
 import java.time.OffsetDateTime;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public class InstructionRepository {
 
+  private static final RowMapper<UUID> UUID_COLUMN = (rs, rowNum) -> rs.getObject(1, UUID.class);
+
   private final JdbcTemplate jdbc;
 
   public InstructionRepository(JdbcTemplate jdbc) {
@@ -21,14 +23,22 @@ public class InstructionRepository {
   }
 
   public Optional<UUID> findGroupIdByProjectId(UUID projectId) {
-    List<Map<String, Object>> rows = jdbc.queryForList("select group_id from project where id = ?", projectId);
+    List<UUID> rows = jdbc.query("select group_id from project where id = ?", UUID_COLUMN, projectId);
     if (rows.isEmpty()) return Optional.empty();
-    return Optional.of((UUID) rows.getFirst().get("group_id"));
+    return Optional.of(rows.getFirst());
   }
 
-  public Optional<Map<String, Object>> findCase(UUID caseId) {
-    List<Map<String, Object>> rows = jdbc.queryForList(
+  public record CaseRef(UUID id, UUID groupId, UUID projectId) {
+  }
+
+  public Optional<CaseRef> findCase(UUID caseId) {
+    List<CaseRef> rows = jdbc.query(
         "select id, group_id, project_id from \"case\" where id = ?",
+        (rs, rowNum) -> new CaseRef(
+            rs.getObject("id", UUID.class),
+            rs.getObject("group_id", UUID.class),
+            rs.getObject("project_id", UUID.class)
+        ),
         caseId
     );
     if (rows.isEmpty()) return Optional.empty();
@@ -36,12 +46,13 @@ public class InstructionRepository {
   }
 
   public Optional<UUID> findCaseIdInProject(UUID caseId, UUID projectId) {
-    List<Map<String, Object>> rows = jdbc.queryForList(
+    List<UUID> rows = jdbc.query(
         "select id from \"case\" where id = ? and project_id = ?",
+        UUID_COLUMN,
         caseId, projectId
     );
     if (rows.isEmpty()) return Optional.empty();
-    return Optional.of((UUID) rows.getFirst().get("id"));
+    return Optional.of(rows.getFirst());
   }
 
   public void insertInstruction(UUID id,
@@ -78,29 +89,29 @@ public class InstructionRepository {
   }
 
   public Optional<InstructionRow> findInstructionForUpdate(UUID instructionId) {
-    List<Map<String, Object>> rows = jdbc.queryForList(
+    List<InstructionRow> rows = jdbc.query(
         """
         select id, group_id, ref_type, ref_id, status, version
         from instruction
         where id = ?
         for update
         """,
+        (rs, rowNum) -> new InstructionRow(
+            rs.getObject("id", UUID.class),
+            rs.getObject("group_id", UUID.class),
+            rs.getString("ref_type"),
+            rs.getObject("ref_id", UUID.class),
+            rs.getString("status"),
+            rs.getInt("version")
+        ),
         instructionId
     );
     if (rows.isEmpty()) return Optional.empty();
-    Map<String, Object> r = rows.getFirst();
-    return Optional.of(new InstructionRow(
-        (UUID) r.get("id"),
-        (UUID) r.get("group_id"),
-        String.valueOf(r.get("ref_type")),
-        (UUID) r.get("ref_id"),
-        String.valueOf(r.get("status")),
-        ((Number) r.get("version")).intValue()
-    ));
+    return Optional.of(rows.getFirst());
   }
 
   public int issueInstruction(UUID instructionId, UUID issuedBy) {
-    List<Map<String, Object>> rows = jdbc.queryForList(
+    List<Integer> rows = jdbc.query(
         """
         update instruction
            set status='ISSUED',
@@ -111,12 +122,13 @@ public class InstructionRepository {
          where id = ?
          returning version
         """,
+        (rs, rowNum) -> rs.getInt("version"),
         issuedBy, instructionId
     );
     if (rows.isEmpty()) {
       throw new InstructionNotFoundException();
     }
-    return ((Number) rows.getFirst().get("version")).intValue();
+    return rows.getFirst();
   }
 
   public record InstructionItemRow(UUID id, String title, OffsetDateTime dueAt) {
@@ -126,7 +138,7 @@ public class InstructionRepository {
     return jdbc.query(
         "select id, title, due_at from instruction_item where instruction_id = ? order by created_at",
         (rs, rowNum) -> new InstructionItemRow(
-            UUID.fromString(rs.getString("id")),
+            rs.getObject("id", UUID.class),
             rs.getString("title"),
             rs.getObject("due_at", OffsetDateTime.class)
         ),
@@ -145,19 +157,19 @@ public class InstructionRepository {
   }
 
   public Optional<InstructionItemState> findItem(UUID itemId) {
-    List<Map<String, Object>> rows = jdbc.queryForList(
+    List<InstructionItemState> rows = jdbc.query(
         "select id, instruction_id, group_id, status, assignee_user_id from instruction_item where id = ?",
+        (rs, rowNum) -> new InstructionItemState(
+            rs.getObject("id", UUID.class),
+            rs.getObject("instruction_id", UUID.class),
+            rs.getObject("group_id", UUID.class),
+            rs.getString("status"),
+            rs.getObject("assignee_user_id", UUID.class)
+        ),
         itemId
     );
     if (rows.isEmpty()) return Optional.empty();
-    Map<String, Object> r = rows.getFirst();
-    return Optional.of(new InstructionItemState(
-        (UUID) r.get("id"),
-        (UUID) r.get("instruction_id"),
-        (UUID) r.get("group_id"),
-        String.valueOf(r.get("status")),
-        (UUID) r.get("assignee_user_id")
-    ));
+    return Optional.of(rows.getFirst());
   }
 
   public record StatusChangedRow(UUID id,
@@ -170,7 +182,7 @@ public class InstructionRepository {
   }
 
   public Optional<StatusChangedRow> changeItemStatus(UUID itemId, String fromStatus, String toStatus, UUID actor) {
-    List<Map<String, Object>> rows = jdbc.queryForList(
+    List<StatusChangedRow> rows = jdbc.query(
         """
         update instruction_item
            set status = ?,
@@ -182,6 +194,15 @@ public class InstructionRepository {
            and status = ?
          returning id, instruction_id, group_id, status_version, assignee_user_id
         """,
+        (rs, rowNum) -> new StatusChangedRow(
+            rs.getObject("id", UUID.class),
+            rs.getObject("instruction_id", UUID.class),
+            rs.getObject("group_id", UUID.class),
+            fromStatus,
+            toStatus,
+            rs.getInt("status_version"),
+            rs.getObject("assignee_user_id", UUID.class)
+        ),
         toStatus,
         toStatus,
         actor,
@@ -190,20 +211,11 @@ public class InstructionRepository {
         fromStatus
     );
     if (rows.isEmpty()) return Optional.empty();
-    Map<String, Object> r = rows.getFirst();
-    return Optional.of(new StatusChangedRow(
-        (UUID) r.get("id"),
-        (UUID) r.get("instruction_id"),
-        (UUID) r.get("group_id"),
-        fromStatus,
-        toStatus,
-        ((Number) r.get("status_version")).intValue(),
-        (UUID) r.get("assignee_user_id")
-    ));
+    return Optional.of(rows.getFirst());
   }
 
   public Optional<UpdatedItemRow> updateItemStatus(UUID itemId, String newStatus, UUID actor) {
-    List<Map<String, Object>> rows = jdbc.queryForList(
+    List<UpdatedItemRow> rows = jdbc.query(
         """
         update instruction_item
            set status = ?,
@@ -214,30 +226,44 @@ public class InstructionRepository {
          where id = ?
        returning id, instruction_id, group_id, status
         """,
+        (rs, rowNum) -> new UpdatedItemRow(
+            rs.getObject("id", UUID.class),
+            rs.getObject("instruction_id", UUID.class),
+            rs.getObject("group_id", UUID.class),
+            rs.getString("status")
+        ),
         newStatus, newStatus, actor, newStatus, itemId
     );
     if (rows.isEmpty()) return Optional.empty();
-    Map<String, Object> r = rows.getFirst();
-    return Optional.of(new UpdatedItemRow(
-        (UUID) r.get("id"),
-        (UUID) r.get("instruction_id"),
-        (UUID) r.get("group_id"),
-        String.valueOf(r.get("status"))
-    ));
+    return Optional.of(rows.getFirst());
   }
 
   public Optional<InstructionDetailResponse> getInstructionDetail(UUID instructionId) {
-    List<Map<String, Object>> rows = jdbc.queryForList(
+    List<InstructionDetailResponse> rows = jdbc.query(
         """
         select id, group_id, ref_type, ref_id, title, status, version,
                issued_by, issued_at, created_at, updated_at
           from instruction
          where id = ?
         """,
+        (rs, rowNum) -> new InstructionDetailResponse(
+            rs.getObject("id", UUID.class),
+            rs.getObject("group_id", UUID.class),
+            rs.getString("ref_type"),
+            rs.getObject("ref_id", UUID.class),
+            rs.getString("title"),
+            rs.getString("status"),
+            rs.getInt("version"),
+            rs.getObject("issued_by", UUID.class),
+            rs.getObject("issued_at", OffsetDateTime.class),
+            rs.getObject("created_at", OffsetDateTime.class),
+            rs.getObject("updated_at", OffsetDateTime.class),
+            List.of()
+        ),
         instructionId
     );
     if (rows.isEmpty()) return Optional.empty();
-    Map<String, Object> r = rows.getFirst();
+    InstructionDetailResponse r = rows.getFirst();
 
     List<InstructionDetailResponse.InstructionItemDetailDto> items = jdbc.query(
         """
@@ -271,19 +297,7 @@ public class InstructionRepository {
         instructionId
     );
 
-    return Optional.of(new InstructionDetailResponse(
-        (UUID) r.get("id"),
-        (UUID) r.get("group_id"),
-        String.valueOf(r.get("ref_type")),
-        (UUID) r.get("ref_id"),
-        String.valueOf(r.get("title")),
-        String.valueOf(r.get("status")),
-        ((Number) r.get("version")).intValue(),
-        (UUID) r.get("issued_by"),
-        (OffsetDateTime) r.get("issued_at"),
-        (OffsetDateTime) r.get("created_at"),
-        (OffsetDateTime) r.get("updated_at"),
-        items
-    ));
+    return Optional.of(new InstructionDetailResponse(r.instructionId(), r.groupId(), r.refType(), r.refId(), r.title(),
+        r.status(), r.version(), r.issuedByUserId(), r.issuedAt(), r.createdAt(), r.updatedAt(), items));
   }
 }
@@ -40,7 +40,7 @@ public class InstructionService {
             .orElseThrow(InstructionNotFoundException::new);
       } else {
         var caseRow = instructionRepository.findCase(req.refId()).orElseThrow(InstructionNotFoundException::new);
-        groupId = (UUID) caseRow.get("group_id");
+        groupId = caseRow.groupId();
       }
 
       Boolean allowed = jdbc.queryForObject("select app_can_write_group(?)", Boolean.class, groupId);
@@ -121,7 +121,7 @@ public class InstructionService {
       } else {
         caseId = row.refId();
         var caseRow = instructionRepository.findCase(caseId).orElseThrow(InstructionNotFoundException::new);
-        projectId = (UUID) caseRow.get("project_id");
+        projectId = caseRow.projectId();
       }
 
       int newVersion = instructionRepository.issueInstruction(instructionId, principal.userId());
@@ -0,0 +1,67 @@
+package com.secp.api.preview;
+
+/**
+ * A single resolved {@code Range: bytes=...} request; {@code start} and {@code end} are inclusive.
+ */
+public record ByteRange(long start, long end) {
+
+  public long length() {
+    return end - start + 1;
+  }
+
+  public boolean coversAll(long totalLength) {
+    return start == 0 && end >= totalLength - 1;
+  }
+
+  public String contentRange(long totalLength) {
+    return "bytes " + start + "-" + end + "/" + totalLength;
+  }
+
+  /**
+   * Resolve a Range header against an entity of {@code totalLength} bytes.
+   * <p>
+   * Returns null when there is nothing to honor: no header, a syntactically invalid one, a
+   * non-bytes unit or a multi-range request (answered with the full entity, as RFC 9110 allows).
+   *
+   * @throws PreviewRangeNotSatisfiableException when the range lies outside the entity
+   */
+  public static ByteRange parse(String header, long totalLength) {
+    if (header == null || !header.startsWith("bytes=")) {
+      return null;
+    }
+    String spec = header.substring("bytes=".length()).trim();
+    if (spec.isEmpty() || spec.indexOf(',') >= 0) {
+      return null;
+    }
+    int dash = spec.indexOf('-');
+    if (dash < 0) {
+      return null;
+    }
+    String first = spec.substring(0, dash).trim();
+    String last = spec.substring(dash + 1).trim();
+    try {
+      if (first.isEmpty()) {
+        // suffix: last N bytes
+        long suffix = Long.parseLong(last);
+        if (suffix < 0) {
+          return null;
+        }
+        if (suffix == 0 || totalLength == 0) {
+          throw new PreviewRangeNotSatisfiableException(totalLength);
+        }
+        return new ByteRange(Math.max(0, totalLength - suffix), totalLength - 1);
+      }
+      long start = Long.parseLong(first);
+      long end = last.isEmpty() ? totalLength - 1 : Long.parseLong(last);
+      if (start < 0 || end < start) {
+        return null;
+      }
+      if (start >= totalLength) {
+        throw new PreviewRangeNotSatisfiableException(totalLength);
+      }
+      return new ByteRange(start, Math.min(end, totalLength - 1));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.secp.api.preview;
+
+/**
+ * Conditional / partial request headers of a preview GET ({@code Range}, {@code If-Range},
+ * {@code If-None-Match}); any of them may be null.
+ */
+public record PreviewConditions(String range, String ifRange, String ifNoneMatch) {
+
+  public static PreviewConditions none() {
+    return new PreviewConditions(null, null, null);
+  }
+
+  /**
+   * Viewers seek with ranged (or revalidating) GETs on the URL of the first, full one. A consumed
+   * token may only be reused by a request conditional on the ETag served at that first use:
+   * {@code Range} + {@code If-Range}, or {@code If-None-Match}. The caller still has to refuse a
+   * reuse that would send the full entity.
+   */
+  public boolean conditionalOn(String issuedEtag) {
+    if (issuedEtag == null) {
+      return false;
+    }
+    if (range != null && ifRange != null && ifRange.trim().equals(issuedEtag)) {
+      return true;
+    }
+    return listed(ifNoneMatch, issuedEtag, false);
+  }
+
+  public boolean notModified(String etag) {
+    return listed(ifNoneMatch, etag, true);
+  }
+
+  private static boolean listed(String header, String etag, boolean wildcard) {
+    if (header == null) {
+      return false;
+    }
+    for (String candidate : header.split(",")) {
+      String tag = candidate.trim();
+      if (tag.equals("*")) {
+        if (wildcard) {
+          return true;
+        }
+        continue;
+      }
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the range to serve, or null for the full entity (no Range, or an If-Range that no
+   *     longer matches: a date or a stale ETag)
+   */
+  public ByteRange rangeFor(String etag, long totalLength) {
+    if (range == null) {
+      return null;
+    }
+    if (ifRange != null && !ifRange.trim().equals(etag)) {
+      return null;
+    }
+    return ByteRange.parse(range, totalLength);
+  }
+}
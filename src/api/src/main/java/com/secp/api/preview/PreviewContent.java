@@ -0,0 +1,143 @@
+package com.secp.api.preview;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A rendered preview ready to be streamed to the client: either a freshly rendered temp file
+ * (deleted on close) or a cached object streamed straight from S3 (ranged GET when a byte range
+ * was requested). {@link #notModified} carries only the validator for a 304.
+ */
+public final class PreviewContent implements Closeable {
+
+  private final InputStream in;
+  private final long contentLength;
+  private final Path tempFile;
+  private final String etag;
+  private final long totalLength;
+  private final ByteRange range;
+
+  private PreviewContent(InputStream in, long contentLength, Path tempFile, String etag, long totalLength,
+                         ByteRange range) {
+    this.in = in;
+    this.contentLength = contentLength;
+    this.tempFile = tempFile;
+    this.etag = etag;
+    this.totalLength = totalLength;
+    this.range = range;
+  }
+
+  /**
+   * @param in the entity, or only {@code range} of it when a range is given
+   */
+  public static PreviewContent ofStream(InputStream in, String etag, long totalLength, ByteRange range) {
+    long length = range != null ? range.length() : totalLength;
+    return new PreviewContent(in, length, null, etag, totalLength, range);
+  }
+
+  public static PreviewContent ofTempFile(Path file, String etag, ByteRange range) {
+    InputStream in = null;
+    try {
+      long total = Files.size(file);
+      in = Files.newInputStream(file);
+      if (range != null) {
+        in.skipNBytes(range.start());
+      }
+      return new PreviewContent(in, range != null ? range.length() : total, file, etag, total, range);
+    } catch (IOException e) {
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException ignored) {
+          // best-effort
+        }
+      }
+      deleteQuietly(file);
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static PreviewContent notModified(String etag) {
+    return new PreviewContent(null, 0L, null, etag, -1L, null);
+  }
+
+  public boolean isNotModified() {
+    return in == null;
+  }
+
+  /**
+   * @return bytes in the body (the range length for partial content), or -1 when unknown
+   */
+  public long contentLength() {
+    return contentLength;
+  }
+
+  /**
+   * @return size of the whole preview, or -1 when unknown
+   */
+  public long totalLength() {
+    return totalLength;
+  }
+
+  public String etag() {
+    return etag;
+  }
+
+  /**
+   * @return the byte range being served, or null for the full entity
+   */
+  public ByteRange range() {
+    return range;
+  }
+
+  public void transferTo(OutputStream out) throws IOException {
+    if (in == null) {
+      return;
+    }
+    if (range == null) {
+      in.transferTo(out);
+      return;
+    }
+    // a temp file stream runs on past the range end
+    byte[] buf = new byte[8192];
+    long remaining = contentLength;
+    while (remaining > 0) {
+      int n = in.read(buf, 0, (int) Math.min(buf.length, remaining));
+      if (n < 0) {
+        break;
+      }
+      out.write(buf, 0, n);
+      remaining -= n;
+    }
+  }
+
+  @Override
+  public void close() {
+    if (in != null) {
+      try {
+        in.close();
+      } catch (IOException ignored) {
+        // best-effort
+      }
+    }
+    if (tempFile != null) {
+      deleteQuietly(tempFile);
+    }
+  }
+
+  static void deleteQuietly(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException ignored) {
+      // best-effort
+    }
+  }
+}
@@ -4,12 +4,13 @@ import com.secp.api.auth.AuthContext;
 import com.secp.api.auth.AuthPrincipal;
 import com.secp.api.preview.dto.CreatePreviewTokenResponse;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.UUID;
 
 @RestController
@@ -26,11 +27,33 @@ public class PreviewController {
   }
 
   @GetMapping(produces = "application/pdf")
-  public ResponseEntity<byte[]> view(@RequestParam("token") String token, HttpServletRequest req) {
+  public void view(@RequestParam("token") String token,
+                   @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                   @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                   HttpServletRequest req,
+                   HttpServletResponse resp) throws IOException {
     AuthPrincipal principal = AuthContext.getRequired();
-    byte[] pdf = previewService.view(principal, token, req);
-    return ResponseEntity.ok()
-        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_PDF_VALUE)
-        .body(pdf);
+    PreviewConditions cond = new PreviewConditions(range, ifRange, ifNoneMatch);
+    try (PreviewContent content = previewService.view(principal, token, cond, req)) {
+      resp.setHeader(HttpHeaders.ETAG, content.etag());
+      resp.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+      resp.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+      if (content.isNotModified()) {
+        resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return;
+      }
+      if (content.range() != null) {
+        resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        resp.setHeader(HttpHeaders.CONTENT_RANGE, content.range().contentRange(content.totalLength()));
+      } else {
+        resp.setStatus(HttpServletResponse.SC_OK);
+      }
+      resp.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_PDF_VALUE);
+      if (content.contentLength() >= 0) {
+        resp.setContentLengthLong(content.contentLength());
+      }
+      content.transferTo(resp.getOutputStream());
+    }
   }
 }
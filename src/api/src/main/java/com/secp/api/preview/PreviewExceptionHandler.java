@@ -1,6 +1,7 @@
 package com.secp.api.preview;
 
 import com.secp.api.infra.ErrorResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -18,8 +19,22 @@ public class PreviewExceptionHandler {
     return ResponseEntity.status(413).body(ErrorResponse.of("TOO_LARGE", "文件过大，无法预览。"));
   }
 
+  @ExceptionHandler(PreviewInvalidException.class)
+  public ResponseEntity<ErrorResponse> invalid(PreviewInvalidException ex) {
+    return ResponseEntity.status(422).body(ErrorResponse.of("INVALID_FILE", "文件已损坏或格式不受支持，无法预览。"));
+  }
+
   @ExceptionHandler(PreviewRateLimitedException.class)
   public ResponseEntity<ErrorResponse> rateLimited(PreviewRateLimitedException ex) {
-    return ResponseEntity.status(429).body(ErrorResponse.of("RATE_LIMITED", "请求过于频繁，请稍后再试。"));
+    return ResponseEntity.status(429)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body(ErrorResponse.of("RATE_LIMITED", "请求过于频繁，请稍后再试。"));
+  }
+
+  @ExceptionHandler(PreviewRangeNotSatisfiableException.class)
+  public ResponseEntity<ErrorResponse> rangeNotSatisfiable(PreviewRangeNotSatisfiableException ex) {
+    return ResponseEntity.status(416)
+        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + ex.totalLength())
+        .body(ErrorResponse.of("RANGE_NOT_SATISFIABLE", "请求的范围无效。"));
   }
 }
@@ -0,0 +1,7 @@
+package com.secp.api.preview;
+
+public class PreviewInvalidException extends RuntimeException {
+  public PreviewInvalidException(String reason) {
+    super(reason);
+  }
+}
@@ -1,5 +1,6 @@
 package com.secp.api.preview;
 
+import com.secp.preview.render.WatermarkStyle;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties(prefix = "secp.preview")
@@ -7,8 +8,41 @@ public record PreviewProperties(
     long maxSizeBytes,
     int maxPages,
     long cacheTtlSeconds,
+    int renderParallelism,
+    Admission admission,
+    Queue queue,
     Watermark watermark
 ) {
+  /**
+   * Render admission (see {@link RenderAdmission}).
+   *
+   * @param maxConcurrent  renders running at once, across all variants
+   * @param maxQueued      renders waiting for a slot; beyond this requests are rejected immediately
+   * @param maxQueueWaitMs how long a queued render may wait for a slot
+   * @param maxPerUser     running + queued renders of a single user
+   */
+  public record Admission(
+      int maxConcurrent,
+      int maxQueued,
+      long maxQueueWaitMs,
+      int maxPerUser
+  ) {
+  }
+
+  /**
+   * Out-of-process rendering (see {@link PreviewRenderQueue}).
+   *
+   * @param enabled        hand cache-miss renders to the worker instead of rendering in this JVM
+   * @param awaitTimeoutMs how long a request waits for its job before failing with 429
+   * @param pollIntervalMs job status poll interval while waiting
+   */
+  public record Queue(
+      boolean enabled,
+      long awaitTimeoutMs,
+      long pollIntervalMs
+  ) {
+  }
+
   public record Watermark(
       int wmVer,
       String timeFormat,
@@ -25,5 +59,8 @@ public record PreviewProperties(
       double angle,
       String template
   ) {
+    public WatermarkStyle watermarkStyle() {
+      return new WatermarkStyle(opacity, fontSize, angle);
+    }
   }
 }
@@ -0,0 +1,15 @@
+package com.secp.api.preview;
+
+public class PreviewRangeNotSatisfiableException extends RuntimeException {
+
+  private final long totalLength;
+
+  public PreviewRangeNotSatisfiableException(long totalLength) {
+    super("RANGE_NOT_SATISFIABLE");
+    this.totalLength = totalLength;
+  }
+
+  public long totalLength() {
+    return totalLength;
+  }
+}
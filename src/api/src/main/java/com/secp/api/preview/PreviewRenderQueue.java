@@ -0,0 +1,123 @@
+package com.secp.api.preview;
+
+import com.secp.api.auth.AuthPrincipal;
+import com.secp.api.idempotency.ResponseJson;
+import com.secp.api.infra.tx.TransactionalExecutor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Hands preview renders to the worker through preview_render_job and waits for the result.
+ * <p>
+ * Called outside any transaction: the job is inserted and polled in short transactions of their
+ * own, so the worker sees it at once and no connection is held between polls. Its deadline
+ * equals the wait timeout: a job this request stopped waiting for is dropped by the worker
+ * instead of rendered.
+ */
+@Component
+@RequiredArgsConstructor
+public class PreviewRenderQueue {
+
+  private final TransactionalExecutor tx;
+  private final JdbcTemplate jdbc;
+  private final ResponseJson responseJson;
+  private final PreviewProperties props;
+
+  public record RenderJob(
+      UUID fileId,
+      String variant,
+      String fileFingerprint,
+      int wmVer,
+      String rawKey,
+      String outputKey,
+      String watermark,
+      PreviewProperties.Variant style
+  ) {
+  }
+
+  public boolean enabled() {
+    return props.queue() != null && props.queue().enabled();
+  }
+
+  /**
+   * Submit {@code job} and block until the worker has uploaded {@code outputKey}.
+   *
+   * @return rendered size in bytes
+   * @throws PreviewRateLimitedException when the worker does not finish in time
+   */
+  public long render(AuthPrincipal viewer, RenderJob job) {
+    long timeoutMs = Math.max(1, props.queue().awaitTimeoutMs());
+    long pollMs = Math.max(10, props.queue().pollIntervalMs());
+    OffsetDateTime deadline = OffsetDateTime.now().plusNanos(timeoutMs * 1_000_000L);
+
+    String params = responseJson.toJson(Map.of(
+        "watermark", job.watermark(),
+        "opacity", job.style().opacity(),
+        "fontSize", job.style().fontSize(),
+        "angle", job.style().angle(),
+        "densityMultiplier", props.watermark().densityMultiplier(),
+        "maxPages", props.maxPages()
+    ));
+
+    UUID jobId = tx.execute(viewer, () -> jdbc.queryForObject(
+        """
+        insert into preview_render_job(file_id, viewer_user_id, variant, file_fingerprint, wm_ver, raw_key, output_key, params, deadline_at)
+        values (?,?,?,?,?,?,?, ?::jsonb, ?)
+        returning id
+        """,
+        UUID.class,
+        job.fileId(),
+        viewer.userId(),
+        job.variant(),
+        job.fileFingerprint(),
+        job.wmVer(),
+        job.rawKey(),
+        job.outputKey(),
+        params,
+        deadline
+    ));
+
+    long end = System.nanoTime() + timeoutMs * 1_000_000L;
+    while (true) {
+      try {
+        Thread.sleep(pollMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new PreviewRateLimitedException();
+      }
+
+      var rows = tx.execute(viewer, () -> jdbc.queryForList(
+          "select status, error, size_bytes from preview_render_job where id=?",
+          jobId
+      ));
+      if (rows.isEmpty()) {
+        throw new PreviewNotFoundException();
+      }
+      Map<String, Object> row = rows.getFirst();
+      String status = String.valueOf(row.get("status"));
+      if ("done".equals(status)) {
+        return ((Number) row.get("size_bytes")).longValue();
+      }
+      if ("failed".equals(status)) {
+        throw failure(String.valueOf(row.get("error")));
+      }
+      if (System.nanoTime() >= end) {
+        throw new PreviewRateLimitedException();
+      }
+    }
+  }
+
+  private static RuntimeException failure(String error) {
+    return switch (error) {
+      case "TOO_MANY_PAGES", "FILE_TOO_LARGE" -> new PreviewTooLargeException(error);
+      case "INVALID_PDF" -> new PreviewInvalidException(error);
+      case "EXPIRED" -> new PreviewRateLimitedException();
+      default -> new IllegalStateException("PREVIEW_RENDER_FAILED:" + error);
+    };
+  }
+}
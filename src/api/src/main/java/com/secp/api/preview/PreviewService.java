@@ -6,12 +6,22 @@ import com.secp.api.infra.RequestIdFilter;
 import com.secp.api.infra.s3.S3Storage;
 import com.secp.api.infra.tx.TransactionalExecutor;
 import com.secp.api.preview.dto.CreatePreviewTokenResponse;
+import com.secp.preview.render.PdfPreviewRenderer;
+import com.secp.preview.render.PreviewKeys;
+import com.secp.preview.render.PreviewRejectedException;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.time.Duration;
@@ -22,8 +32,6 @@ import java.time.format.DateTimeFormatter;
 import java.util.HexFormat;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
@@ -37,9 +45,8 @@ public class PreviewService {
   private final S3Storage s3;
   private final ResponseJson responseJson;
   private final PreviewProperties props;
-
-  // legacy: keep field to avoid larger refactor; concurrency control is not part of watermark contract.
-  private final Semaphore externalSemaphore = null;
+  private final RenderAdmission renderAdmission;
+  private final PreviewRenderQueue renderQueue;
 
   public CreatePreviewTokenResponse createToken(AuthPrincipal viewer, UUID fileId, HttpServletRequest req) {
     return tx.execute(viewer, () -> {
@@ -78,123 +85,518 @@ public class PreviewService {
     });
   }
 
-  public byte[] view(AuthPrincipal viewer, String token, HttpServletRequest req) {
-    return tx.execute(viewer, () -> {
-      String tokenHash = sha256Hex(token);
-      String variant = computeVariant(viewer);
+  /**
+   * Runs in three steps so no pooled connection is held while rendering:
+   * <ol>
+   *   <li>claim (short tx): consume the token, resolve the file, watermark and cache lookup;</li>
+   *   <li>no transaction: on a cache miss, render (locally or via the worker queue) and upload;</li>
+   *   <li>finalize (short tx): index the new preview and write the audit row.</li>
+   * </ol>
+   * The body is then streamed from the temp file or the cached S3 object (ranged GET for a
+   * {@code Range} request). The strong ETag identifies the exact cached object, and the one served
+   * at first use is recorded on the token. A follow-up request may reuse the consumed token only
+   * while that same object is current, and only for a 304 ({@code If-None-Match}) or a partial
+   * read ({@code Range} + {@code If-Range}); anything that would send the full entity again needs
+   * a new token. Follow-ups are not audited again. An indexed object the worker's GC removed
+   * is treated as a miss. If anything fails after a first-use claim, before the ETag was issued,
+   * the token is handed back, so the viewer can retry with it.
+   */
+  public PreviewContent view(AuthPrincipal viewer, String token, PreviewConditions cond, HttpServletRequest req) {
+    ViewClaim claim = tx.execute(viewer, () -> claimView(viewer, token, cond));
+    if (!claim.firstUse()) {
+      return viewFollowUp(viewer, claim, cond);
+    }
 
-      // one-time consume
-      var rows = jdbc.queryForList(
-          """
-          update file_preview_token
-             set used_at = now()
-           where token_sha256 = ?
-             and viewer_user_id = ?
-             and variant = ?
-             and used_at is null
-             and expires_at > now()
-          returning id, file_id, variant
-          """,
-          tokenHash,
-          viewer.userId(),
-          variant
-      );
-      if (rows.isEmpty()) {
-        throw new PreviewNotFoundException();
+    PreviewContent content = null;
+    Path rendered = null;
+    try {
+      CachedPreview preview = claim.cached();
+      if (preview != null) {
+        String etag = etag(viewer, claim, preview.generation());
+        try {
+          content = cond.notModified(etag)
+              ? PreviewContent.notModified(etag)
+              : openCached(preview, etag, cond.rangeFor(etag, preview.sizeBytes()));
+        } catch (NoSuchKeyException e) {
+          // object collected while its index row was being renewed; drop the row and render again
+          String staleKey = preview.s3Key();
+          tx.run(viewer, () -> evictPreviewIndex(viewer, claim, staleKey));
+          preview = null;
+        }
+        if (preview != null) {
+          tx.run(viewer, () -> recordFirstView(req, viewer, claim, true, etag));
+        }
+      }
+      if (preview == null) {
+        RenderedPreview result = renderAndStore(viewer, claim);
+        rendered = result.localFile();
+        long generation = tx.execute(viewer, () -> {
+          long gen = upsertPreviewIndex(claim.fileId(), viewer.userId(), claim.variant(), claim.fileFingerprint(),
+              claim.wmVer(), claim.previewS3Key(), result.sizeBytes());
+          recordFirstView(req, viewer, claim, false, etag(viewer, claim, gen));
+          return gen;
+        });
+        preview = new CachedPreview(claim.previewS3Key(), result.sizeBytes(), generation);
+
+        String etag = etag(viewer, claim, generation);
+        if (cond.notModified(etag)) {
+          PreviewContent.deleteQuietly(rendered);
+          content = PreviewContent.notModified(etag);
+        } else if (rendered != null) {
+          content = PreviewContent.ofTempFile(rendered, etag, cond.rangeFor(etag, preview.sizeBytes()));
+        } else {
+          content = openCached(preview, etag, cond.rangeFor(etag, preview.sizeBytes()));
+        }
+      }
+      return content;
+    } catch (RuntimeException e) {
+      if (content != null) {
+        content.close();
+      } else {
+        PreviewContent.deleteQuietly(rendered);
       }
+      releaseToken(viewer, claim.tokenId());
+      throw e;
+    }
+  }
 
-      UUID tokenId = (UUID) rows.getFirst().get("id");
-      UUID fileId = (UUID) rows.getFirst().get("file_id");
+  /**
+   * A reuse of a consumed token (see {@link #view}): served from the object whose ETag was issued
+   * at first use, and never as the full entity.
+   */
+  private PreviewContent viewFollowUp(AuthPrincipal viewer, ViewClaim claim, PreviewConditions cond) {
+    CachedPreview preview = claim.cached();
+    if (preview == null) {
+      throw new PreviewNotFoundException();
+    }
+    String etag = etag(viewer, claim, preview.generation());
+    if (!etag.equals(claim.issuedEtag())) {
+      // re-rendered since first use: the viewer needs a new token for the new object
+      throw new PreviewNotFoundException();
+    }
+    if (cond.notModified(etag)) {
+      return PreviewContent.notModified(etag);
+    }
+    ByteRange range = cond.rangeFor(etag, preview.sizeBytes());
+    if (range == null || range.coversAll(preview.sizeBytes())) {
+      throw new PreviewNotFoundException();
+    }
+    try {
+      return openCached(preview, etag, range);
+    } catch (NoSuchKeyException e) {
+      throw new PreviewNotFoundException();
+    }
+  }
 
-      Map<String, Object> file = findAccessibleFile(fileId);
-      UUID groupId = (UUID) file.get("group_id");
-      String rawKey = String.valueOf(file.get("s3_key_raw"));
+  private PreviewContent openCached(CachedPreview preview, String etag, ByteRange range) {
+    if (range != null) {
+      return PreviewContent.ofStream(s3.openRange(preview.s3Key(), range.start(), range.end()),
+          etag, preview.sizeBytes(), range);
+    }
+    return PreviewContent.ofStream(s3.openStream(preview.s3Key()), etag, preview.sizeBytes(), null);
+  }
 
-      long rawSizeBytes = 0L;
-      Object sizeObj = file.get("size_bytes");
-      if (sizeObj instanceof Number n) {
-        rawSizeBytes = n.longValue();
-      }
-      if (rawSizeBytes > 0 && rawSizeBytes > props.maxSizeBytes()) {
-        throw new PreviewTooLargeException("FILE_TOO_LARGE");
-      }
+  private void evictPreviewIndex(AuthPrincipal viewer, ViewClaim claim, String s3Key) {
+    jdbc.update(
+        """
+        delete from preview_index
+         where file_id = ? and viewer_user_id = ? and variant = ?
+           and file_fingerprint = ? and wm_ver = ? and s3_key = ?
+        """,
+        claim.fileId(),
+        viewer.userId(),
+        claim.variant(),
+        claim.fileFingerprint(),
+        claim.wmVer(),
+        s3Key
+    );
+  }
 
-      int wmVer = props.watermark().wmVer();
-      String fileFingerprint = computeFileFingerprint(file);
-      String tag = fixedTagForVariant(variant);
-      String watermark = buildWatermark(viewer, variant, tag);
-      String watermarkTextHash = sha256Hex(watermark);
+  private record ViewClaim(
+      UUID tokenId,
+      boolean firstUse,
+      String issuedEtag,
+      UUID fileId,
+      UUID groupId,
+      String rawKey,
+      String variant,
+      String fileFingerprint,
+      int wmVer,
+      String watermark,
+      String previewS3Key,
+      CachedPreview cached
+  ) {
+  }
 
-      String previewS3Key = "preview/" + fileId + "/" + variant + "/" + viewer.userId() + "/wm" + wmVer + ".pdf";
+  /**
+   * @param generation preview_index.created_at in epoch micros; changes whenever the object is re-rendered
+   */
+  private record CachedPreview(String s3Key, long sizeBytes, long generation) {
+  }
 
-      byte[] pdf;
-      boolean cacheHit = false;
+  /**
+   * @param localFile the rendered temp file when rendered in-process, otherwise null (worker upload)
+   */
+  private record RenderedPreview(Path localFile, long sizeBytes) {
+  }
 
-      String cachedKey = tryGetCachedPreviewKey(fileId, viewer.userId(), variant, fileFingerprint, wmVer);
-      if (cachedKey != null) {
-        pdf = s3.getBytes(cachedKey);
-        cacheHit = true;
-      } else {
-        // Ensure object exists and enforce max size by S3 head if available.
-        var head = s3.head(rawKey);
-        Long headSize = head.contentLength();
-        if (headSize != null && headSize > props.maxSizeBytes()) {
-          throw new PreviewTooLargeException("FILE_TOO_LARGE");
-        }
+  private ViewClaim claimView(AuthPrincipal viewer, String token, PreviewConditions cond) {
+    String tokenHash = sha256Hex(token);
+    String variant = computeVariant(viewer);
 
-        byte[] rawPdf = s3.getBytes(rawKey);
-
-        if ("external".equals(variant)) {
-          acquireExternalPermitOrThrow();
-          try {
-            pdf = PdfPreviewRenderer.renderExternalImageBasedPdf(
-                rawPdf,
-                watermark,
-                props.watermark().external(),
-                props.watermark().densityMultiplier(),
-                props.maxPages()
-            );
-          } finally {
-            releaseExternalPermit();
-          }
-        } else if ("client".equals(variant)) {
-          pdf = PdfPreviewRenderer.renderInternalLikeWatermarkedPdf(
-              rawPdf,
-              watermark,
-              props.watermark().client(),
-              props.maxPages()
-          );
-        } else {
-          pdf = PdfPreviewRenderer.renderInternalLikeWatermarkedPdf(
-              rawPdf,
+    // one-time consume; a consumed, unexpired token is only returned once its ETag was issued
+    var rows = jdbc.queryForList(
+        """
+        update file_preview_token
+           set used_at = coalesce(used_at, now())
+         where token_sha256 = ?
+           and viewer_user_id = ?
+           and variant = ?
+           and (used_at is null or issued_etag is not null)
+           and expires_at > now()
+        returning id, file_id, variant, issued_etag, used_at = now() as first_use
+        """,
+        tokenHash,
+        viewer.userId(),
+        variant
+    );
+    if (rows.isEmpty()) {
+      throw new PreviewNotFoundException();
+    }
+
+    UUID tokenId = (UUID) rows.getFirst().get("id");
+    UUID fileId = (UUID) rows.getFirst().get("file_id");
+    boolean firstUse = Boolean.TRUE.equals(rows.getFirst().get("first_use"));
+    String issuedEtag = (String) rows.getFirst().get("issued_etag");
+    if (!firstUse && !cond.conditionalOn(issuedEtag)) {
+      throw new PreviewNotFoundException();
+    }
+
+    Map<String, Object> file = findAccessibleFile(fileId);
+    UUID groupId = (UUID) file.get("group_id");
+    String rawKey = String.valueOf(file.get("s3_key_raw"));
+
+    long rawSizeBytes = 0L;
+    Object sizeObj = file.get("size_bytes");
+    if (sizeObj instanceof Number n) {
+      rawSizeBytes = n.longValue();
+    }
+    if (rawSizeBytes > 0 && rawSizeBytes > props.maxSizeBytes()) {
+      throw new PreviewTooLargeException("FILE_TOO_LARGE");
+    }
+
+    int wmVer = props.watermark().wmVer();
+    String fileFingerprint = computeFileFingerprint(file);
+    String tag = fixedTagForVariant(variant);
+    String watermark = buildWatermark(viewer, variant, tag);
+
+    String previewS3Key = "preview/" + fileId + "/" + variant + "/" + viewer.userId() + "/wm" + wmVer + ".pdf";
+
+    CachedPreview cached = tryGetCachedPreview(fileId, viewer.userId(), variant, fileFingerprint, wmVer);
+    if (cached == null) {
+      rejectIfPrerenderFailed(fileId, fileFingerprint, wmVer);
+    }
+
+    return new ViewClaim(tokenId, firstUse, issuedEtag, fileId, groupId, rawKey, variant, fileFingerprint, wmVer, watermark,
+        previewS3Key, cached);
+  }
+
+  /**
+   * Cache miss: render and upload {@code claim.previewS3Key()}. Runs outside any transaction.
+   */
+  private RenderedPreview renderAndStore(AuthPrincipal viewer, ViewClaim claim) {
+    // Ensure object exists and enforce max size by S3 head if available.
+    var head = s3.head(claim.rawKey());
+    Long headSize = head.contentLength();
+    if (headSize != null && headSize > props.maxSizeBytes()) {
+      throw new PreviewTooLargeException("FILE_TOO_LARGE");
+    }
+
+    if (renderQueue.enabled()) {
+      long size = renderQueue.render(viewer, new PreviewRenderQueue.RenderJob(
+          claim.fileId(), claim.variant(), claim.fileFingerprint(), claim.wmVer(), claim.rawKey(),
+          claim.previewS3Key(), claim.watermark(), styleFor(claim.variant())));
+      return new RenderedPreview(null, size);
+    }
+
+    Path rendered;
+    try (RenderAdmission.Permit ignored = renderAdmission.acquire(viewer.userId())) {
+      rendered = renderToTempFile(viewer, claim.fileId(), claim.rawKey(), claim.fileFingerprint(), claim.wmVer(),
+          claim.variant(), claim.watermark());
+    }
+    try {
+      s3.putFile(claim.previewS3Key(), rendered, "application/pdf");
+      return new RenderedPreview(rendered, Files.size(rendered));
+    } catch (IOException e) {
+      PreviewContent.deleteQuietly(rendered);
+      throw new UncheckedIOException(e);
+    } catch (RuntimeException e) {
+      PreviewContent.deleteQuietly(rendered);
+      throw e;
+    }
+  }
+
+  /**
+   * Audit the first view and record the ETag it serves; from here on the token is spent for good
+   * ({@link #releaseToken} no longer applies) and only conditional follow-ups on this ETag may reuse it.
+   */
+  private void recordFirstView(HttpServletRequest req, AuthPrincipal viewer, ViewClaim claim, boolean cacheHit,
+                               String etag) {
+    jdbc.update("update file_preview_token set issued_etag = ? where id = ?", etag, claim.tokenId());
+    writeViewAudit(req, viewer, claim, cacheHit);
+  }
+
+  private void writeViewAudit(HttpServletRequest req, AuthPrincipal viewer, ViewClaim claim, boolean cacheHit) {
+    writeAudit(req, viewer.userId(), claim.groupId(), "preview_view", "file_store", claim.fileId(),
+        responseJson.toJson(Map.of(
+            "fileId", claim.fileId(),
+            "tokenId", claim.tokenId(),
+            "variant", claim.variant(),
+            "cacheHit", cacheHit,
+            "wmVer", claim.wmVer(),
+            "watermarkTextHash", sha256Hex(claim.watermark())
+        ))
+    );
+  }
+
+  /**
+   * Strong validator: the rendered bytes are fixed by file version, watermark version, viewer and
+   * variant, plus the index generation because a re-render is not byte-identical (PDF ids/dates).
+   */
+  private static String etag(AuthPrincipal viewer, ViewClaim claim, long generation) {
+    String material = claim.fileFingerprint() + ":" + claim.wmVer() + ":" + viewer.userId() + ":"
+        + claim.variant() + ":" + generation;
+    return "\"" + sha256Hex(material).substring(0, 32) + "\"";
+  }
+
+  private void releaseToken(AuthPrincipal viewer, UUID tokenId) {
+    try {
+      tx.run(viewer, () -> jdbc.update(
+          """
+          update file_preview_token set used_at = null
+           where id = ? and viewer_user_id = ? and issued_etag is null and expires_at > now()
+          """,
+          tokenId,
+          viewer.userId()
+      ));
+    } catch (RuntimeException ignored) {
+      // best-effort; the original failure is what the caller needs to see
+    }
+  }
+
+  /**
+   * Raw PDF is spooled from S3 to a temp file and rendered into another temp file, so heap use
+   * stays bounded regardless of document size. Returns the rendered file; caller owns deletion.
+   * <p>
+   * External previews are composited from the shared raster base (see
+   * {@link #fetchOrRenderRasterBase}), so only the first viewer of a file version pays for
+   * rasterization.
+   */
+  private Path renderToTempFile(AuthPrincipal viewer,
+                                UUID fileId,
+                                String rawKey,
+                                String fileFingerprint,
+                                int wmVer,
+                                String variant,
+                                String watermark) {
+    Path raw = null;
+    Path base = null;
+    Path rendered = null;
+    try {
+      rendered = Files.createTempFile("secp-preview-", ".pdf");
+
+      if ("external".equals(variant)) {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(rendered))) {
+          base = fetchOrRenderRasterBase(viewer, fileId, rawKey, fileFingerprint, wmVer);
+          PdfPreviewRenderer.watermarkRasterBasePdf(
+              base.toFile(),
+              out,
               watermark,
-              props.watermark().internal(),
-              props.maxPages()
+              styleFor(variant).watermarkStyle(),
+              props.watermark().densityMultiplier(),
+              props.maxPages(),
+              renderParallelism()
           );
         }
+        return rendered;
+      }
 
-        s3.putBytes(previewS3Key, pdf, "application/pdf");
-        upsertPreviewIndex(fileId, viewer.userId(), variant, fileFingerprint, wmVer, previewS3Key, pdf.length);
+      raw = Files.createTempFile("secp-preview-raw-", ".pdf");
+      s3.downloadToFile(rawKey, raw);
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(rendered))) {
+        PdfPreviewRenderer.renderInternalLikeWatermarkedPdf(
+            raw.toFile(),
+            out,
+            watermark,
+            styleFor(variant).watermarkStyle(),
+            props.maxPages()
+        );
       }
+      return rendered;
+    } catch (IOException e) {
+      PreviewContent.deleteQuietly(rendered);
+      throw new UncheckedIOException(e);
+    } catch (PreviewRejectedException e) {
+      PreviewContent.deleteQuietly(rendered);
+      throw rejection(e.getMessage());
+    } catch (RuntimeException e) {
+      PreviewContent.deleteQuietly(rendered);
+      throw e;
+    } finally {
+      PreviewContent.deleteQuietly(raw);
+      PreviewContent.deleteQuietly(base);
+    }
+  }
 
-      writeAudit(req, viewer.userId(), groupId, "preview_view", "file_store", fileId,
-          responseJson.toJson(Map.of(
-              "fileId", fileId,
-              "tokenId", tokenId,
-              "variant", variant,
-            "cacheHit", cacheHit,
-            "wmVer", wmVer,
-            "watermarkTextHash", watermarkTextHash
-          ))
-      );
+  /**
+   * Unwatermarked raster of the file, shared by all external viewers of the same file version and
+   * watermark version. Downloaded when indexed in file_variant, otherwise rendered from the raw
+   * PDF, uploaded and indexed. Returns a local temp copy; caller owns deletion.
+   */
+  private Path fetchOrRenderRasterBase(AuthPrincipal viewer,
+                                       UUID fileId,
+                                       String rawKey,
+                                       String fileFingerprint,
+                                       int wmVer) throws IOException {
+    Path base = Files.createTempFile("secp-preview-base-", ".pdf");
+    try {
+      String cachedKey = tx.execute(viewer, () -> tryGetRasterBaseKey(fileId, fileFingerprint, wmVer));
+      if (cachedKey != null) {
+        try {
+          s3.downloadToFile(cachedKey, base);
+          return base;
+        } catch (NoSuchKeyException e) {
+          // index row outlived the object; render it again below
+        }
+      }
 
-      return pdf;
-    });
+      String baseKey = PreviewKeys.rasterBaseKey(fileId, fileFingerprint, wmVer);
+      if (PreviewKeys.isBlobFingerprint(fileFingerprint)) {
+        // another file with the same content may already have it; its index row may not be visible to this viewer
+        try {
+          s3.downloadToFile(baseKey, base);
+          long sharedSize = Files.size(base);
+          tx.run(viewer, () -> upsertRasterBase(fileId, fileFingerprint, wmVer, baseKey, sharedSize, null, viewer.userId()));
+          return base;
+        } catch (NoSuchKeyException e) {
+          // first render of this content
+        }
+      }
+
+      Path raw = Files.createTempFile("secp-preview-raw-", ".pdf");
+      int pageCount;
+      try {
+        s3.downloadToFile(rawKey, raw);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(base))) {
+          pageCount = PdfPreviewRenderer.renderRasterBasePdf(raw.toFile(), out, props.maxPages(), renderParallelism());
+        }
+      } finally {
+        PreviewContent.deleteQuietly(raw);
+      }
+
+      s3.putFile(baseKey, base, "application/pdf");
+      long baseSize = Files.size(base);
+      int basePages = pageCount;
+      tx.run(viewer, () -> upsertRasterBase(fileId, fileFingerprint, wmVer, baseKey, baseSize, basePages, viewer.userId()));
+      return base;
+    } catch (IOException | RuntimeException e) {
+      PreviewContent.deleteQuietly(base);
+      throw e;
+    }
+  }
+
+  private String tryGetRasterBaseKey(UUID fileId, String fileFingerprint, int wmVer) {
+    var rows = jdbc.queryForList(
+        """
+        select s3_key
+          from file_variant
+         where file_id = ?
+           and variant = 'raster_base'
+           and file_fingerprint = ?
+           and wm_ver = ?
+           and status = 'ready'
+        """,
+        fileId,
+        fileFingerprint,
+        wmVer
+    );
+    if (rows.isEmpty()) {
+      return null;
+    }
+    return String.valueOf(rows.getFirst().get("s3_key"));
+  }
+
+  /**
+   * The worker validates every uploaded PDF (see File.Uploaded); a file it already rejected is
+   * not rendered again inside a user request.
+   */
+  private void rejectIfPrerenderFailed(UUID fileId, String fileFingerprint, int wmVer) {
+    var rows = jdbc.queryForList(
+        """
+        select error
+          from file_variant
+         where file_id = ?
+           and variant = 'raster_base'
+           and file_fingerprint = ?
+           and wm_ver = ?
+           and status = 'failed'
+        """,
+        fileId,
+        fileFingerprint,
+        wmVer
+    );
+    if (rows.isEmpty()) {
+      return;
+    }
+    String error = String.valueOf(rows.getFirst().get("error"));
+    if ("TOO_MANY_PAGES".equals(error) || "FILE_TOO_LARGE".equals(error) || "INVALID_PDF".equals(error)) {
+      throw rejection(error);
+    }
+  }
+
+  /**
+   * @param error a {@link PreviewRejectedException} code, from a render here or stored by the worker
+   */
+  private static RuntimeException rejection(String error) {
+    return "INVALID_PDF".equals(error) ? new PreviewInvalidException(error) : new PreviewTooLargeException(error);
+  }
+
+  private void upsertRasterBase(UUID fileId,
+                                String fileFingerprint,
+                                int wmVer,
+                                String s3Key,
+                                long sizeBytes,
+                                Integer pageCount,
+                                UUID createdBy) {
+    jdbc.update(
+        """
+        insert into file_variant(file_id, variant, file_fingerprint, wm_ver, content_type, size_bytes, s3_key, page_count, status, created_by)
+        values (?, 'raster_base', ?, ?, 'application/pdf', ?, ?, ?, 'ready', ?)
+        on conflict (file_id, variant, file_fingerprint, wm_ver) do update
+          set s3_key = excluded.s3_key,
+              size_bytes = excluded.size_bytes,
+              page_count = coalesce(excluded.page_count, file_variant.page_count),
+              status = 'ready',
+              error = null,
+              updated_at = now()
+        """,
+        fileId,
+        fileFingerprint,
+        wmVer,
+        sizeBytes,
+        s3Key,
+        pageCount,
+        createdBy
+    );
+  }
+
+  private int renderParallelism() {
+    return props.renderParallelism() > 0 ? props.renderParallelism() : PdfPreviewRenderer.defaultParallelism();
   }
 
   private Map<String, Object> findAccessibleFile(UUID fileId) {
     var rows = jdbc.queryForList(
-        "select id, group_id, s3_key_raw, size_bytes, sha256, etag, status from file_store where id=? and status='READY'",
+        "select id, group_id, s3_key_raw, size_bytes, sha256, blob_sha256, etag, status from file_store where id=? and status='READY'",
         fileId
     );
     if (rows.isEmpty()) {
@@ -203,20 +605,21 @@ public class PreviewService {
     return rows.getFirst();
   }
 
-  private String tryGetCachedPreviewKey(UUID fileId,
-                                       UUID viewerUserId,
-                                       String variant,
-                                       String fileFingerprint,
-                                       int wmVer) {
+  private CachedPreview tryGetCachedPreview(UUID fileId,
+                                            UUID viewerUserId,
+                                            String variant,
+                                            String fileFingerprint,
+                                            int wmVer) {
     var rows = jdbc.queryForList(
         """
-        select s3_key
+        select s3_key, size_bytes, (extract(epoch from created_at) * 1000000)::bigint as generation
           from preview_index
          where file_id = ?
            and viewer_user_id = ?
            and variant = ?
            and file_fingerprint = ?
            and wm_ver = ?
+           and size_bytes > 0
            and expires_at > now()
          order by created_at desc
          limit 1
@@ -230,18 +633,26 @@ public class PreviewService {
     if (rows.isEmpty()) {
       return null;
     }
-    return String.valueOf(rows.getFirst().get("s3_key"));
+    Map<String, Object> row = rows.getFirst();
+    return new CachedPreview(
+        String.valueOf(row.get("s3_key")),
+        ((Number) row.get("size_bytes")).longValue(),
+        ((Number) row.get("generation")).longValue()
+    );
   }
 
-  private void upsertPreviewIndex(UUID fileId,
-                                 UUID viewerUserId,
-                                 String variant,
-                                 String fileFingerprint,
-                                 int wmVer,
-                                 String s3Key,
-                                 long sizeBytes) {
+  /**
+   * @return the new generation (created_at in epoch micros)
+   */
+  private long upsertPreviewIndex(UUID fileId,
+                                  UUID viewerUserId,
+                                  String variant,
+                                  String fileFingerprint,
+                                  int wmVer,
+                                  String s3Key,
+                                  long sizeBytes) {
     OffsetDateTime expiresAt = OffsetDateTime.now().plusSeconds(props.cacheTtlSeconds());
-    jdbc.update(
+    Long generation = jdbc.queryForObject(
         """
         insert into preview_index(file_id, viewer_user_id, variant, file_fingerprint, wm_ver, s3_key, size_bytes, expires_at)
         values (?,?,?,?,?,?,?,?)
@@ -250,7 +661,9 @@ public class PreviewService {
               size_bytes = excluded.size_bytes,
               expires_at = excluded.expires_at,
               created_at = now()
+        returning (extract(epoch from created_at) * 1000000)::bigint
         """,
+        Long.class,
         fileId,
         viewerUserId,
         variant,
@@ -260,6 +673,7 @@ public class PreviewService {
         sizeBytes,
         expiresAt
     );
+    return generation == null ? 0L : generation;
   }
 
   private String buildWatermark(AuthPrincipal viewer, String variant, String tag) {
@@ -276,11 +690,7 @@ public class PreviewService {
 
     ZoneId zone = ZoneId.of("Asia/Shanghai");
     String ts = ZonedDateTime.now(zone).format(DateTimeFormatter.ofPattern(props.watermark().timeFormat()));
-    String template = switch (variant) {
-      case "external" -> props.watermark().external().template();
-      case "client" -> props.watermark().client().template();
-      default -> props.watermark().internal().template();
-    };
+    String template = styleFor(variant).template();
     return template
         .replace("{tag}", tag)
         .replace("{username}", viewer.username())
@@ -288,6 +698,14 @@ public class PreviewService {
         .replace("{timestamp}", ts);
   }
 
+  private PreviewProperties.Variant styleFor(String variant) {
+    return switch (variant) {
+      case "external" -> props.watermark().external();
+      case "client" -> props.watermark().client();
+      default -> props.watermark().internal();
+    };
+  }
+
   private static String fixedTagForVariant(String variant) {
     return switch (variant) {
       case "external" -> "EXTERNAL";
@@ -307,39 +725,14 @@ public class PreviewService {
   }
 
   private static String computeFileFingerprint(Map<String, Object> file) {
-    Object sha = file.get("sha256");
-    if (sha != null) {
-      return String.valueOf(sha);
-    }
-    Object etag = file.get("etag");
-    if (etag != null) {
-      return String.valueOf(etag);
-    }
     Object size = file.get("size_bytes");
-    Object rawKey = file.get("s3_key_raw");
-    String fp = String.valueOf(size) + ":" + String.valueOf(rawKey);
-    return fp.length() <= 128 ? fp : fp.substring(0, 128);
-  }
-
-  private void acquireExternalPermitOrThrow() {
-    if (externalSemaphore == null) {
-      return;
-    }
-    try {
-      boolean ok = externalSemaphore.tryAcquire(30, TimeUnit.SECONDS);
-      if (!ok) {
-        throw new PreviewRateLimitedException();
-      }
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      throw new PreviewRateLimitedException();
-    }
-  }
-
-  private void releaseExternalPermit() {
-    if (externalSemaphore != null) {
-      externalSemaphore.release();
-    }
+    return PreviewKeys.fileFingerprint(
+        (String) file.get("blob_sha256"),
+        (String) file.get("sha256"),
+        (String) file.get("etag"),
+        size == null ? null : ((Number) size).longValue(),
+        (String) file.get("s3_key_raw")
+    );
   }
 
   private void writeAudit(HttpServletRequest req,
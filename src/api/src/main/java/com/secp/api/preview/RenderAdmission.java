@@ -0,0 +1,214 @@
+package com.secp.api.preview;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for preview renders (cache misses, all variants).
+ * <p>
+ * At most {@code maxConcurrent} renders run at once. Further requests wait in per-user FIFO
+ * queues that are served round-robin, so one user opening many previews cannot starve others;
+ * a user may hold at most {@code maxPerUser} running + queued renders. Requests beyond
+ * {@code maxQueued}, over the per-user limit, or still queued after {@code maxQueueWaitMs} are
+ * rejected with {@link PreviewRateLimitedException} (429).
+ * <p>
+ * Metrics: {@code secp.preview.render.active}, {@code secp.preview.render.queued} (gauges),
+ * {@code secp.preview.render.admitted}, {@code secp.preview.render.rejected{reason}} (counters),
+ * {@code secp.preview.render.queue.wait} (timer).
+ */
+@Component
+public class RenderAdmission {
+
+  private final int maxConcurrent;
+  private final int maxQueued;
+  private final long maxQueueWaitNanos;
+  private final int maxPerUser;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  // insertion order == round-robin order; a served user is moved to the back
+  private final LinkedHashMap<UUID, ArrayDeque<Waiter>> queues = new LinkedHashMap<>();
+  private final Map<UUID, Integer> perUser = new HashMap<>();
+  private int active;
+  private int queued;
+
+  private final Counter admitted;
+  private final Counter rejectedQueueFull;
+  private final Counter rejectedPerUser;
+  private final Counter rejectedTimeout;
+  private final Timer queueWait;
+
+  private static final class Waiter {
+    final Condition ready;
+    boolean granted;
+
+    Waiter(Condition ready) {
+      this.ready = ready;
+    }
+  }
+
+  public RenderAdmission(PreviewProperties props, MeterRegistry registry) {
+    PreviewProperties.Admission cfg = props.admission();
+    this.maxConcurrent = Math.max(1, cfg.maxConcurrent());
+    this.maxQueued = Math.max(0, cfg.maxQueued());
+    this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, cfg.maxQueueWaitMs()));
+    this.maxPerUser = Math.max(1, cfg.maxPerUser());
+
+    Gauge.builder("secp.preview.render.active", this, a -> a.snapshot(true)).register(registry);
+    Gauge.builder("secp.preview.render.queued", this, a -> a.snapshot(false)).register(registry);
+    this.admitted = Counter.builder("secp.preview.render.admitted").register(registry);
+    this.rejectedQueueFull = rejected(registry, "queue_full");
+    this.rejectedPerUser = rejected(registry, "per_user");
+    this.rejectedTimeout = rejected(registry, "queue_timeout");
+    this.queueWait = Timer.builder("secp.preview.render.queue.wait").register(registry);
+  }
+
+  private static Counter rejected(MeterRegistry registry, String reason) {
+    return Counter.builder("secp.preview.render.rejected").tag("reason", reason).register(registry);
+  }
+
+  /**
+   * Block until a render slot is granted to {@code userId}.
+   *
+   * @return permit to close once the render is done
+   * @throws PreviewRateLimitedException when saturated
+   */
+  public Permit acquire(UUID userId) {
+    long start = System.nanoTime();
+    Waiter waiter;
+    lock.lock();
+    try {
+      int mine = perUser.getOrDefault(userId, 0);
+      if (mine >= maxPerUser) {
+        rejectedPerUser.increment();
+        throw new PreviewRateLimitedException();
+      }
+      if (active < maxConcurrent && queued == 0) {
+        active++;
+        perUser.put(userId, mine + 1);
+        admitted.increment();
+        queueWait.record(0, TimeUnit.NANOSECONDS);
+        return new Permit(userId);
+      }
+      if (queued >= maxQueued) {
+        rejectedQueueFull.increment();
+        throw new PreviewRateLimitedException();
+      }
+
+      waiter = new Waiter(lock.newCondition());
+      queues.computeIfAbsent(userId, k -> new ArrayDeque<>()).addLast(waiter);
+      queued++;
+      perUser.put(userId, mine + 1);
+
+      long remaining = maxQueueWaitNanos;
+      boolean interrupted = false;
+      while (!waiter.granted && remaining > 0 && !interrupted) {
+        try {
+          remaining = waiter.ready.awaitNanos(remaining);
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (!waiter.granted) {
+        dequeue(userId, waiter);
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+        rejectedTimeout.increment();
+        throw new PreviewRateLimitedException();
+      }
+      if (interrupted) {
+        // granted anyway; keep the slot and restore the flag
+        Thread.currentThread().interrupt();
+      }
+    } finally {
+      lock.unlock();
+    }
+    admitted.increment();
+    queueWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    return new Permit(userId);
+  }
+
+  private void dequeue(UUID userId, Waiter waiter) {
+    ArrayDeque<Waiter> q = queues.get(userId);
+    if (q != null && q.remove(waiter)) {
+      queued--;
+      if (q.isEmpty()) {
+        queues.remove(userId);
+      }
+    }
+    decrementUser(userId);
+  }
+
+  private void release(UUID userId) {
+    lock.lock();
+    try {
+      active--;
+      decrementUser(userId);
+      dispatch();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void dispatch() {
+    while (active < maxConcurrent && queued > 0) {
+      Iterator<Map.Entry<UUID, ArrayDeque<Waiter>>> it = queues.entrySet().iterator();
+      Map.Entry<UUID, ArrayDeque<Waiter>> head = it.next();
+      UUID user = head.getKey();
+      ArrayDeque<Waiter> q = head.getValue();
+      Waiter next = q.pollFirst();
+      it.remove();
+      if (!q.isEmpty()) {
+        queues.put(user, q);
+      }
+      queued--;
+      active++;
+      next.granted = true;
+      next.ready.signal();
+    }
+  }
+
+  private void decrementUser(UUID userId) {
+    perUser.computeIfPresent(userId, (k, n) -> n > 1 ? n - 1 : null);
+  }
+
+  private double snapshot(boolean activeCount) {
+    lock.lock();
+    try {
+      return activeCount ? active : queued;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public final class Permit implements AutoCloseable {
+
+    private final UUID userId;
+    private boolean released;
+
+    private Permit(UUID userId) {
+      this.userId = userId;
+    }
+
+    @Override
+    public void close() {
+      if (!released) {
+        released = true;
+        release(userId);
+      }
+    }
+  }
+}
@@ -2,8 +2,10 @@ package com.secp.api.project;
 
 import com.secp.api.auth.AuthContext;
 import com.secp.api.auth.AuthPrincipal;
+import com.secp.api.infra.pdf.A4ExportCache;
 import com.secp.api.project.dto.ProjectDetailResponse;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -13,6 +15,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.util.UUID;
 
 @RestController
@@ -29,15 +32,24 @@ public class ProjectDetailController {
     return ResponseEntity.ok(resp);
   }
 
-  @GetMapping("/{projectId}/a4.pdf")
-  public ResponseEntity<byte[]> exportA4(@PathVariable UUID projectId, HttpServletRequest httpReq) {
+  @GetMapping(value = "/{projectId}/detail", params = "stream=true")
+  public void streamDetail(@PathVariable UUID projectId, HttpServletRequest httpReq, HttpServletResponse resp)
+      throws IOException {
     AuthPrincipal principal = AuthContext.getRequired();
-    byte[] bytes = projectDetailService.exportA4Pdf(principal, projectId, httpReq);
+    projectDetailService.prepareDetailStream(principal, projectId, httpReq);
+
+    resp.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    projectDetailService.writeDetailStream(principal, projectId, resp.getOutputStream());
+  }
 
-    HttpHeaders headers = new HttpHeaders();
-    headers.setContentType(MediaType.APPLICATION_PDF);
-    headers.add(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=Project_" + projectId + ".pdf");
+  @GetMapping("/{projectId}/a4.pdf")
+  public void exportA4(@PathVariable UUID projectId, HttpServletRequest httpReq, HttpServletResponse resp)
+      throws IOException {
+    AuthPrincipal principal = AuthContext.getRequired();
+    A4ExportCache.Prepared export = projectDetailService.prepareA4(principal, projectId, httpReq);
 
-    return ResponseEntity.ok().headers(headers).body(bytes);
+    resp.setContentType(MediaType.APPLICATION_PDF_VALUE);
+    resp.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=Project_" + projectId + ".pdf");
+    projectDetailService.writeA4Pdf(principal, projectId, export, resp.getOutputStream());
   }
 }
@@ -1,91 +1,82 @@
 package com.secp.api.project;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secp.api.infra.db.CursorReads;
+import com.secp.api.infra.db.PipelinedReads;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
-import java.sql.Timestamp;
+import java.sql.Array;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Repository
 public class ProjectDetailRepository {
 
   private final JdbcTemplate jdbc;
+  private final ObjectMapper objectMapper;
 
-  public ProjectDetailRepository(JdbcTemplate jdbc) {
+  public ProjectDetailRepository(JdbcTemplate jdbc, ObjectMapper objectMapper) {
     this.jdbc = jdbc;
+    this.objectMapper = objectMapper;
   }
 
-  public Optional<Map<String, Object>> findProject(UUID projectId) {
-    List<Map<String, Object>> rows = jdbc.queryForList(
-        """
-        select id, code, accepted_at, name, group_id, biz_tags, mandate_amount, execution_target_amount, status, created_at, updated_at
-          from project
-         where id = ?
-        """,
-        projectId
-    );
-    if (rows.isEmpty()) return Optional.empty();
-    return Optional.of(rows.getFirst());
+  /**
+   * Everything the project detail view reads; {@code project} is null when the project does not
+   * exist or is not visible.
+   */
+  public record DetailRows(
+      ProjectRow project,
+      List<CaseRow> cases,
+      List<TaskRow> tasks,
+      List<ProjectMemberRow> projectMembers,
+      List<CaseMemberRow> caseMembers,
+      List<InstructionAggRow> instructions,
+      PaymentsAggRow payments
+  ) {
   }
 
-  public List<Map<String, Object>> listCases(UUID projectId) {
-    return jdbc.queryForList(
-        """
-        select id, code, accepted_at, title, status, created_at
-          from \"case\"
-         where project_id = ?
-         order by created_at desc
-        """,
-        projectId
-    );
+  public record ProjectRow(UUID id,
+                           String code,
+                           LocalDate acceptedAt,
+                           String name,
+                           UUID groupId,
+                           List<String> bizTags,
+                           BigDecimal mandateAmount,
+                           BigDecimal executionTargetAmount,
+                           String status,
+                           OffsetDateTime createdAt,
+                           OffsetDateTime updatedAt) {
   }
 
-  public List<Map<String, Object>> listTasks(UUID projectId) {
-    return jdbc.queryForList(
-        """
-        select id, title, status, priority, case_id, instruction_item_id, plan_end, assignee_user_id
-          from task
-         where project_id = ?
-         order by created_at desc
-         limit 500
-        """,
-        projectId
-    );
+  public record CaseRow(UUID id, String code, LocalDate acceptedAt, String title, String status, OffsetDateTime createdAt) {
   }
 
-  public List<Map<String, Object>> listProjectMembers(UUID projectId) {
-    return jdbc.queryForList(
-        """
-        select pm.user_id, pm.member_role, u.username, u.phone
-          from project_member pm
-          join app_user u on u.id = pm.user_id
-         where pm.project_id = ?
-         order by pm.created_at
-        """,
-        projectId
-    );
+  public record TaskRow(UUID id,
+                        String title,
+                        String status,
+                        String priority,
+                        UUID caseId,
+                        UUID instructionItemId,
+                        OffsetDateTime planEnd,
+                        UUID assigneeUserId) {
   }
 
-  public List<Map<String, Object>> listCaseMembers(UUID projectId) {
-    return jdbc.queryForList(
-        """
-        select c.id as case_id, cm.user_id, cm.member_role, u.username, u.phone
-          from \"case\" c
-          join case_member cm on cm.case_id = c.id
-          join app_user u on u.id = cm.user_id
-         where c.project_id = ?
-         order by c.created_at, cm.created_at
-        """,
-        projectId
-    );
+  public record ProjectMemberRow(UUID userId, String memberRole, String username, String phone) {
+  }
+
+  public record CaseMemberRow(UUID caseId, UUID userId, String memberRole, String username, String phone) {
   }
 
   public record InstructionAggRow(UUID instructionId,
@@ -99,405 +90,486 @@ public class ProjectDetailRepository {
                                   int itemOverdue) {
   }
 
-  public List<InstructionAggRow> listInstructionAgg(UUID projectId) {
-    return jdbc.query(
-        """
-        select i.id,
-               i.title,
-               i.status,
-               i.version,
-               max(ii.due_at) as deadline,
-               i.issued_at,
-               count(ii.id) as item_total,
-               sum(case when ii.status = 'DONE' then 1 else 0 end) as item_done,
-               sum(case when ii.status <> 'DONE' and ii.due_at is not null and ii.due_at < now() then 1 else 0 end) as item_overdue
-          from instruction i
-          left join instruction_item ii on ii.instruction_id = i.id
-         where (i.ref_type = 'project' and i.ref_id = ?)
-            or (i.ref_type = 'case' and i.ref_id in (select id from \"case\" where project_id = ?))
-         group by i.id, i.title, i.status, i.version, i.issued_at
-         order by max(i.created_at) desc
-         limit 500
-        """,
-        (rs, rowNum) -> new InstructionAggRow(
-            rs.getObject("id", UUID.class),
-            rs.getString("title"),
-            rs.getString("status"),
-            rs.getInt("version"),
-            rs.getObject("deadline", OffsetDateTime.class),
-            rs.getObject("issued_at", OffsetDateTime.class),
-            rs.getInt("item_total"),
-            rs.getInt("item_done"),
-            rs.getInt("item_overdue")
-        ),
-        projectId,
-        projectId
-    );
-  }
-
   public record PaymentsAggRow(BigDecimal sumAll, BigDecimal sum30d, int effectiveCount, OffsetDateTime latestPaidAt) {
   }
 
-  public PaymentsAggRow getPaymentsAgg(UUID projectId) {
-    Map<String, Object> row = jdbc.queryForMap(
-        """
-        select
-          coalesce(sum(p.amount), 0) as sum_all,
-          coalesce(sum(case when p.paid_at >= now() - interval '30 days' then p.amount else 0 end), 0) as sum_30d,
-          count(1) as effective_count,
-          max(p.paid_at) as latest_paid_at
-        from payment p
-        where p.project_id = ?
-          and not exists (select 1 from payment p2 where p2.corrected_from_payment_id = p.id)
-        """,
-        projectId
-    );
+  static final String PROJECT_SQL = """
+      select id, code, accepted_at, name, group_id, biz_tags, mandate_amount, execution_target_amount, status, created_at, updated_at
+        from project
+       where id = ?
+      """;
 
-    return new PaymentsAggRow(
-        (BigDecimal) row.get("sum_all"),
-        (BigDecimal) row.get("sum_30d"),
-        ((Number) row.get("effective_count")).intValue(),
-        toOffsetDateTime(row.get("latest_paid_at"))
+  static final String CASES_SQL = """
+      select id, code, accepted_at, title, status, created_at
+        from "case"
+       where project_id = ?
+       order by created_at desc
+      """;
+
+  /**
+   * Every task of the project; the detail bundle caps it with {@link #TASKS_SQL}, the streamed
+   * detail reads all of it through a cursor. Same for the instruction lists below.
+   */
+  static final String ALL_TASKS_SQL = """
+      select id, title, status, priority, case_id, instruction_item_id, plan_end, assignee_user_id
+        from task
+       where project_id = ?
+       order by created_at desc
+      """;
+
+  static final String TASKS_SQL = ALL_TASKS_SQL + " limit 500\n";
+
+  static final String PROJECT_MEMBERS_SQL = """
+      select pm.user_id, pm.member_role, u.username, u.phone
+        from project_member pm
+        join app_user u on u.id = pm.user_id
+       where pm.project_id = ?
+       order by pm.created_at
+      """;
+
+  static final String CASE_MEMBERS_SQL = """
+      select c.id as case_id, cm.user_id, cm.member_role, u.username, u.phone
+        from "case" c
+        join case_member cm on cm.case_id = c.id
+        join app_user u on u.id = cm.user_id
+       where c.project_id = ?
+       order by c.created_at, cm.created_at
+      """;
+
+  static final String ALL_INSTRUCTIONS_SQL = """
+      select i.id,
+             i.title,
+             i.status,
+             i.version,
+             max(ii.due_at) as deadline,
+             i.issued_at,
+             count(ii.id) as item_total,
+             sum(case when ii.status = 'DONE' then 1 else 0 end) as item_done,
+             sum(case when ii.status <> 'DONE' and ii.due_at is not null and ii.due_at < now() then 1 else 0 end) as item_overdue
+        from instruction i
+        left join instruction_item ii on ii.instruction_id = i.id
+       where (i.ref_type = 'project' and i.ref_id = ?)
+          or (i.ref_type = 'case' and i.ref_id in (select id from "case" where project_id = ?))
+       group by i.id, i.title, i.status, i.version, i.issued_at
+       order by max(i.created_at) desc
+      """;
+
+  static final String INSTRUCTIONS_SQL = ALL_INSTRUCTIONS_SQL + " limit 500\n";
+
+  static final String PAYMENTS_SQL = """
+      select
+        coalesce(sum(p.amount), 0) as sum_all,
+        coalesce(sum(case when p.paid_at >= now() - interval '30 days' then p.amount else 0 end), 0) as sum_30d,
+        count(1) as effective_count,
+        max(p.paid_at) as latest_paid_at
+      from payment p
+      where p.project_id = ?
+        and not exists (select 1 from payment p2 where p2.corrected_from_payment_id = p.id)
+      """;
+
+  // Typed column reads: no per-row LinkedCaseInsensitiveMap, and no conversion of driver types afterwards.
+
+  static final RowMapper<ProjectRow> PROJECT_ROW = (rs, rowNum) -> new ProjectRow(
+      rs.getObject("id", UUID.class),
+      rs.getString("code"),
+      rs.getObject("accepted_at", LocalDate.class),
+      rs.getString("name"),
+      rs.getObject("group_id", UUID.class),
+      textArray(rs.getArray("biz_tags")),
+      rs.getBigDecimal("mandate_amount"),
+      rs.getBigDecimal("execution_target_amount"),
+      rs.getString("status"),
+      rs.getObject("created_at", OffsetDateTime.class),
+      rs.getObject("updated_at", OffsetDateTime.class)
+  );
+
+  static final RowMapper<CaseRow> CASE_ROW = (rs, rowNum) -> new CaseRow(
+      rs.getObject("id", UUID.class),
+      rs.getString("code"),
+      rs.getObject("accepted_at", LocalDate.class),
+      rs.getString("title"),
+      rs.getString("status"),
+      rs.getObject("created_at", OffsetDateTime.class)
+  );
+
+  static final RowMapper<TaskRow> TASK_ROW = (rs, rowNum) -> new TaskRow(
+      rs.getObject("id", UUID.class),
+      rs.getString("title"),
+      rs.getString("status"),
+      rs.getString("priority"),
+      rs.getObject("case_id", UUID.class),
+      rs.getObject("instruction_item_id", UUID.class),
+      rs.getObject("plan_end", OffsetDateTime.class),
+      rs.getObject("assignee_user_id", UUID.class)
+  );
+
+  static final RowMapper<ProjectMemberRow> PROJECT_MEMBER_ROW = (rs, rowNum) -> new ProjectMemberRow(
+      rs.getObject("user_id", UUID.class),
+      rs.getString("member_role"),
+      rs.getString("username"),
+      rs.getString("phone")
+  );
+
+  static final RowMapper<CaseMemberRow> CASE_MEMBER_ROW = (rs, rowNum) -> new CaseMemberRow(
+      rs.getObject("case_id", UUID.class),
+      rs.getObject("user_id", UUID.class),
+      rs.getString("member_role"),
+      rs.getString("username"),
+      rs.getString("phone")
+  );
+
+  static final RowMapper<InstructionAggRow> INSTRUCTION_AGG_ROW = (rs, rowNum) -> new InstructionAggRow(
+      rs.getObject("id", UUID.class),
+      rs.getString("title"),
+      rs.getString("status"),
+      rs.getInt("version"),
+      rs.getObject("deadline", OffsetDateTime.class),
+      rs.getObject("issued_at", OffsetDateTime.class),
+      rs.getInt("item_total"),
+      rs.getInt("item_done"),
+      rs.getInt("item_overdue")
+  );
+
+  static final RowMapper<PaymentsAggRow> PAYMENTS_AGG_ROW = (rs, rowNum) -> new PaymentsAggRow(
+      rs.getBigDecimal("sum_all"),
+      rs.getBigDecimal("sum_30d"),
+      rs.getInt("effective_count"),
+      rs.getObject("latest_paid_at", OffsetDateTime.class)
+  );
+
+  /**
+   * The seven detail reads, sent in one round trip (see {@link PipelinedReads}).
+   */
+  public DetailRows loadDetail(UUID projectId) {
+    PipelinedReads reads = new PipelinedReads();
+    var project = reads.add(PROJECT_SQL, PROJECT_ROW, projectId);
+    var cases = reads.add(CASES_SQL, CASE_ROW, projectId);
+    var tasks = reads.add(TASKS_SQL, TASK_ROW, projectId);
+    var projectMembers = reads.add(PROJECT_MEMBERS_SQL, PROJECT_MEMBER_ROW, projectId);
+    var caseMembers = reads.add(CASE_MEMBERS_SQL, CASE_MEMBER_ROW, projectId);
+    var instructions = reads.add(INSTRUCTIONS_SQL, INSTRUCTION_AGG_ROW, projectId, projectId);
+    var payments = reads.add(PAYMENTS_SQL, PAYMENTS_AGG_ROW, projectId);
+    reads.execute(jdbc);
+
+    return new DetailRows(
+        project.get().isEmpty() ? null : project.get().getFirst(),
+        cases.get(),
+        tasks.get(),
+        projectMembers.get(),
+        caseMembers.get(),
+        instructions.get(),
+        payments.get().getFirst()
     );
   }
 
-  private static OffsetDateTime toOffsetDateTime(Object v) {
-    if (v == null) return null;
-    if (v instanceof OffsetDateTime odt) return odt;
-    if (v instanceof Timestamp ts) return ts.toInstant().atOffset(ZoneOffset.UTC);
-    return OffsetDateTime.parse(String.valueOf(v));
-  }
+  // -------------------- Streamed detail (cursor reads; call inside the request transaction) --------------------
 
-  // -------------------- Workbench aggregations (read-only; RLS applies) --------------------
-
-  public int countWbCreditors(UUID projectId) {
-    Integer v = jdbc.queryForObject(
-        """
-        select count(1)
-          from project_creditor
-         where project_id = ?
-        """,
-        Integer.class,
-        projectId
-    );
-    return v == null ? 0 : v;
+  public Optional<ProjectRow> findProject(UUID projectId) {
+    List<ProjectRow> rows = jdbc.query(PROJECT_SQL, PROJECT_ROW, projectId);
+    return rows.isEmpty() ? Optional.empty() : Optional.of(rows.getFirst());
   }
 
-  public List<String> listWbCreditorNames(UUID projectId, int limit) {
-    return jdbc.query(
-        """
-        select name
-          from project_creditor
-         where project_id = ?
-         order by created_at desc
-         limit ?
-        """,
-        (rs, rn) -> rs.getString("name"),
-        projectId,
-        limit
-    );
+  public void forEachProjectMember(UUID projectId, Consumer<ProjectMemberRow> sink) {
+    CursorReads.forEach(jdbc, PROJECT_MEMBERS_SQL, PROJECT_MEMBER_ROW, sink, projectId);
   }
 
-  public int countWbDebtors(UUID projectId) {
-    Integer v = jdbc.queryForObject(
-        """
-        select count(1)
-          from project_debtor
-         where project_id = ?
-        """,
-        Integer.class,
-        projectId
-    );
-    return v == null ? 0 : v;
+  public void forEachCaseMember(UUID projectId, Consumer<CaseMemberRow> sink) {
+    CursorReads.forEach(jdbc, CASE_MEMBERS_SQL, CASE_MEMBER_ROW, sink, projectId);
   }
 
-  public List<String> listWbDebtorNames(UUID projectId, int limit) {
-    return jdbc.query(
-        """
-        select name
-          from project_debtor
-         where project_id = ?
-         order by created_at desc
-         limit ?
-        """,
-        (rs, rn) -> rs.getString("name"),
-        projectId,
-        limit
-    );
+  public void forEachCase(UUID projectId, Consumer<CaseRow> sink) {
+    CursorReads.forEach(jdbc, CASES_SQL, CASE_ROW, sink, projectId);
   }
 
-  public record WbCaseBasisAgg(int caseTotal, int basisFilled) {
+  public void forEachTask(UUID projectId, Consumer<TaskRow> sink) {
+    CursorReads.forEach(jdbc, ALL_TASKS_SQL, TASK_ROW, sink, projectId);
   }
 
-  public WbCaseBasisAgg getWbCaseBasisAgg(UUID projectId) {
-    Map<String, Object> row = jdbc.queryForMap(
-        """
-        select
-          count(1) as case_total,
-          sum(
-            case when (basis_doc_type is not null
-                   or basis_doc_no is not null
-                   or basis_org is not null
-                   or basis_main_text is not null)
-            then 1 else 0 end
-          ) as basis_filled
-        from "case"
-        where project_id = ?
-        """,
-        projectId
-    );
-    int total = ((Number) row.get("case_total")).intValue();
-    int filled = row.get("basis_filled") == null ? 0 : ((Number) row.get("basis_filled")).intValue();
-    return new WbCaseBasisAgg(total, filled);
+  public void forEachInstructionAgg(UUID projectId, Consumer<InstructionAggRow> sink) {
+    CursorReads.forEach(jdbc, ALL_INSTRUCTIONS_SQL, INSTRUCTION_AGG_ROW, sink, projectId, projectId);
   }
 
-  public record WbCategoryCount(String category, int cnt) {
+  public PaymentsAggRow getPaymentsAgg(UUID projectId) {
+    return jdbc.queryForObject(PAYMENTS_SQL, PAYMENTS_AGG_ROW, projectId);
   }
 
-  public int countWbClues(UUID projectId) {
-    Integer v = jdbc.queryForObject(
-        """
-        select count(1)
-          from debtor_clue dc
-          join project_debtor d on d.id = dc.debtor_id
-         where d.project_id = ?
-        """,
-        Integer.class,
-        projectId
-    );
-    return v == null ? 0 : v;
+  private static List<String> textArray(Array a) throws SQLException {
+    if (a == null) return List.of();
+    try {
+      return a.getArray() instanceof String[] sa ? List.of(sa) : List.of();
+    } finally {
+      a.free();
+    }
   }
 
-  public List<WbCategoryCount> listWbClueCategoryCounts(UUID projectId) {
-    return jdbc.query(
-        """
-        select dc.category, count(1) as cnt
-          from debtor_clue dc
-          join project_debtor d on d.id = dc.debtor_id
-         where d.project_id = ?
-         group by dc.category
-         order by cnt desc, dc.category
-        """,
-        (rs, rn) -> new WbCategoryCount(rs.getString("category"), rs.getInt("cnt")),
-        projectId
-    );
-  }
+  // -------------------- Workbench aggregations (read-only; RLS applies) --------------------
 
-  public record WbClueTopRow(String category, String detail, String debtorName) {
+  public record WbCaseBasisAgg(int caseTotal, int basisFilled) {
   }
 
-  public List<WbClueTopRow> listWbClueTop(UUID projectId, int limit) {
-    return jdbc.query(
-        """
-        select dc.category, dc.detail, d.name as debtor_name
-          from debtor_clue dc
-          join project_debtor d on d.id = dc.debtor_id
-         where d.project_id = ?
-         order by dc.created_at desc
-         limit ?
-        """,
-        (rs, rn) -> new WbClueTopRow(rs.getString("category"), rs.getString("detail"), rs.getString("debtor_name")),
-        projectId,
-        limit
-    );
+  public record WbCategoryCount(String category, int cnt) {
   }
 
-  public record WbCaseProcedureAgg(UUID caseId, String caseCode, String caseTitle, int procedureCount, LocalDate latestDecidedAt) {
+  public record WbClueTopRow(String category, String detail, String debtorName) {
   }
 
-  public List<WbCaseProcedureAgg> listWbProcedureAggByCase(UUID projectId) {
-    return jdbc.query(
-        """
-        select c.id as case_id,
-               c.code as case_code,
-               c.title as case_title,
-               count(cp.id) as procedure_count,
-               max(cp.decided_at) as latest_decided_at
-          from "case" c
-          left join case_procedure cp on cp.case_id = c.id
-         where c.project_id = ?
-         group by c.id, c.code, c.title
-         order by max(c.created_at) desc
-        """,
-        (rs, rn) -> new WbCaseProcedureAgg(
-            rs.getObject("case_id", UUID.class),
-            rs.getString("case_code"),
-            rs.getString("case_title"),
-            rs.getInt("procedure_count"),
-            rs.getObject("latest_decided_at", LocalDate.class)
-        ),
-        projectId
-    );
+  public record WbCaseProcedureAgg(UUID caseId, String caseCode, String caseTitle, int procedureCount, LocalDate latestDecidedAt) {
   }
 
   public record WbMeasureAgg(int total, int dueCount) {
   }
 
-  public WbMeasureAgg getWbControlMeasureAgg(UUID projectId) {
-    Map<String, Object> row = jdbc.queryForMap(
-        """
-        select
-          count(1) as total,
-          sum(case when m.due_at is not null and m.due_at <= current_date then 1 else 0 end) as due_count
-        from case_measure_control m
-        join "case" c on c.id = m.case_id
-        where c.project_id = ?
-        """,
-        projectId
-    );
-    int total = ((Number) row.get("total")).intValue();
-    int due = row.get("due_count") == null ? 0 : ((Number) row.get("due_count")).intValue();
-    return new WbMeasureAgg(total, due);
-  }
-
-  public WbMeasureAgg getWbSanctionMeasureAgg(UUID projectId) {
-    Map<String, Object> row = jdbc.queryForMap(
-        """
-        select
-          count(1) as total,
-          sum(case when m.due_at is not null and m.due_at <= current_date then 1 else 0 end) as due_count
-        from case_measure_sanction m
-        join "case" c on c.id = m.case_id
-        where c.project_id = ?
-        """,
-        projectId
-    );
-    int total = ((Number) row.get("total")).intValue();
-    int due = row.get("due_count") == null ? 0 : ((Number) row.get("due_count")).intValue();
-    return new WbMeasureAgg(total, due);
+  public record WbCostAgg(BigDecimal totalAmount, int itemCount) {
   }
 
-  public record WbCostAgg(BigDecimal totalAmount, int itemCount) {
+  public record WbCostCategoryAgg(String category, BigDecimal amount) {
   }
 
-  public WbCostAgg getWbCostAgg(UUID projectId) {
-    Map<String, Object> row = jdbc.queryForMap(
+  /**
+   * Inputs of the A4 summary lines.
+   *
+   * @param creditorNames    latest 3
+   * @param clueCategories   by count desc
+   * @param clueTop          latest 3
+   * @param proceduresByCase every case, newest first
+   * @param attachmentCounts attachment links per object type, by count desc
+   */
+  public record WbSummaryAgg(
+      int creditorTotal,
+      List<String> creditorNames,
+      int debtorTotal,
+      List<String> debtorNames,
+      WbCaseBasisAgg caseBasis,
+      int clueTotal,
+      List<WbCategoryCount> clueCategories,
+      List<WbClueTopRow> clueTop,
+      List<WbCaseProcedureAgg> proceduresByCase,
+      WbMeasureAgg controlMeasures,
+      WbMeasureAgg sanctionMeasures,
+      WbCostAgg costs,
+      List<WbCostCategoryAgg> costCategories,
+      Map<String, Integer> attachmentCounts
+  ) {
+  }
+
+  /**
+   * All summary aggregates in one statement: each project-scoped table is read once in a CTE, and
+   * the list-valued parts come back as JSON arrays.
+   */
+  public WbSummaryAgg getWbSummaries(UUID projectId) {
+    return jdbc.queryForObject(
         """
+        with cr as (
+          select id, name, created_at from project_creditor where project_id = ?
+        ), dr as (
+          select id, name, created_at from project_debtor where project_id = ?
+        ), cs as (
+          select id, code, title, created_at,
+                 (basis_doc_type is not null
+                   or basis_doc_no is not null
+                   or basis_org is not null
+                   or basis_main_text is not null) as basis_filled
+            from "case"
+           where project_id = ?
+        ), cl as (
+          select dc.id, dc.category, dc.detail, dc.created_at, d.name as debtor_name
+            from debtor_clue dc
+            join dr d on d.id = dc.debtor_id
+        ), pr as (
+          select cp.id, cp.case_id, cp.decided_at from case_procedure cp join cs c on c.id = cp.case_id
+        ), mc as (
+          select m.id, m.due_at from case_measure_control m join cs c on c.id = m.case_id
+        ), ms as (
+          select m.id, m.due_at from case_measure_sanction m join cs c on c.id = m.case_id
+        ), co as (
+          select cc.id, cc.category, cc.amount from case_cost cc join cs c on c.id = cc.case_id
+        ), att as (
+          -- attachment_link.object_id mapped back to the project, one branch per object type
+          select t.object_type, count(1) as cnt
+            from (
+              select al.object_type from attachment_link al where al.object_type = 'project' and al.object_id = ?
+              union all
+              select al.object_type from attachment_link al join cs x on x.id = al.object_id where al.object_type = 'case'
+              union all
+              select al.object_type from attachment_link al join cr x on x.id = al.object_id where al.object_type = 'creditor'
+              union all
+              select al.object_type from attachment_link al join dr x on x.id = al.object_id where al.object_type = 'debtor'
+              union all
+              select al.object_type from attachment_link al join cl x on x.id = al.object_id where al.object_type = 'clue'
+              union all
+              select al.object_type from attachment_link al join pr x on x.id = al.object_id where al.object_type = 'procedure'
+              union all
+              select al.object_type from attachment_link al join mc x on x.id = al.object_id where al.object_type = 'measure_control'
+              union all
+              select al.object_type from attachment_link al join ms x on x.id = al.object_id where al.object_type = 'measure_sanction'
+              union all
+              select al.object_type from attachment_link al join co x on x.id = al.object_id where al.object_type = 'cost'
+            ) t
+           group by t.object_type
+        )
         select
-          coalesce(sum(cc.amount), 0) as total_amount,
-          count(1) as item_count
-        from case_cost cc
-        join "case" c on c.id = cc.case_id
-        where c.project_id = ?
+          (select count(1) from cr) as creditor_total,
+          (select coalesce(json_agg(t.name order by t.created_at desc), '[]')
+             from (select name, created_at from cr order by created_at desc limit 3) t) as creditor_names,
+          (select count(1) from dr) as debtor_total,
+          (select coalesce(json_agg(t.name order by t.created_at desc), '[]')
+             from (select name, created_at from dr order by created_at desc limit 3) t) as debtor_names,
+          (select count(1) from cs) as case_total,
+          (select count(1) from cs where basis_filled) as basis_filled,
+          (select count(1) from cl) as clue_total,
+          (select coalesce(json_agg(json_build_object('category', t.category, 'cnt', t.cnt) order by t.cnt desc, t.category), '[]')
+             from (select category, count(1) as cnt from cl group by category) t) as clue_categories,
+          (select coalesce(json_agg(json_build_object('category', t.category, 'detail', t.detail, 'debtorName', t.debtor_name)
+                                    order by t.created_at desc), '[]')
+             from (select category, detail, debtor_name, created_at from cl order by created_at desc limit 3) t) as clue_top,
+          (select coalesce(json_agg(json_build_object('caseId', t.id, 'caseCode', t.code, 'caseTitle', t.title,
+                                                      'procedureCount', t.procedure_count, 'latestDecidedAt', t.latest_decided_at)
+                                    order by t.created_at desc), '[]')
+             from (select c.id, c.code, c.title, c.created_at, count(pr.id) as procedure_count, max(pr.decided_at) as latest_decided_at
+                     from cs c
+                     left join pr on pr.case_id = c.id
+                    group by c.id, c.code, c.title, c.created_at) t) as procedures_by_case,
+          (select count(1) from mc) as control_total,
+          (select count(1) from mc where due_at <= current_date) as control_due,
+          (select count(1) from ms) as sanction_total,
+          (select count(1) from ms where due_at <= current_date) as sanction_due,
+          (select coalesce(sum(amount), 0) from co) as cost_total_amount,
+          (select count(1) from co) as cost_count,
+          (select coalesce(json_agg(json_build_object('category', t.category, 'amount', t.amount) order by t.amount desc, t.category), '[]')
+             from (select category, coalesce(sum(amount), 0) as amount from co group by category) t) as cost_categories,
+          (select coalesce(json_object_agg(t.object_type, t.cnt order by t.cnt desc, t.object_type), '{}')
+             from att t) as attachment_counts
         """,
+        (rs, rowNum) -> new WbSummaryAgg(
+            rs.getInt("creditor_total"),
+            readJson(rs.getString("creditor_names"), STRING_LIST),
+            rs.getInt("debtor_total"),
+            readJson(rs.getString("debtor_names"), STRING_LIST),
+            new WbCaseBasisAgg(rs.getInt("case_total"), rs.getInt("basis_filled")),
+            rs.getInt("clue_total"),
+            readJson(rs.getString("clue_categories"), CATEGORY_COUNTS),
+            readJson(rs.getString("clue_top"), CLUE_TOP),
+            readJson(rs.getString("procedures_by_case"), PROCEDURE_AGGS),
+            new WbMeasureAgg(rs.getInt("control_total"), rs.getInt("control_due")),
+            new WbMeasureAgg(rs.getInt("sanction_total"), rs.getInt("sanction_due")),
+            new WbCostAgg(rs.getBigDecimal("cost_total_amount"), rs.getInt("cost_count")),
+            readJson(rs.getString("cost_categories"), COST_CATEGORIES),
+            readJson(rs.getString("attachment_counts"), COUNT_MAP)
+        ),
+        projectId,
+        projectId,
+        projectId,
         projectId
     );
-    return new WbCostAgg(
-        (BigDecimal) row.get("total_amount"),
-        ((Number) row.get("item_count")).intValue()
-    );
   }
 
-  public record WbCostCategoryAgg(String category, BigDecimal amount) {
+  private static final TypeReference<List<String>> STRING_LIST = new TypeReference<>() {
+  };
+  private static final TypeReference<List<WbCategoryCount>> CATEGORY_COUNTS = new TypeReference<>() {
+  };
+  private static final TypeReference<List<WbClueTopRow>> CLUE_TOP = new TypeReference<>() {
+  };
+  private static final TypeReference<List<WbCaseProcedureAgg>> PROCEDURE_AGGS = new TypeReference<>() {
+  };
+  private static final TypeReference<List<WbCostCategoryAgg>> COST_CATEGORIES = new TypeReference<>() {
+  };
+  private static final TypeReference<LinkedHashMap<String, Integer>> COUNT_MAP = new TypeReference<>() {
+  };
+
+  private <T> T readJson(String json, TypeReference<T> type) {
+    try {
+      return objectMapper.readValue(json, type);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unreadable summary aggregate", e);
+    }
   }
 
-  public List<WbCostCategoryAgg> listWbCostAggByCategory(UUID projectId) {
-    return jdbc.query(
-        """
-        select cc.category, coalesce(sum(cc.amount), 0) as amount
-        from case_cost cc
-        join "case" c on c.id = cc.case_id
-        where c.project_id = ?
-        group by cc.category
-        order by amount desc, cc.category
-        """,
-        (rs, rn) -> new WbCostCategoryAgg(rs.getString("category"), rs.getBigDecimal("amount")),
-        projectId
-    );
+  public record A4Version(UUID groupId, String dataVersion) {
   }
 
-  public Map<String, Integer> listWbAttachmentCountsByObjectType(UUID projectId) {
-    // Use UNION ALL to map attachment_link.object_id back to the project.
-    List<Map<String, Object>> rows = jdbc.queryForList(
+  /**
+   * Digest of everything the A4 export reads, as visible to the current session: row counts and
+   * latest updated_at per table (all update paths bump it), member/user names, and the
+   * time-dependent figures (overdue items, 30-day payment window, measures due today).
+   */
+  public Optional<A4Version> findA4Version(UUID projectId) {
+    List<A4Version> rows = jdbc.query(
         """
-        select t.object_type, sum(t.cnt) as cnt
-          from (
-            select al.object_type, count(1) as cnt
-              from attachment_link al
-             where al.object_type = 'project' and al.object_id = ?
-             group by al.object_type
-
-            union all
-            select al.object_type, count(1) as cnt
-              from attachment_link al
-              join "case" c on c.id = al.object_id
-             where al.object_type = 'case' and c.project_id = ?
-             group by al.object_type
-
-            union all
-            select al.object_type, count(1) as cnt
-              from attachment_link al
-              join project_creditor pc on pc.id = al.object_id
-             where al.object_type = 'creditor' and pc.project_id = ?
-             group by al.object_type
-
-            union all
-            select al.object_type, count(1) as cnt
-              from attachment_link al
-              join project_debtor pd on pd.id = al.object_id
-             where al.object_type = 'debtor' and pd.project_id = ?
-             group by al.object_type
-
-            union all
-            select al.object_type, count(1) as cnt
-              from attachment_link al
-              join debtor_clue dc on dc.id = al.object_id
-              join project_debtor pd on pd.id = dc.debtor_id
-             where al.object_type = 'clue' and pd.project_id = ?
-             group by al.object_type
-
-            union all
-            select al.object_type, count(1) as cnt
-              from attachment_link al
-              join case_procedure cp on cp.id = al.object_id
-              join "case" c on c.id = cp.case_id
-             where al.object_type = 'procedure' and c.project_id = ?
-             group by al.object_type
-
-            union all
-            select al.object_type, count(1) as cnt
-              from attachment_link al
-              join case_measure_control m on m.id = al.object_id
-              join "case" c on c.id = m.case_id
-             where al.object_type = 'measure_control' and c.project_id = ?
-             group by al.object_type
-
-            union all
-            select al.object_type, count(1) as cnt
-              from attachment_link al
-              join case_measure_sanction m on m.id = al.object_id
-              join "case" c on c.id = m.case_id
-             where al.object_type = 'measure_sanction' and c.project_id = ?
-             group by al.object_type
-
-            union all
-            select al.object_type, count(1) as cnt
-              from attachment_link al
-              join case_cost cc on cc.id = al.object_id
-              join "case" c on c.id = cc.case_id
-             where al.object_type = 'cost' and c.project_id = ?
-             group by al.object_type
-          ) t
-         group by t.object_type
-         order by cnt desc, t.object_type
+        select p.group_id,
+               md5(concat_ws('|',
+                 p.updated_at,
+                 (select count(1) || ':' || coalesce(max(c.updated_at)::text, '')
+                    from "case" c where c.project_id = p.id),
+                 (select count(1) || ':' || coalesce(max(t.updated_at)::text, '')
+                    from task t where t.project_id = p.id),
+                 (select count(distinct i.id) || ':' || coalesce(max(i.updated_at)::text, '')
+                         || ':' || count(ii.id) || ':' || coalesce(max(ii.updated_at)::text, '')
+                         || ':' || count(ii.id) filter (where ii.status <> 'DONE' and ii.due_at < now())
+                    from instruction i
+                    left join instruction_item ii on ii.instruction_id = i.id
+                   where (i.ref_type = 'project' and i.ref_id = p.id)
+                      or (i.ref_type = 'case' and i.ref_id in (select id from "case" where project_id = p.id))),
+                 (select count(1) || ':' || coalesce(max(pay.updated_at)::text, '')
+                         || ':' || count(1) filter (where pay.paid_at >= now() - interval '30 days')
+                    from payment pay where pay.project_id = p.id),
+                 (select md5(coalesce(string_agg(pm.user_id || ':' || pm.member_role || ':' || u.username || ':' || u.phone,
+                                                 ',' order by pm.user_id), ''))
+                    from project_member pm
+                    join app_user u on u.id = pm.user_id
+                   where pm.project_id = p.id),
+                 (select md5(coalesce(string_agg(cm.case_id || ':' || cm.user_id || ':' || cm.member_role || ':' || u.username || ':' || u.phone,
+                                                 ',' order by cm.case_id, cm.user_id), ''))
+                    from case_member cm
+                    join "case" c on c.id = cm.case_id
+                    join app_user u on u.id = cm.user_id
+                   where c.project_id = p.id),
+                 (select string_agg(u.id || ':' || u.username, ',' order by u.id)
+                    from app_user u where u.id in (p.owner_user_id, p.lead_user_id, p.assist_user_id)),
+                 (select count(1) || ':' || coalesce(max(x.updated_at)::text, '')
+                    from project_creditor x where x.project_id = p.id),
+                 (select count(1) || ':' || coalesce(max(x.updated_at)::text, '')
+                    from project_debtor x where x.project_id = p.id),
+                 (select count(1) || ':' || coalesce(max(dc.updated_at)::text, '')
+                         || ':' || coalesce(string_agg(distinct u.username, ',' order by u.username), '')
+                    from debtor_clue dc
+                    join project_debtor d on d.id = dc.debtor_id
+                    left join app_user u on u.id = dc.collector_user_id
+                   where d.project_id = p.id),
+                 (select count(1) || ':' || coalesce(max(x.updated_at)::text, '')
+                    from case_procedure x join "case" c on c.id = x.case_id where c.project_id = p.id),
+                 (select count(1) || ':' || coalesce(max(x.updated_at)::text, '')
+                         || ':' || count(1) filter (where x.due_at <= current_date)
+                    from case_measure_control x join "case" c on c.id = x.case_id where c.project_id = p.id),
+                 (select count(1) || ':' || coalesce(max(x.updated_at)::text, '')
+                         || ':' || count(1) filter (where x.due_at <= current_date)
+                    from case_measure_sanction x join "case" c on c.id = x.case_id where c.project_id = p.id),
+                 (select count(1) || ':' || coalesce(max(x.updated_at)::text, '')
+                    from case_cost x join "case" c on c.id = x.case_id where c.project_id = p.id),
+                 (select count(1) || ':' || coalesce(max(al.created_at)::text, '')
+                    from attachment_link al
+                   where al.object_id in (
+                           select p.id
+                           union all select c.id from "case" c where c.project_id = p.id
+                           union all select x.id from project_creditor x where x.project_id = p.id
+                           union all select x.id from project_debtor x where x.project_id = p.id
+                           union all select dc.id from debtor_clue dc
+                                       join project_debtor d on d.id = dc.debtor_id where d.project_id = p.id
+                           union all select x.id from case_procedure x
+                                       join "case" c on c.id = x.case_id where c.project_id = p.id
+                           union all select x.id from case_measure_control x
+                                       join "case" c on c.id = x.case_id where c.project_id = p.id
+                           union all select x.id from case_measure_sanction x
+                                       join "case" c on c.id = x.case_id where c.project_id = p.id
+                           union all select x.id from case_cost x
+                                       join "case" c on c.id = x.case_id where c.project_id = p.id
+                         ))
+               )) as data_version
+          from project p
+         where p.id = ?
         """,
-        projectId,
-        projectId,
-        projectId,
-        projectId,
-        projectId,
-        projectId,
-        projectId,
-        projectId,
+        (rs, rowNum) -> new A4Version(rs.getObject("group_id", UUID.class), rs.getString("data_version")),
         projectId
     );
-
-    Map<String, Integer> out = new LinkedHashMap<>();
-    for (var r : rows) {
-      String k = String.valueOf(r.get("object_type"));
-      int v = ((Number) r.get("cnt")).intValue();
-      out.put(k, v);
-    }
-    return out;
+    return rows.isEmpty() ? Optional.empty() : Optional.of(rows.getFirst());
   }
 }
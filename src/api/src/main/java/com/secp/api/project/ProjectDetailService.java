@@ -1,47 +1,64 @@
 package com.secp.api.project;
 
-import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.secp.api.auth.AuthPrincipal;
 import com.secp.api.infra.RequestIdFilter;
+import com.secp.api.infra.json.JsonSpool;
+import com.secp.api.infra.json.JsonStreamWriter;
+import com.secp.api.infra.pdf.A4ExportCache;
+import com.secp.api.infra.pdf.A4ExportOrigin;
+import com.secp.api.infra.template.HtmlTemplate;
 import com.secp.api.infra.tx.TransactionalExecutor;
 import com.secp.api.project.dto.ProjectDetailResponse;
 import com.secp.api.workbench.WorkbenchProjectRepository;
 import com.secp.api.workbench.dto.*;
 import jakarta.servlet.http.HttpServletRequest;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
-import java.math.BigDecimal;
-import java.sql.Timestamp;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.Instant;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 public class ProjectDetailService {
 
+  static final String A4_TEMPLATE_PATH = "templates/project_a4.html";
+  /**
+   * Bump when renderHtml output changes for the same data, so cached exports are not reused.
+   */
+  private static final int A4_LAYOUT_VER = 1;
+  private static final int A4_MAX_ATTACHMENTS = 200;
+  private static final String EMPTY_STATE = "暂无数据";
+
   private final TransactionalExecutor tx;
   private final JdbcTemplate jdbc;
   private final ProjectDetailRepository repo;
   private final WorkbenchProjectRepository wbRepo;
+  private final A4ExportCache a4Cache;
+  private final ObjectMapper objectMapper;
+  private final HtmlTemplate a4Template;
+  private final String a4LayoutVersion;
 
-  public ProjectDetailService(TransactionalExecutor tx, JdbcTemplate jdbc, ProjectDetailRepository repo, WorkbenchProjectRepository wbRepo) {
+  public ProjectDetailService(TransactionalExecutor tx, JdbcTemplate jdbc, ProjectDetailRepository repo,
+                              WorkbenchProjectRepository wbRepo, A4ExportCache a4Cache, ObjectMapper objectMapper) {
     this.tx = tx;
+    this.objectMapper = objectMapper;
     this.jdbc = jdbc;
     this.repo = repo;
     this.wbRepo = wbRepo;
+    this.a4Cache = a4Cache;
+    this.a4Template = HtmlTemplate.classpath(A4_TEMPLATE_PATH);
+    this.a4LayoutVersion = A4_LAYOUT_VER + "-" + a4Template.fingerprint();
   }
 
   public ProjectDetailResponse getDetail(AuthPrincipal principal, UUID projectId, HttpServletRequest httpReq) {
@@ -53,134 +70,119 @@ public class ProjectDetailService {
     });
   }
 
-  public byte[] exportA4Pdf(AuthPrincipal principal, UUID projectId, HttpServletRequest httpReq) {
-    ExportBundle bundle = tx.execute(principal, () -> {
-      ProjectDetailBundle b = loadBundle(projectId);
-      WorkbenchA4Bundle wb = loadWorkbenchA4(projectId);
-      writeAudit(httpReq, principal.userId(), b.projectGroupId, "project_a4_export", "project", projectId,
-          "{\"projectId\":\"" + projectId + "\"}");
-      return new ExportBundle(b, wb);
+  /**
+   * Visibility check and audit for the streamed detail, committed before anything is written so
+   * a missing project is still a plain 404. The body follows from {@link #writeDetailStream}.
+   */
+  public void prepareDetailStream(AuthPrincipal principal, UUID projectId, HttpServletRequest httpReq) {
+    tx.run(principal, () -> {
+      ProjectDetailRepository.ProjectRow p = repo.findProject(projectId).orElseThrow(ProjectNotFoundException::new);
+      writeAudit(httpReq, principal.userId(), p.groupId(), "project_detail_view", "project", projectId,
+          "{\"projectId\":\"" + projectId + "\",\"stream\":true}");
     });
+  }
+
+  /**
+   * The {@link #getDetail} document written section by section from server-side cursors, so
+   * memory stays flat. Unlike the buffered response, tasks and instructions are not capped at 500.
+   * It is spooled to a temp file inside the read transaction and sent once that has committed,
+   * so a slow client does not hold a connection (see {@link JsonSpool}).
+   */
+  public void writeDetailStream(AuthPrincipal principal, UUID projectId, OutputStream out) throws IOException {
+    try (JsonSpool spool = JsonSpool.create()) {
+      tx.run(principal, () -> writeDetailDocument(projectId, spool));
+      spool.copyTo(out);
+    }
+  }
 
-    String html = renderHtml(bundle.legacy(), bundle.workbench());
-    return htmlToPdfBytes(html);
+  private void writeDetailDocument(UUID projectId, JsonSpool spool) {
+    ProjectDetailRepository.ProjectRow p = repo.findProject(projectId).orElseThrow(ProjectNotFoundException::new);
+    try (OutputStream file = spool.openOutput(); JsonStreamWriter json = JsonStreamWriter.open(objectMapper, file)) {
+      json.startObject();
+      json.field("project", toProjectDto(p));
+      json.startObject("members");
+      json.array("projectMembers", sink -> repo.forEachProjectMember(projectId, r -> sink.accept(toProjectMemberDto(r))));
+      json.array("caseMembers", sink -> repo.forEachCaseMember(projectId, r -> sink.accept(toCaseMemberDto(r))));
+      json.endObject();
+      json.array("cases", sink -> repo.forEachCase(projectId, r -> sink.accept(toCaseDto(r))));
+      json.array("tasks", sink -> repo.forEachTask(projectId, r -> sink.accept(toTaskDto(r))));
+      json.array("instructions",
+          sink -> repo.forEachInstructionAgg(projectId, r -> sink.accept(toInstructionSummaryDto(r))));
+      json.field("payments", toPaymentsSummaryDto(repo.getPaymentsAgg(projectId)));
+      json.endObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
-  private record ExportBundle(ProjectDetailBundle legacy, WorkbenchA4Bundle workbench) {
+  /**
+   * Audits the export and decides, in one transaction, whether a cached PDF of the current data
+   * exists; only on a miss are the bundle loaded and the HTML built. The PDF is streamed by
+   * {@link #writeA4Pdf} once the caller has committed to a response.
+   */
+  public A4ExportCache.Prepared prepareA4(AuthPrincipal principal, UUID projectId, HttpServletRequest httpReq) {
+    return prepareA4(principal, projectId, A4ExportOrigin.of(httpReq));
   }
 
-  private ProjectDetailBundle loadBundle(UUID projectId) {
-    Map<String, Object> p = repo.findProject(projectId).orElseThrow(ProjectNotFoundException::new);
-    UUID groupId = (UUID) p.get("group_id");
+  public A4ExportCache.Prepared prepareA4(AuthPrincipal principal, UUID projectId, A4ExportOrigin origin) {
+    return tx.execute(principal, () -> {
+      ProjectDetailRepository.A4Version version = repo.findA4Version(projectId).orElseThrow(ProjectNotFoundException::new);
+      A4ExportCache.Key key = new A4ExportCache.Key("project", projectId, principal.userId(),
+          version.dataVersion(), a4LayoutVersion);
+      String cached = a4Cache.find(key);
+      writeAudit(origin.requestId(), origin.ip(), origin.userAgent(), principal.userId(), version.groupId(),
+          "project_a4_export", "project", projectId,
+          "{\"projectId\":\"" + projectId + "\",\"cached\":" + (cached != null) + origin.summarySuffix() + "}");
+      return cached != null ? A4ExportCache.Prepared.hit(key, cached) : A4ExportCache.Prepared.miss(key, loadA4Html(projectId));
+    });
+  }
+
+  public void writeA4Pdf(AuthPrincipal principal, UUID projectId, A4ExportCache.Prepared export, OutputStream out) {
+    a4Cache.write(principal, export, () -> tx.execute(principal, () -> loadA4Html(projectId)), out);
+  }
+
+  private String loadA4Html(UUID projectId) {
+    ProjectDetailBundle b = loadBundle(projectId);
+    WorkbenchA4Bundle wb = loadWorkbenchA4(projectId);
+    return renderHtml(a4Template, b, wb, loadA4Summaries(projectId, wb));
+  }
 
-    List<Map<String, Object>> cases = repo.listCases(projectId);
-    List<Map<String, Object>> tasks = repo.listTasks(projectId);
-    List<Map<String, Object>> projectMembers = repo.listProjectMembers(projectId);
-    List<Map<String, Object>> caseMembers = repo.listCaseMembers(projectId);
-    List<ProjectDetailRepository.InstructionAggRow> instructions = repo.listInstructionAgg(projectId);
-    ProjectDetailRepository.PaymentsAggRow payments = repo.getPaymentsAgg(projectId);
+  private ProjectDetailBundle loadBundle(UUID projectId) {
+    ProjectDetailRepository.DetailRows rows = repo.loadDetail(projectId);
+    ProjectDetailRepository.ProjectRow p = rows.project();
+    if (p == null) {
+      throw new ProjectNotFoundException();
+    }
 
-    return new ProjectDetailBundle(projectId, groupId, p, cases, tasks, projectMembers, caseMembers, instructions, payments);
+    return new ProjectDetailBundle(projectId, p.groupId(), p, rows.cases(), rows.tasks(), rows.projectMembers(),
+        rows.caseMembers(), rows.instructions(), rows.payments());
   }
 
-  private record ProjectDetailBundle(
+  record ProjectDetailBundle(
       UUID projectId,
       UUID projectGroupId,
-      Map<String, Object> projectRow,
-      List<Map<String, Object>> caseRows,
-      List<Map<String, Object>> taskRows,
-      List<Map<String, Object>> projectMemberRows,
-      List<Map<String, Object>> caseMemberRows,
+      ProjectDetailRepository.ProjectRow projectRow,
+      List<ProjectDetailRepository.CaseRow> caseRows,
+      List<ProjectDetailRepository.TaskRow> taskRows,
+      List<ProjectDetailRepository.ProjectMemberRow> projectMemberRows,
+      List<ProjectDetailRepository.CaseMemberRow> caseMemberRows,
       List<ProjectDetailRepository.InstructionAggRow> instructionAgg,
       ProjectDetailRepository.PaymentsAggRow paymentsAgg
   ) {
 
     ProjectDetailResponse toApiResponse() {
-      ProjectDetailResponse.ProjectDto projectDto = new ProjectDetailResponse.ProjectDto(
-          (UUID) projectRow.get("id"),
-          String.valueOf(projectRow.get("code")),
-          toLocalDate(projectRow.get("accepted_at")),
-          String.valueOf(projectRow.get("name")),
-          (UUID) projectRow.get("group_id"),
-          toBizTags(projectRow.get("biz_tags")),
-          (BigDecimal) projectRow.get("mandate_amount"),
-          (BigDecimal) projectRow.get("execution_target_amount"),
-          String.valueOf(projectRow.get("status")),
-          toOffsetDateTime(projectRow.get("created_at")),
-          toOffsetDateTime(projectRow.get("updated_at"))
+      ProjectDetailResponse.MembersDto membersDto = new ProjectDetailResponse.MembersDto(
+          projectMemberRows.stream().map(ProjectDetailService::toProjectMemberDto).toList(),
+          caseMemberRows.stream().map(ProjectDetailService::toCaseMemberDto).toList()
       );
-
-      List<ProjectDetailResponse.ProjectMemberDto> pms = new ArrayList<>();
-      for (Map<String, Object> r : projectMemberRows) {
-        pms.add(new ProjectDetailResponse.ProjectMemberDto(
-            (UUID) r.get("user_id"),
-            String.valueOf(r.get("member_role")),
-            String.valueOf(r.get("username")),
-            maskPhone(String.valueOf(r.get("phone")))
-        ));
-      }
-
-      List<ProjectDetailResponse.CaseMemberDto> cms = new ArrayList<>();
-      for (Map<String, Object> r : caseMemberRows) {
-        cms.add(new ProjectDetailResponse.CaseMemberDto(
-            (UUID) r.get("case_id"),
-            (UUID) r.get("user_id"),
-            String.valueOf(r.get("member_role")),
-            String.valueOf(r.get("username")),
-            maskPhone(String.valueOf(r.get("phone")))
-        ));
-      }
-
-      ProjectDetailResponse.MembersDto membersDto = new ProjectDetailResponse.MembersDto(pms, cms);
-
-      List<ProjectDetailResponse.CaseDto> cs = new ArrayList<>();
-      for (Map<String, Object> r : caseRows) {
-        cs.add(new ProjectDetailResponse.CaseDto(
-            (UUID) r.get("id"),
-            String.valueOf(r.get("code")),
-            toLocalDate(r.get("accepted_at")),
-            String.valueOf(r.get("title")),
-            String.valueOf(r.get("status")),
-            toOffsetDateTime(r.get("created_at"))
-        ));
-      }
-
-      List<ProjectDetailResponse.TaskDto> ts = new ArrayList<>();
-      for (Map<String, Object> r : taskRows) {
-        ts.add(new ProjectDetailResponse.TaskDto(
-            (UUID) r.get("id"),
-            String.valueOf(r.get("title")),
-            String.valueOf(r.get("status")),
-            r.get("priority") == null ? null : String.valueOf(r.get("priority")),
-            (UUID) r.get("case_id"),
-            (UUID) r.get("instruction_item_id"),
-            toOffsetDateTime(r.get("plan_end")),
-            (UUID) r.get("assignee_user_id")
-        ));
-      }
-
-      List<ProjectDetailResponse.InstructionSummaryDto> ins = new ArrayList<>();
-      for (ProjectDetailRepository.InstructionAggRow r : instructionAgg) {
-        ins.add(new ProjectDetailResponse.InstructionSummaryDto(
-            r.instructionId(),
-            r.title(),
-            r.status(),
-            r.version(),
-            r.deadline(),
-            r.issuedAt(),
-            r.itemTotal(),
-            r.itemDone()
-        ));
-      }
-
-      ProjectDetailResponse.PaymentsSummaryDto pay = new ProjectDetailResponse.PaymentsSummaryDto(
-          paymentsAgg.sumAll(),
-          paymentsAgg.sum30d(),
-          paymentsAgg.effectiveCount(),
-          paymentsAgg.latestPaidAt()
+      return new ProjectDetailResponse(
+          toProjectDto(projectRow),
+          membersDto,
+          caseRows.stream().map(ProjectDetailService::toCaseDto).toList(),
+          taskRows.stream().map(ProjectDetailService::toTaskDto).toList(),
+          instructionAgg.stream().map(ProjectDetailService::toInstructionSummaryDto).toList(),
+          toPaymentsSummaryDto(paymentsAgg)
       );
-
-      return new ProjectDetailResponse(projectDto, membersDto, cs, ts, ins, pay);
     }
 
     int totalInstructionOverdue() {
@@ -192,7 +194,89 @@ public class ProjectDetailService {
     }
   }
 
-  private record WorkbenchA4Bundle(
+  private static ProjectDetailResponse.ProjectDto toProjectDto(ProjectDetailRepository.ProjectRow r) {
+    return new ProjectDetailResponse.ProjectDto(
+        r.id(),
+        String.valueOf(r.code()),
+        r.acceptedAt(),
+        r.name(),
+        r.groupId(),
+        r.bizTags(),
+        r.mandateAmount(),
+        r.executionTargetAmount(),
+        r.status(),
+        r.createdAt(),
+        r.updatedAt()
+    );
+  }
+
+  private static ProjectDetailResponse.ProjectMemberDto toProjectMemberDto(ProjectDetailRepository.ProjectMemberRow r) {
+    return new ProjectDetailResponse.ProjectMemberDto(
+        r.userId(),
+        String.valueOf(r.memberRole()),
+        r.username(),
+        maskPhone(r.phone())
+    );
+  }
+
+  private static ProjectDetailResponse.CaseMemberDto toCaseMemberDto(ProjectDetailRepository.CaseMemberRow r) {
+    return new ProjectDetailResponse.CaseMemberDto(
+        r.caseId(),
+        r.userId(),
+        String.valueOf(r.memberRole()),
+        r.username(),
+        maskPhone(r.phone())
+    );
+  }
+
+  private static ProjectDetailResponse.CaseDto toCaseDto(ProjectDetailRepository.CaseRow r) {
+    return new ProjectDetailResponse.CaseDto(
+        r.id(),
+        String.valueOf(r.code()),
+        r.acceptedAt(),
+        r.title(),
+        r.status(),
+        r.createdAt()
+    );
+  }
+
+  private static ProjectDetailResponse.TaskDto toTaskDto(ProjectDetailRepository.TaskRow r) {
+    return new ProjectDetailResponse.TaskDto(
+        r.id(),
+        r.title(),
+        r.status(),
+        r.priority(),
+        r.caseId(),
+        r.instructionItemId(),
+        r.planEnd(),
+        r.assigneeUserId()
+    );
+  }
+
+  private static ProjectDetailResponse.InstructionSummaryDto toInstructionSummaryDto(
+      ProjectDetailRepository.InstructionAggRow r) {
+    return new ProjectDetailResponse.InstructionSummaryDto(
+        r.instructionId(),
+        r.title(),
+        r.status(),
+        r.version(),
+        r.deadline(),
+        r.issuedAt(),
+        r.itemTotal(),
+        r.itemDone()
+    );
+  }
+
+  private static ProjectDetailResponse.PaymentsSummaryDto toPaymentsSummaryDto(ProjectDetailRepository.PaymentsAggRow r) {
+    return new ProjectDetailResponse.PaymentsSummaryDto(
+        r.sumAll(),
+        r.sum30d(),
+        r.effectiveCount(),
+        r.latestPaidAt()
+    );
+  }
+
+  record WorkbenchA4Bundle(
       WorkbenchProjectBaseDto project,
       List<WorkbenchCreditorDto> creditors,
       List<WorkbenchDebtorDto> debtors,
@@ -203,7 +287,7 @@ public class ProjectDetailService {
   ) {
   }
 
-  private record ClueRow(
+  record ClueRow(
       UUID debtorId,
       String debtorCode,
       String debtorName,
@@ -211,7 +295,7 @@ public class ProjectDetailService {
   ) {
   }
 
-  private record ItemRow(
+  record ItemRow(
       String type,
       UUID caseId,
       String caseCode,
@@ -226,7 +310,7 @@ public class ProjectDetailService {
   ) {
   }
 
-  private record AttachmentRow(
+  record AttachmentRow(
       String objectType,
       UUID objectId,
       UUID attachmentId,
@@ -246,13 +330,19 @@ public class ProjectDetailService {
     List<WorkbenchDebtorDto> debtors = wbRepo.listDebtors(projectId);
     List<WorkbenchCaseDto> cases = wbRepo.listCases(projectId);
 
-    Map<UUID, WorkbenchDebtorDto> debtorById = new HashMap<>();
-    for (var d : debtors) debtorById.put(d.debtorId(), d);
+    // Child collections are fetched once per table for all parents (= any(?)), so the query count
+    // does not grow with the number of debtors/cases.
+    Map<UUID, List<DebtorClueDto>> cluesByDebtor =
+        wbRepo.listCluesByDebtorIds(debtors.stream().map(WorkbenchDebtorDto::debtorId).toList());
+    List<UUID> caseIds = cases.stream().map(WorkbenchCaseDto::caseId).toList();
+    Map<UUID, List<CaseProcedureDto>> proceduresByCase = wbRepo.listProceduresByCaseIds(caseIds);
+    Map<UUID, List<CaseMeasureDto>> controlsByCase = wbRepo.listControlMeasuresByCaseIds(caseIds);
+    Map<UUID, List<CaseMeasureDto>> sanctionsByCase = wbRepo.listSanctionMeasuresByCaseIds(caseIds);
+    Map<UUID, List<CaseCostDto>> costsByCase = wbRepo.listCostsByCaseIds(caseIds);
 
     List<ClueRow> clueRows = new ArrayList<>();
     for (var d : debtors) {
-      List<DebtorClueDto> clues = wbRepo.listClues(d.debtorId());
-      for (var c : clues) {
+      for (var c : cluesByDebtor.getOrDefault(d.debtorId(), List.of())) {
         clueRows.add(new ClueRow(d.debtorId(), d.brCode(), d.name(), c));
       }
     }
@@ -262,7 +352,7 @@ public class ProjectDetailService {
       String caseCode = c.caseCode();
       String caseTitle = c.name();
 
-      for (var p : wbRepo.listProcedures(c.caseId())) {
+      for (var p : proceduresByCase.getOrDefault(c.caseId(), List.of())) {
         itemRows.add(new ItemRow(
             "程序",
             c.caseId(),
@@ -278,7 +368,7 @@ public class ProjectDetailService {
         ));
       }
 
-      for (var m : wbRepo.listControlMeasures(c.caseId())) {
+      for (var m : controlsByCase.getOrDefault(c.caseId(), List.of())) {
         itemRows.add(new ItemRow(
             "控制措施",
             c.caseId(),
@@ -294,7 +384,7 @@ public class ProjectDetailService {
         ));
       }
 
-      for (var m : wbRepo.listSanctionMeasures(c.caseId())) {
+      for (var m : sanctionsByCase.getOrDefault(c.caseId(), List.of())) {
         itemRows.add(new ItemRow(
             "惩戒措施",
             c.caseId(),
@@ -310,7 +400,7 @@ public class ProjectDetailService {
         ));
       }
 
-      for (var cost : wbRepo.listCosts(c.caseId())) {
+      for (var cost : costsByCase.getOrDefault(c.caseId(), List.of())) {
         itemRows.add(new ItemRow(
             "费用",
             c.caseId(),
@@ -328,30 +418,21 @@ public class ProjectDetailService {
     }
 
     // Attachments: best-effort summary by object (capped to keep PDF manageable)
-    List<AttachmentRow> attachmentRows = new ArrayList<>();
-    addAttachments(attachmentRows, "project", projectId);
-    for (var c : cases) addAttachments(attachmentRows, "case", c.caseId());
-    for (var c : creditors) addAttachments(attachmentRows, "project_creditor", c.creditorId());
-    for (var d : debtors) addAttachments(attachmentRows, "project_debtor", d.debtorId());
-    for (var cr : clueRows) addAttachments(attachmentRows, "debtor_clue", cr.clue().clueId());
+    Set<WorkbenchProjectRepository.ObjectRef> refs = new LinkedHashSet<>();
+    refs.add(new WorkbenchProjectRepository.ObjectRef("project", projectId));
+    for (var c : cases) refs.add(new WorkbenchProjectRepository.ObjectRef("case", c.caseId()));
+    for (var c : creditors) refs.add(new WorkbenchProjectRepository.ObjectRef("project_creditor", c.creditorId()));
+    for (var d : debtors) refs.add(new WorkbenchProjectRepository.ObjectRef("project_debtor", d.debtorId()));
+    for (var cr : clueRows) refs.add(new WorkbenchProjectRepository.ObjectRef("debtor_clue", cr.clue().clueId()));
     for (var it : itemRows) {
       if (it.objectId() != null && it.objectType() != null) {
-        addAttachments(attachmentRows, it.objectType(), it.objectId());
+        refs.add(new WorkbenchProjectRepository.ObjectRef(it.objectType(), it.objectId()));
       }
     }
 
-    attachmentRows.sort(Comparator.comparing(AttachmentRow::createdAt, Comparator.nullsLast(Comparator.naturalOrder())).reversed());
-    if (attachmentRows.size() > 200) {
-      attachmentRows = new ArrayList<>(attachmentRows.subList(0, 200));
-    }
-
-    return new WorkbenchA4Bundle(project, creditors, debtors, cases, clueRows, itemRows, attachmentRows);
-  }
-
-  private void addAttachments(List<AttachmentRow> out, String objectType, UUID objectId) {
-    List<AttachmentLinkDto> list = wbRepo.listAttachments(objectType, objectId);
-    for (var a : list) {
-      out.add(new AttachmentRow(
+    List<AttachmentRow> attachmentRows = new ArrayList<>();
+    for (var a : wbRepo.listAttachmentsForObjects(refs, A4_MAX_ATTACHMENTS)) {
+      attachmentRows.add(new AttachmentRow(
           a.objectType(),
           a.objectId(),
           a.attachmentId(),
@@ -363,227 +444,318 @@ public class ProjectDetailService {
           a.createdAt()
       ));
     }
+
+    return new WorkbenchA4Bundle(project, creditors, debtors, cases, clueRows, itemRows, attachmentRows);
   }
 
-  private String renderHtml(ProjectDetailBundle b, WorkbenchA4Bundle wb) {
-    String template = readClasspathText("templates/project_a4.html");
+  /**
+   * Workbench summary lines of the A4 export, read inside the export transaction so RLS applies.
+   */
+  record A4Summaries(
+      String creditors,
+      String debtors,
+      String caseExecutionBasis,
+      String clues,
+      String procedures,
+      String controlMeasures,
+      String sanctionMeasures,
+      String costs,
+      String attachments
+  ) {
+  }
+
+  private A4Summaries loadA4Summaries(UUID projectId, WorkbenchA4Bundle wb) {
+    int attachmentsShown = wb.attachments() == null ? 0 : wb.attachments().size();
+    ProjectDetailRepository.WbSummaryAgg agg = repo.getWbSummaries(projectId);
+    return new A4Summaries(
+        buildWbNamesSummary(agg.creditorTotal(), agg.creditorNames()),
+        buildWbNamesSummary(agg.debtorTotal(), agg.debtorNames()),
+        buildWbCaseExecutionBasisSummary(agg.caseBasis()),
+        buildWbCluesSummary(agg),
+        buildWbProceduresSummary(agg.proceduresByCase()),
+        buildWbMeasuresSummary(agg.controlMeasures()),
+        buildWbMeasuresSummary(agg.sanctionMeasures()),
+        buildWbCostsSummary(agg.costs(), agg.costCategories()),
+        buildWbAttachmentsSummary(agg.attachmentCounts(), attachmentsShown)
+    );
+  }
+
+  /**
+   * Pure rendering (no I/O): row blocks are built in StringBuilders and poured into the precompiled
+   * template in one pass. {@code wb}/{@code s} may be null (legacy-only export).
+   */
+  static String renderHtml(HtmlTemplate template, ProjectDetailBundle b, WorkbenchA4Bundle wb, A4Summaries s) {
     ProjectDetailResponse api = b.toApiResponse();
+    Map<String, CharSequence> v = new HashMap<>(48);
 
-    String projectInfoRows = "";
+    StringBuilder projectInfoRows = new StringBuilder(2048);
     var p = api.project();
-    projectInfoRows += tr("项目ID", String.valueOf(p.projectId()));
-    projectInfoRows += tr("项目名称", p.name());
-    projectInfoRows += tr("组ID", String.valueOf(p.groupId()));
-    projectInfoRows += tr("状态", p.status());
+    tr(projectInfoRows, "项目ID", String.valueOf(p.projectId()));
+    tr(projectInfoRows, "项目名称", p.name());
+    tr(projectInfoRows, "组ID", String.valueOf(p.groupId()));
+    tr(projectInfoRows, "状态", p.status());
     if (wb != null && wb.project != null) {
-      projectInfoRows += tr("委托人", wb.project.entrustor());
-      projectInfoRows += tr("进度状态", wb.project.progressStatus());
-      projectInfoRows += tr("目标日期", wb.project.targetDate() == null ? "" : wb.project.targetDate().toString());
-      projectInfoRows += tr("负责人", wb.project.ownerName());
-      projectInfoRows += tr("主办", wb.project.leadName());
-      projectInfoRows += tr("协办", wb.project.assistName());
-      projectInfoRows += tr("备注", wb.project.note());
+      tr(projectInfoRows, "委托人", wb.project.entrustor());
+      tr(projectInfoRows, "进度状态", wb.project.progressStatus());
+      tr(projectInfoRows, "目标日期", wb.project.targetDate() == null ? "" : wb.project.targetDate().toString());
+      tr(projectInfoRows, "负责人", wb.project.ownerName());
+      tr(projectInfoRows, "主办", wb.project.leadName());
+      tr(projectInfoRows, "协办", wb.project.assistName());
+      tr(projectInfoRows, "备注", wb.project.note());
     }
-    projectInfoRows += tr("业务标签", escapeHtml(String.join(", ", p.bizTags() == null ? List.of() : p.bizTags())));
-    projectInfoRows += tr("委托金额", p.mandateAmount() == null ? "" : p.mandateAmount().toPlainString());
-    projectInfoRows += tr("执行目标金额", p.executionTargetAmount() == null ? "" : p.executionTargetAmount().toPlainString());
-    projectInfoRows += tr("创建时间", p.createdAt() == null ? "" : p.createdAt().toString());
-    projectInfoRows += tr("更新时间", p.updatedAt() == null ? "" : p.updatedAt().toString());
+    tr(projectInfoRows, "业务标签", escapeHtml(String.join(", ", p.bizTags() == null ? List.of() : p.bizTags())));
+    tr(projectInfoRows, "委托金额", p.mandateAmount() == null ? "" : p.mandateAmount().toPlainString());
+    tr(projectInfoRows, "执行目标金额", p.executionTargetAmount() == null ? "" : p.executionTargetAmount().toPlainString());
+    tr(projectInfoRows, "创建时间", p.createdAt() == null ? "" : p.createdAt().toString());
+    tr(projectInfoRows, "更新时间", p.updatedAt() == null ? "" : p.updatedAt().toString());
 
-    String projectMembersRows = "";
+    StringBuilder projectMembersRows = rows(api.members().projectMembers().size());
     for (var m : api.members().projectMembers()) {
-      projectMembersRows += "<tr>" + td(m.userId()) + td(m.role()) + td(m.username()) + td(m.phoneMasked()) + "</tr>";
+      projectMembersRows.append("<tr>");
+      td(projectMembersRows, m.userId());
+      td(projectMembersRows, m.role());
+      td(projectMembersRows, m.username());
+      td(projectMembersRows, m.phoneMasked());
+      projectMembersRows.append("</tr>");
     }
 
-    String caseMembersRows = "";
+    StringBuilder caseMembersRows = rows(api.members().caseMembers().size());
     for (var m : api.members().caseMembers()) {
-      caseMembersRows += "<tr>" + td(m.caseId()) + td(m.userId()) + td(m.role()) + td(m.username()) + td(m.phoneMasked()) + "</tr>";
+      caseMembersRows.append("<tr>");
+      td(caseMembersRows, m.caseId());
+      td(caseMembersRows, m.userId());
+      td(caseMembersRows, m.role());
+      td(caseMembersRows, m.username());
+      td(caseMembersRows, m.phoneMasked());
+      caseMembersRows.append("</tr>");
     }
 
-    String casesRows = "";
+    StringBuilder casesRows = rows(api.cases().size());
     for (var c : api.cases()) {
-      casesRows += "<tr>" + td(c.caseId()) + td(c.title()) + td(c.status()) + td(c.createdAt()) + "</tr>";
+      casesRows.append("<tr>");
+      td(casesRows, c.caseId());
+      td(casesRows, c.title());
+      td(casesRows, c.status());
+      td(casesRows, c.createdAt());
+      casesRows.append("</tr>");
     }
 
-    String tasksRows = "";
+    StringBuilder tasksRows = rows(api.tasks().size());
     for (var t : api.tasks()) {
-      tasksRows += "<tr>" + td(t.taskId()) + td(t.title()) + td(t.status()) + td(t.priority()) + td(t.caseId()) + td(t.instructionItemId()) + td(t.dueAt()) + td(t.assigneeUserId()) + "</tr>";
+      tasksRows.append("<tr>");
+      td(tasksRows, t.taskId());
+      td(tasksRows, t.title());
+      td(tasksRows, t.status());
+      td(tasksRows, t.priority());
+      td(tasksRows, t.caseId());
+      td(tasksRows, t.instructionItemId());
+      td(tasksRows, t.dueAt());
+      td(tasksRows, t.assigneeUserId());
+      tasksRows.append("</tr>");
     }
 
-    String instructionsRows = "";
+    Map<UUID, Integer> overdueByInstruction = new HashMap<>();
+    for (var r : b.instructionAgg) {
+      overdueByInstruction.putIfAbsent(r.instructionId(), r.itemOverdue());
+    }
+    StringBuilder instructionsRows = rows(api.instructions().size());
     for (var i : api.instructions()) {
-      int overdue = 0;
-      for (var r : b.instructionAgg) {
-        if (r.instructionId().equals(i.instructionId())) {
-          overdue = r.itemOverdue();
-          break;
-        }
-      }
-      instructionsRows += "<tr>" + td(i.instructionId()) + td(i.title()) + td(i.status()) + td(i.version()) + td(i.deadline()) + td(i.issuedAt()) + td(i.itemTotal()) + td(i.itemDone()) + td(overdue) + "</tr>";
+      instructionsRows.append("<tr>");
+      td(instructionsRows, i.instructionId());
+      td(instructionsRows, i.title());
+      td(instructionsRows, i.status());
+      td(instructionsRows, i.version());
+      td(instructionsRows, i.deadline());
+      td(instructionsRows, i.issuedAt());
+      td(instructionsRows, i.itemTotal());
+      td(instructionsRows, i.itemDone());
+      td(instructionsRows, overdueByInstruction.getOrDefault(i.instructionId(), 0));
+      instructionsRows.append("</tr>");
     }
 
-    String paymentsRows = "";
-    paymentsRows += tr("累计回款（有效）", api.payments().sumAll() == null ? "0" : api.payments().sumAll().toPlainString());
-    paymentsRows += tr("近30天回款（有效）", api.payments().sum30d() == null ? "0" : api.payments().sum30d().toPlainString());
-    paymentsRows += tr("有效笔数", String.valueOf(api.payments().effectiveCount()));
-    paymentsRows += tr("最近回款时间", api.payments().latestPaidAt() == null ? "" : api.payments().latestPaidAt().toString());
-
-    String wbSrSummary = wb == null ? "" : buildWbSrSummary(b.projectId);
+    StringBuilder paymentsRows = new StringBuilder(512);
+    tr(paymentsRows, "累计回款（有效）", api.payments().sumAll() == null ? "0" : api.payments().sumAll().toPlainString());
+    tr(paymentsRows, "近30天回款（有效）", api.payments().sum30d() == null ? "0" : api.payments().sum30d().toPlainString());
+    tr(paymentsRows, "有效笔数", String.valueOf(api.payments().effectiveCount()));
+    tr(paymentsRows, "最近回款时间", api.payments().latestPaidAt() == null ? "" : api.payments().latestPaidAt().toString());
 
-    String wbCreditorsRows = "";
+    StringBuilder wbCreditorsRows = rows(wb == null || wb.creditors == null ? 0 : wb.creditors.size());
     if (wb != null && wb.creditors != null) {
       for (var c : wb.creditors) {
-        wbCreditorsRows += "<tr>" + td(c.creditorId()) + td(c.srCode()) + td(c.name()) + td(c.idNo()) + td(c.unifiedCode()) + td(c.eDeliveryPhone()) + "</tr>";
+        wbCreditorsRows.append("<tr>");
+        td(wbCreditorsRows, c.creditorId());
+        td(wbCreditorsRows, c.srCode());
+        td(wbCreditorsRows, c.name());
+        td(wbCreditorsRows, c.idNo());
+        td(wbCreditorsRows, c.unifiedCode());
+        td(wbCreditorsRows, c.eDeliveryPhone());
+        wbCreditorsRows.append("</tr>");
       }
     }
-    if (wbCreditorsRows.isBlank()) {
-      wbCreditorsRows = emptyRow(6);
-    }
-
-    String wbBrSummary = wb == null ? "" : buildWbBrSummary(b.projectId);
+    orEmptyRow(wbCreditorsRows, 6);
 
-    String wbDebtorsRows = "";
+    StringBuilder wbDebtorsRows = rows(wb == null || wb.debtors == null ? 0 : wb.debtors.size());
     if (wb != null && wb.debtors != null) {
       for (var d : wb.debtors) {
-        wbDebtorsRows += "<tr>" + td(d.debtorId()) + td(d.brCode()) + td(d.name()) + td(d.idNo()) + td(d.unifiedCode()) + td(d.eDeliveryPhone()) + "</tr>";
+        wbDebtorsRows.append("<tr>");
+        td(wbDebtorsRows, d.debtorId());
+        td(wbDebtorsRows, d.brCode());
+        td(wbDebtorsRows, d.name());
+        td(wbDebtorsRows, d.idNo());
+        td(wbDebtorsRows, d.unifiedCode());
+        td(wbDebtorsRows, d.eDeliveryPhone());
+        wbDebtorsRows.append("</tr>");
       }
     }
-    if (wbDebtorsRows.isBlank()) {
-      wbDebtorsRows = emptyRow(6);
-    }
+    orEmptyRow(wbDebtorsRows, 6);
 
-    String wbCaseExecutionBasisSummary = wb == null ? "" : buildWbCaseExecutionBasisSummary(b.projectId);
-    String wbCaseBasisRows = "";
+    StringBuilder wbCaseBasisRows = rows(wb == null || wb.cases == null ? 0 : wb.cases.size() * 2);
     if (wb != null && wb.cases != null) {
       for (var c : wb.cases) {
         String creditor = (c.creditorCode() == null ? "" : c.creditorCode()) + (c.creditorName() == null ? "" : (" " + c.creditorName()));
         String debtor = (c.debtorCode() == null ? "" : c.debtorCode()) + (c.debtorName() == null ? "" : (" " + c.debtorName()));
-        wbCaseBasisRows += "<tr>" + td(c.caseId()) + td(c.caseCode()) + td(c.name()) + td(creditor.trim()) + td(debtor.trim())
-            + td(c.cause()) + td(c.basisDocType()) + td(c.basisDocNo()) + td(c.basisOrg()) + td(c.basisMainText()) + "</tr>";
+        wbCaseBasisRows.append("<tr>");
+        td(wbCaseBasisRows, c.caseId());
+        td(wbCaseBasisRows, c.caseCode());
+        td(wbCaseBasisRows, c.name());
+        td(wbCaseBasisRows, creditor.trim());
+        td(wbCaseBasisRows, debtor.trim());
+        td(wbCaseBasisRows, c.cause());
+        td(wbCaseBasisRows, c.basisDocType());
+        td(wbCaseBasisRows, c.basisDocNo());
+        td(wbCaseBasisRows, c.basisOrg());
+        td(wbCaseBasisRows, c.basisMainText());
+        wbCaseBasisRows.append("</tr>");
       }
     }
-    if (wbCaseBasisRows.isBlank()) {
-      wbCaseBasisRows = emptyRow(10);
-    }
+    orEmptyRow(wbCaseBasisRows, 10);
 
-    String wbCluesSummary = wb == null ? "" : buildWbCluesSummary(b.projectId);
-    String wbCluesRows = "";
+    StringBuilder wbCluesRows = rows(wb == null || wb.clues == null ? 0 : wb.clues.size());
     if (wb != null && wb.clues != null) {
       for (var r : wb.clues) {
         var x = r.clue;
         String debtor = (r.debtorCode() == null ? "" : r.debtorCode()) + (r.debtorName() == null ? "" : (" " + r.debtorName()));
-        wbCluesRows += "<tr>" + td(x.clueId()) + td(x.xsCode()) + td(debtor.trim()) + td(x.category()) + td(x.detail()) + td(x.source())
-            + td(x.collectedAt() == null ? "" : x.collectedAt().toString()) + td(x.collectorName()) + "</tr>";
+        wbCluesRows.append("<tr>");
+        td(wbCluesRows, x.clueId());
+        td(wbCluesRows, x.xsCode());
+        td(wbCluesRows, debtor.trim());
+        td(wbCluesRows, x.category());
+        td(wbCluesRows, x.detail());
+        td(wbCluesRows, x.source());
+        td(wbCluesRows, x.collectedAt() == null ? "" : x.collectedAt().toString());
+        td(wbCluesRows, x.collectorName());
+        wbCluesRows.append("</tr>");
       }
     }
-    if (wbCluesRows.isBlank()) {
-      wbCluesRows = emptyRow(8);
-    }
-
-    String wbProceduresSummary = wb == null ? "" : buildWbProceduresSummary(b.projectId);
-    String wbControlMeasuresSummary = wb == null ? "" : buildWbMeasuresControlSummary(b.projectId);
-    String wbSanctionMeasuresSummary = wb == null ? "" : buildWbMeasuresSanctionSummary(b.projectId);
-    String wbCostsSummary = wb == null ? "" : buildWbCostsSummary(b.projectId);
+    orEmptyRow(wbCluesRows, 8);
 
-    String wbItemsRows = "";
+    StringBuilder wbItemsRows = rows(wb == null || wb.items == null ? 0 : wb.items.size());
     if (wb != null && wb.items != null) {
       for (var it : wb.items) {
-        wbItemsRows += "<tr>" + td(it.type()) + td(it.caseId()) + td(it.caseCode()) + td(it.caseTitle()) + td(it.name()) + td(it.date())
-            + td(it.amount()) + td(it.result()) + td(it.note()) + "</tr>";
+        wbItemsRows.append("<tr>");
+        td(wbItemsRows, it.type());
+        td(wbItemsRows, it.caseId());
+        td(wbItemsRows, it.caseCode());
+        td(wbItemsRows, it.caseTitle());
+        td(wbItemsRows, it.name());
+        td(wbItemsRows, it.date());
+        td(wbItemsRows, it.amount());
+        td(wbItemsRows, it.result());
+        td(wbItemsRows, it.note());
+        wbItemsRows.append("</tr>");
       }
     }
-    if (wbItemsRows.isBlank()) {
-      wbItemsRows = emptyRow(9);
-    }
+    orEmptyRow(wbItemsRows, 9);
 
-    String wbAttachmentsRows = "";
-    int wbAttachmentTotal = 0;
-    if (wb != null && wb.attachments != null) {
-      wbAttachmentTotal = wb.attachments.size();
+    int wbAttachmentTotal = wb == null || wb.attachments == null ? 0 : wb.attachments.size();
+    StringBuilder wbAttachmentsRows = rows(wbAttachmentTotal);
+    if (wbAttachmentTotal > 0) {
       for (var a : wb.attachments) {
-        wbAttachmentsRows += "<tr>" + td(a.objectType()) + td(a.objectId()) + td(a.title()) + td(a.fileId()) + td(a.filename()) + td(a.contentType())
-            + td(a.sizeBytes()) + td(a.createdAt() == null ? "" : a.createdAt().toString()) + "</tr>";
+        wbAttachmentsRows.append("<tr>");
+        td(wbAttachmentsRows, a.objectType());
+        td(wbAttachmentsRows, a.objectId());
+        td(wbAttachmentsRows, a.title());
+        td(wbAttachmentsRows, a.fileId());
+        td(wbAttachmentsRows, a.filename());
+        td(wbAttachmentsRows, a.contentType());
+        td(wbAttachmentsRows, a.sizeBytes());
+        td(wbAttachmentsRows, a.createdAt() == null ? "" : a.createdAt().toString());
+        wbAttachmentsRows.append("</tr>");
       }
     }
-    if (wbAttachmentsRows.isBlank()) {
-      wbAttachmentsRows = emptyRow(8);
-    }
-
-    String wbAttachmentsSummary = wb == null ? "" : buildWbAttachmentsSummary(b.projectId, wbAttachmentTotal);
-
-    String out = template
-        .replace("{{PROJECT_ID}}", escapeHtml(String.valueOf(b.projectId)))
-        .replace("{{PROJECT_INFO_ROWS}}", projectInfoRows)
-        .replace("{{PROJECT_MEMBERS_ROWS}}", projectMembersRows)
-        .replace("{{CASE_MEMBERS_ROWS}}", caseMembersRows)
-        .replace("{{CASES_ROWS}}", casesRows)
-        .replace("{{TASKS_ROWS}}", tasksRows)
-        .replace("{{INSTRUCTIONS_ROWS}}", instructionsRows)
-        .replace("{{INSTRUCTION_OVERDUE_TOTAL}}", String.valueOf(b.totalInstructionOverdue()))
-        .replace("{{PAYMENTS_ROWS}}", paymentsRows)
-        .replace("{{WB_SR}}", escapeHtml(orEmptyState(wbSrSummary)))
-        .replace("{{WB_BR}}", escapeHtml(orEmptyState(wbBrSummary)))
-        .replace("{{WB_CASE_EXECUTION_BASIS}}", escapeHtml(orEmptyState(wbCaseExecutionBasisSummary)))
-        .replace("{{WB_CLUES}}", escapeHtml(orEmptyState(wbCluesSummary)))
-        .replace("{{WB_PROCEDURES}}", escapeHtml(orEmptyState(wbProceduresSummary)))
-        .replace("{{WB_MEASURES_CONTROL}}", escapeHtml(orEmptyState(wbControlMeasuresSummary)))
-        .replace("{{WB_MEASURES_SANCTION}}", escapeHtml(orEmptyState(wbSanctionMeasuresSummary)))
-        .replace("{{WB_COSTS}}", escapeHtml(orEmptyState(wbCostsSummary)))
-        .replace("{{WB_ATTACHMENTS}}", escapeHtml(orEmptyState(wbAttachmentsSummary)))
-        .replace("{{WB_CREDITORS_ROWS}}", wbCreditorsRows)
-        .replace("{{WB_DEBTORS_ROWS}}", wbDebtorsRows)
-        .replace("{{WB_CASE_BASIS_ROWS}}", wbCaseBasisRows)
-        .replace("{{WB_CLUES_ROWS}}", wbCluesRows)
-        .replace("{{WB_ITEMS_ROWS}}", wbItemsRows)
-        .replace("{{WB_ATTACHMENTS_TOTAL}}", String.valueOf(wbAttachmentTotal))
-        .replace("{{WB_ATTACHMENTS_ROWS}}", wbAttachmentsRows);
+    orEmptyRow(wbAttachmentsRows, 8);
+
+    v.put("PROJECT_ID", escapeHtml(String.valueOf(b.projectId)));
+    v.put("PROJECT_INFO_ROWS", projectInfoRows);
+    v.put("PROJECT_MEMBERS_ROWS", projectMembersRows);
+    v.put("CASE_MEMBERS_ROWS", caseMembersRows);
+    v.put("CASES_ROWS", casesRows);
+    v.put("TASKS_ROWS", tasksRows);
+    v.put("INSTRUCTIONS_ROWS", instructionsRows);
+    v.put("INSTRUCTION_OVERDUE_TOTAL", String.valueOf(b.totalInstructionOverdue()));
+    v.put("PAYMENTS_ROWS", paymentsRows);
+    v.put("WB_SR", escapeHtml(orEmptyState(s == null ? null : s.creditors())));
+    v.put("WB_BR", escapeHtml(orEmptyState(s == null ? null : s.debtors())));
+    v.put("WB_CASE_EXECUTION_BASIS", escapeHtml(orEmptyState(s == null ? null : s.caseExecutionBasis())));
+    v.put("WB_CLUES", escapeHtml(orEmptyState(s == null ? null : s.clues())));
+    v.put("WB_PROCEDURES", escapeHtml(orEmptyState(s == null ? null : s.procedures())));
+    v.put("WB_MEASURES_CONTROL", escapeHtml(orEmptyState(s == null ? null : s.controlMeasures())));
+    v.put("WB_MEASURES_SANCTION", escapeHtml(orEmptyState(s == null ? null : s.sanctionMeasures())));
+    v.put("WB_COSTS", escapeHtml(orEmptyState(s == null ? null : s.costs())));
+    v.put("WB_ATTACHMENTS", escapeHtml(orEmptyState(s == null ? null : s.attachments())));
+    v.put("WB_CREDITORS_ROWS", wbCreditorsRows);
+    v.put("WB_DEBTORS_ROWS", wbDebtorsRows);
+    v.put("WB_CASE_BASIS_ROWS", wbCaseBasisRows);
+    v.put("WB_CLUES_ROWS", wbCluesRows);
+    v.put("WB_ITEMS_ROWS", wbItemsRows);
+    v.put("WB_ATTACHMENTS_TOTAL", String.valueOf(wbAttachmentTotal));
+    v.put("WB_ATTACHMENTS_ROWS", wbAttachmentsRows);
 
     // Safety net: never leave template variables unreplaced (prevents PDF render oddities).
-    return out.replaceAll("\\\\{\\\\{[A-Z0-9_]+}}", escapeHtml("暂无数据"));
+    return template.render(v, escapeHtml(EMPTY_STATE));
   }
 
-  private static String emptyRow(int colSpan) {
-    return "<tr><td colspan=\"" + colSpan + "\">" + escapeHtml("暂无数据") + "</td></tr>";
+  /**
+   * Row block sized for {@code rows} typical table rows, so it rarely has to grow.
+   */
+  private static StringBuilder rows(int rows) {
+    return new StringBuilder(Math.max(256, rows * 256));
   }
 
-  private static String orEmptyState(String s) {
-    if (s == null) return "暂无数据";
-    if (s.isBlank()) return "暂无数据";
-    return s;
+  private static void orEmptyRow(StringBuilder rows, int colSpan) {
+    if (rows.isEmpty()) {
+      rows.append("<tr><td colspan=\"").append(colSpan).append("\">");
+      HtmlTemplate.appendEscaped(rows, EMPTY_STATE).append("</td></tr>");
+    }
   }
 
-  private String buildWbSrSummary(UUID projectId) {
-    int total = repo.countWbCreditors(projectId);
-    if (total <= 0) return "暂无数据";
-    List<String> names = repo.listWbCreditorNames(projectId, 3);
-    String sample = names.isEmpty() ? "" : ("，示例：" + String.join("、", names));
-    return "共" + total + "个" + sample;
+  private static String orEmptyState(String s) {
+    if (s == null) return EMPTY_STATE;
+    if (s.isBlank()) return EMPTY_STATE;
+    return s;
   }
 
-  private String buildWbBrSummary(UUID projectId) {
-    int total = repo.countWbDebtors(projectId);
+  private String buildWbNamesSummary(int total, List<String> names) {
     if (total <= 0) return "暂无数据";
-    List<String> names = repo.listWbDebtorNames(projectId, 3);
     String sample = names.isEmpty() ? "" : ("，示例：" + String.join("、", names));
     return "共" + total + "个" + sample;
   }
 
-  private String buildWbCaseExecutionBasisSummary(UUID projectId) {
-    var agg = repo.getWbCaseBasisAgg(projectId);
+  private String buildWbCaseExecutionBasisSummary(ProjectDetailRepository.WbCaseBasisAgg agg) {
     if (agg.caseTotal() <= 0) return "暂无数据";
     return "案件总数" + agg.caseTotal() + "，已填写执行依据" + agg.basisFilled() + "。";
   }
 
-  private String buildWbCluesSummary(UUID projectId) {
-    int total = repo.countWbClues(projectId);
+  private String buildWbCluesSummary(ProjectDetailRepository.WbSummaryAgg agg) {
+    int total = agg.clueTotal();
     if (total <= 0) return "暂无数据";
 
-    String byCat = repo.listWbClueCategoryCounts(projectId).stream()
+    String byCat = agg.clueCategories().stream()
         .limit(6)
         .map(x -> x.category() + "(" + x.cnt() + ")")
         .collect(Collectors.joining("、"));
 
-    String top = repo.listWbClueTop(projectId, 3).stream()
+    String top = agg.clueTop().stream()
         .map(x -> {
           String d = x.detail();
           if (d == null) d = "";
@@ -599,8 +771,7 @@ public class ProjectDetailService {
     return "线索总数" + total + catPart + topPart;
   }
 
-  private String buildWbProceduresSummary(UUID projectId) {
-    var rows = repo.listWbProcedureAggByCase(projectId);
+  private String buildWbProceduresSummary(List<ProjectDetailRepository.WbCaseProcedureAgg> rows) {
     if (rows.isEmpty()) return "暂无数据";
     int total = rows.stream().mapToInt(ProjectDetailRepository.WbCaseProcedureAgg::procedureCount).sum();
     String byCase = rows.stream()
@@ -615,22 +786,15 @@ public class ProjectDetailService {
     return "总条数" + total + "；按案件：" + byCase;
   }
 
-  private String buildWbMeasuresControlSummary(UUID projectId) {
-    var agg = repo.getWbControlMeasureAgg(projectId);
-    if (agg.total() <= 0) return "暂无数据";
-    return "总条数" + agg.total() + "，到期条数" + agg.dueCount() + "。";
-  }
-
-  private String buildWbMeasuresSanctionSummary(UUID projectId) {
-    var agg = repo.getWbSanctionMeasureAgg(projectId);
+  private String buildWbMeasuresSummary(ProjectDetailRepository.WbMeasureAgg agg) {
     if (agg.total() <= 0) return "暂无数据";
     return "总条数" + agg.total() + "，到期条数" + agg.dueCount() + "。";
   }
 
-  private String buildWbCostsSummary(UUID projectId) {
-    var agg = repo.getWbCostAgg(projectId);
+  private String buildWbCostsSummary(ProjectDetailRepository.WbCostAgg agg,
+                                     List<ProjectDetailRepository.WbCostCategoryAgg> categories) {
     if (agg.itemCount() <= 0) return "暂无数据";
-    String byCat = repo.listWbCostAggByCategory(projectId).stream()
+    String byCat = categories.stream()
         .limit(6)
         .map(x -> x.category() + "：" + (x.amount() == null ? "0" : x.amount().toPlainString()))
         .collect(Collectors.joining("；"));
@@ -638,10 +802,9 @@ public class ProjectDetailService {
     return "总额" + (agg.totalAmount() == null ? "0" : agg.totalAmount().toPlainString()) + "，明细条数" + agg.itemCount() + catPart;
   }
 
-  private String buildWbAttachmentsSummary(UUID projectId, int listShownTotal) {
+  private String buildWbAttachmentsSummary(Map<String, Integer> cnts, int listShownTotal) {
     if (listShownTotal <= 0) {
       // Still try to reflect counts from DB; if also empty, return empty-state.
-      var cnts = repo.listWbAttachmentCountsByObjectType(projectId);
       int total = cnts.values().stream().mapToInt(Integer::intValue).sum();
       if (total <= 0) return "暂无数据";
       String byType = cnts.entrySet().stream()
@@ -651,7 +814,6 @@ public class ProjectDetailService {
       return "总条数" + total + "；按对象类型：" + byType + "。";
     }
 
-    var cnts = repo.listWbAttachmentCountsByObjectType(projectId);
     int total = cnts.values().stream().mapToInt(Integer::intValue).sum();
     String byType = cnts.isEmpty() ? "" : cnts.entrySet().stream()
         .limit(8)
@@ -662,30 +824,6 @@ public class ProjectDetailService {
     return "总条数" + total + typePart + shown;
   }
 
-  private byte[] htmlToPdfBytes(String html) {
-    try {
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
-      PdfRendererBuilder builder = new PdfRendererBuilder();
-      builder.useFastMode();
-      builder.withHtmlContent(html, null);
-      builder.toStream(out);
-      builder.run();
-      return out.toByteArray();
-    } catch (Exception e) {
-      throw new IllegalStateException("PDF_RENDER_FAILED", e);
-    }
-  }
-
-  private String readClasspathText(String path) {
-    try {
-      ClassPathResource r = new ClassPathResource(path);
-      byte[] bytes = r.getInputStream().readAllBytes();
-      return new String(bytes, StandardCharsets.UTF_8);
-    } catch (Exception e) {
-      throw new IllegalStateException("TEMPLATE_NOT_FOUND: " + path, e);
-    }
-  }
-
   private static String maskPhone(String phone) {
     if (phone == null) return "";
     String p = phone.trim();
@@ -698,21 +836,21 @@ public class ProjectDetailService {
   }
 
   private static String escapeHtml(String s) {
-    if (s == null) return "";
-    return s
-        .replace("&", "&amp;")
-        .replace("<", "&lt;")
-        .replace(">", "&gt;")
-        .replace("\"", "&quot;")
-        .replace("'", "&#39;");
+    return HtmlTemplate.escape(s);
   }
 
-  private static String td(Object v) {
-    return "<td>" + escapeHtml(v == null ? "" : String.valueOf(v)) + "</td>";
+  private static void td(StringBuilder out, Object v) {
+    out.append("<td>");
+    HtmlTemplate.appendEscaped(out, v == null ? "" : String.valueOf(v));
+    out.append("</td>");
   }
 
-  private static String tr(String k, String v) {
-    return "<tr><th class=\"k\">" + escapeHtml(k) + "</th><td>" + escapeHtml(v) + "</td></tr>";
+  private static void tr(StringBuilder out, String k, String v) {
+    out.append("<tr><th class=\"k\">");
+    HtmlTemplate.appendEscaped(out, k);
+    out.append("</th><td>");
+    HtmlTemplate.appendEscaped(out, v);
+    out.append("</td></tr>");
   }
 
   private void writeAudit(HttpServletRequest req,
@@ -722,7 +860,19 @@ public class ProjectDetailService {
                           String objectType,
                           UUID objectId,
                           String summaryJson) {
-    String rid = (String) req.getAttribute(RequestIdFilter.REQ_ID_ATTR);
+    writeAudit((String) req.getAttribute(RequestIdFilter.REQ_ID_ATTR), req.getRemoteAddr(), req.getHeader("User-Agent"),
+        actorUserId, groupId, action, objectType, objectId, summaryJson);
+  }
+
+  private void writeAudit(String requestId,
+                          String ip,
+                          String userAgent,
+                          UUID actorUserId,
+                          UUID groupId,
+                          String action,
+                          String objectType,
+                          UUID objectId,
+                          String summaryJson) {
     jdbc.update(
         """
         insert into audit_log(group_id, actor_user_id, action, object_type, object_id, request_id, ip, user_agent, summary)
@@ -733,42 +883,10 @@ public class ProjectDetailService {
         action,
         objectType,
         objectId,
-        rid,
-        req.getRemoteAddr(),
-        req.getHeader("User-Agent"),
+        requestId,
+        ip,
+        userAgent,
         summaryJson
     );
   }
-
-  private static List<String> toBizTags(Object o) {
-    if (o == null) return List.of();
-    try {
-      if (o instanceof String[] sa) {
-        return List.of(sa);
-      }
-      if (o instanceof java.sql.Array a) {
-        Object arr = a.getArray();
-        if (arr instanceof String[] sa) return List.of(sa);
-      }
-    } catch (Exception ignored) {
-    }
-    return List.of();
-  }
-
-  private static OffsetDateTime toOffsetDateTime(Object v) {
-    if (v == null) return null;
-    if (v instanceof OffsetDateTime odt) return odt;
-    if (v instanceof Timestamp ts) return ts.toInstant().atOffset(ZoneOffset.UTC);
-    if (v instanceof LocalDateTime ldt) return ldt.toInstant(ZoneOffset.UTC).atOffset(ZoneOffset.UTC);
-    return OffsetDateTime.parse(String.valueOf(v));
-  }
-
-  private static LocalDate toLocalDate(Object v) {
-    if (v == null) return null;
-    if (v instanceof LocalDate ld) return ld;
-    if (v instanceof java.sql.Date d) return d.toLocalDate();
-    if (v instanceof Timestamp ts) return ts.toLocalDateTime().toLocalDate();
-    if (v instanceof LocalDateTime ldt) return ldt.toLocalDate();
-    return LocalDate.parse(String.valueOf(v));
-  }
 }
@@ -3,12 +3,17 @@ package com.secp.api.workbench;
 import com.secp.api.workbench.dto.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Date;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -18,6 +23,68 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class WorkbenchProjectRepository {
 
+  private static final RowMapper<DebtorClueDto> CLUE_MAPPER = (rs, rowNum) -> new DebtorClueDto(
+      rs.getObject("id", UUID.class),
+      rs.getString("xs_code"),
+      rs.getString("category"),
+      rs.getString("detail"),
+      rs.getString("source"),
+      rs.getDate("collected_at") == null ? null : rs.getDate("collected_at").toLocalDate(),
+      rs.getObject("collector_user_id", UUID.class),
+      rs.getString("collector_name"),
+      rs.getTimestamp("created_at").toInstant(),
+      rs.getTimestamp("updated_at").toInstant()
+  );
+
+  private static final RowMapper<AttachmentLinkDto> ATTACHMENT_MAPPER = (rs, rowNum) -> new AttachmentLinkDto(
+      rs.getObject("id", UUID.class),
+      rs.getString("object_type"),
+      rs.getObject("object_id", UUID.class),
+      rs.getObject("file_id", UUID.class),
+      rs.getString("title"),
+      rs.getTimestamp("created_at").toInstant(),
+      rs.getString("filename"),
+      rs.getString("content_type"),
+      rs.getLong("size_bytes")
+  );
+
+  private static final RowMapper<CaseProcedureDto> PROCEDURE_MAPPER = (rs, rowNum) -> new CaseProcedureDto(
+      rs.getObject("id", UUID.class),
+      rs.getString("name"),
+      rs.getString("doc_no"),
+      rs.getString("org"),
+      rs.getDate("decided_at") == null ? null : rs.getDate("decided_at").toLocalDate(),
+      rs.getTimestamp("created_at").toInstant(),
+      rs.getTimestamp("updated_at").toInstant()
+  );
+
+  private static final RowMapper<CaseMeasureDto> MEASURE_MAPPER = (rs, rowNum) -> new CaseMeasureDto(
+      rs.getObject("id", UUID.class),
+      rs.getString("name"),
+      rs.getString("target"),
+      rs.getString("basis_org"),
+      rs.getString("basis_doc_no"),
+      rs.getString("basis_doc_name"),
+      rs.getString("content"),
+      rs.getString("result"),
+      rs.getString("rank_no"),
+      rs.getDate("due_at") == null ? null : rs.getDate("due_at").toLocalDate(),
+      rs.getString("note"),
+      rs.getTimestamp("created_at").toInstant(),
+      rs.getTimestamp("updated_at").toInstant()
+  );
+
+  private static final RowMapper<CaseCostDto> COST_MAPPER = (rs, rowNum) -> new CaseCostDto(
+      rs.getObject("id", UUID.class),
+      rs.getString("category"),
+      rs.getBigDecimal("amount"),
+      rs.getDate("occurred_at") == null ? null : rs.getDate("occurred_at").toLocalDate(),
+      rs.getString("payer"),
+      rs.getString("note"),
+      rs.getTimestamp("created_at").toInstant(),
+      rs.getTimestamp("updated_at").toInstant()
+  );
+
   private final JdbcTemplate jdbc;
 
   public List<GroupOptionDto> listMyGroups() {
@@ -607,18 +674,26 @@ public class WorkbenchProjectRepository {
          order by dc.created_at desc
         """,
         ps -> ps.setObject(1, debtorId),
-        (rs, rowNum) -> new DebtorClueDto(
-            rs.getObject("id", UUID.class),
-            rs.getString("xs_code"),
-            rs.getString("category"),
-            rs.getString("detail"),
-            rs.getString("source"),
-            rs.getDate("collected_at") == null ? null : rs.getDate("collected_at").toLocalDate(),
-            rs.getObject("collector_user_id", UUID.class),
-            rs.getString("collector_name"),
-            rs.getTimestamp("created_at").toInstant(),
-            rs.getTimestamp("updated_at").toInstant()
-        )
+        CLUE_MAPPER
+    );
+  }
+
+  /**
+   * Clues of all {@code debtorIds} in one query, keyed by debtor (same per-debtor order as {@link #listClues}).
+   */
+  public Map<UUID, List<DebtorClueDto>> listCluesByDebtorIds(Collection<UUID> debtorIds) {
+    return queryGroupedByParent(
+        """
+        select dc.debtor_id as parent_id,
+               dc.id, dc.xs_code, dc.category, dc.detail, dc.source, dc.collected_at,
+               dc.collector_user_id, u.username as collector_name, dc.created_at, dc.updated_at
+          from debtor_clue dc
+          left join app_user u on u.id = dc.collector_user_id
+         where dc.debtor_id = any(?)
+         order by dc.created_at desc
+        """,
+        debtorIds,
+        CLUE_MAPPER
     );
   }
 
@@ -694,17 +769,39 @@ public class WorkbenchProjectRepository {
           ps.setString(1, objectType);
           ps.setObject(2, objectId);
         },
-        (rs, rowNum) -> new AttachmentLinkDto(
-            rs.getObject("id", UUID.class),
-            rs.getString("object_type"),
-            rs.getObject("object_id", UUID.class),
-            rs.getObject("file_id", UUID.class),
-            rs.getString("title"),
-            rs.getTimestamp("created_at").toInstant(),
-            rs.getString("filename"),
-            rs.getString("content_type"),
-            rs.getLong("size_bytes")
-        )
+        ATTACHMENT_MAPPER
+    );
+  }
+
+  public record ObjectRef(String objectType, UUID objectId) {
+  }
+
+  /**
+   * Attachments of all {@code objects} in one query, newest first, at most {@code limit} rows.
+   */
+  public List<AttachmentLinkDto> listAttachmentsForObjects(Collection<ObjectRef> objects, int limit) {
+    if (objects.isEmpty()) {
+      return List.of();
+    }
+    String[] types = objects.stream().map(ObjectRef::objectType).toArray(String[]::new);
+    UUID[] ids = objects.stream().map(ObjectRef::objectId).toArray(UUID[]::new);
+    return jdbc.query(
+        """
+        select al.id, al.object_type, al.object_id, al.file_id, al.title, al.created_at,
+               fs.filename, fs.content_type, fs.size_bytes
+          from attachment_link al
+          join file_store fs on fs.id = al.file_id
+          join unnest(?::text[], ?::uuid[]) as ref(object_type, object_id)
+            on ref.object_type = al.object_type and ref.object_id = al.object_id
+         order by al.created_at desc
+         limit ?
+        """,
+        ps -> {
+          ps.setArray(1, ps.getConnection().createArrayOf("text", types));
+          ps.setArray(2, ps.getConnection().createArrayOf("uuid", ids));
+          ps.setInt(3, limit);
+        },
+        ATTACHMENT_MAPPER
     );
   }
 
@@ -884,15 +981,23 @@ public class WorkbenchProjectRepository {
          order by created_at desc
         """,
         ps -> ps.setObject(1, caseId),
-        (rs, rowNum) -> new CaseProcedureDto(
-            rs.getObject("id", UUID.class),
-            rs.getString("name"),
-            rs.getString("doc_no"),
-            rs.getString("org"),
-            rs.getDate("decided_at") == null ? null : rs.getDate("decided_at").toLocalDate(),
-            rs.getTimestamp("created_at").toInstant(),
-            rs.getTimestamp("updated_at").toInstant()
-        )
+        PROCEDURE_MAPPER
+    );
+  }
+
+  /**
+   * Batch form of {@link #listProcedures}, keyed by case.
+   */
+  public Map<UUID, List<CaseProcedureDto>> listProceduresByCaseIds(Collection<UUID> caseIds) {
+    return queryGroupedByParent(
+        """
+        select case_id as parent_id, id, name, doc_no, org, decided_at, created_at, updated_at
+          from case_procedure
+         where case_id = any(?)
+         order by created_at desc
+        """,
+        caseIds,
+        PROCEDURE_MAPPER
     );
   }
 
@@ -959,21 +1064,24 @@ public class WorkbenchProjectRepository {
          order by created_at desc
         """,
         ps -> ps.setObject(1, caseId),
-        (rs, rowNum) -> new CaseMeasureDto(
-            rs.getObject("id", UUID.class),
-            rs.getString("name"),
-            rs.getString("target"),
-            rs.getString("basis_org"),
-            rs.getString("basis_doc_no"),
-            rs.getString("basis_doc_name"),
-            rs.getString("content"),
-            rs.getString("result"),
-            rs.getString("rank_no"),
-            rs.getDate("due_at") == null ? null : rs.getDate("due_at").toLocalDate(),
-            rs.getString("note"),
-            rs.getTimestamp("created_at").toInstant(),
-            rs.getTimestamp("updated_at").toInstant()
-        )
+        MEASURE_MAPPER
+    );
+  }
+
+  /**
+   * Batch form of {@link #listControlMeasures}, keyed by case.
+   */
+  public Map<UUID, List<CaseMeasureDto>> listControlMeasuresByCaseIds(Collection<UUID> caseIds) {
+    return queryGroupedByParent(
+        """
+        select case_id as parent_id, id, name, target, basis_org, basis_doc_no, basis_doc_name,
+               content, result, rank_no, due_at, note, created_at, updated_at
+          from case_measure_control
+         where case_id = any(?)
+         order by created_at desc
+        """,
+        caseIds,
+        MEASURE_MAPPER
     );
   }
 
@@ -1055,21 +1163,24 @@ public class WorkbenchProjectRepository {
          order by created_at desc
         """,
         ps -> ps.setObject(1, caseId),
-        (rs, rowNum) -> new CaseMeasureDto(
-            rs.getObject("id", UUID.class),
-            rs.getString("name"),
-            rs.getString("target"),
-            rs.getString("basis_org"),
-            rs.getString("basis_doc_no"),
-            rs.getString("basis_doc_name"),
-            rs.getString("content"),
-            rs.getString("result"),
-            rs.getString("rank_no"),
-            rs.getDate("due_at") == null ? null : rs.getDate("due_at").toLocalDate(),
-            rs.getString("note"),
-            rs.getTimestamp("created_at").toInstant(),
-            rs.getTimestamp("updated_at").toInstant()
-        )
+        MEASURE_MAPPER
+    );
+  }
+
+  /**
+   * Batch form of {@link #listSanctionMeasures}, keyed by case.
+   */
+  public Map<UUID, List<CaseMeasureDto>> listSanctionMeasuresByCaseIds(Collection<UUID> caseIds) {
+    return queryGroupedByParent(
+        """
+        select case_id as parent_id, id, name, target, basis_org, basis_doc_no, basis_doc_name,
+               content, result, null::varchar as rank_no, due_at, note, created_at, updated_at
+          from case_measure_sanction
+         where case_id = any(?)
+         order by created_at desc
+        """,
+        caseIds,
+        MEASURE_MAPPER
     );
   }
 
@@ -1148,16 +1259,23 @@ public class WorkbenchProjectRepository {
          order by occurred_at desc nulls last, created_at desc
         """,
         ps -> ps.setObject(1, caseId),
-        (rs, rowNum) -> new CaseCostDto(
-            rs.getObject("id", UUID.class),
-            rs.getString("category"),
-            rs.getBigDecimal("amount"),
-            rs.getDate("occurred_at") == null ? null : rs.getDate("occurred_at").toLocalDate(),
-            rs.getString("payer"),
-            rs.getString("note"),
-            rs.getTimestamp("created_at").toInstant(),
-            rs.getTimestamp("updated_at").toInstant()
-        )
+        COST_MAPPER
+    );
+  }
+
+  /**
+   * Batch form of {@link #listCosts}, keyed by case.
+   */
+  public Map<UUID, List<CaseCostDto>> listCostsByCaseIds(Collection<UUID> caseIds) {
+    return queryGroupedByParent(
+        """
+        select case_id as parent_id, id, category, amount, occurred_at, payer, note, created_at, updated_at
+          from case_cost
+         where case_id = any(?)
+         order by occurred_at desc nulls last, created_at desc
+        """,
+        caseIds,
+        COST_MAPPER
     );
   }
 
@@ -1216,5 +1334,24 @@ public class WorkbenchProjectRepository {
   public void deleteCost(UUID costId) {
     jdbc.update("delete from case_cost where id=?", costId);
   }
-}
 
+  /**
+   * Run {@code sql} (one {@code = any(?)} uuid[] parameter, a {@code parent_id} column) and group the
+   * rows by parent, keeping the query's order within each parent.
+   */
+  private <T> Map<UUID, List<T>> queryGroupedByParent(String sql, Collection<UUID> parentIds, RowMapper<T> mapper) {
+    if (parentIds.isEmpty()) {
+      return Map.of();
+    }
+    UUID[] ids = parentIds.toArray(UUID[]::new);
+    Map<UUID, List<T>> out = new HashMap<>();
+    jdbc.query(
+        sql,
+        ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)),
+        (RowCallbackHandler) rs -> out
+            .computeIfAbsent(rs.getObject("parent_id", UUID.class), k -> new ArrayList<>())
+            .add(mapper.mapRow(rs, rs.getRow()))
+    );
+    return out;
+  }
+}
@@ -0,0 +1,150 @@
+-- V18: RLS policies evaluated once per statement (not once per row)
+--
+-- The V1/V3 policies call app_is_admin()/app_group_ids()/app_user_id() directly in the
+-- USING clause. Being STABLE (not IMMUTABLE) they are re-evaluated for every candidate row,
+-- so app_group_ids() re-parses the app.group_ids CSV into uuid[] per row, and the
+-- membership / temp_grant EXISTS clauses run as correlated subplans per row.
+--
+-- Rewrite rules (semantics unchanged):
+--   * wrap helper calls in a scalar sub-select -> planner hoists them into an InitPlan
+--     (evaluated once per statement, result reused for every row)
+--   * correlated EXISTS(member/temp_grant) -> uncorrelated "id IN (SELECT ...)"
+--     (planned as a hashed SubPlan: built once, O(1) probe per row)
+--   * client customer binding -> scalar customer_id lookup (InitPlan) instead of per-row join
+
+-- ---------- helper functions ----------
+CREATE OR REPLACE FUNCTION app_can_write_group(gid uuid)
+RETURNS boolean LANGUAGE sql STABLE AS $$
+  SELECT (SELECT app_is_admin()) OR gid = ANY((SELECT app_group_ids()));
+$$;
+
+-- customer_id of the current session user when it is a client account, else NULL
+CREATE OR REPLACE FUNCTION app_client_customer_id()
+RETURNS uuid LANGUAGE sql STABLE AS $$
+  SELECT u.customer_id
+  FROM app_user u
+  WHERE u.id = app_user_id()
+    AND u.user_type = 'client';
+$$;
+
+-- ---------- project ----------
+DROP POLICY IF EXISTS project_select_policy ON project;
+CREATE POLICY project_select_policy ON project
+FOR SELECT USING (
+  (SELECT app_is_admin())
+  OR group_id = ANY((SELECT app_group_ids()))
+  OR id IN (SELECT pm.project_id FROM project_member pm WHERE pm.user_id = (SELECT app_user_id()))
+  OR id IN (SELECT tg.object_id FROM temp_grant tg
+            WHERE tg.user_id = (SELECT app_user_id())
+              AND tg.object_type = 'project'
+              AND tg.expires_at > now())
+  OR customer_id = (SELECT app_client_customer_id())
+);
+
+DROP POLICY IF EXISTS project_update_policy ON project;
+CREATE POLICY project_update_policy ON project
+FOR UPDATE USING (
+  (SELECT app_is_admin())
+  OR group_id = ANY((SELECT app_group_ids()))
+  OR id IN (SELECT pm.project_id FROM project_member pm WHERE pm.user_id = (SELECT app_user_id()))
+  OR id IN (SELECT tg.object_id FROM temp_grant tg
+            WHERE tg.user_id = (SELECT app_user_id())
+              AND tg.object_type = 'project'
+              AND tg.expires_at > now())
+)
+WITH CHECK (app_can_write_group(group_id));
+
+-- ---------- case ----------
+DROP POLICY IF EXISTS case_select_policy ON "case";
+CREATE POLICY case_select_policy ON "case"
+FOR SELECT USING (
+  (SELECT app_is_admin())
+  OR group_id = ANY((SELECT app_group_ids()))
+  OR id IN (SELECT cm.case_id FROM case_member cm WHERE cm.user_id = (SELECT app_user_id()))
+  OR id IN (SELECT tg.object_id FROM temp_grant tg
+            WHERE tg.user_id = (SELECT app_user_id())
+              AND tg.object_type = 'case'
+              AND tg.expires_at > now())
+  OR project_id IN (SELECT p.id FROM project p WHERE p.customer_id = (SELECT app_client_customer_id()))
+);
+
+DROP POLICY IF EXISTS case_update_policy ON "case";
+CREATE POLICY case_update_policy ON "case"
+FOR UPDATE USING (
+  (SELECT app_is_admin())
+  OR group_id = ANY((SELECT app_group_ids()))
+  OR id IN (SELECT tg.object_id FROM temp_grant tg
+            WHERE tg.user_id = (SELECT app_user_id())
+              AND tg.object_type = 'case'
+              AND tg.expires_at > now()
+              AND (tg.permission_set->>'can_edit') = 'true')
+)
+WITH CHECK (app_can_write_group(group_id));
+
+-- ---------- task ----------
+DROP POLICY IF EXISTS task_select_policy ON task;
+CREATE POLICY task_select_policy ON task
+FOR SELECT USING (
+  (SELECT app_is_admin())
+  OR group_id = ANY((SELECT app_group_ids()))
+  OR assignee_user_id = (SELECT app_user_id())
+  OR case_id IN (SELECT cm.case_id FROM case_member cm WHERE cm.user_id = (SELECT app_user_id()))
+  OR id IN (SELECT tg.object_id FROM temp_grant tg
+            WHERE tg.user_id = (SELECT app_user_id())
+              AND tg.object_type = 'task'
+              AND tg.expires_at > now())
+);
+
+DROP POLICY IF EXISTS task_update_policy ON task;
+CREATE POLICY task_update_policy ON task
+FOR UPDATE USING (
+  (SELECT app_is_admin())
+  OR group_id = ANY((SELECT app_group_ids()))
+  OR assignee_user_id = (SELECT app_user_id())
+  OR id IN (SELECT tg.object_id FROM temp_grant tg
+            WHERE tg.user_id = (SELECT app_user_id())
+              AND tg.object_type = 'task'
+              AND tg.expires_at > now()
+              AND (tg.permission_set->>'can_edit') = 'true')
+)
+WITH CHECK (app_can_write_group(group_id));
+
+-- ---------- payment ----------
+DROP POLICY IF EXISTS payment_select_policy ON payment;
+CREATE POLICY payment_select_policy ON payment
+FOR SELECT USING (
+  (SELECT app_is_admin())
+  OR group_id = ANY((SELECT app_group_ids()))
+  OR case_id IN (SELECT cm.case_id FROM case_member cm WHERE cm.user_id = (SELECT app_user_id()))
+  OR id IN (SELECT tg.object_id FROM temp_grant tg
+            WHERE tg.user_id = (SELECT app_user_id())
+              AND tg.object_type = 'payment'
+              AND tg.expires_at > now())
+  OR project_id IN (SELECT p.id FROM project p WHERE p.customer_id = (SELECT app_client_customer_id()))
+);
+
+DROP POLICY IF EXISTS payment_update_policy ON payment;
+CREATE POLICY payment_update_policy ON payment
+FOR UPDATE USING (
+  (SELECT app_is_admin())
+  OR group_id = ANY((SELECT app_group_ids()))
+  OR id IN (SELECT tg.object_id FROM temp_grant tg
+            WHERE tg.user_id = (SELECT app_user_id())
+              AND tg.object_type = 'payment'
+              AND tg.expires_at > now()
+              AND (tg.permission_set->>'can_edit') = 'true')
+)
+WITH CHECK (app_can_write_group(group_id));
+
+-- ---------- file_store ----------
+DROP POLICY IF EXISTS file_select_policy ON file_store;
+CREATE POLICY file_select_policy ON file_store
+FOR SELECT USING (
+  (SELECT app_is_admin())
+  OR group_id = ANY((SELECT app_group_ids()))
+  OR created_by = (SELECT app_user_id())
+  OR id IN (SELECT tg.object_id FROM temp_grant tg
+            WHERE tg.user_id = (SELECT app_user_id())
+              AND tg.object_type = 'file'
+              AND tg.expires_at > now())
+);
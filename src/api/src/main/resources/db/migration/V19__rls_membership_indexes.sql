@@ -0,0 +1,106 @@
+-- V19: index-driven RLS membership + per-statement accessible-id sets
+--
+-- V18 turned membership checks into "id IN (SELECT ... WHERE user_id = ?)" lookups; the
+-- member PKs lead with project_id/case_id, so those lookups still scanned the whole table.
+--
+-- The accessible-id sets are STABLE SQL functions: inlined into the policy as an uncorrelated
+-- "id IN (SELECT ...)" (hashed SubPlan, built once per statement from the covering indexes below),
+-- and read with the statement's snapshot like any other RLS subquery, so a membership revoked or a
+-- grant expired by another committed transaction is not visible to the next statement. There is
+-- deliberately no per-transaction cache of the sets.
+--
+-- task and payment policies use the same helpers; their membership clause covers case_member
+-- only (no case temp_grant), as before.
+
+-- ---------- covering indexes (user_id leading, index-only scans) ----------
+CREATE INDEX IF NOT EXISTS idx_project_member_user ON project_member(user_id, project_id);
+CREATE INDEX IF NOT EXISTS idx_case_member_user ON case_member(user_id, case_id);
+
+-- temp_grant: equality on (user_id, object_type), range on expires_at, object_id/permission_set carried
+CREATE INDEX IF NOT EXISTS idx_temp_grant_user_type_expires
+  ON temp_grant(user_id, object_type, expires_at)
+  INCLUDE (object_id, permission_set);
+
+CREATE INDEX IF NOT EXISTS idx_project_customer ON project(customer_id);
+CREATE INDEX IF NOT EXISTS idx_file_created_by ON file_store(created_by);
+
+-- ---------- per-statement sets ----------
+CREATE OR REPLACE FUNCTION app_member_case_ids()
+RETURNS SETOF uuid LANGUAGE sql STABLE AS $$
+  SELECT cm.case_id FROM case_member cm WHERE cm.user_id = (SELECT app_user_id());
+$$;
+
+CREATE OR REPLACE FUNCTION app_accessible_project_ids()
+RETURNS SETOF uuid LANGUAGE sql STABLE AS $$
+  SELECT pm.project_id FROM project_member pm WHERE pm.user_id = (SELECT app_user_id())
+  UNION ALL
+  SELECT tg.object_id FROM temp_grant tg
+  WHERE tg.user_id = (SELECT app_user_id())
+    AND tg.object_type = 'project'
+    AND tg.expires_at > now();
+$$;
+
+CREATE OR REPLACE FUNCTION app_accessible_case_ids()
+RETURNS SETOF uuid LANGUAGE sql STABLE AS $$
+  SELECT cm.case_id FROM case_member cm WHERE cm.user_id = (SELECT app_user_id())
+  UNION ALL
+  SELECT tg.object_id FROM temp_grant tg
+  WHERE tg.user_id = (SELECT app_user_id())
+    AND tg.object_type = 'case'
+    AND tg.expires_at > now();
+$$;
+
+-- ---------- project / case ----------
+DROP POLICY IF EXISTS project_select_policy ON project;
+CREATE POLICY project_select_policy ON project
+FOR SELECT USING (
+  (SELECT app_is_admin())
+  OR group_id = ANY((SELECT app_group_ids()))
+  OR id IN (SELECT a.id FROM app_accessible_project_ids() AS a(id))
+  OR customer_id = (SELECT app_client_customer_id())
+);
+
+DROP POLICY IF EXISTS project_update_policy ON project;
+CREATE POLICY project_update_policy ON project
+FOR UPDATE USING (
+  (SELECT app_is_admin())
+  OR group_id = ANY((SELECT app_group_ids()))
+  OR id IN (SELECT a.id FROM app_accessible_project_ids() AS a(id))
+)
+WITH CHECK (app_can_write_group(group_id));
+
+DROP POLICY IF EXISTS case_select_policy ON "case";
+CREATE POLICY case_select_policy ON "case"
+FOR SELECT USING (
+  (SELECT app_is_admin())
+  OR group_id = ANY((SELECT app_group_ids()))
+  OR id IN (SELECT a.id FROM app_accessible_case_ids() AS a(id))
+  OR project_id IN (SELECT p.id FROM project p WHERE p.customer_id = (SELECT app_client_customer_id()))
+);
+
+-- ---------- task / payment ----------
+DROP POLICY IF EXISTS task_select_policy ON task;
+CREATE POLICY task_select_policy ON task
+FOR SELECT USING (
+  (SELECT app_is_admin())
+  OR group_id = ANY((SELECT app_group_ids()))
+  OR assignee_user_id = (SELECT app_user_id())
+  OR case_id IN (SELECT m.id FROM app_member_case_ids() AS m(id))
+  OR id IN (SELECT tg.object_id FROM temp_grant tg
+            WHERE tg.user_id = (SELECT app_user_id())
+              AND tg.object_type = 'task'
+              AND tg.expires_at > now())
+);
+
+DROP POLICY IF EXISTS payment_select_policy ON payment;
+CREATE POLICY payment_select_policy ON payment
+FOR SELECT USING (
+  (SELECT app_is_admin())
+  OR group_id = ANY((SELECT app_group_ids()))
+  OR case_id IN (SELECT m.id FROM app_member_case_ids() AS m(id))
+  OR id IN (SELECT tg.object_id FROM temp_grant tg
+            WHERE tg.user_id = (SELECT app_user_id())
+              AND tg.object_type = 'payment'
+              AND tg.expires_at > now())
+  OR project_id IN (SELECT p.id FROM project p WHERE p.customer_id = (SELECT app_client_customer_id()))
+);
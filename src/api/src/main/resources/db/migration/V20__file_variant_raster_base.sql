@@ -0,0 +1,23 @@
+-- V20: file_variant holds the shared, unwatermarked raster base of external previews
+--
+-- External previews used to be rasterized from the raw PDF once per viewer. The expensive
+-- rasterization is viewer-independent, so it is now stored once per file version and watermark
+-- version ('raster_base'); only the watermark composite is done per viewer (see preview_index).
+
+ALTER TABLE file_variant ADD COLUMN IF NOT EXISTS file_fingerprint varchar(128) NOT NULL DEFAULT '';
+ALTER TABLE file_variant ADD COLUMN IF NOT EXISTS wm_ver int NOT NULL DEFAULT 0;
+ALTER TABLE file_variant ADD COLUMN IF NOT EXISTS page_count int;
+
+ALTER TABLE file_variant DROP CONSTRAINT IF EXISTS file_variant_variant_check;
+ALTER TABLE file_variant
+  ADD CONSTRAINT file_variant_variant_check CHECK (variant IN ('internal','external','raster_base'));
+
+-- one row per (file, variant, file version, watermark version)
+ALTER TABLE file_variant DROP CONSTRAINT IF EXISTS file_variant_file_id_variant_key;
+DO $$
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uq_file_variant_version') THEN
+    ALTER TABLE file_variant
+      ADD CONSTRAINT uq_file_variant_version UNIQUE (file_id, variant, file_fingerprint, wm_ver);
+  END IF;
+END $$;
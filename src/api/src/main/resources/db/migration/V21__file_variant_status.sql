@@ -0,0 +1,25 @@
+-- V21: file_variant status rows for worker-side preview pre-rendering
+--
+-- File.Uploaded enqueues a 'pending' raster_base row; the worker claims it ('rendering'),
+-- validates and rasterizes the PDF, and finishes it as 'ready' (s3_key/page_count set) or
+-- 'failed' (error code, e.g. TOO_MANY_PAGES / INVALID_PDF). The API only serves 'ready' rows.
+
+ALTER TABLE file_variant ADD COLUMN IF NOT EXISTS status varchar(16) NOT NULL DEFAULT 'ready';
+ALTER TABLE file_variant ADD COLUMN IF NOT EXISTS error varchar(64);
+ALTER TABLE file_variant ADD COLUMN IF NOT EXISTS attempts int NOT NULL DEFAULT 0;
+ALTER TABLE file_variant ADD COLUMN IF NOT EXISTS updated_at timestamptz NOT NULL DEFAULT now();
+
+-- pending/failed rows have no object yet
+ALTER TABLE file_variant ALTER COLUMN s3_key DROP NOT NULL;
+
+DO $$
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'ck_file_variant_status') THEN
+    ALTER TABLE file_variant
+      ADD CONSTRAINT ck_file_variant_status CHECK (status IN ('pending','rendering','ready','failed'));
+  END IF;
+END $$;
+
+CREATE INDEX IF NOT EXISTS idx_file_variant_work
+  ON file_variant(created_at)
+  WHERE status IN ('pending','rendering');
@@ -0,0 +1,52 @@
+-- V22: preview render jobs (api -> worker)
+--
+-- With secp.preview.queue.enabled the api does not rasterize in its own JVM: it inserts a job,
+-- the worker renders it and uploads the result to output_key, and the api waits (bounded) for
+-- status 'done'. Jobs nobody waits for any more (deadline_at passed) are dropped as 'failed'
+-- (EXPIRED) instead of being rendered.
+
+CREATE TABLE IF NOT EXISTS preview_render_job (
+  id uuid PRIMARY KEY DEFAULT gen_random_uuid(),
+  file_id uuid NOT NULL REFERENCES file_store(id) ON DELETE CASCADE,
+  viewer_user_id uuid NOT NULL REFERENCES app_user(id) ON DELETE CASCADE,
+  variant varchar(16) NOT NULL CHECK (variant IN ('internal','client','external')),
+  file_fingerprint varchar(128) NOT NULL,
+  wm_ver int NOT NULL,
+  raw_key varchar(512) NOT NULL,
+  output_key varchar(512) NOT NULL,
+  -- watermark text and style, max pages
+  params jsonb NOT NULL DEFAULT '{}'::jsonb,
+  status varchar(16) NOT NULL DEFAULT 'queued' CHECK (status IN ('queued','running','done','failed')),
+  error varchar(64),
+  size_bytes bigint,
+  created_at timestamptz NOT NULL DEFAULT now(),
+  deadline_at timestamptz NOT NULL,
+  started_at timestamptz,
+  finished_at timestamptz
+);
+
+CREATE INDEX IF NOT EXISTS idx_preview_render_job_queued
+  ON preview_render_job(created_at)
+  WHERE status = 'queued';
+CREATE INDEX IF NOT EXISTS idx_preview_render_job_finished ON preview_render_job(finished_at);
+
+ALTER TABLE preview_render_job ENABLE ROW LEVEL SECURITY;
+
+-- the viewer submits and polls its own jobs; the worker runs as admin
+DROP POLICY IF EXISTS preview_render_job_select_policy ON preview_render_job;
+CREATE POLICY preview_render_job_select_policy ON preview_render_job
+FOR SELECT USING (
+  (SELECT app_is_admin()) OR viewer_user_id = (SELECT app_user_id())
+);
+
+DROP POLICY IF EXISTS preview_render_job_insert_policy ON preview_render_job;
+CREATE POLICY preview_render_job_insert_policy ON preview_render_job
+FOR INSERT WITH CHECK (
+  ((SELECT app_is_admin()) OR viewer_user_id = (SELECT app_user_id()))
+  AND EXISTS (SELECT 1 FROM file_store fs WHERE fs.id = preview_render_job.file_id)
+);
+
+DROP POLICY IF EXISTS preview_render_job_update_policy ON preview_render_job;
+CREATE POLICY preview_render_job_update_policy ON preview_render_job
+FOR UPDATE USING ((SELECT app_is_admin()))
+WITH CHECK ((SELECT app_is_admin()));
@@ -0,0 +1,23 @@
+-- V23: garbage collection of expired preview state
+--
+-- The worker (admin session) deletes expired file_preview_token / preview_index rows and
+-- finished preview_render_job rows in batches, then removes the preview objects no live
+-- preview_index row still points at. The viewer may evict its own index row when the object
+-- turned out to be gone (deleted by GC while being re-rendered), so the next view re-renders.
+
+CREATE INDEX IF NOT EXISTS idx_preview_token_expires ON file_preview_token(expires_at);
+CREATE INDEX IF NOT EXISTS idx_preview_index_s3_key ON preview_index(s3_key);
+
+DROP POLICY IF EXISTS preview_token_delete_policy ON file_preview_token;
+CREATE POLICY preview_token_delete_policy ON file_preview_token
+FOR DELETE USING (app_is_admin());
+
+DROP POLICY IF EXISTS preview_index_delete_policy ON preview_index;
+CREATE POLICY preview_index_delete_policy ON preview_index
+FOR DELETE USING (
+  app_is_admin() OR viewer_user_id = app_user_id()
+);
+
+DROP POLICY IF EXISTS preview_render_job_delete_policy ON preview_render_job;
+CREATE POLICY preview_render_job_delete_policy ON preview_render_job
+FOR DELETE USING ((SELECT app_is_admin()));
@@ -0,0 +1,51 @@
+-- V24: A4 export PDF cache
+--
+-- One row per (object, viewer, data version, layout version). data_version is a digest of the
+-- rows the export reads (as seen by the viewer under RLS), so a changed project/case simply misses
+-- and renders a new object; stale rows expire and are collected by the worker like preview_index.
+
+CREATE TABLE IF NOT EXISTS a4_export_index (
+  id uuid PRIMARY KEY DEFAULT gen_random_uuid(),
+  object_type varchar(16) NOT NULL CHECK (object_type IN ('project','case')),
+  object_id uuid NOT NULL,
+  viewer_user_id uuid NOT NULL REFERENCES app_user(id) ON DELETE CASCADE,
+  data_version varchar(64) NOT NULL,
+  layout_version varchar(64) NOT NULL,
+  s3_key varchar(512) NOT NULL,
+  size_bytes bigint NOT NULL DEFAULT 0,
+  created_at timestamptz NOT NULL DEFAULT now(),
+  expires_at timestamptz NOT NULL DEFAULT (now() + interval '7 days'),
+  UNIQUE (object_type, object_id, viewer_user_id, data_version, layout_version)
+);
+
+CREATE INDEX IF NOT EXISTS idx_a4_export_index_expires ON a4_export_index(expires_at);
+CREATE INDEX IF NOT EXISTS idx_a4_export_index_s3_key ON a4_export_index(s3_key);
+
+ALTER TABLE a4_export_index ENABLE ROW LEVEL SECURITY;
+
+DROP POLICY IF EXISTS a4_export_index_select_policy ON a4_export_index;
+CREATE POLICY a4_export_index_select_policy ON a4_export_index
+FOR SELECT USING (
+  (SELECT app_is_admin()) OR viewer_user_id = (SELECT app_user_id())
+);
+
+DROP POLICY IF EXISTS a4_export_index_insert_policy ON a4_export_index;
+CREATE POLICY a4_export_index_insert_policy ON a4_export_index
+FOR INSERT WITH CHECK (
+  (SELECT app_is_admin()) OR viewer_user_id = (SELECT app_user_id())
+);
+
+DROP POLICY IF EXISTS a4_export_index_update_policy ON a4_export_index;
+CREATE POLICY a4_export_index_update_policy ON a4_export_index
+FOR UPDATE USING (
+  (SELECT app_is_admin()) OR viewer_user_id = (SELECT app_user_id())
+)
+WITH CHECK (
+  (SELECT app_is_admin()) OR viewer_user_id = (SELECT app_user_id())
+);
+
+DROP POLICY IF EXISTS a4_export_index_delete_policy ON a4_export_index;
+CREATE POLICY a4_export_index_delete_policy ON a4_export_index
+FOR DELETE USING (
+  (SELECT app_is_admin()) OR viewer_user_id = (SELECT app_user_id())
+);
@@ -0,0 +1,95 @@
+-- V25: bulk A4 export jobs
+--
+-- A user submits a list of projects/cases (or a whole group); the api's bulk export runner renders
+-- each item as that user (same RLS, cache and audit as a single export), streams them into one zip
+-- in S3 and marks the job 'done'. The requester polls the job and downloads the zip until
+-- expires_at; the worker then deletes the job and its object.
+
+CREATE TABLE IF NOT EXISTS a4_bulk_export_job (
+  id uuid PRIMARY KEY DEFAULT gen_random_uuid(),
+  requester_user_id uuid NOT NULL REFERENCES app_user(id) ON DELETE CASCADE,
+  object_type varchar(16) NOT NULL CHECK (object_type IN ('project','case')),
+  status varchar(16) NOT NULL DEFAULT 'queued' CHECK (status IN ('queued','running','done','failed')),
+  error varchar(64),
+  item_count int NOT NULL,
+  done_count int NOT NULL DEFAULT 0,
+  failed_count int NOT NULL DEFAULT 0,
+  attempts int NOT NULL DEFAULT 0,
+  -- submitting request, carried into every item's audit row
+  request_id varchar(64),
+  s3_key varchar(512),
+  size_bytes bigint,
+  created_at timestamptz NOT NULL DEFAULT now(),
+  started_at timestamptz,
+  heartbeat_at timestamptz,
+  finished_at timestamptz,
+  expires_at timestamptz NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_a4_bulk_export_job_queued
+  ON a4_bulk_export_job(created_at)
+  WHERE status = 'queued';
+CREATE INDEX IF NOT EXISTS idx_a4_bulk_export_job_requester ON a4_bulk_export_job(requester_user_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_a4_bulk_export_job_expires ON a4_bulk_export_job(expires_at);
+
+CREATE TABLE IF NOT EXISTS a4_bulk_export_item (
+  job_id uuid NOT NULL REFERENCES a4_bulk_export_job(id) ON DELETE CASCADE,
+  seq int NOT NULL,
+  object_id uuid NOT NULL,
+  status varchar(16) NOT NULL DEFAULT 'queued' CHECK (status IN ('queued','done','failed')),
+  error varchar(64),
+  entry_name varchar(255),
+  PRIMARY KEY (job_id, seq)
+);
+
+ALTER TABLE a4_bulk_export_job ENABLE ROW LEVEL SECURITY;
+ALTER TABLE a4_bulk_export_item ENABLE ROW LEVEL SECURITY;
+
+-- the requester submits and polls its own jobs; the runner claims and updates them as admin
+DROP POLICY IF EXISTS a4_bulk_export_job_select_policy ON a4_bulk_export_job;
+CREATE POLICY a4_bulk_export_job_select_policy ON a4_bulk_export_job
+FOR SELECT USING (
+  (SELECT app_is_admin()) OR requester_user_id = (SELECT app_user_id())
+);
+
+DROP POLICY IF EXISTS a4_bulk_export_job_insert_policy ON a4_bulk_export_job;
+CREATE POLICY a4_bulk_export_job_insert_policy ON a4_bulk_export_job
+FOR INSERT WITH CHECK (
+  (SELECT app_is_admin()) OR requester_user_id = (SELECT app_user_id())
+);
+
+DROP POLICY IF EXISTS a4_bulk_export_job_update_policy ON a4_bulk_export_job;
+CREATE POLICY a4_bulk_export_job_update_policy ON a4_bulk_export_job
+FOR UPDATE USING ((SELECT app_is_admin()))
+WITH CHECK ((SELECT app_is_admin()));
+
+DROP POLICY IF EXISTS a4_bulk_export_job_delete_policy ON a4_bulk_export_job;
+CREATE POLICY a4_bulk_export_job_delete_policy ON a4_bulk_export_job
+FOR DELETE USING ((SELECT app_is_admin()));
+
+DROP POLICY IF EXISTS a4_bulk_export_item_select_policy ON a4_bulk_export_item;
+CREATE POLICY a4_bulk_export_item_select_policy ON a4_bulk_export_item
+FOR SELECT USING (
+  (SELECT app_is_admin())
+  OR EXISTS (
+    SELECT 1 FROM a4_bulk_export_job j
+     WHERE j.id = a4_bulk_export_item.job_id
+       AND j.requester_user_id = (SELECT app_user_id())
+  )
+);
+
+DROP POLICY IF EXISTS a4_bulk_export_item_insert_policy ON a4_bulk_export_item;
+CREATE POLICY a4_bulk_export_item_insert_policy ON a4_bulk_export_item
+FOR INSERT WITH CHECK (
+  (SELECT app_is_admin())
+  OR EXISTS (
+    SELECT 1 FROM a4_bulk_export_job j
+     WHERE j.id = a4_bulk_export_item.job_id
+       AND j.requester_user_id = (SELECT app_user_id())
+  )
+);
+
+DROP POLICY IF EXISTS a4_bulk_export_item_update_policy ON a4_bulk_export_item;
+CREATE POLICY a4_bulk_export_item_update_policy ON a4_bulk_export_item
+FOR UPDATE USING ((SELECT app_is_admin()))
+WITH CHECK ((SELECT app_is_admin()));
@@ -0,0 +1,49 @@
+-- V26: multipart uploads of raw files
+--
+-- upload-init presigns one PUT, which caps a file at what a single request can carry and restarts
+-- from zero when a flaky link drops. A multipart upload is tracked here from initiation until it
+-- is completed into a file_store row or aborted: the client PUTs parts (in parallel) to presigned
+-- URLs, lists what S3 already holds to resume, and completes. The worker aborts sessions past
+-- expires_at so their orphaned parts do not keep occupying the bucket.
+
+CREATE TABLE IF NOT EXISTS file_multipart_upload (
+  -- becomes file_store.id on completion
+  file_id uuid PRIMARY KEY,
+  upload_id varchar(1024) NOT NULL,
+  group_id uuid NOT NULL REFERENCES app_group(id),
+  project_id uuid REFERENCES project(id) ON DELETE CASCADE,
+  case_id uuid NOT NULL REFERENCES "case"(id) ON DELETE CASCADE,
+  filename varchar(256) NOT NULL,
+  content_type varchar(128) NOT NULL,
+  size_bytes bigint NOT NULL,
+  s3_key_raw varchar(512) NOT NULL,
+  part_size bigint NOT NULL,
+  part_count int NOT NULL,
+  created_by uuid NOT NULL REFERENCES app_user(id),
+  created_at timestamptz NOT NULL DEFAULT now(),
+  expires_at timestamptz NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_file_multipart_upload_expires ON file_multipart_upload(expires_at);
+CREATE INDEX IF NOT EXISTS idx_file_multipart_upload_created_by ON file_multipart_upload(created_by);
+
+ALTER TABLE file_multipart_upload ENABLE ROW LEVEL SECURITY;
+
+-- only the uploader drives its session; the worker sweeps expired ones as admin
+DROP POLICY IF EXISTS file_multipart_upload_select_policy ON file_multipart_upload;
+CREATE POLICY file_multipart_upload_select_policy ON file_multipart_upload
+FOR SELECT USING (
+  (SELECT app_is_admin()) OR created_by = (SELECT app_user_id())
+);
+
+DROP POLICY IF EXISTS file_multipart_upload_insert_policy ON file_multipart_upload;
+CREATE POLICY file_multipart_upload_insert_policy ON file_multipart_upload
+FOR INSERT WITH CHECK (
+  app_can_write_group(group_id) AND created_by = (SELECT app_user_id())
+);
+
+DROP POLICY IF EXISTS file_multipart_upload_delete_policy ON file_multipart_upload;
+CREATE POLICY file_multipart_upload_delete_policy ON file_multipart_upload
+FOR DELETE USING (
+  (SELECT app_is_admin()) OR created_by = (SELECT app_user_id())
+);
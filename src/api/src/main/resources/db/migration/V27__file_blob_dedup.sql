@@ -0,0 +1,66 @@
+-- V27: content-addressed raw file storage
+--
+-- upload-complete now hashes the uploaded object itself (a client-supplied sha256 must match)
+-- and stores one physical object per content under blob/{sha256}. A file_store row links to
+-- its blob by blob_sha256; a second upload of the same bytes only adds a link, and its own
+-- uploaded object is deleted. ref_count is kept by the trigger below, so case/project cascades
+-- release their blobs too. The worker deletes blobs that stayed unreferenced for a while.
+--
+-- Rows from before this migration keep blob_sha256 null and their own raw object.
+
+CREATE TABLE IF NOT EXISTS file_blob (
+  sha256 varchar(64) PRIMARY KEY,
+  s3_key varchar(512) NOT NULL,
+  size_bytes bigint NOT NULL,
+  content_type varchar(128),
+  ref_count int NOT NULL DEFAULT 0,
+  created_at timestamptz NOT NULL DEFAULT now(),
+  updated_at timestamptz NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_file_blob_unreferenced
+  ON file_blob(updated_at)
+  WHERE ref_count = 0;
+
+ALTER TABLE file_store ADD COLUMN IF NOT EXISTS blob_sha256 varchar(64) REFERENCES file_blob(sha256);
+CREATE INDEX IF NOT EXISTS idx_file_blob_sha256 ON file_store(blob_sha256);
+
+CREATE OR REPLACE FUNCTION file_blob_ref_count()
+RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+  IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.blob_sha256 IS NOT NULL
+     AND (TG_OP = 'DELETE' OR NEW.blob_sha256 IS DISTINCT FROM OLD.blob_sha256) THEN
+    UPDATE file_blob SET ref_count = ref_count - 1, updated_at = now() WHERE sha256 = OLD.blob_sha256;
+  END IF;
+  IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.blob_sha256 IS NOT NULL
+     AND (TG_OP = 'INSERT' OR NEW.blob_sha256 IS DISTINCT FROM OLD.blob_sha256) THEN
+    UPDATE file_blob SET ref_count = ref_count + 1, updated_at = now() WHERE sha256 = NEW.blob_sha256;
+  END IF;
+  RETURN NULL;
+END $$;
+
+DROP TRIGGER IF EXISTS trg_file_blob_ref_count ON file_store;
+CREATE TRIGGER trg_file_blob_ref_count
+AFTER INSERT OR UPDATE OF blob_sha256 OR DELETE ON file_store
+FOR EACH ROW EXECUTE FUNCTION file_blob_ref_count();
+
+ALTER TABLE file_blob ENABLE ROW LEVEL SECURITY;
+
+-- A blob holds no tenant data by itself: access to its bytes goes through a file_store row and
+-- that row's policies. Any session may look a hash up and link to it (the trigger runs as the
+-- session that changes file_store); only the worker (admin) deletes.
+DROP POLICY IF EXISTS file_blob_select_policy ON file_blob;
+CREATE POLICY file_blob_select_policy ON file_blob
+FOR SELECT USING (true);
+
+DROP POLICY IF EXISTS file_blob_insert_policy ON file_blob;
+CREATE POLICY file_blob_insert_policy ON file_blob
+FOR INSERT WITH CHECK (true);
+
+DROP POLICY IF EXISTS file_blob_update_policy ON file_blob;
+CREATE POLICY file_blob_update_policy ON file_blob
+FOR UPDATE USING (true) WITH CHECK (true);
+
+DROP POLICY IF EXISTS file_blob_delete_policy ON file_blob;
+CREATE POLICY file_blob_delete_policy ON file_blob
+FOR DELETE USING ((SELECT app_is_admin()));
@@ -0,0 +1,7 @@
+-- V29: exponential backoff for raster_base pre-render retries
+--
+-- A transient failure (S3, OOM, ...) used to put the row straight back to 'pending', so the next
+-- poll (2s later) claimed it again and max-attempts was burned within seconds. The worker now
+-- sets next_attempt_at (base * 2^(attempts-1), capped) and only claims rows that are due.
+
+ALTER TABLE file_variant ADD COLUMN IF NOT EXISTS next_attempt_at timestamptz;
@@ -0,0 +1,8 @@
+-- V30: ETag served at a preview token's first use
+--
+-- A consumed token used to be reusable by any request carrying Range or If-None-Match, so
+-- "Range: bytes=0-" re-downloaded the whole preview without a new token or audit row. The first
+-- view now records the ETag it served; only a 304 revalidation or a partial If-Range read on
+-- that ETag may reuse the token, and a token with an issued ETag is never handed back.
+
+ALTER TABLE file_preview_token ADD COLUMN IF NOT EXISTS issued_etag varchar(64);
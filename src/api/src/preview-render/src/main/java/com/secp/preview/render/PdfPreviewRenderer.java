@@ -0,0 +1,417 @@
+package com.secp.preview.render;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.PDDocumentNameDictionary;
+import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Preview rendering shared by the api (renders inside a request) and the worker (render jobs and
+ * pre-rendering). Both read and write each other's raster bases and previews, which is why there
+ * is exactly one implementation of the DPI and page encoding.
+ */
+public final class PdfPreviewRenderer {
+
+  private PdfPreviewRenderer() {
+  }
+
+  // 170dpi (within 150-200)
+  private static final float EXTERNAL_DPI = 170f;
+
+  /**
+   * Shared, bounded pool for page rasterization. Each call additionally caps its own in-flight
+   * pages, so one large document cannot monopolize the pool.
+   */
+  private static final ForkJoinPool RENDER_POOL =
+      new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+  public static int defaultParallelism() {
+    return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * Rasterize {@code rawPdf} and write the watermarked image-only PDF to {@code out}.
+   * <p>
+   * Pages are rendered, watermarked and Flate-encoded on {@code parallelism} workers. PDFBox
+   * documents are not thread-safe, so every worker renders from its own {@link PDDocument} view of
+   * the file; encoded pages are appended to the output strictly in page order, holding at most
+   * {@code parallelism} pages in memory.
+   */
+  public static void renderExternalImageBasedPdf(File rawPdf,
+                                                 OutputStream out,
+                                                 String watermarkText,
+                                                 WatermarkStyle cfg,
+                                                 double densityMultiplier,
+                                                 int maxPages,
+                                                 int parallelism) {
+    rasterize(rawPdf, out, maxPages, parallelism, PdfPreviewRenderer::renderRawPage,
+        WatermarkOverlay.painter(watermarkText, cfg, densityMultiplier));
+  }
+
+  /**
+   * Rasterize {@code rawPdf} without any watermark: the viewer-independent base that
+   * {@link #watermarkRasterBasePdf} composites per viewer. Same DPI and encoding as the external
+   * preview, so a watermarked base is pixel-identical to a direct render.
+   *
+   * @return number of pages written
+   */
+  public static int renderRasterBasePdf(File rawPdf, OutputStream out, int maxPages, int parallelism) {
+    return rasterize(rawPdf, out, maxPages, parallelism, PdfPreviewRenderer::renderRawPage, img -> {
+    });
+  }
+
+  /**
+   * Watermark a base produced by {@link #renderRasterBasePdf}: each page image is inflated back to
+   * pixels, watermarked and re-encoded. No PDF content is interpreted, which is what makes this
+   * much cheaper than rasterizing the original again.
+   */
+  public static void watermarkRasterBasePdf(File basePdf,
+                                            OutputStream out,
+                                            String watermarkText,
+                                            WatermarkStyle cfg,
+                                            double densityMultiplier,
+                                            int maxPages,
+                                            int parallelism) {
+    rasterize(basePdf, out, maxPages, parallelism, PdfPreviewRenderer::decodeBasePage,
+        WatermarkOverlay.painter(watermarkText, cfg, densityMultiplier));
+  }
+
+  /**
+   * @return number of pages written
+   */
+  private static int rasterize(File srcPdf,
+                                OutputStream out,
+                                int maxPages,
+                                int parallelism,
+                                PageSource source,
+                                Consumer<BufferedImage> postProcess) {
+    List<PDDocument> opened = new ArrayList<>();
+    Deque<ForkJoinTask<EncodedPage>> inFlight = new ArrayDeque<>();
+    AtomicBoolean aborted = new AtomicBoolean();
+    try (PDDocument dst = new PDDocument(MemoryUsageSetting.setupTempFileOnly())) {
+      PDDocument first = openSource(srcPdf);
+      opened.add(first);
+      int pageCount = checkPageCount(first, maxPages);
+
+      int workers = Math.max(1, Math.min(parallelism, pageCount));
+      BlockingQueue<RenderView> views = new ArrayBlockingQueue<>(workers);
+      views.add(new RenderView(first, new PDFRenderer(first)));
+      for (int w = 1; w < workers; w++) {
+        PDDocument doc = openView(srcPdf, opened);
+        views.add(new RenderView(doc, new PDFRenderer(doc)));
+      }
+
+      // window == number of views, so a submitted task never blocks a pool thread waiting for one
+      int next = 0;
+      for (int i = 0; i < pageCount; i++) {
+        while (next < pageCount && inFlight.size() < workers) {
+          int pageIndex = next++;
+          inFlight.add(RENDER_POOL.submit(
+              () -> aborted.get() ? null : renderPage(views, pageIndex, source, postProcess)));
+        }
+        appendPage(dst, await(inFlight.poll()));
+      }
+
+      sanitize(dst);
+      dst.save(out);
+      return pageCount;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      // ForkJoinTask.cancel does not interrupt a running task, so a page still being rendered
+      // would read from a closed document. Stop the pages not yet started and wait out the rest.
+      aborted.set(true);
+      for (ForkJoinTask<EncodedPage> task : inFlight) {
+        task.quietlyJoin();
+      }
+      for (PDDocument doc : opened) {
+        try {
+          doc.close();
+        } catch (IOException ignored) {
+          // best-effort
+        }
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface PageSource {
+    BufferedImage load(RenderView view, int pageIndex) throws IOException;
+  }
+
+  private record RenderView(PDDocument doc, PDFRenderer renderer) {
+  }
+
+  private record EncodedPage(PDRectangle box, int width, int height, byte[] flateRgb) {
+  }
+
+  /**
+   * Open {@code pdf} for rendering; this parse is the validation, there is no separate pass.
+   *
+   * @throws PreviewRejectedException INVALID_PDF (unparseable or password protected)
+   */
+  private static PDDocument openSource(File pdf) {
+    try {
+      return PDDocument.load(pdf, MemoryUsageSetting.setupTempFileOnly());
+    } catch (IOException e) {
+      throw new PreviewRejectedException("INVALID_PDF");
+    }
+  }
+
+  /**
+   * @throws PreviewRejectedException INVALID_PDF / TOO_MANY_PAGES
+   */
+  private static int checkPageCount(PDDocument doc, int maxPages) {
+    int pageCount = doc.getNumberOfPages();
+    if (pageCount == 0) {
+      throw new PreviewRejectedException("INVALID_PDF");
+    }
+    if (pageCount > maxPages) {
+      throw new PreviewRejectedException("TOO_MANY_PAGES");
+    }
+    return pageCount;
+  }
+
+  private static PDDocument openView(File rawPdf, List<PDDocument> opened) throws IOException {
+    PDDocument doc = PDDocument.load(rawPdf, MemoryUsageSetting.setupTempFileOnly());
+    opened.add(doc);
+    return doc;
+  }
+
+  private static EncodedPage renderPage(BlockingQueue<RenderView> views,
+                                        int pageIndex,
+                                        PageSource source,
+                                        Consumer<BufferedImage> postProcess) throws Exception {
+    RenderView view = views.take();
+    PDRectangle box;
+    BufferedImage img;
+    try {
+      PDRectangle src = view.doc().getPage(pageIndex).getMediaBox();
+      box = new PDRectangle(src.getLowerLeftX(), src.getLowerLeftY(), src.getWidth(), src.getHeight());
+      img = source.load(view, pageIndex);
+    } finally {
+      views.put(view);
+    }
+    // watermark + encode need no PDFBox state, so the view is already free for the next page
+    postProcess.accept(img);
+    return new EncodedPage(box, img.getWidth(), img.getHeight(), flateEncodeRgb(img));
+  }
+
+  private static BufferedImage renderRawPage(RenderView view, int pageIndex) throws IOException {
+    return view.renderer().renderImageWithDPI(pageIndex, EXTERNAL_DPI, ImageType.RGB);
+  }
+
+  /**
+   * Base pages carry exactly one 8-bit DeviceRGB Flate image (see {@link #appendPage}); its samples
+   * are inflated straight into an int RGB raster. Anything else falls back to PDFBox decoding.
+   */
+  private static BufferedImage decodeBasePage(RenderView view, int pageIndex) throws IOException {
+    PDResources resources = view.doc().getPage(pageIndex).getResources();
+    PDImageXObject image = null;
+    for (COSName name : resources.getXObjectNames()) {
+      if (resources.getXObject(name) instanceof PDImageXObject candidate) {
+        image = candidate;
+        break;
+      }
+    }
+    if (image == null) {
+      throw new IOException("raster base page " + pageIndex + " has no image");
+    }
+
+    int w = image.getWidth();
+    int h = image.getHeight();
+    if (image.getBitsPerComponent() != 8 || !(image.getColorSpace() instanceof PDDeviceRGB)) {
+      BufferedImage decoded = image.getImage();
+      BufferedImage rgb = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+      Graphics2D g = rgb.createGraphics();
+      try {
+        g.drawImage(decoded, 0, 0, null);
+      } finally {
+        g.dispose();
+      }
+      return rgb;
+    }
+
+    BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+    int[] px = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    byte[] row = new byte[w * 3];
+    try (InputStream in = image.getCOSObject().createInputStream()) {
+      for (int y = 0, p = 0; y < h; y++) {
+        if (in.readNBytes(row, 0, row.length) != row.length) {
+          throw new IOException("raster base page " + pageIndex + " is truncated at row " + y);
+        }
+        for (int j = 0; j < row.length; j += 3) {
+          px[p++] = ((row[j] & 0xFF) << 16) | ((row[j + 1] & 0xFF) << 8) | (row[j + 2] & 0xFF);
+        }
+      }
+    }
+    return img;
+  }
+
+  private static void appendPage(PDDocument dst, EncodedPage ep) throws IOException {
+    PDPage page = new PDPage(ep.box());
+    dst.addPage(page);
+
+    PDImageXObject pdImage = new PDImageXObject(
+        dst,
+        new ByteArrayInputStream(ep.flateRgb()),
+        COSName.FLATE_DECODE,
+        ep.width(),
+        ep.height(),
+        8,
+        PDDeviceRGB.INSTANCE
+    );
+    try (PDPageContentStream cs = new PDPageContentStream(dst, page, PDPageContentStream.AppendMode.OVERWRITE, false, true)) {
+      cs.drawImage(pdImage, 0, 0, ep.box().getWidth(), ep.box().getHeight());
+    }
+  }
+
+  /**
+   * Lossless 8-bit RGB samples, Flate-compressed (same encoding LosslessFactory produces for an
+   * opaque RGB image, minus the PNG predictor).
+   */
+  private static byte[] flateEncodeRgb(BufferedImage img) throws IOException {
+    int w = img.getWidth();
+    int h = img.getHeight();
+    int[] argb = new int[w];
+    byte[] row = new byte[w * 3];
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(w * h / 2);
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    try (DeflaterOutputStream zip = new DeflaterOutputStream(bytes, deflater, 64 * 1024)) {
+      for (int y = 0; y < h; y++) {
+        img.getRGB(0, y, w, 1, argb, 0, w);
+        for (int x = 0, j = 0; x < w; x++) {
+          int p = argb[x];
+          row[j++] = (byte) (p >> 16);
+          row[j++] = (byte) (p >> 8);
+          row[j++] = (byte) p;
+        }
+        zip.write(row);
+      }
+    } finally {
+      deflater.end();
+    }
+    return bytes.toByteArray();
+  }
+
+  private static EncodedPage await(Future<EncodedPage> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("preview render interrupted", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException re) {
+        throw re;
+      }
+      if (cause instanceof IOException io) {
+        throw io;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  public static void renderInternalLikeWatermarkedPdf(File rawPdf,
+                                                      OutputStream out,
+                                                      String watermarkText,
+                                                      WatermarkStyle cfg,
+                                                      int maxPages) {
+    try (PDDocument doc = openSource(rawPdf)) {
+      checkPageCount(doc, maxPages);
+
+      for (PDPage page : doc.getPages()) {
+        PDRectangle box = page.getMediaBox();
+
+        PDExtendedGraphicsState gs = new PDExtendedGraphicsState();
+        gs.setNonStrokingAlphaConstant((float) cfg.opacity());
+
+        try (PDPageContentStream cs = new PDPageContentStream(doc, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+          cs.setGraphicsStateParameters(gs);
+          cs.beginText();
+          cs.setFont(PDType1Font.HELVETICA, cfg.fontSize());
+          cs.setNonStrokingColor(150);
+
+          // Diagonal single watermark across the page (light)
+          AffineTransform at = new AffineTransform();
+          at.translate(box.getWidth() * 0.15, box.getHeight() * 0.25);
+          at.rotate(Math.toRadians(cfg.angle()));
+          cs.setTextMatrix(at);
+          cs.showText(watermarkText);
+          cs.endText();
+        }
+      }
+
+      sanitize(doc);
+      doc.save(out);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void sanitize(PDDocument doc) {
+    doc.setDocumentInformation(new PDDocumentInformation());
+
+    PDDocumentCatalog catalog = doc.getDocumentCatalog();
+    if (catalog != null) {
+      catalog.setMetadata(null);
+
+      // Remove embedded files from Names dictionary
+      try {
+        PDDocumentNameDictionary names = new PDDocumentNameDictionary(catalog);
+        if (names.getEmbeddedFiles() != null) {
+          names.setEmbeddedFiles(null);
+          catalog.setNames(names);
+        }
+      } catch (Exception ignored) {
+        // best-effort
+      }
+
+      // Remove AF (associated files) if present
+      try {
+        COSDictionary cos = catalog.getCOSObject();
+        cos.removeItem(COSName.AF);
+      } catch (Exception ignored) {
+        // best-effort
+      }
+    }
+  }
+}
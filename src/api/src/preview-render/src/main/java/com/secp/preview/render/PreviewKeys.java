@@ -0,0 +1,65 @@
+package com.secp.preview.render;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * File fingerprints and raster base object keys, derived here only so the api and the worker
+ * always agree on which object a file's raster base lives at: either side may produce it.
+ */
+public final class PreviewKeys {
+
+  /**
+   * Fingerprint prefix of files stored as a content-addressed blob (see file_blob).
+   */
+  public static final String BLOB_FINGERPRINT_PREFIX = "blob:";
+
+  private static final int MAX_FINGERPRINT_LENGTH = 128;
+
+  private PreviewKeys() {
+  }
+
+  /**
+   * First of blob:sha256, sha256, etag, size:key. Files stored as a blob share their fingerprint
+   * (and so their raster base) with every other file of the same content.
+   */
+  public static String fileFingerprint(String blobSha256, String sha256, String etag, Long sizeBytes, String s3KeyRaw) {
+    if (blobSha256 != null) {
+      return BLOB_FINGERPRINT_PREFIX + blobSha256;
+    }
+    if (sha256 != null) {
+      return sha256;
+    }
+    if (etag != null) {
+      return etag;
+    }
+    String fp = sizeBytes + ":" + s3KeyRaw;
+    return fp.length() <= MAX_FINGERPRINT_LENGTH ? fp : fp.substring(0, MAX_FINGERPRINT_LENGTH);
+  }
+
+  public static boolean isBlobFingerprint(String fileFingerprint) {
+    return fileFingerprint.startsWith(BLOB_FINGERPRINT_PREFIX);
+  }
+
+  /**
+   * A blob fingerprint names the content, so its key is shared by every file of that content.
+   */
+  public static String rasterBaseKey(UUID fileId, String fileFingerprint, int wmVer) {
+    if (isBlobFingerprint(fileFingerprint)) {
+      return "preview/base/blob/" + fileFingerprint.substring(BLOB_FINGERPRINT_PREFIX.length()) + "/wm" + wmVer + ".pdf";
+    }
+    return "preview/base/" + fileId + "/" + sha256Hex(fileFingerprint).substring(0, 16) + "/wm" + wmVer + ".pdf";
+  }
+
+  private static String sha256Hex(String s) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(md.digest(s.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package com.secp.preview.render;
+
+/**
+ * Permanent render rejection (the same file will never render); the message is the error code
+ * stored on the variant/job row: INVALID_PDF, TOO_MANY_PAGES, FILE_TOO_LARGE.
+ */
+public class PreviewRejectedException extends RuntimeException {
+  public PreviewRejectedException(String reason) {
+    super(reason);
+  }
+}
@@ -0,0 +1,163 @@
+package com.secp.preview.render;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Full-screen diagonal watermark applied from a pre-composited overlay.
+ * <p>
+ * The watermark is black text drawn with SRC_OVER at a constant opacity, so its effect on any
+ * page is a per-pixel multiplication: {@code out = page * k}, where {@code k} is what the same
+ * drawing produces on a white canvas (overlapping runs compound exactly as with repeated draws).
+ * The rotated, antialiased text is therefore rendered once per page size into a grayscale canvas,
+ * and only the touched pixels (index + factor) are kept. Pages then just scale those pixels.
+ * <p>
+ * There is no cache across renders: the text carries the viewer and a timestamp, so an overlay
+ * is never needed again after its render, and a shared cache only held memory. Overlays are
+ * shared between the pages of one render ({@link Painter}) and dropped with it.
+ */
+final class WatermarkOverlay {
+
+  /** Distinct page sizes one render keeps overlays for; further sizes are built per page. */
+  private static final int MAX_SIZES_PER_RENDER = 4;
+
+  private final int[] indices;
+  private final byte[] factors;
+
+  private WatermarkOverlay(int[] indices, byte[] factors) {
+    this.indices = indices;
+    this.factors = factors;
+  }
+
+  static Painter painter(String text, WatermarkStyle cfg, double densityMultiplier) {
+    return new Painter(text, cfg, densityMultiplier);
+  }
+
+  /**
+   * Watermarks the pages of one render. Safe to call from the render workers concurrently.
+   */
+  static final class Painter implements Consumer<BufferedImage> {
+
+    private final String text;
+    private final WatermarkStyle cfg;
+    private final double density;
+    private final Map<Long, WatermarkOverlay> bySize = new ConcurrentHashMap<>();
+
+    private Painter(String text, WatermarkStyle cfg, double density) {
+      this.text = text;
+      this.cfg = cfg;
+      this.density = density;
+    }
+
+    @Override
+    public void accept(BufferedImage image) {
+      int w = image.getWidth();
+      int h = image.getHeight();
+      long size = ((long) w << 32) | h;
+      WatermarkOverlay overlay = bySize.get(size);
+      if (overlay == null) {
+        if (bySize.size() < MAX_SIZES_PER_RENDER) {
+          overlay = bySize.computeIfAbsent(size, s -> build(w, h));
+        } else {
+          overlay = build(w, h);
+        }
+      }
+      overlay.paint(image);
+    }
+
+    private WatermarkOverlay build(int w, int h) {
+      BufferedImage canvas = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+      Graphics2D g = canvas.createGraphics();
+      try {
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, w, h);
+        drawTiledText(g, w, h);
+      } finally {
+        g.dispose();
+      }
+      return WatermarkOverlay.of(canvas);
+    }
+
+    private void drawTiledText(Graphics2D g, int w, int h) {
+      g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+      g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, (float) cfg.opacity()));
+      g.setColor(new Color(0, 0, 0));
+
+      int base = Math.max(12, cfg.fontSize());
+      g.setFont(new Font("SansSerif", Font.BOLD, base));
+
+      double theta = Math.toRadians(cfg.angle());
+      g.rotate(theta, w / 2.0, h / 2.0);
+
+      FontMetrics fm = g.getFontMetrics();
+      int textW = fm.stringWidth(text);
+      int textH = fm.getHeight();
+      double d = Math.max(1.0, density);
+      int stepX = (int) Math.max(base * 2, textW + base * d);
+      int stepY = (int) Math.max(base * 2, textH + base * (d * 0.75));
+
+      for (int y = -h; y < h * 2; y += stepY) {
+        for (int x = -w; x < w * 2; x += stepX) {
+          g.drawString(text, x, y);
+        }
+      }
+    }
+  }
+
+  private void paint(BufferedImage image) {
+    if (image.getType() == BufferedImage.TYPE_INT_RGB
+        && image.getRaster().getDataBuffer() instanceof DataBufferInt db
+        && db.getNumBanks() == 1) {
+      int[] px = db.getData();
+      for (int i = 0; i < indices.length; i++) {
+        px[indices[i]] = scale(px[indices[i]], factors[i] & 0xFF);
+      }
+      return;
+    }
+    int w = image.getWidth();
+    for (int i = 0; i < indices.length; i++) {
+      int x = indices[i] % w;
+      int y = indices[i] / w;
+      image.setRGB(x, y, scale(image.getRGB(x, y), factors[i] & 0xFF));
+    }
+  }
+
+  private static int scale(int rgb, int k) {
+    int r = ((rgb >> 16) & 0xFF) * k / 255;
+    int g = ((rgb >> 8) & 0xFF) * k / 255;
+    int b = (rgb & 0xFF) * k / 255;
+    return (rgb & 0xFF000000) | (r << 16) | (g << 8) | b;
+  }
+
+  /**
+   * Keeps the pixels the watermark touched on a white {@code canvas}; black ink on white, so every
+   * channel carries the same multiplier.
+   */
+  private static WatermarkOverlay of(BufferedImage canvas) {
+    int[] px = ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
+    int n = 0;
+    for (int p : px) {
+      if ((p & 0xFF) != 0xFF) {
+        n++;
+      }
+    }
+    int[] indices = new int[n];
+    byte[] factors = new byte[n];
+    int j = 0;
+    for (int i = 0; i < px.length; i++) {
+      int k = px[i] & 0xFF;
+      if (k != 0xFF) {
+        indices[j] = i;
+        factors[j] = (byte) k;
+        j++;
+      }
+    }
+    return new WatermarkOverlay(indices, factors);
+  }
+}
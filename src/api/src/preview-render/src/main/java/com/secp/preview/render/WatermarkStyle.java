@@ -0,0 +1,12 @@
+package com.secp.preview.render;
+
+/**
+ * Watermark drawing parameters: the api's secp.preview.watermark.* values for one variant, which
+ * it also sends with every render job.
+ */
+public record WatermarkStyle(
+    double opacity,
+    int fontSize,
+    double angle
+) {
+}
@@ -0,0 +1,169 @@
+package com.secp.api.it;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secp.api.auth.AuthPrincipal;
+import com.secp.api.auth.JwtService;
+import com.secp.api.infra.RlsSessionJdbc;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "secp.pdf.bulk.poll-ms=100")
+class A4BulkExportIT extends IntegrationTestBase {
+
+  @Autowired TestRestTemplate rest;
+  @Autowired JdbcTemplate jdbc;
+  @Autowired PlatformTransactionManager txManager;
+  @Autowired JwtService jwtService;
+  @Autowired RlsSessionJdbc rlsSessionJdbc;
+  @Autowired ObjectMapper objectMapper;
+
+  @Test
+  void bulkExportZipsVisibleProjects_inOrder_andReportsTheRest() throws Exception {
+    UUID admin = UUID.randomUUID();
+    UUID user = UUID.randomUUID();
+    UUID other = UUID.randomUUID();
+    UUID group = UUID.randomUUID();
+    UUID otherGroup = UUID.randomUUID();
+    UUID p1 = UUID.randomUUID();
+    UUID p2 = UUID.randomUUID();
+    UUID hidden = UUID.randomUUID();
+    asAdmin(() -> {
+      jdbc.update("insert into app_group(id, name) values (?,?), (?,?)", group, "GB1", otherGroup, "GB2");
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          admin, "13950000001", "bulkadmin", "internal", true);
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          user, "13950000002", "bulkuser", "internal", false);
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          other, "13950000003", "bulkother", "internal", false);
+      jdbc.update("insert into user_group(user_id, group_id, role_code) values (?,?,?)", user, group, "member");
+      jdbc.update("insert into user_group(user_id, group_id, role_code) values (?,?,?)", other, otherGroup, "member");
+      for (UUID p : List.of(p1, p2)) {
+        jdbc.update("insert into project(id, group_id, name, status, created_by) values (?,?,?,?,?)",
+            p, group, "PB-" + p, "ACTIVE", admin);
+        jdbc.update("insert into project_member(project_id, user_id, member_role) values (?,?,?)", p, user, "owner");
+      }
+      jdbc.update("insert into project(id, group_id, name, status, created_by) values (?,?,?,?,?)",
+          hidden, otherGroup, "PB-hidden", "ACTIVE", admin);
+    });
+
+    HttpHeaders auth = bearer(jwtService.sign(new AuthPrincipal(user, false, "bulkuser", "internal")));
+    auth.setContentType(MediaType.APPLICATION_JSON);
+    ResponseEntity<String> submitted = rest.exchange("/exports/a4", HttpMethod.POST,
+        new HttpEntity<>(Map.of("objectType", "project", "ids", List.of(p2, hidden, p1)), auth), String.class);
+    assertEquals(202, submitted.getStatusCode().value(), submitted.getBody());
+    JsonNode job = objectMapper.readTree(submitted.getBody());
+    String jobId = job.get("jobId").asText();
+    assertEquals(3, job.get("itemCount").asInt());
+
+    ResponseEntity<String> early = rest.exchange("/exports/a4/" + jobId + "/download", HttpMethod.GET,
+        new HttpEntity<>(auth), String.class);
+    if (early.getStatusCode().value() != 200) {
+      assertEquals(409, early.getStatusCode().value());
+    }
+
+    JsonNode status = awaitFinished(jobId, auth);
+    assertEquals("done", status.get("status").asText(), status.toString());
+    assertEquals(2, status.get("doneCount").asInt());
+    assertEquals(1, status.get("failedCount").asInt());
+    assertEquals(hidden.toString(), status.get("failures").get(0).get("objectId").asText());
+    assertEquals("NOT_FOUND", status.get("failures").get(0).get("error").asText());
+
+    ResponseEntity<byte[]> zip = rest.exchange("/exports/a4/" + jobId + "/download", HttpMethod.GET,
+        new HttpEntity<>(auth), byte[].class);
+    assertEquals(200, zip.getStatusCode().value());
+    assertEquals("application/zip", zip.getHeaders().getContentType().toString());
+    List<String> names = new ArrayList<>();
+    try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip.getBody()))) {
+      ZipEntry e;
+      while ((e = in.getNextEntry()) != null) {
+        names.add(e.getName());
+        byte[] pdf = in.readAllBytes();
+        assertEquals("%PDF", new String(pdf, 0, 4, StandardCharsets.US_ASCII));
+      }
+    }
+    assertEquals(List.of("Project_" + p2 + ".pdf", "Project_" + p1 + ".pdf"), names, "submit order");
+
+    Integer audited = new TransactionTemplate(txManager).execute(s -> {
+      rlsSessionJdbc.applyRlsSession(UUID.randomUUID().toString(), true, "");
+      return jdbc.queryForObject(
+          "select count(1) from audit_log where action = 'project_a4_export' and summary->>'bulkJobId' = ?",
+          Integer.class, jobId);
+    });
+    assertEquals(2, audited, "every exported item is audited against the job");
+
+    HttpHeaders otherAuth = bearer(jwtService.sign(new AuthPrincipal(other, false, "bulkother", "internal")));
+    assertEquals(404, rest.exchange("/exports/a4/" + jobId, HttpMethod.GET,
+        new HttpEntity<>(otherAuth), String.class).getStatusCode().value());
+    assertEquals(404, rest.exchange("/exports/a4/" + jobId + "/download", HttpMethod.GET,
+        new HttpEntity<>(otherAuth), String.class).getStatusCode().value());
+  }
+
+  @Test
+  void submitNeedsExactlyOneOfIdsOrGroup() {
+    UUID user = UUID.randomUUID();
+    asAdmin(() -> jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+        user, "13950000004", "bulkbad", "internal", false));
+    HttpHeaders auth = bearer(jwtService.sign(new AuthPrincipal(user, false, "bulkbad", "internal")));
+    auth.setContentType(MediaType.APPLICATION_JSON);
+
+    assertEquals(400, rest.exchange("/exports/a4", HttpMethod.POST,
+        new HttpEntity<>(Map.of("objectType", "case"), auth), String.class).getStatusCode().value());
+    assertEquals(400, rest.exchange("/exports/a4", HttpMethod.POST,
+        new HttpEntity<>(Map.of("objectType", "case", "ids", List.of(UUID.randomUUID()), "groupId", UUID.randomUUID()), auth),
+        String.class).getStatusCode().value());
+    assertEquals(400, rest.exchange("/exports/a4", HttpMethod.POST,
+        new HttpEntity<>(Map.of("objectType", "task", "ids", List.of(UUID.randomUUID())), auth),
+        String.class).getStatusCode().value());
+  }
+
+  private JsonNode awaitFinished(String jobId, HttpHeaders auth) throws Exception {
+    long deadline = System.currentTimeMillis() + 60_000;
+    while (true) {
+      ResponseEntity<String> resp = rest.exchange("/exports/a4/" + jobId, HttpMethod.GET, new HttpEntity<>(auth), String.class);
+      assertEquals(200, resp.getStatusCode().value());
+      JsonNode status = objectMapper.readTree(resp.getBody());
+      String s = status.get("status").asText();
+      if ("done".equals(s) || "failed".equals(s)) {
+        return status;
+      }
+      assertTrue(System.currentTimeMillis() < deadline, "job did not finish: " + status);
+      Thread.sleep(200);
+    }
+  }
+
+  private void asAdmin(Runnable r) {
+    new TransactionTemplate(txManager).execute(s -> {
+      rlsSessionJdbc.applyRlsSession(UUID.randomUUID().toString(), true, "");
+      r.run();
+      return null;
+    });
+  }
+
+  private HttpHeaders bearer(String jwt) {
+    HttpHeaders h = new HttpHeaders();
+    h.setBearerAuth(jwt);
+    return h;
+  }
+}
@@ -0,0 +1,121 @@
+package com.secp.api.it;
+
+import com.secp.api.auth.AuthPrincipal;
+import com.secp.api.auth.JwtService;
+import com.secp.api.infra.RlsSessionJdbc;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class A4ExportCacheIT extends IntegrationTestBase {
+
+  @Autowired TestRestTemplate rest;
+  @Autowired JdbcTemplate jdbc;
+  @Autowired PlatformTransactionManager txManager;
+  @Autowired JwtService jwtService;
+  @Autowired RlsSessionJdbc rlsSessionJdbc;
+
+  @Test
+  void repeatExportIsServedFromCache_untilDataChanges_andEveryExportIsAudited() {
+    UUID admin = UUID.randomUUID();
+    UUID user = UUID.randomUUID();
+    UUID group = UUID.randomUUID();
+    UUID projectId = UUID.randomUUID();
+    UUID caseId = UUID.randomUUID();
+    seed(admin, user, group, projectId, caseId);
+
+    HttpHeaders auth = bearer(jwtService.sign(new AuthPrincipal(user, false, "a4user", "internal")));
+
+    byte[] first = get("/projects/" + projectId + "/a4.pdf", auth);
+    byte[] second = get("/projects/" + projectId + "/a4.pdf", auth);
+    assertEquals("%PDF", new String(first, 0, 4, StandardCharsets.US_ASCII));
+    assertArrayEquals(first, second, "second export is the cached object");
+    assertEquals(1, indexRows("project", projectId));
+
+    asAdmin(() -> jdbc.update("update project set name = ?, updated_at = now() where id = ?", "renamed", projectId));
+    get("/projects/" + projectId + "/a4.pdf", auth);
+    assertEquals(2, indexRows("project", projectId), "changed data renders a new version");
+
+    assertEquals(List.of("false", "true", "false"), cachedFlags("project_a4_export", projectId));
+
+    byte[] c1 = get("/cases/" + caseId + "/a4.pdf", auth);
+    byte[] c2 = get("/cases/" + caseId + "/a4.pdf", auth);
+    assertArrayEquals(c1, c2);
+    assertEquals(1, indexRows("case", caseId));
+    assertEquals(List.of("false", "true"), cachedFlags("case_a4_export", caseId));
+  }
+
+  private byte[] get(String path, HttpHeaders auth) {
+    ResponseEntity<byte[]> resp = rest.exchange(path, HttpMethod.GET, new HttpEntity<>(auth), byte[].class);
+    assertEquals(200, resp.getStatusCode().value());
+    assertNotNull(resp.getBody());
+    return resp.getBody();
+  }
+
+  private int indexRows(String objectType, UUID objectId) {
+    Integer n = new TransactionTemplate(txManager).execute(s -> {
+      rlsSessionJdbc.applyRlsSession(UUID.randomUUID().toString(), true, "");
+      return jdbc.queryForObject(
+          "select count(1) from a4_export_index where object_type = ? and object_id = ?",
+          Integer.class, objectType, objectId);
+    });
+    return n == null ? 0 : n;
+  }
+
+  private List<String> cachedFlags(String action, UUID objectId) {
+    return new TransactionTemplate(txManager).execute(s -> {
+      rlsSessionJdbc.applyRlsSession(UUID.randomUUID().toString(), true, "");
+      return jdbc.queryForList(
+          "select summary->>'cached' from audit_log where action = ? and object_id = ? order by created_at, id",
+          String.class, action, objectId);
+    });
+  }
+
+  private void asAdmin(Runnable r) {
+    new TransactionTemplate(txManager).execute(s -> {
+      rlsSessionJdbc.applyRlsSession(UUID.randomUUID().toString(), true, "");
+      r.run();
+      return null;
+    });
+  }
+
+  private void seed(UUID admin, UUID user, UUID group, UUID projectId, UUID caseId) {
+    asAdmin(() -> {
+      jdbc.update("insert into app_group(id, name) values (?,?)", group, "GA4");
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          admin, "13940000001", "a4admin", "internal", true);
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          user, "13940000002", "a4user", "internal", false);
+      jdbc.update("insert into user_group(user_id, group_id, role_code) values (?,?,?)", user, group, "member");
+      jdbc.update("insert into project(id, group_id, name, status, created_by) values (?,?,?,?,?)",
+          projectId, group, "PA4", "ACTIVE", admin);
+      jdbc.update("insert into project_member(project_id, user_id, member_role) values (?,?,?)",
+          projectId, user, "owner");
+      jdbc.update("insert into \"case\"(id, group_id, project_id, title, status, created_by) values (?,?,?,?,?,?)",
+          caseId, group, projectId, "CA4", "OPEN", admin);
+      jdbc.update("insert into case_member(case_id, user_id, member_role) values (?,?,?)",
+          caseId, user, "assignee");
+    });
+  }
+
+  private HttpHeaders bearer(String jwt) {
+    HttpHeaders h = new HttpHeaders();
+    h.setBearerAuth(jwt);
+    return h;
+  }
+}
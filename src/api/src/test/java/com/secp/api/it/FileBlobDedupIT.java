@@ -0,0 +1,209 @@
+package com.secp.api.it;
+
+import com.secp.api.auth.AuthPrincipal;
+import com.secp.api.auth.JwtService;
+import com.secp.api.infra.RlsSessionJdbc;
+import com.secp.api.infra.s3.S3Storage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class FileBlobDedupIT extends IntegrationTestBase {
+
+  @Autowired TestRestTemplate rest;
+  @Autowired JdbcTemplate jdbc;
+  @Autowired PlatformTransactionManager txManager;
+  @Autowired JwtService jwtService;
+  @Autowired RlsSessionJdbc rls;
+  @Autowired S3Storage s3;
+
+  @Test
+  void sameContentIsStoredOnceAndLinkedTwice() throws Exception {
+    UUID admin = UUID.randomUUID();
+    UUID group = UUID.randomUUID();
+    UUID project = UUID.randomUUID();
+    UUID case1 = UUID.randomUUID();
+    UUID case2 = UUID.randomUUID();
+    seed(admin, "13900008001", group, project, case1, case2);
+    HttpHeaders auth = json(bearer(jwtService.sign(new AuthPrincipal(admin, true, "dedup_admin", "internal"))));
+
+    byte[] data = ("same evidence bundle " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+    String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+
+    Map<String, Object> first = upload(auth, case1, "a.txt", data);
+    Map<String, Object> second = upload(auth, case2, "b.txt", data);
+    assertEquals(200, complete(auth, first, sha256).getStatusCode().value());
+    assertEquals(200, complete(auth, second, null).getStatusCode().value());
+
+    Map<String, Object> blob = asAdmin(admin, () -> jdbc.queryForMap(
+        "select s3_key, size_bytes, ref_count from file_blob where sha256=?", sha256));
+    assertEquals("blob/" + sha256, blob.get("s3_key"));
+    assertEquals((long) data.length, ((Number) blob.get("size_bytes")).longValue());
+    assertEquals(2, ((Number) blob.get("ref_count")).intValue());
+
+    List<Map<String, Object>> files = asAdmin(admin, () -> jdbc.queryForList(
+        "select status, sha256, blob_sha256, s3_key_raw from file_store where id in (?,?)",
+        first.get("fileId"), second.get("fileId")));
+    assertEquals(2, files.size());
+    for (Map<String, Object> f : files) {
+      assertEquals("READY", f.get("status"));
+      assertEquals(sha256, f.get("sha256"));
+      assertEquals(sha256, f.get("blob_sha256"));
+      assertEquals("blob/" + sha256, f.get("s3_key_raw"));
+    }
+
+    // one physical object; the uploaded copies are gone
+    assertEquals(sha256, s3.sha256("blob/" + sha256, null).sha256Hex());
+    assertThrows(NoSuchKeyException.class, () -> s3.head(String.valueOf(first.get("s3KeyRaw"))));
+    assertThrows(NoSuchKeyException.class, () -> s3.head(String.valueOf(second.get("s3KeyRaw"))));
+
+    // retried complete is idempotent once the uploaded copy is gone
+    assertEquals(200, complete(auth, second, null).getStatusCode().value());
+    assertEquals(2, asAdmin(admin, () -> jdbc.queryForObject(
+        "select ref_count from file_blob where sha256=?", Integer.class, sha256)));
+  }
+
+  @Test
+  void mismatchedSha256IsRefused() throws Exception {
+    UUID admin = UUID.randomUUID();
+    UUID group = UUID.randomUUID();
+    UUID project = UUID.randomUUID();
+    UUID caseId = UUID.randomUUID();
+    seed(admin, "13900008002", group, project, caseId, UUID.randomUUID());
+    HttpHeaders auth = json(bearer(jwtService.sign(new AuthPrincipal(admin, true, "dedup_admin2", "internal"))));
+
+    byte[] data = ("claimed content " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+    Map<String, Object> upload = upload(auth, caseId, "c.txt", data);
+
+    ResponseEntity<Map> resp = complete(auth, upload, "f".repeat(64));
+    assertEquals(422, resp.getStatusCode().value());
+    assertEquals("SHA256_MISMATCH", resp.getBody().get("code"));
+    assertEquals(0, asAdmin(admin, () -> jdbc.queryForObject(
+        "select count(1) from file_store where id=?", Integer.class, upload.get("fileId"))));
+  }
+
+  @Test
+  void onlyTheKeyIssuedForTheFileIsAccepted() throws Exception {
+    UUID admin = UUID.randomUUID();
+    UUID group = UUID.randomUUID();
+    UUID project = UUID.randomUUID();
+    UUID caseId = UUID.randomUUID();
+    seed(admin, "13900008003", group, project, caseId, UUID.randomUUID());
+    HttpHeaders auth = json(bearer(jwtService.sign(new AuthPrincipal(admin, true, "dedup_admin3", "internal"))));
+
+    byte[] data = ("linked evidence " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+    String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    assertEquals(200, complete(auth, upload(auth, caseId, "d.txt", data), null).getStatusCode().value());
+
+    Map<String, Object> other = upload(auth, caseId, "e.txt", data);
+    Map<String, Object> forged = upload(auth, caseId, "f.txt", data);
+    for (String key : List.of("blob/" + sha256, String.valueOf(other.get("s3KeyRaw")))) {
+      forged.put("s3KeyRaw", key);
+      assertEquals(400, complete(auth, forged, null).getStatusCode().value(), key);
+    }
+
+    // neither the shared blob nor another upload's object was touched
+    assertEquals(sha256, s3.sha256("blob/" + sha256, null).sha256Hex());
+    assertNotNull(s3.head(String.valueOf(other.get("s3KeyRaw"))));
+    assertEquals(0, asAdmin(admin, () -> jdbc.queryForObject(
+        "select count(1) from file_store where id=?", Integer.class, forged.get("fileId"))));
+  }
+
+  private Map<String, Object> upload(HttpHeaders auth, UUID caseId, String filename, byte[] data) throws Exception {
+    ResponseEntity<Map> init = rest.exchange("/files/upload-init", HttpMethod.POST, new HttpEntity<>(Map.of(
+        "caseId", caseId.toString(),
+        "filename", filename,
+        "contentType", "text/plain",
+        "sizeBytes", data.length
+    ), auth), Map.class);
+    assertEquals(200, init.getStatusCode().value(), String.valueOf(init.getBody()));
+    httpPut(String.valueOf(init.getBody().get("presignedPutUrl")), data);
+
+    Map<String, Object> req = new HashMap<>();
+    req.put("fileId", String.valueOf(init.getBody().get("fileId")));
+    req.put("caseId", caseId.toString());
+    req.put("filename", filename);
+    req.put("contentType", "text/plain");
+    req.put("sizeBytes", data.length);
+    req.put("s3KeyRaw", String.valueOf(init.getBody().get("s3KeyRaw")));
+    return req;
+  }
+
+  private ResponseEntity<Map> complete(HttpHeaders auth, Map<String, Object> upload, String sha256) {
+    Map<String, Object> req = new HashMap<>(upload);
+    if (sha256 != null) {
+      req.put("sha256", sha256);
+    }
+    return rest.exchange("/files/upload-complete", HttpMethod.POST, new HttpEntity<>(req, auth), Map.class);
+  }
+
+  private void seed(UUID admin, String phone, UUID group, UUID project, UUID case1, UUID case2) {
+    new TransactionTemplate(txManager).execute(status -> {
+      rls.applyRlsSession(admin.toString(), true, "");
+      jdbc.update("insert into app_group(id, name) values (?,?)", group, "G-DEDUP");
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          admin, phone, "dedup_" + phone, "internal", true);
+      jdbc.update("insert into project(id, group_id, name, status, created_by) values (?,?,?,?,?)",
+          project, group, "P-DEDUP", "ACTIVE", admin);
+      for (UUID caseId : List.of(case1, case2)) {
+        jdbc.update("insert into \"case\"(id, group_id, project_id, title, status, created_by) values (?,?,?,?,?,?)",
+            caseId, group, project, "C-DEDUP", "OPEN", admin);
+      }
+      return null;
+    });
+  }
+
+  private <T> T asAdmin(UUID admin, java.util.function.Supplier<T> read) {
+    return new TransactionTemplate(txManager).execute(status -> {
+      rls.applyRlsSession(admin.toString(), true, "");
+      return read.get();
+    });
+  }
+
+  private static void httpPut(String url, byte[] bytes) throws Exception {
+    HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+    conn.setRequestMethod("PUT");
+    conn.setDoOutput(true);
+    conn.setRequestProperty("Content-Type", "text/plain");
+    conn.setFixedLengthStreamingMode(bytes.length);
+    conn.getOutputStream().write(bytes);
+    int code = conn.getResponseCode();
+    if (code < 200 || code >= 300) {
+      byte[] err = conn.getErrorStream() == null ? new byte[0] : conn.getErrorStream().readAllBytes();
+      throw new IllegalStateException("PUT failed: " + code + " " + new String(err, StandardCharsets.UTF_8));
+    }
+    conn.disconnect();
+  }
+
+  private static HttpHeaders bearer(String token) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setBearerAuth(token);
+    return headers;
+  }
+
+  private static HttpHeaders json(HttpHeaders headers) {
+    HttpHeaders h = new HttpHeaders();
+    h.putAll(headers);
+    h.setContentType(MediaType.APPLICATION_JSON);
+    return h;
+  }
+}
@@ -0,0 +1,199 @@
+package com.secp.api.it;
+
+import com.secp.api.auth.AuthPrincipal;
+import com.secp.api.auth.JwtService;
+import com.secp.api.infra.RlsSessionJdbc;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class FileMultipartUploadIT extends IntegrationTestBase {
+
+  private static final int PART_SIZE = 8 * 1024 * 1024;
+
+  @Autowired TestRestTemplate rest;
+  @Autowired JdbcTemplate jdbc;
+  @Autowired PlatformTransactionManager txManager;
+  @Autowired JwtService jwtService;
+  @Autowired RlsSessionJdbc rls;
+
+  @Test
+  void partsUploadResumeAndComplete() throws Exception {
+    UUID admin = UUID.randomUUID();
+    UUID group = UUID.randomUUID();
+    UUID project = UUID.randomUUID();
+    UUID caseId = UUID.randomUUID();
+    seed(admin, "13900007001", group, project, caseId);
+    HttpHeaders auth = json(bearer(jwtService.sign(new AuthPrincipal(admin, true, "mp_admin", "internal"))));
+
+    byte[] data = new byte[PART_SIZE + 1000];
+    Arrays.fill(data, 0, PART_SIZE, (byte) 'a');
+    Arrays.fill(data, PART_SIZE, data.length, (byte) 'b');
+
+    ResponseEntity<Map> init = rest.exchange("/files/multipart-init", HttpMethod.POST, new HttpEntity<>(Map.of(
+        "caseId", caseId.toString(),
+        "filename", "bundle.zip",
+        "contentType", "application/zip",
+        "sizeBytes", data.length
+    ), auth), Map.class);
+    assertEquals(200, init.getStatusCode().value(), String.valueOf(init.getBody()));
+    UUID fileId = UUID.fromString(String.valueOf(init.getBody().get("fileId")));
+    assertEquals(PART_SIZE, ((Number) init.getBody().get("partSize")).intValue());
+    assertEquals(2, ((Number) init.getBody().get("partCount")).intValue());
+
+    ResponseEntity<Map> urls = rest.exchange("/files/multipart/" + fileId + "/part-urls", HttpMethod.POST,
+        new HttpEntity<>(Map.of("partNumbers", List.of(1, 2)), auth), Map.class);
+    assertEquals(200, urls.getStatusCode().value());
+    List<Map<String, Object>> parts = (List<Map<String, Object>>) urls.getBody().get("parts");
+    assertEquals(2, parts.size());
+
+    httpPut(String.valueOf(parts.get(0).get("url")), Arrays.copyOfRange(data, 0, PART_SIZE));
+
+    // resume: only part 1 is there, completing now is refused
+    ResponseEntity<Map> status = rest.exchange("/files/multipart/" + fileId, HttpMethod.GET, new HttpEntity<>(auth), Map.class);
+    assertEquals(200, status.getStatusCode().value());
+    List<Map<String, Object>> uploaded = (List<Map<String, Object>>) status.getBody().get("uploadedParts");
+    assertEquals(1, uploaded.size());
+    assertEquals(1, ((Number) uploaded.getFirst().get("partNumber")).intValue());
+    assertEquals(409, rest.exchange("/files/multipart/" + fileId + "/complete", HttpMethod.POST,
+        new HttpEntity<>(Map.of(), auth), Map.class).getStatusCode().value());
+
+    assertEquals(400, rest.exchange("/files/multipart/" + fileId + "/part-urls", HttpMethod.POST,
+        new HttpEntity<>(Map.of("partNumbers", List.of(3)), auth), Map.class).getStatusCode().value());
+
+    httpPut(String.valueOf(parts.get(1).get("url")), Arrays.copyOfRange(data, PART_SIZE, data.length));
+
+    // the stitched object is hashed: a wrong hash is refused, and completing again still works
+    assertEquals(422, rest.exchange("/files/multipart/" + fileId + "/complete", HttpMethod.POST,
+        new HttpEntity<>(Map.of("sha256", "0".repeat(64)), auth), Map.class).getStatusCode().value());
+    String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    ResponseEntity<Map> complete = rest.exchange("/files/multipart/" + fileId + "/complete", HttpMethod.POST,
+        new HttpEntity<>(Map.of("sha256", sha256), auth), Map.class);
+    assertEquals(200, complete.getStatusCode().value(), String.valueOf(complete.getBody()));
+    assertEquals(fileId.toString(), complete.getBody().get("fileId"));
+
+    // every column registerUpload writes, so a column/placeholder slip in that insert fails here
+    Map<String, Object> row = asAdmin(admin, () -> jdbc.queryForMap(
+        """
+        select group_id, project_id, case_id, filename, content_type, size_bytes, sha256,
+               s3_key_raw, blob_sha256, created_by, status, etag
+          from file_store where id=?
+        """, fileId));
+    assertEquals(group, row.get("group_id"));
+    assertEquals(project, row.get("project_id"));
+    assertEquals(caseId, row.get("case_id"));
+    assertEquals("bundle.zip", row.get("filename"));
+    assertEquals("application/zip", row.get("content_type"));
+    assertEquals((long) data.length, ((Number) row.get("size_bytes")).longValue());
+    assertEquals(sha256, row.get("sha256"));
+    assertEquals("blob/" + sha256, row.get("s3_key_raw"));
+    assertEquals(sha256, row.get("blob_sha256"));
+    assertEquals(admin, row.get("created_by"));
+    assertEquals("READY", row.get("status"));
+    assertNotNull(row.get("etag"));
+    assertEquals(0, asAdmin(admin, () -> jdbc.queryForObject(
+        "select count(1) from file_multipart_upload where file_id=?", Integer.class, fileId)));
+    assertEquals(1, asAdmin(admin, () -> jdbc.queryForObject(
+        "select count(1) from event_outbox where dedupe_key=?", Integer.class, "File.Uploaded:file:" + fileId + ":v1")));
+
+    // retried complete is idempotent
+    assertEquals(200, rest.exchange("/files/multipart/" + fileId + "/complete", HttpMethod.POST,
+        new HttpEntity<>(Map.of(), auth), Map.class).getStatusCode().value());
+  }
+
+  @Test
+  void abortedUploadIsGone() {
+    UUID admin = UUID.randomUUID();
+    UUID group = UUID.randomUUID();
+    UUID project = UUID.randomUUID();
+    UUID caseId = UUID.randomUUID();
+    seed(admin, "13900007002", group, project, caseId);
+    HttpHeaders auth = json(bearer(jwtService.sign(new AuthPrincipal(admin, true, "mp_admin2", "internal"))));
+
+    ResponseEntity<Map> init = rest.exchange("/files/multipart-init", HttpMethod.POST, new HttpEntity<>(Map.of(
+        "caseId", caseId.toString(),
+        "filename", "big.bin",
+        "contentType", "application/octet-stream",
+        "sizeBytes", 200L * 1024 * 1024 * 1024
+    ), auth), Map.class);
+    assertEquals(200, init.getStatusCode().value(), String.valueOf(init.getBody()));
+    UUID fileId = UUID.fromString(String.valueOf(init.getBody().get("fileId")));
+    long partSize = ((Number) init.getBody().get("partSize")).longValue();
+    int partCount = ((Number) init.getBody().get("partCount")).intValue();
+    assertTrue(partCount <= 10_000, "parts: " + partCount);
+    assertEquals(0, partSize % (1024 * 1024));
+
+    assertEquals(204, rest.exchange("/files/multipart/" + fileId, HttpMethod.DELETE, new HttpEntity<>(auth), Void.class)
+        .getStatusCode().value());
+    assertEquals(404, rest.exchange("/files/multipart/" + fileId, HttpMethod.GET, new HttpEntity<>(auth), Map.class)
+        .getStatusCode().value());
+    assertEquals(404, rest.exchange("/files/multipart/" + fileId + "/complete", HttpMethod.POST,
+        new HttpEntity<>(Map.of(), auth), Map.class).getStatusCode().value());
+  }
+
+  private void seed(UUID admin, String phone, UUID group, UUID project, UUID caseId) {
+    new TransactionTemplate(txManager).execute(status -> {
+      rls.applyRlsSession(admin.toString(), true, "");
+      jdbc.update("insert into app_group(id, name) values (?,?)", group, "G-MP");
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          admin, phone, "mp_" + phone, "internal", true);
+      jdbc.update("insert into project(id, group_id, name, status, created_by) values (?,?,?,?,?)",
+          project, group, "P-MP", "ACTIVE", admin);
+      jdbc.update("insert into \"case\"(id, group_id, project_id, title, status, created_by) values (?,?,?,?,?,?)",
+          caseId, group, project, "C-MP", "OPEN", admin);
+      return null;
+    });
+  }
+
+  private <T> T asAdmin(UUID admin, java.util.function.Supplier<T> read) {
+    return new TransactionTemplate(txManager).execute(status -> {
+      rls.applyRlsSession(admin.toString(), true, "");
+      return read.get();
+    });
+  }
+
+  private static void httpPut(String url, byte[] bytes) throws Exception {
+    HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+    conn.setRequestMethod("PUT");
+    conn.setDoOutput(true);
+    conn.setFixedLengthStreamingMode(bytes.length);
+    conn.getOutputStream().write(bytes);
+    int code = conn.getResponseCode();
+    if (code < 200 || code >= 300) {
+      byte[] err = conn.getErrorStream() == null ? new byte[0] : conn.getErrorStream().readAllBytes();
+      throw new IllegalStateException("PUT failed: " + code + " " + new String(err, StandardCharsets.UTF_8));
+    }
+    conn.disconnect();
+  }
+
+  private static HttpHeaders bearer(String token) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setBearerAuth(token);
+    return headers;
+  }
+
+  private static HttpHeaders json(HttpHeaders headers) {
+    HttpHeaders h = new HttpHeaders();
+    h.putAll(headers);
+    h.setContentType(MediaType.APPLICATION_JSON);
+    return h;
+  }
+}
@@ -308,6 +308,127 @@ class FilePreviewWatermarkIT extends IntegrationTestBase {
     });
   }
 
+  @Test
+  void testOnlyConditionalPartialRequestsReuseToken() throws Exception {
+    UUID internalAdmin = UUID.randomUUID();
+    UUID externalUser = UUID.randomUUID();
+    UUID group = UUID.randomUUID();
+    UUID project = UUID.randomUUID();
+    UUID caseId = UUID.randomUUID();
+
+    seed(internalAdmin, externalUser, group, project, caseId);
+
+    String internalToken = jwtService.sign(new AuthPrincipal(internalAdmin, true, "internal", "internal"));
+    String externalToken = jwtService.sign(new AuthPrincipal(externalUser, false, "external_u", "external"));
+    HttpHeaders internalHeaders = bearer(internalToken);
+    HttpHeaders externalHeaders = bearer(externalToken);
+
+    Upload uploaded = uploadRawPdf(internalHeaders, caseId, createPdfWithText("hello"), "doc.pdf");
+    grantView(internalAdmin, externalUser, uploaded.fileId);
+
+    String token = createPreviewToken(uploaded.fileId, externalHeaders);
+    ResponseEntity<byte[]> full = rest.exchange(
+        "/preview?token=" + token,
+        HttpMethod.GET,
+        new HttpEntity<>(externalHeaders),
+        byte[].class
+    );
+    assertEquals(200, full.getStatusCode().value());
+    assertEquals("bytes", full.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+    String etag = full.getHeaders().getETag();
+    assertNotNull(etag);
+    byte[] body = Objects.requireNonNull(full.getBody());
+    assertTrue(body.length > 100);
+
+    // ranged follow-up on the consumed token, served from the cached object
+    HttpHeaders ranged = bearer(externalToken);
+    ranged.set(HttpHeaders.RANGE, "bytes=10-99");
+    ranged.set(HttpHeaders.IF_RANGE, etag);
+    ResponseEntity<byte[]> part = rest.exchange(
+        "/preview?token=" + token,
+        HttpMethod.GET,
+        new HttpEntity<>(ranged),
+        byte[].class
+    );
+    assertEquals(206, part.getStatusCode().value());
+    assertEquals("bytes 10-99/" + body.length, part.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    assertEquals(etag, part.getHeaders().getETag());
+    assertArrayEquals(java.util.Arrays.copyOfRange(body, 10, 100), part.getBody());
+
+    // a consumed token never serves the whole entity again: stale If-Range, no If-Range, full range
+    HttpHeaders staleIfRange = bearer(externalToken);
+    staleIfRange.set(HttpHeaders.RANGE, "bytes=10-99");
+    staleIfRange.set(HttpHeaders.IF_RANGE, "\"stale\"");
+    HttpHeaders unconditional = bearer(externalToken);
+    unconditional.set(HttpHeaders.RANGE, "bytes=10-99");
+    HttpHeaders fullRange = bearer(externalToken);
+    fullRange.set(HttpHeaders.RANGE, "bytes=0-");
+    fullRange.set(HttpHeaders.IF_RANGE, etag);
+    for (HttpHeaders refused : java.util.List.of(staleIfRange, unconditional, fullRange)) {
+      ResponseEntity<byte[]> whole = rest.exchange(
+          "/preview?token=" + token,
+          HttpMethod.GET,
+          new HttpEntity<>(refused),
+          byte[].class
+      );
+      assertEquals(404, whole.getStatusCode().value(), String.valueOf(refused));
+    }
+
+    HttpHeaders unsatisfiable = bearer(externalToken);
+    unsatisfiable.set(HttpHeaders.RANGE, "bytes=" + body.length + "-");
+    unsatisfiable.set(HttpHeaders.IF_RANGE, etag);
+    ResponseEntity<byte[]> outside = rest.exchange(
+        "/preview?token=" + token,
+        HttpMethod.GET,
+        new HttpEntity<>(unsatisfiable),
+        byte[].class
+    );
+    assertEquals(416, outside.getStatusCode().value());
+    assertEquals("bytes */" + body.length, outside.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+
+    HttpHeaders revalidate = bearer(externalToken);
+    revalidate.setIfNoneMatch(etag);
+    ResponseEntity<byte[]> notModified = rest.exchange(
+        "/preview?token=" + token,
+        HttpMethod.GET,
+        new HttpEntity<>(revalidate),
+        byte[].class
+    );
+    assertEquals(304, notModified.getStatusCode().value());
+
+    HttpHeaders wildcard = bearer(externalToken);
+    wildcard.setIfNoneMatch("*");
+    ResponseEntity<byte[]> notIssued = rest.exchange(
+        "/preview?token=" + token,
+        HttpMethod.GET,
+        new HttpEntity<>(wildcard),
+        byte[].class
+    );
+    assertEquals(404, notIssued.getStatusCode().value());
+
+    // a plain GET still needs an unused token
+    ResponseEntity<byte[]> replay = rest.exchange(
+        "/preview?token=" + token,
+        HttpMethod.GET,
+        new HttpEntity<>(externalHeaders),
+        byte[].class
+    );
+    assertEquals(404, replay.getStatusCode().value());
+
+    TransactionTemplate tx = new TransactionTemplate(txManager);
+    tx.execute(status -> {
+      rls.applyRlsSession(internalAdmin.toString(), true, "");
+      Integer views = jdbc.queryForObject(
+          "select count(1) from audit_log where actor_user_id=? and action='preview_view' and object_id=?",
+          Integer.class,
+          externalUser,
+          uploaded.fileId
+      );
+      assertEquals(1, views);
+      return null;
+    });
+  }
+
   @Test
   void testUploadCompleteIsIdempotentNoDuplicateAuditOutbox() throws Exception {
     UUID internalAdmin = UUID.randomUUID();
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -26,6 +27,7 @@ import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(QueryStatsRecorder.class)
 class MeAndReportIT extends IntegrationTestBase {
 
   @Autowired TestRestTemplate rest;
@@ -33,9 +35,10 @@ class MeAndReportIT extends IntegrationTestBase {
   @Autowired PlatformTransactionManager txManager;
   @Autowired JwtService jwtService;
   @Autowired RlsSessionJdbc rlsSessionJdbc;
+  @Autowired QueryStatsRecorder queryStats;
 
   @Test
-  void meProjects_meTasks_andZoneDashboardReport_okAndRlsScoped() {
+  void meProjects_meTasks_andZoneDashboardReport_okAndRlsScoped() throws Exception {
     UUID internalAdmin = UUID.randomUUID();
     UUID internalA = UUID.randomUUID();
 
@@ -99,6 +102,13 @@ class MeAndReportIT extends IntegrationTestBase {
     assertTrue(meProjects.getBody().stream().anyMatch(r -> projectA.toString().equals(String.valueOf(r.get("projectId")))));
     assertTrue(meProjects.getBody().stream().noneMatch(r -> projectB.toString().equals(String.valueOf(r.get("projectId")))));
 
+    // N+1 guard: 3 RLS set_config + the list query (group ids come from the Redis cache by now)
+    queryStats.clear();
+    assertEquals(200, rest.exchange("/me/projects", HttpMethod.GET, new HttpEntity<>(json(headersA)), String.class)
+        .getStatusCode().value());
+    assertEquals(4, queryStats.awaitCount("GET", "/me/projects"));
+    assertNull(meProjects.getHeaders().getFirst("X-Db-Query-Count"), "db stats headers are off by default");
+
     // /me/tasks should include the issued task
     ResponseEntity<List<Map<String, Object>>> meTasks = rest.exchange(
         "/me/tasks",
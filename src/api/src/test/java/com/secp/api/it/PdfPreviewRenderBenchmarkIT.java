@@ -0,0 +1,132 @@
+package com.secp.api.it;
+
+import com.secp.preview.render.PdfPreviewRenderer;
+import com.secp.preview.render.WatermarkStyle;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Sequential vs parallel external-preview rasterization over a synthetic sample PDF. Asserts that
+ * the parallel path yields the same pages in the same order (each sample page has a distinct width),
+ * and that watermarking a shared raster base yields the same pages as rasterizing the original.
+ */
+class PdfPreviewRenderBenchmarkIT {
+
+  private static final int PAGES = 24;
+
+  private static final WatermarkStyle EXTERNAL = new WatermarkStyle(0.18, 22, -35);
+
+  @TempDir Path tmp;
+
+  @Test
+  void parallelRasterizationMatchesSequential() throws Exception {
+    File sample = tmp.resolve("sample.pdf").toFile();
+    writeSamplePdf(sample);
+
+    int parallel = Math.max(2, PdfPreviewRenderer.defaultParallelism());
+
+    byte[] sequential = render(sample, 1);
+    byte[] concurrent = render(sample, parallel);
+
+    assertSamePages(sequential);
+    assertSamePages(concurrent);
+    assertSamePixels(sequential, concurrent);
+  }
+
+  @Test
+  void watermarkingSharedBaseMatchesDirectRender() throws Exception {
+    File sample = tmp.resolve("sample.pdf").toFile();
+    writeSamplePdf(sample);
+    String text = "EXTERNAL | bench | 0000 | 2024-01-01 00:00:00";
+
+    File base = tmp.resolve("base.pdf").toFile();
+    try (var out = new FileOutputStream(base)) {
+      assertEquals(PAGES, PdfPreviewRenderer.renderRasterBasePdf(sample, out, 80, 1));
+    }
+
+    byte[] direct = render(sample, 1);
+    byte[] fromBase = composite(base, text);
+
+    assertSamePages(fromBase);
+    assertSamePixels(direct, fromBase);
+  }
+
+  private static byte[] composite(File base, String text) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PdfPreviewRenderer.watermarkRasterBasePdf(base, out, text, EXTERNAL, 1.0, 80, 1);
+    return out.toByteArray();
+  }
+
+  private static byte[] render(File sample, int parallelism) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PdfPreviewRenderer.renderExternalImageBasedPdf(
+        sample, out, "EXTERNAL | bench | 0000 | 2024-01-01 00:00:00", EXTERNAL, 1.0, 80, parallelism);
+    return out.toByteArray();
+  }
+
+  private static void assertSamePages(byte[] pdf) throws Exception {
+    try (PDDocument doc = PDDocument.load(new ByteArrayInputStream(pdf))) {
+      assertEquals(PAGES, doc.getNumberOfPages());
+      for (int i = 0; i < PAGES; i++) {
+        assertEquals(pageWidth(i), doc.getPage(i).getMediaBox().getWidth(), 0.01);
+      }
+    }
+  }
+
+  /** Every 7th page, sampled on a 13px grid. */
+  private static void assertSamePixels(byte[] expected, byte[] actual) throws Exception {
+    try (PDDocument a = PDDocument.load(new ByteArrayInputStream(expected));
+         PDDocument b = PDDocument.load(new ByteArrayInputStream(actual))) {
+      for (int i = 0; i < PAGES; i += 7) {
+        BufferedImage ia = new PDFRenderer(a).renderImage(i);
+        BufferedImage ib = new PDFRenderer(b).renderImage(i);
+        assertEquals(ia.getWidth(), ib.getWidth());
+        for (int y = 0; y < ia.getHeight(); y += 13) {
+          for (int x = 0; x < ia.getWidth(); x += 13) {
+            assertEquals(ia.getRGB(x, y), ib.getRGB(x, y), "page " + i + " pixel " + x + "," + y);
+          }
+        }
+      }
+    }
+  }
+
+  private static float pageWidth(int i) {
+    return PDRectangle.A4.getWidth() + i;
+  }
+
+  private static void writeSamplePdf(File target) throws Exception {
+    try (PDDocument doc = new PDDocument()) {
+      for (int i = 0; i < PAGES; i++) {
+        PDPage page = new PDPage(new PDRectangle(pageWidth(i), PDRectangle.A4.getHeight()));
+        doc.addPage(page);
+        try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+          cs.beginText();
+          cs.setFont(PDType1Font.HELVETICA, 10);
+          cs.newLineAtOffset(40, 800);
+          cs.setLeading(12);
+          for (int line = 0; line < 60; line++) {
+            cs.showText("page " + (i + 1) + " line " + line + " lorem ipsum dolor sit amet, consectetur adipiscing");
+            cs.newLine();
+          }
+          cs.endText();
+        }
+      }
+      doc.save(target);
+    }
+  }
+}
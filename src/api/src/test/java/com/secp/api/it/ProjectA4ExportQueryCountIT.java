@@ -0,0 +1,148 @@
+package com.secp.api.it;
+
+import com.secp.api.auth.AuthPrincipal;
+import com.secp.api.auth.JwtService;
+import com.secp.api.infra.RlsSessionJdbc;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The project A4 export reads every child table once for all parents, so its statement count must
+ * not depend on how many cases, debtors or attachments the project has. The export cache is off so
+ * both exports render.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "secp.pdf.cache.enabled=false")
+@Import(QueryStatsRecorder.class)
+class ProjectA4ExportQueryCountIT extends IntegrationTestBase {
+
+  private static final int N = 5;
+
+  @Autowired TestRestTemplate rest;
+  @Autowired JdbcTemplate jdbc;
+  @Autowired PlatformTransactionManager txManager;
+  @Autowired JwtService jwtService;
+  @Autowired RlsSessionJdbc rlsSessionJdbc;
+  @Autowired QueryStatsRecorder queryStats;
+
+  @Test
+  void exportStatementCountDoesNotGrowWithProjectSize() throws Exception {
+    UUID admin = UUID.randomUUID();
+    UUID user = UUID.randomUUID();
+    UUID group = UUID.randomUUID();
+    UUID small = UUID.randomUUID();
+    UUID large = UUID.randomUUID();
+    seedUsers(admin, user, group);
+    // every child table has rows in both projects, so neither export skips an empty batch read
+    seedProject(admin, user, group, small, "S", 1);
+    seedProject(admin, user, group, large, "L", N);
+
+    HttpHeaders auth = bearer(jwtService.sign(new AuthPrincipal(user, false, "a4quser", "internal")));
+    int smallCount = exportStatements(small, auth);
+    int largeCount = exportStatements(large, auth);
+
+    assertEquals(smallCount, largeCount, "1 case: " + smallCount + ", " + N + " cases: " + largeCount);
+  }
+
+  private int exportStatements(UUID projectId, HttpHeaders auth) throws InterruptedException {
+    String path = "/projects/" + projectId + "/a4.pdf";
+    queryStats.clear();
+    ResponseEntity<byte[]> resp = rest.exchange(path, HttpMethod.GET, new HttpEntity<>(auth), byte[].class);
+    assertEquals(200, resp.getStatusCode().value());
+    assertNotNull(resp.getBody());
+    assertEquals("%PDF", new String(Arrays.copyOf(resp.getBody(), 4), StandardCharsets.US_ASCII));
+    return queryStats.awaitCount("GET", path);
+  }
+
+  private void seedUsers(UUID admin, UUID user, UUID group) {
+    asAdmin(() -> {
+      jdbc.update("insert into app_group(id, name) values (?,?)", group, "GA4Q");
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          admin, "13970000001", "a4qadmin", "internal", true);
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          user, "13970000002", "a4quser", "internal", false);
+      jdbc.update("insert into user_group(user_id, group_id, role_code) values (?,?,?)", user, group, "member");
+    });
+  }
+
+  /**
+   * {@code n} creditors, debtors (one clue each) and cases (one procedure, control, sanction and cost
+   * each), plus one attachment per case and debtor.
+   */
+  private void seedProject(UUID admin, UUID user, UUID group, UUID projectId, String name, int n) {
+    String tag = name + projectId.toString().substring(0, 6);
+    asAdmin(() -> {
+      jdbc.update("insert into project(id, group_id, name, status, created_by) values (?,?,?,?,?)",
+          projectId, group, "P-A4Q-" + name, "ACTIVE", admin);
+      jdbc.update("insert into project_member(project_id, user_id, member_role) values (?,?,?)",
+          projectId, user, "owner");
+      for (int i = 1; i <= n; i++) {
+        jdbc.update("insert into project_creditor(group_id, project_id, sr_code, name, created_by) values (?,?,?,?,?)",
+            group, projectId, "SR" + tag + i, "creditor" + i, admin);
+
+        UUID debtor = UUID.randomUUID();
+        jdbc.update("insert into project_debtor(id, group_id, project_id, br_code, name, created_by) values (?,?,?,?,?,?)",
+            debtor, group, projectId, "BR" + tag + i, "debtor" + i, admin);
+        jdbc.update("insert into debtor_clue(group_id, debtor_id, xs_code, category, detail, created_by) values (?,?,?,?,?,?)",
+            group, debtor, "XS" + tag + i, "bank", "account " + i, admin);
+
+        UUID caseId = UUID.randomUUID();
+        jdbc.update("insert into \"case\"(id, group_id, project_id, title, status, created_by) values (?,?,?,?,?,?)",
+            caseId, group, projectId, "C-A4Q-" + name + i, "OPEN", admin);
+        jdbc.update("insert into case_procedure(group_id, case_id, name, created_by) values (?,?,?,?)",
+            group, caseId, "procedure" + i, admin);
+        jdbc.update("insert into case_measure_control(group_id, case_id, name, created_by) values (?,?,?,?)",
+            group, caseId, "control" + i, admin);
+        jdbc.update("insert into case_measure_sanction(group_id, case_id, name, created_by) values (?,?,?,?)",
+            group, caseId, "sanction" + i, admin);
+        jdbc.update("insert into case_cost(group_id, case_id, category, amount, created_by) values (?,?,?,?,?)",
+            group, caseId, "fee", new BigDecimal("10.00"), admin);
+
+        attach(admin, group, projectId, caseId, "case", caseId, "case file " + i);
+        attach(admin, group, projectId, caseId, "project_debtor", debtor, "debtor file " + i);
+      }
+    });
+  }
+
+  private void attach(UUID admin, UUID group, UUID projectId, UUID caseId, String objectType, UUID objectId,
+                      String title) {
+    UUID fileId = UUID.randomUUID();
+    jdbc.update("insert into file_store(id, group_id, project_id, case_id, filename, content_type, size_bytes, "
+            + "s3_key_raw, status, created_by) values (?,?,?,?,?,?,?,?,?,?)",
+        fileId, group, projectId, caseId, title + ".pdf", "application/pdf", 1024L, "raw/" + fileId, "READY", admin);
+    jdbc.update("insert into attachment_link(group_id, object_type, object_id, file_id, title, created_by) "
+            + "values (?,?,?,?,?,?)",
+        group, objectType, objectId, fileId, title, admin);
+  }
+
+  private void asAdmin(Runnable r) {
+    new TransactionTemplate(txManager).execute(s -> {
+      rlsSessionJdbc.applyRlsSession(UUID.randomUUID().toString(), true, "");
+      r.run();
+      return null;
+    });
+  }
+
+  private HttpHeaders bearer(String jwt) {
+    HttpHeaders h = new HttpHeaders();
+    h.setBearerAuth(jwt);
+    return h;
+  }
+}
@@ -0,0 +1,205 @@
+package com.secp.api.it;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secp.api.auth.AuthPrincipal;
+import com.secp.api.auth.JwtService;
+import com.secp.api.infra.RlsSessionJdbc;
+import com.secp.api.project.ProjectDetailRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(QueryStatsRecorder.class)
+class ProjectDetailIT extends IntegrationTestBase {
+
+  @Autowired TestRestTemplate rest;
+  @Autowired JdbcTemplate jdbc;
+  @Autowired PlatformTransactionManager txManager;
+  @Autowired JwtService jwtService;
+  @Autowired RlsSessionJdbc rlsSessionJdbc;
+  @Autowired ObjectMapper objectMapper;
+  @Autowired ProjectDetailRepository repo;
+  @Autowired QueryStatsRecorder queryStats;
+
+  @Test
+  void detailIsReadInOneRoundTrip() throws Exception {
+    UUID admin = UUID.randomUUID();
+    UUID user = UUID.randomUUID();
+    UUID group = UUID.randomUUID();
+    UUID projectId = UUID.randomUUID();
+    UUID caseId = UUID.randomUUID();
+    seed("pd1", "1396000001", admin, user, group, projectId, caseId);
+
+    HttpHeaders auth = bearer(jwtService.sign(new AuthPrincipal(user, false, "pd1user", "internal")));
+    queryStats.clear();
+    ResponseEntity<String> resp = rest.exchange("/projects/" + projectId + "/detail", HttpMethod.GET,
+        new HttpEntity<>(auth), String.class);
+    assertEquals(200, resp.getStatusCode().value(), resp.getBody());
+
+    JsonNode body = objectMapper.readTree(resp.getBody());
+    assertEquals(projectId.toString(), body.get("project").get("projectId").asText());
+    assertEquals(1, body.get("cases").size());
+    assertEquals(caseId.toString(), body.get("cases").get(0).get("caseId").asText());
+    assertEquals(1, body.get("members").get("projectMembers").size());
+
+    // RLS setup + group lookup, one pipelined read, one audit insert
+    int queryCount = queryStats.awaitCount("GET", "/projects/" + projectId + "/detail");
+    assertTrue(queryCount <= 6, "detail queries: " + queryCount);
+
+    UUID other = UUID.randomUUID();
+    asAdmin(() -> jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+        other, "13960000013", "pdother", "internal", false));
+    HttpHeaders otherAuth = bearer(jwtService.sign(new AuthPrincipal(other, false, "pdother", "internal")));
+    assertEquals(404, rest.exchange("/projects/" + projectId + "/detail", HttpMethod.GET,
+        new HttpEntity<>(otherAuth), String.class).getStatusCode().value());
+  }
+
+  @Test
+  void streamedDetailMatchesBufferedDetailWithoutTaskCap() throws Exception {
+    UUID admin = UUID.randomUUID();
+    UUID user = UUID.randomUUID();
+    UUID group = UUID.randomUUID();
+    UUID projectId = UUID.randomUUID();
+    UUID caseId = UUID.randomUUID();
+    seed("pd3", "1396000003", admin, user, group, projectId, caseId);
+    asAdmin(() -> jdbc.update("""
+        insert into task(id, group_id, project_id, case_id, title, status, priority, created_by, created_at)
+        select gen_random_uuid(), ?, ?, ?, 'streamed task ' || g, 'TODO', 'HIGH', ?, now() - make_interval(secs => g)
+        from generate_series(1, 620) g
+        """, group, projectId, caseId, admin));
+
+    HttpHeaders auth = bearer(jwtService.sign(new AuthPrincipal(user, false, "pd3user", "internal")));
+    JsonNode buffered = objectMapper.readTree(rest.exchange("/projects/" + projectId + "/detail", HttpMethod.GET,
+        new HttpEntity<>(auth), String.class).getBody());
+    ResponseEntity<String> resp = rest.exchange("/projects/" + projectId + "/detail?stream=true", HttpMethod.GET,
+        new HttpEntity<>(auth), String.class);
+    assertEquals(200, resp.getStatusCode().value(), resp.getBody());
+    assertTrue(resp.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON));
+
+    JsonNode streamed = objectMapper.readTree(resp.getBody());
+    assertEquals(500, buffered.get("tasks").size());
+    assertEquals(620, streamed.get("tasks").size());
+    for (int i = 0; i < 500; i++) {
+      assertEquals(buffered.get("tasks").get(i), streamed.get("tasks").get(i));
+    }
+    for (String field : List.of("project", "members", "cases", "instructions", "payments")) {
+      assertEquals(buffered.get(field), streamed.get(field), field);
+    }
+
+    JsonNode caseStreamed = objectMapper.readTree(rest.exchange("/cases/" + caseId + "/detail?stream=true",
+        HttpMethod.GET, new HttpEntity<>(auth), String.class).getBody());
+    assertEquals(caseId.toString(), caseStreamed.get("caze").get("caseId").asText());
+    assertEquals(620, caseStreamed.get("tasks").size());
+
+    UUID other = UUID.randomUUID();
+    asAdmin(() -> jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+        other, "13960000033", "pd3other", "internal", false));
+    HttpHeaders otherAuth = bearer(jwtService.sign(new AuthPrincipal(other, false, "pd3other", "internal")));
+    assertEquals(404, rest.exchange("/projects/" + projectId + "/detail?stream=true", HttpMethod.GET,
+        new HttpEntity<>(otherAuth), String.class).getStatusCode().value());
+  }
+
+  @Test
+  void summaryAggregatesMatchSeededRows() {
+    UUID admin = UUID.randomUUID();
+    UUID user = UUID.randomUUID();
+    UUID group = UUID.randomUUID();
+    UUID projectId = UUID.randomUUID();
+    UUID caseId = UUID.randomUUID();
+    seed("pd2", "1396000002", admin, user, group, projectId, caseId);
+    String tag = projectId.toString().substring(0, 6);
+    asAdmin(() -> {
+      for (int i = 1; i <= 4; i++) {
+        jdbc.update("insert into project_creditor(group_id, project_id, sr_code, name, created_by, created_at) "
+                + "values (?,?,?,?,?, now() - make_interval(mins => ?))",
+            group, projectId, "SR" + tag + i, "creditor" + i, admin, 10 - i);
+      }
+      UUID debtor = UUID.randomUUID();
+      jdbc.update("insert into project_debtor(id, group_id, project_id, br_code, name, created_by) values (?,?,?,?,?,?)",
+          debtor, group, projectId, "BR" + tag, "debtor", admin);
+      jdbc.update("insert into debtor_clue(group_id, debtor_id, xs_code, category, detail, created_by) values (?,?,?,?,?,?)",
+          group, debtor, "XS" + tag + "1", "bank", "account", admin);
+      jdbc.update("insert into debtor_clue(group_id, debtor_id, xs_code, category, detail, created_by) values (?,?,?,?,?,?)",
+          group, debtor, "XS" + tag + "2", "bank", "another account", admin);
+      jdbc.update("insert into debtor_clue(group_id, debtor_id, xs_code, category, detail, created_by) values (?,?,?,?,?,?)",
+          group, debtor, "XS" + tag + "3", "estate", "house", admin);
+      jdbc.update("insert into case_cost(group_id, case_id, category, amount, created_by) values (?,?,?,?,?)",
+          group, caseId, "fee", new BigDecimal("100.50"), admin);
+      jdbc.update("insert into case_cost(group_id, case_id, category, amount, created_by) values (?,?,?,?,?)",
+          group, caseId, "fee", new BigDecimal("20.00"), admin);
+    });
+
+    ProjectDetailRepository.WbSummaryAgg agg = new TransactionTemplate(txManager).execute(s -> {
+      rlsSessionJdbc.applyRlsSession(user.toString(), false, group.toString());
+      return repo.getWbSummaries(projectId);
+    });
+
+    assertEquals(4, agg.creditorTotal());
+    assertEquals(List.of("creditor4", "creditor3", "creditor2"), agg.creditorNames());
+    assertEquals(1, agg.debtorTotal());
+    assertEquals(1, agg.caseBasis().caseTotal());
+    assertEquals(3, agg.clueTotal());
+    assertEquals(List.of(new ProjectDetailRepository.WbCategoryCount("bank", 2),
+        new ProjectDetailRepository.WbCategoryCount("estate", 1)), agg.clueCategories());
+    assertEquals(3, agg.clueTop().size());
+    assertEquals("debtor", agg.clueTop().getFirst().debtorName());
+    assertEquals(1, agg.proceduresByCase().size());
+    assertEquals(caseId, agg.proceduresByCase().getFirst().caseId());
+    assertEquals(0, agg.proceduresByCase().getFirst().procedureCount());
+    assertEquals(0, agg.controlMeasures().total());
+    assertEquals(2, agg.costs().itemCount());
+    assertEquals(0, new BigDecimal("120.50").compareTo(agg.costs().totalAmount()));
+    assertEquals(1, agg.costCategories().size());
+    assertEquals(Map.of(), agg.attachmentCounts());
+  }
+
+  private void seed(String name, String phonePrefix, UUID admin, UUID user, UUID group, UUID projectId, UUID caseId) {
+    asAdmin(() -> {
+      jdbc.update("insert into app_group(id, name) values (?,?)", group, "G-" + name);
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          admin, phonePrefix + "1", name + "admin", "internal", true);
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          user, phonePrefix + "2", name + "user", "internal", false);
+      jdbc.update("insert into user_group(user_id, group_id, role_code) values (?,?,?)", user, group, "member");
+      jdbc.update("insert into project(id, group_id, name, status, created_by) values (?,?,?,?,?)",
+          projectId, group, "P-" + name, "ACTIVE", admin);
+      jdbc.update("insert into project_member(project_id, user_id, member_role) values (?,?,?)",
+          projectId, user, "owner");
+      jdbc.update("insert into \"case\"(id, group_id, project_id, title, status, created_by) values (?,?,?,?,?,?)",
+          caseId, group, projectId, "CPD", "OPEN", admin);
+    });
+  }
+
+  private void asAdmin(Runnable r) {
+    new TransactionTemplate(txManager).execute(s -> {
+      rlsSessionJdbc.applyRlsSession(UUID.randomUUID().toString(), true, "");
+      r.run();
+      return null;
+    });
+  }
+
+  private HttpHeaders bearer(String jwt) {
+    HttpHeaders h = new HttpHeaders();
+    h.setBearerAuth(jwt);
+    return h;
+  }
+}
@@ -0,0 +1,49 @@
+package com.secp.api.it;
+
+import com.secp.api.infra.db.QueryStats;
+import com.secp.api.infra.db.QueryStatsListener;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects per-request statement counts for tests that pin how many queries an endpoint runs.
+ * Import it with {@code @Import(QueryStatsRecorder.class)}.
+ */
+@TestComponent
+public class QueryStatsRecorder implements QueryStatsListener {
+
+  private final BlockingQueue<Completed> completed = new LinkedBlockingQueue<>();
+
+  private record Completed(String method, String path, int count) {
+  }
+
+  @Override
+  public void requestCompleted(HttpServletRequest request, QueryStats stats) {
+    completed.add(new Completed(request.getMethod(), request.getRequestURI(), stats.count()));
+  }
+
+  public void clear() {
+    completed.clear();
+  }
+
+  /**
+   * Statement count of the next recorded request to {@code path}. Waits for it: the filter
+   * finishes after the client may already have read the response.
+   */
+  public int awaitCount(String method, String path) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (true) {
+      Completed c = completed.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      if (c == null) {
+        throw new AssertionError("no traced request " + method + " " + path);
+      }
+      if (c.method().equals(method) && c.path().equals(path)) {
+        return c.count();
+      }
+    }
+  }
+}
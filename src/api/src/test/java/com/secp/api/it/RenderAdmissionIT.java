@@ -0,0 +1,106 @@
+package com.secp.api.it;
+
+import com.secp.api.preview.PreviewProperties;
+import com.secp.api.preview.PreviewRateLimitedException;
+import com.secp.api.preview.RenderAdmission;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Preview render admission: limits, queue timeout and round-robin fairness across users.
+ */
+class RenderAdmissionIT {
+
+  private static RenderAdmission admission(SimpleMeterRegistry registry,
+                                           int maxConcurrent,
+                                           int maxQueued,
+                                           long maxQueueWaitMs,
+                                           int maxPerUser) {
+    PreviewProperties props = new PreviewProperties(0, 0, 0, 0,
+        new PreviewProperties.Admission(maxConcurrent, maxQueued, maxQueueWaitMs, maxPerUser), null, null);
+    return new RenderAdmission(props, registry);
+  }
+
+  @Test
+  void rejectsOverPerUserLimitQueueFullAndQueueTimeout() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    RenderAdmission admission = admission(registry, 1, 0, 50, 1);
+    UUID a = UUID.randomUUID();
+    UUID b = UUID.randomUUID();
+
+    RenderAdmission.Permit running = admission.acquire(a);
+    assertThrows(PreviewRateLimitedException.class, () -> admission.acquire(a));
+    assertThrows(PreviewRateLimitedException.class, () -> admission.acquire(b));
+    running.close();
+    running.close(); // idempotent
+
+    admission.acquire(b).close();
+
+    RenderAdmission queued = admission(registry, 1, 1, 50, 2);
+    try (RenderAdmission.Permit ignored = queued.acquire(a)) {
+      long t0 = System.nanoTime();
+      assertThrows(PreviewRateLimitedException.class, () -> queued.acquire(b));
+      assertTrue(System.nanoTime() - t0 >= TimeUnit.MILLISECONDS.toNanos(40));
+    }
+    queued.acquire(b).close();
+
+    assertEquals(1.0, registry.get("secp.preview.render.rejected").tag("reason", "per_user").counter().count());
+    assertEquals(1.0, registry.get("secp.preview.render.rejected").tag("reason", "queue_full").counter().count());
+    assertEquals(1.0, registry.get("secp.preview.render.rejected").tag("reason", "queue_timeout").counter().count());
+  }
+
+  @Test
+  void queuedUsersAreServedRoundRobin() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    RenderAdmission admission = admission(registry, 1, 10, 5_000, 5);
+    UUID heavy = UUID.randomUUID();
+    UUID light = UUID.randomUUID();
+
+    RenderAdmission.Permit blocker = admission.acquire(UUID.randomUUID());
+    List<String> order = new CopyOnWriteArrayList<>();
+
+    // heavy queues three renders before light queues one
+    List<Thread> threads = new ArrayList<>();
+    for (String name : List.of("heavy-1", "heavy-2", "heavy-3", "light-1")) {
+      UUID user = name.startsWith("heavy") ? heavy : light;
+      CountDownLatch started = new CountDownLatch(1);
+      Thread t = Thread.ofPlatform().start(() -> {
+        started.countDown();
+        try (RenderAdmission.Permit ignored = admission.acquire(user)) {
+          order.add(name);
+        }
+      });
+      started.await();
+      waitForQueued(registry, threads.size() + 1);
+      threads.add(t);
+    }
+
+    blocker.close();
+    for (Thread t : threads) {
+      t.join(5_000);
+    }
+
+    assertEquals(List.of("heavy-1", "light-1", "heavy-2", "heavy-3"), order);
+    assertEquals(0.0, registry.get("secp.preview.render.active").gauge().value());
+    assertEquals(0.0, registry.get("secp.preview.render.queued").gauge().value());
+  }
+
+  private static void waitForQueued(SimpleMeterRegistry registry, int expected) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (registry.get("secp.preview.render.queued").gauge().value() < expected) {
+      if (System.nanoTime() > deadline) {
+        fail("queue did not reach " + expected);
+      }
+      Thread.sleep(5);
+    }
+  }
+}
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.UUID;
@@ -59,4 +60,99 @@ class RlsIsolationIT extends IntegrationTestBase {
 
     assertEquals(0L, visible);
   }
+
+  @Test
+  void caseMembershipGrantedMidTransactionIsVisible() {
+    UUID groupA = UUID.randomUUID();
+    UUID groupB = UUID.randomUUID();
+    UUID userA = UUID.randomUUID();
+    UUID userB = UUID.randomUUID();
+    UUID projectB = UUID.randomUUID();
+    UUID caseB = UUID.randomUUID();
+
+    TransactionTemplate tx = new TransactionTemplate(txManager);
+    tx.execute(status -> {
+      jdbc.update("insert into app_group(id, name) values (?,?)", groupA, "A");
+      jdbc.update("insert into app_group(id, name) values (?,?)", groupB, "B");
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          userA, "13000000011", "userA2", "internal", false);
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          userB, "13000000012", "userB2", "internal", false);
+
+      jdbc.update("select set_config('app.is_admin', 'true', true)");
+      jdbc.update("select set_config('app.user_id', '', true)");
+      jdbc.update("select set_config('app.group_ids', '', true)");
+
+      jdbc.update("insert into project(id, code, group_id, name, status, created_by) values (?,?,?,?,?,?)",
+          projectB, "XRLS" + caseB.toString().substring(0, 8), groupB, "PB", "ACTIVE", userB);
+      jdbc.update("insert into \"case\"(id, code, group_id, project_id, title, status, created_by) values (?,?,?,?,?,?,?)",
+          caseB, "ARLS" + caseB.toString().substring(0, 8), groupB, projectB, "CB", "OPEN", userB);
+      return null;
+    });
+
+    long[] visible = tx.execute(status -> {
+      jdbc.update("select set_config('app.is_admin', 'false', true)");
+      jdbc.update("select set_config('app.user_id', ?, true)", userA.toString());
+      jdbc.update("select set_config('app.group_ids', ?, true)", groupA.toString());
+      long before = jdbc.queryForObject("select count(*) from \"case\" where id=?", Long.class, caseB);
+      // the accessible-case set is read per statement, so a grant written earlier is visible
+      jdbc.update("insert into case_member(case_id, user_id) values (?,?)", caseB, userA);
+      long after = jdbc.queryForObject("select count(*) from \"case\" where id=?", Long.class, caseB);
+      return new long[] {before, after};
+    });
+
+    assertEquals(0L, visible[0]);
+    assertEquals(1L, visible[1]);
+  }
+
+  @Test
+  void caseMembershipRevokedByAnotherTransactionIsHiddenAtNextStatement() {
+    UUID groupA = UUID.randomUUID();
+    UUID groupB = UUID.randomUUID();
+    UUID userA = UUID.randomUUID();
+    UUID userB = UUID.randomUUID();
+    UUID projectB = UUID.randomUUID();
+    UUID caseB = UUID.randomUUID();
+
+    TransactionTemplate tx = new TransactionTemplate(txManager);
+    tx.execute(status -> {
+      jdbc.update("insert into app_group(id, name) values (?,?)", groupA, "A");
+      jdbc.update("insert into app_group(id, name) values (?,?)", groupB, "B");
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          userA, "13000000021", "userA3", "internal", false);
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          userB, "13000000022", "userB3", "internal", false);
+
+      jdbc.update("select set_config('app.is_admin', 'true', true)");
+      jdbc.update("select set_config('app.user_id', '', true)");
+      jdbc.update("select set_config('app.group_ids', '', true)");
+
+      jdbc.update("insert into project(id, code, group_id, name, status, created_by) values (?,?,?,?,?,?)",
+          projectB, "YRLS" + caseB.toString().substring(0, 8), groupB, "PB", "ACTIVE", userB);
+      jdbc.update("insert into \"case\"(id, code, group_id, project_id, title, status, created_by) values (?,?,?,?,?,?,?)",
+          caseB, "BRLS" + caseB.toString().substring(0, 8), groupB, projectB, "CB", "OPEN", userB);
+      jdbc.update("insert into case_member(case_id, user_id) values (?,?)", caseB, userA);
+      return null;
+    });
+
+    TransactionTemplate revoke = new TransactionTemplate(txManager);
+    revoke.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    long[] visible = tx.execute(status -> {
+      jdbc.update("select set_config('app.is_admin', 'false', true)");
+      jdbc.update("select set_config('app.user_id', ?, true)", userA.toString());
+      jdbc.update("select set_config('app.group_ids', ?, true)", groupA.toString());
+      long before = jdbc.queryForObject("select count(*) from \"case\" where id=?", Long.class, caseB);
+      revoke.execute(s -> {
+        jdbc.update("select set_config('app.is_admin', 'true', true)");
+        jdbc.update("delete from case_member where case_id=? and user_id=?", caseB, userA);
+        return null;
+      });
+      long after = jdbc.queryForObject("select count(*) from \"case\" where id=?", Long.class, caseB);
+      return new long[] {before, after};
+    });
+
+    assertEquals(1L, visible[0]);
+    assertEquals(0L, visible[1], "a committed revoke must apply to the next statement");
+  }
 }
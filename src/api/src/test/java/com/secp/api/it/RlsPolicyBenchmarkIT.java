@@ -0,0 +1,100 @@
+package com.secp.api.it;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Seeds 100k cases in a foreign group and checks that a non-admin list scan evaluates the
+ * RLS helpers once per statement (InitPlan) and membership via a hashed SubPlan: the policy
+ * filter references no SubPlan that would run per row.
+ */
+@SpringBootTest
+class RlsPolicyBenchmarkIT extends IntegrationTestBase {
+
+  private static final int ROWS = 100_000;
+  private static final Pattern SUBPLAN_REF = Pattern.compile("(hashed )?SubPlan \\d+");
+
+  @Autowired JdbcTemplate jdbc;
+  @Autowired PlatformTransactionManager txManager;
+
+  @Test
+  void caseListScanDoesNotReparseGroupIdsPerRow() {
+    UUID groupA = UUID.randomUUID();
+    UUID groupB = UUID.randomUUID();
+    UUID userA = UUID.randomUUID();
+    UUID userB = UUID.randomUUID();
+    UUID projectB = UUID.randomUUID();
+    UUID memberCase = UUID.randomUUID();
+    String codePrefix = "BCH" + groupB.toString().substring(0, 8);
+
+    TransactionTemplate tx = new TransactionTemplate(txManager);
+    tx.execute(status -> {
+      jdbc.update("insert into app_group(id, name) values (?,?)", groupA, "A");
+      jdbc.update("insert into app_group(id, name) values (?,?)", groupB, "B");
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          userA, "13100000001", "benchA", "internal", false);
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          userB, "13100000002", "benchB", "internal", false);
+      jdbc.update("insert into user_group(user_id, group_id, role_code) values (?,?,?)", userA, groupA, "member");
+
+      jdbc.update("select set_config('app.is_admin', 'true', true)");
+      jdbc.update("select set_config('app.user_id', '', true)");
+      jdbc.update("select set_config('app.group_ids', '', true)");
+
+      jdbc.update("insert into project(id, code, group_id, name, status, created_by) values (?,?,?,?,?,?)",
+          projectB, codePrefix + "P", groupB, "PB", "ACTIVE", userB);
+      jdbc.update("""
+          insert into "case"(id, code, group_id, project_id, title, status, created_by)
+          select gen_random_uuid(), ? || g, ?, ?, 'bench-' || g, 'OPEN', ?
+          from generate_series(1, ?) g
+          """, codePrefix, groupB, projectB, userB, ROWS);
+      jdbc.update("insert into \"case\"(id, code, group_id, project_id, title, status, created_by) values (?,?,?,?,?,?,?)",
+          memberCase, codePrefix + "M", groupB, projectB, "member", "OPEN", userB);
+      jdbc.update("insert into case_member(case_id, user_id) values (?,?)", memberCase, userA);
+      return null;
+    });
+
+    List<String> plan = tx.execute(status -> {
+      asUser(userA, groupA);
+      return jdbc.queryForList("explain (analyze, costs off, timing off) select count(*) from \"case\"", String.class);
+    });
+    String planText = String.join("\n", plan);
+
+    assertTrue(planText.contains("InitPlan"), planText);
+    assertTrue(planText.contains("hashed SubPlan"), planText);
+    for (String line : plan) {
+      if (!line.contains("Filter:")) {
+        continue;
+      }
+      Matcher m = SUBPLAN_REF.matcher(line);
+      while (m.find()) {
+        assertNotNull(m.group(1), "per-row SubPlan in policy filter:\n" + planText);
+      }
+    }
+
+    Long visible = tx.execute(status -> {
+      asUser(userA, groupA);
+      return jdbc.queryForObject("select count(*) from \"case\"", Long.class);
+    });
+    assertEquals(1L, visible);
+  }
+
+  private void asUser(UUID userId, UUID groupId) {
+    jdbc.update("select set_config('app.is_admin', 'false', true)");
+    jdbc.update("select set_config('app.user_id', ?, true)", userId.toString());
+    jdbc.update("select set_config('app.group_ids', ?, true)", groupId.toString());
+  }
+}
@@ -0,0 +1,189 @@
+package com.secp.api.project;
+
+import com.secp.api.infra.template.HtmlTemplate;
+import com.secp.api.workbench.dto.DebtorClueDto;
+import com.secp.api.workbench.dto.WorkbenchCaseDto;
+import com.secp.api.workbench.dto.WorkbenchCreditorDto;
+import com.secp.api.workbench.dto.WorkbenchDebtorDto;
+import com.secp.api.workbench.dto.WorkbenchProjectBaseDto;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.springframework.core.io.ClassPathResource;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JMH: project A4 HTML for a large synthetic project (no DB, no PDF), through the export path.
+ * Run in-process (forks=0) so it can ride the {@code it} profile. Only allocation per op is
+ * asserted, not time: the budget is a loose ceiling (several times what the precompiled template
+ * needs) that still fails on a return to per-slot {@code String.replace} or {@code +=} row
+ * building, whose allocation grows with slots x document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProjectA4RenderBenchmarkIT {
+
+  private static final int CASES = 400;
+  private static final int TASKS = 2000;
+  private static final int INSTRUCTIONS = 300;
+  private static final int PARTIES = 200;
+  private static final int CLUES = 600;
+  private static final int ITEMS = 1200;
+  private static final int ATTACHMENTS = 200;
+
+  /** Allocation budget per output char (UTF-16 builder + final String is 4 B/char). */
+  private static final double MAX_ALLOC_BYTES_PER_CHAR = 32;
+
+  private HtmlTemplate template;
+  private ProjectDetailService.ProjectDetailBundle bundle;
+  private ProjectDetailService.WorkbenchA4Bundle wb;
+  private ProjectDetailService.A4Summaries summaries;
+
+  @Setup
+  public void setup() throws Exception {
+    try (var in = new ClassPathResource(ProjectDetailService.A4_TEMPLATE_PATH).getInputStream()) {
+      template = HtmlTemplate.compile(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+    bundle = legacyBundle();
+    wb = workbenchBundle();
+    summaries = new ProjectDetailService.A4Summaries(
+        "债权人" + PARTIES + "名", "债务人" + PARTIES + "名", "已填写执行依据" + CASES + "/" + CASES,
+        "线索" + CLUES + "条", "程序" + ITEMS / 4 + "条", "总条数" + ITEMS / 4 + "，到期条数3。",
+        "总条数" + ITEMS / 4 + "，到期条数1。", "总额12345.67，明细条数" + ITEMS / 4, "总条数" + ATTACHMENTS);
+  }
+
+  @Benchmark
+  public String precompiled() {
+    return ProjectDetailService.renderHtml(template, bundle, wb, summaries);
+  }
+
+  @Test
+  void precompiledRenderOfLargeProjectStaysWithinAllocationBudget() throws Exception {
+    setup();
+    String html = precompiled();
+    assertFalse(html.contains("{{"), "all slots filled");
+    assertTrue(html.contains("T-" + (TASKS - 1)));
+    assertTrue(html.contains("&lt;b&gt;"), "cell values escaped");
+    assertEquals(html, precompiled(), "render is deterministic");
+
+    Collection<RunResult> results = new Runner(new OptionsBuilder()
+        .include(ProjectA4RenderBenchmarkIT.class.getName() + "\\.")
+        .forks(0)
+        .warmupIterations(3)
+        .warmupTime(TimeValue.seconds(1))
+        .measurementIterations(5)
+        .measurementTime(TimeValue.seconds(1))
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+    assertEquals(1, results.size());
+    RunResult result = results.iterator().next();
+
+    var alloc = result.getSecondaryResults().get("gc.alloc.rate.norm");
+    assertNotNull(alloc, "GC profiler reported no allocation rate");
+    double bytesPerChar = alloc.getScore() / html.length();
+    assertTrue(bytesPerChar <= MAX_ALLOC_BYTES_PER_CHAR,
+        "render allocated " + alloc.getScore() + "B/op for " + html.length() + " chars");
+  }
+
+  private static ProjectDetailService.ProjectDetailBundle legacyBundle() {
+    UUID projectId = UUID.randomUUID();
+    UUID groupId = UUID.randomUUID();
+    OffsetDateTime now = OffsetDateTime.parse("2024-06-01T08:00:00Z");
+
+    var project = new ProjectDetailRepository.ProjectRow(projectId, "P-BENCH", null, "基准项目 <b>large</b>", groupId,
+        List.of(), new BigDecimal("1000000.00"), new BigDecimal("800000.00"), "ACTIVE", now, now);
+
+    List<ProjectDetailRepository.CaseRow> cases = new ArrayList<>();
+    List<ProjectDetailRepository.CaseMemberRow> caseMembers = new ArrayList<>();
+    for (int i = 0; i < CASES; i++) {
+      UUID caseId = UUID.randomUUID();
+      cases.add(new ProjectDetailRepository.CaseRow(caseId, "C-" + i, null, "案件 " + i, "OPEN", now));
+      caseMembers.add(new ProjectDetailRepository.CaseMemberRow(caseId, UUID.randomUUID(), "ASSIST", "成员" + i,
+          "1390000" + String.format("%04d", i)));
+    }
+    List<ProjectDetailRepository.TaskRow> tasks = new ArrayList<>();
+    for (int i = 0; i < TASKS; i++) {
+      tasks.add(new ProjectDetailRepository.TaskRow(UUID.randomUUID(), "T-" + i + " 跟进财产线索 & 执行", "TODO", "HIGH",
+          cases.get(i % CASES).id(), null, now, UUID.randomUUID()));
+    }
+    List<ProjectDetailRepository.ProjectMemberRow> projectMembers = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      projectMembers.add(new ProjectDetailRepository.ProjectMemberRow(UUID.randomUUID(), "OWNER", "负责人" + i,
+          "1380000" + String.format("%04d", i)));
+    }
+    List<ProjectDetailRepository.InstructionAggRow> instructions = new ArrayList<>();
+    for (int i = 0; i < INSTRUCTIONS; i++) {
+      instructions.add(new ProjectDetailRepository.InstructionAggRow(
+          UUID.randomUUID(), "指令 " + i, "ISSUED", 1, now, now, 10, 4, i % 3));
+    }
+    return new ProjectDetailService.ProjectDetailBundle(projectId, groupId, project, cases, tasks, projectMembers,
+        caseMembers, instructions,
+        new ProjectDetailRepository.PaymentsAggRow(new BigDecimal("5000.00"), BigDecimal.ZERO, 12, now));
+  }
+
+  private static ProjectDetailService.WorkbenchA4Bundle workbenchBundle() {
+    Instant now = Instant.parse("2024-06-01T08:00:00Z");
+    LocalDate day = LocalDate.of(2024, 6, 1);
+    UUID projectId = UUID.randomUUID();
+    var project = new WorkbenchProjectBaseDto(projectId, UUID.randomUUID(), "P-BENCH", "基准项目", "ACTIVE", day,
+        "委托人", "执行中", day, "备注 <b>x</b>", now, now, null, "负责人", null, "主办", null, "协办");
+
+    List<WorkbenchCreditorDto> creditors = new ArrayList<>();
+    List<WorkbenchDebtorDto> debtors = new ArrayList<>();
+    for (int i = 0; i < PARTIES; i++) {
+      creditors.add(new WorkbenchCreditorDto(UUID.randomUUID(), "SR" + i, "债权人" + i, "1101" + i, null, "北京",
+          "1370000" + i, null, null, null, null, now, now));
+      debtors.add(new WorkbenchDebtorDto(UUID.randomUUID(), "BR" + i, "债务人" + i, "1102" + i, null, "上海",
+          "1360000" + i, null, null, null, null, now, now));
+    }
+    List<WorkbenchCaseDto> cases = new ArrayList<>();
+    for (int i = 0; i < CASES; i++) {
+      cases.add(new WorkbenchCaseDto(UUID.randomUUID(), "C-" + i, "案件 " + i, "法院", "OPEN", null, "SR" + i % PARTIES,
+          "债权人", null, "BR" + i % PARTIES, "债务人", "借款合同纠纷", "判决书", "(2024)京01执" + i + "号", "法院",
+          "被执行人应支付借款本金及利息 " + i, day, day, now));
+    }
+    List<ProjectDetailService.ClueRow> clues = new ArrayList<>();
+    for (int i = 0; i < CLUES; i++) {
+      clues.add(new ProjectDetailService.ClueRow(UUID.randomUUID(), "BR" + i % PARTIES, "债务人",
+          new DebtorClueDto(UUID.randomUUID(), "XS" + i, "房产", "坐落于某市某区某路 " + i + " 号 <b>", "走访", day,
+              null, "收集人", now, now)));
+    }
+    List<ProjectDetailService.ItemRow> items = new ArrayList<>();
+    for (int i = 0; i < ITEMS; i++) {
+      items.add(new ProjectDetailService.ItemRow("程序", UUID.randomUUID(), "C-" + i % CASES, "案件", "执行程序 " + i,
+          "2024-06-01", "100.00", "已裁定", "备注 " + i, UUID.randomUUID(), "case_procedure"));
+    }
+    List<ProjectDetailService.AttachmentRow> attachments = new ArrayList<>();
+    for (int i = 0; i < ATTACHMENTS; i++) {
+      attachments.add(new ProjectDetailService.AttachmentRow("case", UUID.randomUUID(), UUID.randomUUID(),
+          UUID.randomUUID(), "附件 " + i, "scan-" + i + ".pdf", "application/pdf", 1024L * i, now));
+    }
+    return new ProjectDetailService.WorkbenchA4Bundle(project, creditors, debtors, cases, clues, items, attachments);
+  }
+}
@@ -0,0 +1,176 @@
+package com.secp.api.project;
+
+import com.secp.api.it.IntegrationTestBase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bytes allocated per row when reading the project detail's case and task lists: the typed
+ * record mappers against the old {@code queryForList} maps converted field by field. Uses the
+ * thread allocation counter (HotSpot), best of several runs after warm-up. Asserts both paths map
+ * the same rows, and that the typed path allocates less per row and stays within a per-row budget.
+ */
+@SpringBootTest
+class ProjectDetailRowMappingBenchmarkIT extends IntegrationTestBase {
+
+  private static final int CASES = 400;
+  private static final int TASKS = 500;
+  private static final int RUNS = 20;
+  private static final long MAX_TYPED_BYTES_PER_ROW = 4_096;
+
+  @Autowired JdbcTemplate jdbc;
+  @Autowired PlatformTransactionManager txManager;
+
+  @Test
+  void typedMappersMatchColumnMapsAndAllocateLess() {
+    UUID admin = UUID.randomUUID();
+    UUID group = UUID.randomUUID();
+    UUID projectId = UUID.randomUUID();
+    String codePrefix = "RMB" + projectId.toString().substring(0, 8);
+
+    TransactionTemplate tx = new TransactionTemplate(txManager);
+    tx.execute(status -> {
+      asAdmin();
+      jdbc.update("insert into app_group(id, name) values (?,?)", group, "RMB");
+      jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+          admin, "13970000001", "rmbadmin", "internal", true);
+      jdbc.update("insert into project(id, group_id, name, status, created_by) values (?,?,?,?,?)",
+          projectId, group, "RMB", "ACTIVE", admin);
+      jdbc.update("""
+          insert into "case"(id, code, accepted_at, group_id, project_id, title, status, created_by)
+          select gen_random_uuid(), ? || g, current_date, ?, ?, 'bench case ' || g, 'OPEN', ?
+          from generate_series(1, ?) g
+          """, codePrefix, group, projectId, admin, CASES);
+      jdbc.update("""
+          insert into task(id, group_id, project_id, title, status, priority, plan_end, assignee_user_id, created_by)
+          select gen_random_uuid(), ?, ?, 'bench task ' || g, 'TODO', 'HIGH', now() + make_interval(days => g), ?, ?
+          from generate_series(1, ?) g
+          """, group, projectId, admin, admin, TASKS);
+      return null;
+    });
+
+    List<?> typedCases = tx.execute(status -> {
+      asAdmin();
+      return jdbc.query(ProjectDetailRepository.CASES_SQL, ProjectDetailRepository.CASE_ROW, projectId);
+    });
+    List<?> typedTasks = tx.execute(status -> {
+      asAdmin();
+      return jdbc.query(ProjectDetailRepository.TASKS_SQL, ProjectDetailRepository.TASK_ROW, projectId);
+    });
+    assertEquals(tx.execute(status -> {
+      asAdmin();
+      return legacyCases(jdbc.queryForList(ProjectDetailRepository.CASES_SQL, projectId));
+    }), typedCases);
+    assertEquals(tx.execute(status -> {
+      asAdmin();
+      return legacyTasks(jdbc.queryForList(ProjectDetailRepository.TASKS_SQL, projectId));
+    }), typedTasks);
+
+    long casesTyped = bytesPerRow(tx, CASES,
+        () -> jdbc.query(ProjectDetailRepository.CASES_SQL, ProjectDetailRepository.CASE_ROW, projectId));
+    long casesMaps = bytesPerRow(tx, CASES,
+        () -> legacyCases(jdbc.queryForList(ProjectDetailRepository.CASES_SQL, projectId)));
+    long tasksTyped = bytesPerRow(tx, TASKS,
+        () -> jdbc.query(ProjectDetailRepository.TASKS_SQL, ProjectDetailRepository.TASK_ROW, projectId));
+    long tasksMaps = bytesPerRow(tx, TASKS,
+        () -> legacyTasks(jdbc.queryForList(ProjectDetailRepository.TASKS_SQL, projectId)));
+
+    assertTrue(casesTyped < casesMaps, "cases typed=" + casesTyped + " maps=" + casesMaps);
+    assertTrue(tasksTyped < tasksMaps, "tasks typed=" + tasksTyped + " maps=" + tasksMaps);
+    assertTrue(casesTyped <= MAX_TYPED_BYTES_PER_ROW, "cases typed=" + casesTyped + "B/row");
+    assertTrue(tasksTyped <= MAX_TYPED_BYTES_PER_ROW, "tasks typed=" + tasksTyped + "B/row");
+  }
+
+  private record Measured(int rows, long bytes) {
+  }
+
+  private long bytesPerRow(TransactionTemplate tx, int expectedRows, Supplier<List<?>> read) {
+    var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().threadId();
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < RUNS; i++) {
+      Measured m = tx.execute(status -> {
+        asAdmin();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        int n = read.get().size();
+        return new Measured(n, threads.getThreadAllocatedBytes(threadId) - before);
+      });
+      assertEquals(expectedRows, m.rows());
+      best = Math.min(best, m.bytes());
+    }
+    return best / expectedRows;
+  }
+
+  /**
+   * The conversion the detail service used to do on each map row.
+   */
+  private static List<ProjectDetailRepository.CaseRow> legacyCases(List<Map<String, Object>> rows) {
+    List<ProjectDetailRepository.CaseRow> out = new ArrayList<>(rows.size());
+    for (Map<String, Object> r : rows) {
+      out.add(new ProjectDetailRepository.CaseRow(
+          (UUID) r.get("id"),
+          String.valueOf(r.get("code")),
+          toLocalDate(r.get("accepted_at")),
+          String.valueOf(r.get("title")),
+          String.valueOf(r.get("status")),
+          toOffsetDateTime(r.get("created_at"))
+      ));
+    }
+    return out;
+  }
+
+  private static List<ProjectDetailRepository.TaskRow> legacyTasks(List<Map<String, Object>> rows) {
+    List<ProjectDetailRepository.TaskRow> out = new ArrayList<>(rows.size());
+    for (Map<String, Object> r : rows) {
+      out.add(new ProjectDetailRepository.TaskRow(
+          (UUID) r.get("id"),
+          String.valueOf(r.get("title")),
+          String.valueOf(r.get("status")),
+          r.get("priority") == null ? null : String.valueOf(r.get("priority")),
+          (UUID) r.get("case_id"),
+          (UUID) r.get("instruction_item_id"),
+          toOffsetDateTime(r.get("plan_end")),
+          (UUID) r.get("assignee_user_id")
+      ));
+    }
+    return out;
+  }
+
+  private static OffsetDateTime toOffsetDateTime(Object v) {
+    if (v == null) return null;
+    if (v instanceof OffsetDateTime odt) return odt;
+    if (v instanceof Timestamp ts) return ts.toInstant().atOffset(ZoneOffset.UTC);
+    return OffsetDateTime.parse(String.valueOf(v));
+  }
+
+  private static LocalDate toLocalDate(Object v) {
+    if (v == null) return null;
+    if (v instanceof LocalDate ld) return ld;
+    if (v instanceof java.sql.Date d) return d.toLocalDate();
+    return LocalDate.parse(String.valueOf(v));
+  }
+
+  private void asAdmin() {
+    jdbc.queryForObject("select set_config('app.is_admin', 'true', true)", String.class);
+    jdbc.queryForObject("select set_config('app.user_id', '', true)", String.class);
+    jdbc.queryForObject("select set_config('app.group_ids', '', true)", String.class);
+  }
+}
@@ -1,8 +1,10 @@
 package com.secp.worker;
 
+import com.secp.preview.render.PreviewKeys;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
@@ -10,7 +12,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 @Component
@@ -18,6 +19,29 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class OutboxPoller {
 
+  private record PendingEvent(UUID eventId, String eventType, String payload) {
+  }
+
+  private record ItemTarget(UUID id, UUID groupId, OffsetDateTime dueAt, UUID assigneeUserId, UUID instructionId) {
+  }
+
+  private record TaskTarget(UUID groupId, UUID assigneeUserId, String title, OffsetDateTime planEnd) {
+  }
+
+  private static final String ITEM_TARGET_SQL = """
+      select id, group_id, due_at, coalesce(assignee_user_id, created_by) as assignee_user_id, instruction_id
+        from instruction_item
+       where id = ?
+      """;
+
+  private static final RowMapper<ItemTarget> ITEM_TARGET = (rs, rowNum) -> new ItemTarget(
+      rs.getObject("id", UUID.class),
+      rs.getObject("group_id", UUID.class),
+      rs.getObject("due_at", OffsetDateTime.class),
+      rs.getObject("assignee_user_id", UUID.class),
+      rs.getObject("instruction_id", UUID.class)
+  );
+
   private final JdbcTemplate jdbc;
 
   @Value("${worker.batch-size:10}")
@@ -26,6 +50,12 @@ public class OutboxPoller {
   @Value("${worker.max-retry:8}")
   private int maxRetry = 8;
 
+  @Value("${worker.preview.enabled:true}")
+  private boolean previewPrerenderEnabled = true;
+
+  @Value("${worker.preview.wm-ver:1}")
+  private int previewWmVer = 1;
+
   @Scheduled(fixedDelayString = "${worker.poll-ms:1000}")
   public void tick() {
     pollOnce();
@@ -39,19 +69,25 @@ public class OutboxPoller {
     jdbc.execute("SET LOCAL app.user_id = ''");
     jdbc.execute("SET LOCAL app.group_ids = ''");
 
-    List<Map<String, Object>> rows = jdbc.queryForList("""
+    List<PendingEvent> rows = jdbc.query("""
         select event_id, event_type, payload
         from event_outbox
         where status='pending' and next_run_at <= now()
         order by created_at
         limit ?
         for update skip locked
-        """, batchSize);
-
-    for (Map<String, Object> r : rows) {
-      UUID eventId = (UUID) r.get("event_id");
-      String eventType = (String) r.get("event_type");
-      String payload = String.valueOf(r.get("payload"));
+        """,
+        (rs, rowNum) -> new PendingEvent(
+            rs.getObject("event_id", UUID.class),
+            rs.getString("event_type"),
+            String.valueOf(rs.getString("payload"))
+        ),
+        batchSize);
+
+    for (PendingEvent r : rows) {
+      UUID eventId = r.eventId();
+      String eventType = r.eventType();
+      String payload = r.payload();
 
       // mark processing
       jdbc.update("update event_outbox set status='processing' where event_id=?", eventId);
@@ -89,6 +125,11 @@ public class OutboxPoller {
       return;
     }
 
+    if ("File.Uploaded".equals(eventType)) {
+      handleAsPreviewPrerender(eventId);
+      return;
+    }
+
     // fallback demo handler
     String handlerName = "DemoHandler";
     if (!tryStartConsumption(eventId, handlerName)) {
@@ -137,6 +178,58 @@ public class OutboxPoller {
     }
   }
 
+  /**
+   * Only enqueues: the render itself runs in {@link PreviewPrerenderer}, outside this batch's
+   * transaction. The fingerprint is the api's, from {@link PreviewKeys#fileFingerprint}.
+   */
+  private void handleAsPreviewPrerender(UUID eventId) {
+    String handlerName = "PreviewPrerender.v1";
+    if (!tryStartConsumption(eventId, handlerName)) {
+      return;
+    }
+
+    if (previewPrerenderEnabled) {
+      UUID fileId = jdbc.queryForObject(
+          "select (payload->>'fileId')::uuid from event_outbox where event_id=?",
+          UUID.class,
+          eventId
+      );
+      List<PendingVariant> files = fileId == null ? List.of() : jdbc.query(
+          """
+          select id, blob_sha256, sha256, etag, size_bytes, s3_key_raw, created_by
+            from file_store
+           where id = ?
+             and status = 'READY'
+          """,
+          (rs, i) -> new PendingVariant(
+              rs.getObject("id", UUID.class),
+              PreviewKeys.fileFingerprint(rs.getString("blob_sha256"), rs.getString("sha256"), rs.getString("etag"),
+                  rs.getObject("size_bytes", Long.class), rs.getString("s3_key_raw")),
+              rs.getObject("created_by", UUID.class)
+          ),
+          fileId
+      );
+      for (PendingVariant v : files) {
+        jdbc.update(
+            """
+            insert into file_variant(file_id, variant, file_fingerprint, wm_ver, status, created_by)
+            values (?, 'raster_base', ?, ?, 'pending', ?)
+            on conflict (file_id, variant, file_fingerprint, wm_ver) do nothing
+            """,
+            v.fileId(),
+            v.fingerprint(),
+            previewWmVer,
+            v.createdBy()
+        );
+      }
+    }
+
+    markConsumptionDone(eventId, handlerName);
+  }
+
+  private record PendingVariant(UUID fileId, String fingerprint, UUID createdBy) {
+  }
+
   private boolean tryStartConsumption(UUID eventId, String handlerName) {
     try {
       jdbc.update("insert into event_consumption(event_id, handler_name, status) values (?,?, 'started')",
@@ -160,21 +253,22 @@ public class OutboxPoller {
     );
     if (instructionId == null) return;
 
-    List<Map<String, Object>> items = jdbc.queryForList(
+    List<ItemTarget> items = jdbc.query(
         """
-        select id, group_id, due_at, coalesce(assignee_user_id, created_by) as assignee_user_id
+        select id, group_id, due_at, coalesce(assignee_user_id, created_by) as assignee_user_id, instruction_id
         from instruction_item
         where instruction_id = ?
         order by created_at
         """,
+        ITEM_TARGET,
         instructionId
     );
 
-    for (Map<String, Object> it : items) {
-      UUID itemId = (UUID) it.get("id");
-      UUID groupId = (UUID) it.get("group_id");
-      UUID assigneeUserId = (UUID) it.get("assignee_user_id");
-      OffsetDateTime dueAt = (OffsetDateTime) it.get("due_at");
+    for (ItemTarget it : items) {
+      UUID itemId = it.id();
+      UUID groupId = it.groupId();
+      UUID assigneeUserId = it.assigneeUserId();
+      OffsetDateTime dueAt = it.dueAt();
       if (groupId == null || assigneeUserId == null) continue;
       if (!isUserAllowedInGroup(assigneeUserId, groupId)) continue;
 
@@ -206,17 +300,23 @@ public class OutboxPoller {
     );
     if (taskId == null) return;
 
-    List<Map<String, Object>> rows = jdbc.queryForList(
+    List<TaskTarget> rows = jdbc.query(
         "select group_id, assignee_user_id, title, plan_end from task where id=?",
+        (rs, rowNum) -> new TaskTarget(
+            rs.getObject("group_id", UUID.class),
+            rs.getObject("assignee_user_id", UUID.class),
+            rs.getString("title"),
+            rs.getObject("plan_end", OffsetDateTime.class)
+        ),
         taskId
     );
     if (rows.isEmpty()) return;
 
-    Map<String, Object> r = rows.getFirst();
-    UUID groupId = (UUID) r.get("group_id");
-    UUID assigneeUserId = (UUID) r.get("assignee_user_id");
-    String taskTitle = String.valueOf(r.get("title"));
-    OffsetDateTime planEnd = (OffsetDateTime) r.get("plan_end");
+    TaskTarget r = rows.getFirst();
+    UUID groupId = r.groupId();
+    UUID assigneeUserId = r.assigneeUserId();
+    String taskTitle = String.valueOf(r.title());
+    OffsetDateTime planEnd = r.planEnd();
 
     if (groupId == null || assigneeUserId == null) return;
     if (!isUserAllowedInGroup(assigneeUserId, groupId)) return;
@@ -259,22 +359,13 @@ public class OutboxPoller {
 
     if (itemId == null) return;
 
-    List<Map<String, Object>> itemRows = jdbc.queryForList(
-        """
-        select ii.group_id,
-               coalesce(ii.assignee_user_id, ii.created_by) as assignee_user_id,
-               ii.instruction_id
-          from instruction_item ii
-         where ii.id=?
-        """,
-        itemId
-    );
+    List<ItemTarget> itemRows = jdbc.query(ITEM_TARGET_SQL, ITEM_TARGET, itemId);
     if (itemRows.isEmpty()) return;
-    Map<String, Object> item = itemRows.getFirst();
+    ItemTarget item = itemRows.getFirst();
 
-    UUID groupId = (UUID) item.get("group_id");
-    UUID assigneeUserId = (UUID) item.get("assignee_user_id");
-    UUID resolvedInstructionId = (UUID) item.get("instruction_id");
+    UUID groupId = item.groupId();
+    UUID assigneeUserId = item.assigneeUserId();
+    UUID resolvedInstructionId = item.instructionId();
     UUID useInstructionId = instructionId != null ? instructionId : resolvedInstructionId;
 
     if (groupId == null || assigneeUserId == null) return;
@@ -320,24 +411,14 @@ public class OutboxPoller {
     );
     if (itemId == null) return;
 
-    List<Map<String, Object>> rows = jdbc.queryForList(
-      """
-      select ii.group_id,
-           ii.due_at,
-           coalesce(ii.assignee_user_id, ii.created_by) as assignee_user_id,
-           ii.instruction_id
-      from instruction_item ii
-      where ii.id=?
-      """,
-      itemId
-    );
+    List<ItemTarget> rows = jdbc.query(ITEM_TARGET_SQL, ITEM_TARGET, itemId);
     if (rows.isEmpty()) return;
-    Map<String, Object> r = rows.getFirst();
+    ItemTarget r = rows.getFirst();
 
-    UUID groupId = (UUID) r.get("group_id");
-    UUID assigneeUserId = (UUID) r.get("assignee_user_id");
-    OffsetDateTime dueAt = (OffsetDateTime) r.get("due_at");
-    UUID resolvedInstructionId = (UUID) r.get("instruction_id");
+    UUID groupId = r.groupId();
+    UUID assigneeUserId = r.assigneeUserId();
+    OffsetDateTime dueAt = r.dueAt();
+    UUID resolvedInstructionId = r.instructionId();
     UUID useInstructionId = instructionId != null ? instructionId : resolvedInstructionId;
 
     if (groupId == null || assigneeUserId == null) return;
@@ -370,22 +451,13 @@ public class OutboxPoller {
     );
     if (itemId == null || issuedByUserId == null) return;
 
-    List<Map<String, Object>> rows = jdbc.queryForList(
-      """
-      select ii.group_id,
-           ii.due_at,
-           ii.instruction_id
-      from instruction_item ii
-      where ii.id=?
-      """,
-      itemId
-    );
+    List<ItemTarget> rows = jdbc.query(ITEM_TARGET_SQL, ITEM_TARGET, itemId);
     if (rows.isEmpty()) return;
-    Map<String, Object> r = rows.getFirst();
+    ItemTarget r = rows.getFirst();
 
-    UUID groupId = (UUID) r.get("group_id");
-    OffsetDateTime dueAt = (OffsetDateTime) r.get("due_at");
-    UUID resolvedInstructionId = (UUID) r.get("instruction_id");
+    UUID groupId = r.groupId();
+    OffsetDateTime dueAt = r.dueAt();
+    UUID resolvedInstructionId = r.instructionId();
     UUID useInstructionId = instructionId != null ? instructionId : resolvedInstructionId;
 
     if (groupId == null) return;
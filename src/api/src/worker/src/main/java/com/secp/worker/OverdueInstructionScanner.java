@@ -15,7 +15,6 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 @Component
@@ -44,6 +43,16 @@ public class OverdueInstructionScanner {
   @Value("${worker.overdue-batch-size:100}")
   private int batchSize;
 
+  private record OverdueItem(UUID itemId,
+                             UUID instructionId,
+                             UUID groupId,
+                             UUID projectId,
+                             UUID caseId,
+                             UUID issuedByUserId,
+                             UUID assigneeUserId,
+                             OffsetDateTime dueAt) {
+  }
+
   @Scheduled(fixedDelayString = "${worker.overdue-scan-ms:60000}")
   public void tick() {
     scanOnce();
@@ -60,7 +69,7 @@ public class OverdueInstructionScanner {
     String hourKey = nowZdt.format(HOUR_FMT);
     String dayKey = nowZdt.format(DAY_FMT);
 
-    List<Map<String, Object>> rows = jdbc.queryForList(
+    List<OverdueItem> rows = jdbc.query(
         """
         select ii.id as instruction_item_id,
                ii.due_at,
@@ -80,19 +89,29 @@ public class OverdueInstructionScanner {
          order by ii.due_at
          limit ?
         """,
+        (rs, rowNum) -> new OverdueItem(
+            rs.getObject("instruction_item_id", UUID.class),
+            rs.getObject("instruction_id", UUID.class),
+            rs.getObject("group_id", UUID.class),
+            rs.getObject("project_id", UUID.class),
+            rs.getObject("case_id", UUID.class),
+            rs.getObject("issued_by", UUID.class),
+            rs.getObject("assignee_user_id", UUID.class),
+            rs.getObject("due_at", OffsetDateTime.class)
+        ),
         nowAt,
         batchSize
     );
 
-    for (Map<String, Object> r : rows) {
-      UUID itemId = (UUID) r.get("instruction_item_id");
-      UUID instructionId = (UUID) r.get("instruction_id");
-      UUID groupId = (UUID) r.get("group_id");
-      UUID projectId = (UUID) r.get("project_id");
-      UUID caseId = (UUID) r.get("case_id");
-      UUID issuedByUserId = (UUID) r.get("issued_by");
-      UUID assigneeUserId = (UUID) r.get("assignee_user_id");
-      OffsetDateTime dueAt = (OffsetDateTime) r.get("due_at");
+    for (OverdueItem r : rows) {
+      UUID itemId = r.itemId();
+      UUID instructionId = r.instructionId();
+      UUID groupId = r.groupId();
+      UUID projectId = r.projectId();
+      UUID caseId = r.caseId();
+      UUID issuedByUserId = r.issuedByUserId();
+      UUID assigneeUserId = r.assigneeUserId();
+      OffsetDateTime dueAt = r.dueAt();
 
       // ---- keep existing hourly event (do not break) ----
       String hourlyDedupeKey = "InstructionItem.Overdue:instruction_item:" + itemId + ":h" + hourKey;
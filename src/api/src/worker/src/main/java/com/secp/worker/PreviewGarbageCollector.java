@@ -0,0 +1,240 @@
+package com.secp.worker;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Deletes expired preview state in bounded batches, each in its own short transaction:
+ * file_preview_token rows past expires_at, finished preview_render_job rows past retention, and
+ * preview_index / a4_export_index rows past expires_at together with their S3 objects (multi-object
+ * delete), and bulk A4 export jobs past expires_at together with their zips. Upload state is
+ * collected by {@link UploadGarbageCollector}.
+ * <p>
+ * Several index rows can share one object key (the key has no fingerprint), so an object is only
+ * deleted when no remaining row points at it. A view or export that races with the delete evicts
+ * its index row and re-renders (see the api's PreviewService and A4ExportCache).
+ */
+@Component
+public class PreviewGarbageCollector {
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final PreviewStorage storage;
+
+  @Value("${worker.preview-gc.enabled:true}")
+  private boolean enabled = true;
+
+  @Value("${worker.preview-gc.batch-size:500}")
+  private int batchSize = 500;
+
+  @Value("${worker.preview-gc.max-batches:20}")
+  private int maxBatches = 20;
+
+  @Value("${worker.preview-gc.job-retention-hours:24}")
+  private int jobRetentionHours = 24;
+
+  @Autowired
+  public PreviewGarbageCollector(JdbcTemplate jdbc, TransactionTemplate tx, PreviewStorage storage) {
+    this.jdbc = jdbc;
+    this.tx = tx;
+    this.storage = storage;
+  }
+
+  public record Result(int tokens, int indexRows, int objects, int renderJobs, int a4Rows, int a4BulkJobs) {
+  }
+
+  @Scheduled(fixedDelayString = "${worker.preview-gc.interval-ms:300000}", initialDelay = 30000)
+  public void tick() {
+    if (!enabled) {
+      return;
+    }
+    try {
+      Result r = collectOnce();
+      if (r.tokens() + r.indexRows() + r.renderJobs() + r.a4Rows() + r.a4BulkJobs() > 0) {
+        System.out.println("[worker] preview gc tokens=" + r.tokens() + " indexRows=" + r.indexRows()
+            + " objects=" + r.objects() + " renderJobs=" + r.renderJobs() + " a4Rows=" + r.a4Rows()
+            + " a4BulkJobs=" + r.a4BulkJobs());
+      }
+    } catch (RuntimeException e) {
+      System.err.println("[worker] preview gc failed error=" + e);
+    }
+  }
+
+  /**
+   * One pass: up to {@code maxBatches} batches per table, stopping early once a batch comes back short.
+   */
+  public Result collectOnce() {
+    int tokens = drain(this::deleteExpiredTokens);
+    int jobs = drain(this::deleteFinishedRenderJobs);
+
+    IndexSweep previews = sweepIndex("preview_index");
+    IndexSweep a4 = sweepIndex("a4_export_index");
+    IndexSweep bulk = sweep(this::deleteExpiredBulkJobs);
+    return new Result(tokens, previews.rows(), previews.objects() + a4.objects() + bulk.objects(), jobs, a4.rows(),
+        bulk.rows());
+  }
+
+  private record IndexSweep(int rows, int objects) {
+  }
+
+  private IndexSweep sweepIndex(String table) {
+    return sweep(() -> deleteExpiredIndexRows(table));
+  }
+
+  private IndexSweep sweep(Supplier<IndexBatch> deleteBatch) {
+    int rows = 0;
+    int objects = 0;
+    for (int i = 0; i < maxBatches; i++) {
+      IndexBatch batch = tx.execute(s -> deleteBatch.get());
+      if (batch == null || batch.rows() == 0) {
+        break;
+      }
+      rows += batch.rows();
+      if (!batch.orphanKeys().isEmpty()) {
+        List<S3Error> errors = storage.deleteAll(batch.orphanKeys());
+        objects += batch.orphanKeys().size() - errors.size();
+        for (S3Error err : errors) {
+          System.err.println("[worker] preview gc s3 delete failed key=" + err.key() + " code=" + err.code());
+        }
+      }
+      if (batch.rows() < batchSize) {
+        break;
+      }
+    }
+    return new IndexSweep(rows, objects);
+  }
+
+  private int drain(IntSupplier batch) {
+    int total = 0;
+    for (int i = 0; i < maxBatches; i++) {
+      Integer n = tx.execute(s -> batch.getAsInt());
+      int deleted = n == null ? 0 : n;
+      total += deleted;
+      if (deleted < batchSize) {
+        break;
+      }
+    }
+    return total;
+  }
+
+  private int deleteExpiredTokens() {
+    asWorkerSession();
+    return jdbc.update(
+        """
+        delete from file_preview_token
+         where id in (
+                 select id
+                   from file_preview_token
+                  where expires_at < now()
+                  order by expires_at
+                  limit ?
+                  for update skip locked
+               )
+        """,
+        batchSize
+    );
+  }
+
+  private int deleteFinishedRenderJobs() {
+    asWorkerSession();
+    return jdbc.update(
+        """
+        delete from preview_render_job
+         where id in (
+                 select id
+                   from preview_render_job
+                  where status in ('done', 'failed')
+                    and finished_at < now() - make_interval(hours => ?)
+                  order by finished_at
+                  limit ?
+                  for update skip locked
+               )
+        """,
+        jobRetentionHours,
+        batchSize
+    );
+  }
+
+  private record IndexBatch(int rows, List<String> orphanKeys) {
+  }
+
+  /**
+   * @param table preview_index or a4_export_index (same id / s3_key / expires_at shape)
+   */
+  private IndexBatch deleteExpiredIndexRows(String table) {
+    asWorkerSession();
+    List<String> deletedKeys = jdbc.queryForList(
+        """
+        delete from %1$s
+         where id in (
+                 select id
+                   from %1$s
+                  where expires_at < now()
+                  order by expires_at
+                  limit ?
+                  for update skip locked
+               )
+        returning s3_key
+        """.formatted(table),
+        String.class,
+        batchSize
+    );
+    if (deletedKeys.isEmpty()) {
+      return new IndexBatch(0, List.of());
+    }
+    Set<String> keys = new LinkedHashSet<>(deletedKeys);
+    List<String> stillReferenced = jdbc.queryForList(
+        "select distinct s3_key from " + table + " where s3_key = any(?)",
+        String.class,
+        (Object) keys.toArray(String[]::new)
+    );
+    stillReferenced.forEach(keys::remove);
+    return new IndexBatch(deletedKeys.size(), new ArrayList<>(keys));
+  }
+
+  /**
+   * Expired a4_bulk_export_job rows (items cascade) and their zips, one object per job. Running jobs
+   * are skipped; the api's runner requeues or fails them once their heartbeat is stale.
+   */
+  private IndexBatch deleteExpiredBulkJobs() {
+    asWorkerSession();
+    List<String> keys = jdbc.query(
+        """
+        delete from a4_bulk_export_job
+         where id in (
+                 select id
+                   from a4_bulk_export_job
+                  where expires_at < now()
+                    and status <> 'running'
+                  order by expires_at
+                  limit ?
+                  for update skip locked
+               )
+        returning s3_key
+        """,
+        (rs, i) -> rs.getString(1),
+        batchSize
+    );
+    List<String> objects = keys.stream().filter(Objects::nonNull).toList();
+    return new IndexBatch(keys.size(), objects);
+  }
+
+  private void asWorkerSession() {
+    jdbc.execute("SET LOCAL app.is_admin = 'true'");
+    jdbc.execute("SET LOCAL app.user_id = ''");
+    jdbc.execute("SET LOCAL app.group_ids = ''");
+  }
+}
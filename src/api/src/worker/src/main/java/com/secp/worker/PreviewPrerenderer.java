@@ -0,0 +1,271 @@
+package com.secp.worker;
+
+import com.secp.preview.render.PdfPreviewRenderer;
+import com.secp.preview.render.PreviewKeys;
+import com.secp.preview.render.PreviewRejectedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Renders pending raster_base rows of file_variant (enqueued by OutboxPoller on File.Uploaded).
+ * <p>
+ * A row is claimed ('rendering') in a short transaction, rendered and uploaded with no
+ * transaction or connection held, then finished as 'ready' or 'failed' in a second short
+ * transaction. Claims left in 'rendering' by a crashed worker are picked up again once stale.
+ * Transient failures are retried with exponential backoff ({@code next_attempt_at}).
+ */
+@Component
+public class PreviewPrerenderer {
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final PreviewStorage storage;
+
+  @Value("${worker.preview.enabled:true}")
+  private boolean enabled = true;
+
+  @Value("${worker.preview.batch-size:4}")
+  private int batchSize = 4;
+
+  @Value("${worker.preview.max-attempts:5}")
+  private int maxAttempts = 5;
+
+  @Value("${worker.preview.retry-base-seconds:30}")
+  private long retryBaseSeconds = 30;
+
+  @Value("${worker.preview.retry-max-seconds:1800}")
+  private long retryMaxSeconds = 1800;
+
+  @Value("${worker.preview.stale-rendering-minutes:10}")
+  private int staleRenderingMinutes = 10;
+
+  @Value("${worker.preview.max-size-bytes:52428800}")
+  private long maxSizeBytes = 52428800L;
+
+  @Value("${worker.preview.max-pages:80}")
+  private int maxPages = 80;
+
+  @Value("${worker.preview.render-parallelism:1}")
+  private int renderParallelism = 1;
+
+  @Autowired
+  public PreviewPrerenderer(JdbcTemplate jdbc, TransactionTemplate tx, PreviewStorage storage) {
+    this.jdbc = jdbc;
+    this.tx = tx;
+    this.storage = storage;
+  }
+
+  @Scheduled(fixedDelayString = "${worker.preview.poll-ms:2000}")
+  public void tick() {
+    if (!enabled) {
+      return;
+    }
+    for (int i = 0; i < batchSize; i++) {
+      if (!renderOnce()) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return false when there was nothing to claim
+   */
+  public boolean renderOnce() {
+    Claim claim = tx.execute(s -> claimNext());
+    if (claim == null) {
+      return false;
+    }
+
+    Path raw = null;
+    Path base = null;
+    try {
+      if (claim.sizeBytes() > maxSizeBytes) {
+        finishFailed(claim, "FILE_TOO_LARGE");
+        return true;
+      }
+
+      Variant shared = findSameContentVariant(claim);
+      if (shared != null) {
+        if ("ready".equals(shared.status())) {
+          finishReady(claim, shared.s3Key(), shared.sizeBytes(), shared.pageCount());
+        } else {
+          finishFailed(claim, shared.error());
+        }
+        return true;
+      }
+
+      raw = Files.createTempFile("secp-prerender-raw-", ".pdf");
+      base = Files.createTempFile("secp-prerender-base-", ".pdf");
+      storage.download(claim.rawKey(), raw);
+
+      // the render pass itself rejects INVALID_PDF / TOO_MANY_PAGES
+      int pageCount;
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(base))) {
+        pageCount = PdfPreviewRenderer.renderRasterBasePdf(raw.toFile(), out, maxPages, renderParallelism);
+      }
+
+      String key = PreviewKeys.rasterBaseKey(claim.fileId(), claim.fingerprint(), claim.wmVer());
+      storage.upload(key, base);
+      finishReady(claim, key, Files.size(base), pageCount);
+    } catch (PreviewRejectedException e) {
+      finishFailed(claim, e.getMessage());
+    } catch (Exception e) {
+      retryOrFail(claim, e);
+    } finally {
+      PreviewStorage.deleteQuietly(raw);
+      PreviewStorage.deleteQuietly(base);
+    }
+    return true;
+  }
+
+  private record Claim(UUID id, UUID fileId, String fingerprint, int wmVer, int attempts, String rawKey, long sizeBytes) {
+  }
+
+  private Claim claimNext() {
+    asWorkerSession();
+    List<Claim> rows = jdbc.query(
+        """
+        update file_variant fv
+           set status = 'rendering',
+               attempts = fv.attempts + 1,
+               updated_at = now()
+          from file_store fs
+         where fv.id = (
+                 select id
+                   from file_variant
+                  where variant = 'raster_base'
+                    and ((status = 'pending' and (next_attempt_at is null or next_attempt_at <= now()))
+                         or (status = 'rendering' and updated_at < now() - make_interval(mins => ?)))
+                  order by created_at
+                  limit 1
+                  for update skip locked
+               )
+           and fs.id = fv.file_id
+        returning fv.id, fv.file_id, fv.file_fingerprint, fv.wm_ver, fv.attempts, fs.s3_key_raw, fs.size_bytes
+        """,
+        (rs, rowNum) -> new Claim(
+            rs.getObject("id", UUID.class),
+            rs.getObject("file_id", UUID.class),
+            rs.getString("file_fingerprint"),
+            rs.getInt("wm_ver"),
+            rs.getInt("attempts"),
+            rs.getString("s3_key_raw"),
+            rs.getLong("size_bytes")
+        ),
+        staleRenderingMinutes
+    );
+    return rows.isEmpty() ? null : rows.getFirst();
+  }
+
+  private record Variant(String status, String s3Key, long sizeBytes, Integer pageCount, String error) {
+  }
+
+  /**
+   * Another file stored as the same blob (same fingerprint) whose raster base is already done:
+   * its object is reused, and a rejection of its content holds for this file too.
+   */
+  private Variant findSameContentVariant(Claim claim) {
+    if (!PreviewKeys.isBlobFingerprint(claim.fingerprint())) {
+      return null;
+    }
+    return tx.execute(s -> {
+      asWorkerSession();
+      List<Variant> rows = jdbc.query(
+          """
+          select status, s3_key, size_bytes, page_count, error
+            from file_variant
+           where variant = 'raster_base'
+             and file_fingerprint = ?
+             and wm_ver = ?
+             and file_id <> ?
+             and (status = 'ready' or (status = 'failed' and error in ('INVALID_PDF', 'TOO_MANY_PAGES', 'FILE_TOO_LARGE')))
+           order by (status = 'ready') desc
+           limit 1
+          """,
+          (rs, rowNum) -> new Variant(
+              rs.getString("status"),
+              rs.getString("s3_key"),
+              rs.getLong("size_bytes"),
+              rs.getObject("page_count", Integer.class),
+              rs.getString("error")
+          ),
+          claim.fingerprint(),
+          claim.wmVer(),
+          claim.fileId()
+      );
+      return rows.isEmpty() ? null : rows.getFirst();
+    });
+  }
+
+  private void finishReady(Claim claim, String s3Key, long sizeBytes, Integer pageCount) {
+    tx.executeWithoutResult(s -> {
+      asWorkerSession();
+      // the api may have rendered (and marked ready) the same base meanwhile
+      jdbc.update(
+          """
+          update file_variant
+             set status = 'ready', s3_key = ?, size_bytes = ?, page_count = ?, error = null, updated_at = now()
+           where id = ? and status = 'rendering'
+          """,
+          s3Key, sizeBytes, pageCount, claim.id()
+      );
+    });
+  }
+
+  private void finishFailed(Claim claim, String error) {
+    tx.executeWithoutResult(s -> {
+      asWorkerSession();
+      jdbc.update(
+          "update file_variant set status = 'failed', error = ?, updated_at = now() where id = ? and status = 'rendering'",
+          error, claim.id()
+      );
+    });
+  }
+
+  private void retryOrFail(Claim claim, Exception ex) {
+    if (claim.attempts() >= maxAttempts) {
+      finishFailed(claim, "RENDER_ERROR");
+    } else {
+      long delaySeconds = retryDelaySeconds(claim.attempts());
+      tx.executeWithoutResult(s -> {
+        asWorkerSession();
+        jdbc.update(
+            """
+            update file_variant
+               set status = 'pending', error = left(?, 64), updated_at = now(),
+                   next_attempt_at = now() + make_interval(secs => ?)
+             where id = ? and status = 'rendering'
+            """,
+            ex.getClass().getSimpleName(), delaySeconds, claim.id()
+        );
+      });
+    }
+    System.err.println("[worker] preview prerender failed fileId=" + claim.fileId()
+        + " attempt=" + claim.attempts() + " error=" + ex);
+  }
+
+  /**
+   * {@code retry-base-seconds * 2^(attempts-1)}, capped at {@code retry-max-seconds}.
+   */
+  long retryDelaySeconds(int attempts) {
+    int shift = Math.min(Math.max(attempts - 1, 0), 30);
+    return Math.min(retryMaxSeconds, retryBaseSeconds << shift);
+  }
+
+  private void asWorkerSession() {
+    jdbc.execute("SET LOCAL app.is_admin = 'true'");
+    jdbc.execute("SET LOCAL app.user_id = ''");
+    jdbc.execute("SET LOCAL app.group_ids = ''");
+  }
+}
@@ -0,0 +1,293 @@
+package com.secp.worker;
+
+import com.secp.preview.render.PdfPreviewRenderer;
+import com.secp.preview.render.PreviewKeys;
+import com.secp.preview.render.PreviewRejectedException;
+import com.secp.preview.render.WatermarkStyle;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Consumes preview_render_job rows submitted by the api (secp.preview.queue.enabled).
+ * <p>
+ * Jobs are claimed one by one in short transactions and rendered on a dedicated, bounded pool,
+ * so render spikes never delay outbox polling and never hold a connection while rendering.
+ * External jobs are composited from the shared raster base (rendered and indexed here when
+ * missing); internal/client jobs get the vector watermark.
+ */
+@Component
+public class PreviewRenderJobWorker {
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final PreviewStorage storage;
+
+  @Value("${worker.render.enabled:true}")
+  private boolean enabled = true;
+
+  @Value("${worker.render.page-parallelism:0}")
+  private int pageParallelism = 0;
+
+  private final Semaphore slots;
+  private final ExecutorService pool;
+
+  @Autowired
+  public PreviewRenderJobWorker(JdbcTemplate jdbc,
+                                TransactionTemplate tx,
+                                PreviewStorage storage,
+                                @Value("${worker.render.concurrency:2}") int concurrency) {
+    this.jdbc = jdbc;
+    this.tx = tx;
+    this.storage = storage;
+    int threads = Math.max(1, concurrency);
+    this.slots = new Semaphore(threads);
+    this.pool = Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "preview-render");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    pool.shutdownNow();
+  }
+
+  @Scheduled(fixedDelayString = "${worker.render.poll-ms:200}")
+  public void tick() {
+    if (!enabled) {
+      return;
+    }
+    expireAbandoned();
+    while (slots.tryAcquire()) {
+      Job job;
+      try {
+        job = tx.execute(s -> claimNext());
+      } catch (RuntimeException e) {
+        slots.release();
+        throw e;
+      }
+      if (job == null) {
+        slots.release();
+        return;
+      }
+      pool.execute(() -> {
+        try {
+          process(job);
+        } finally {
+          slots.release();
+        }
+      });
+    }
+  }
+
+  record Job(UUID id,
+             UUID fileId,
+             UUID viewerUserId,
+             String variant,
+             String fileFingerprint,
+             int wmVer,
+             String rawKey,
+             String outputKey,
+             String watermark,
+             WatermarkStyle style,
+             double densityMultiplier,
+             int maxPages) {
+  }
+
+  private Job claimNext() {
+    asWorkerSession();
+    List<Job> rows = jdbc.query(
+        """
+        update preview_render_job
+           set status = 'running', started_at = now()
+         where id = (
+                 select id
+                   from preview_render_job
+                  where status = 'queued'
+                    and deadline_at > now()
+                  order by created_at
+                  limit 1
+                  for update skip locked
+               )
+        returning id, file_id, viewer_user_id, variant, file_fingerprint, wm_ver, raw_key, output_key,
+                  params->>'watermark' as watermark,
+                  (params->>'opacity')::float8 as opacity,
+                  (params->>'fontSize')::int as font_size,
+                  (params->>'angle')::float8 as angle,
+                  coalesce((params->>'densityMultiplier')::float8, 1.0) as density_multiplier,
+                  (params->>'maxPages')::int as max_pages
+        """,
+        (rs, rowNum) -> new Job(
+            rs.getObject("id", UUID.class),
+            rs.getObject("file_id", UUID.class),
+            rs.getObject("viewer_user_id", UUID.class),
+            rs.getString("variant"),
+            rs.getString("file_fingerprint"),
+            rs.getInt("wm_ver"),
+            rs.getString("raw_key"),
+            rs.getString("output_key"),
+            String.valueOf(rs.getString("watermark")),
+            new WatermarkStyle(rs.getDouble("opacity"), rs.getInt("font_size"), rs.getDouble("angle")),
+            rs.getDouble("density_multiplier"),
+            rs.getInt("max_pages")
+        )
+    );
+    return rows.isEmpty() ? null : rows.getFirst();
+  }
+
+  void process(Job job) {
+    Path raw = null;
+    Path base = null;
+    Path rendered = null;
+    try {
+      rendered = Files.createTempFile("secp-render-", ".pdf");
+      if ("external".equals(job.variant())) {
+        base = fetchOrRenderRasterBase(job);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(rendered))) {
+          PdfPreviewRenderer.watermarkRasterBasePdf(base.toFile(), out, job.watermark(), job.style(),
+              job.densityMultiplier(), job.maxPages(), pageParallelism());
+        }
+      } else {
+        raw = Files.createTempFile("secp-render-raw-", ".pdf");
+        storage.download(job.rawKey(), raw);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(rendered))) {
+          PdfPreviewRenderer.renderInternalLikeWatermarkedPdf(raw.toFile(), out, job.watermark(), job.style(),
+              job.maxPages());
+        }
+      }
+      storage.upload(job.outputKey(), rendered);
+      finish(job, "done", null, Files.size(rendered));
+    } catch (PreviewRejectedException e) {
+      finish(job, "failed", e.getMessage(), null);
+    } catch (Exception e) {
+      System.err.println("[worker] preview render failed jobId=" + job.id() + " error=" + e);
+      finish(job, "failed", "RENDER_ERROR", null);
+    } finally {
+      PreviewStorage.deleteQuietly(raw);
+      PreviewStorage.deleteQuietly(base);
+      PreviewStorage.deleteQuietly(rendered);
+    }
+  }
+
+  private Path fetchOrRenderRasterBase(Job job) throws IOException {
+    Path base = Files.createTempFile("secp-render-base-", ".pdf");
+    try {
+      String cachedKey = tx.execute(s -> {
+        asWorkerSession();
+        List<String> keys = jdbc.queryForList(
+            """
+            select s3_key from file_variant
+             where file_id = ? and variant = 'raster_base' and file_fingerprint = ? and wm_ver = ? and status = 'ready'
+            """,
+            String.class,
+            job.fileId(), job.fileFingerprint(), job.wmVer()
+        );
+        return keys.isEmpty() ? null : keys.getFirst();
+      });
+      if (cachedKey != null) {
+        try {
+          storage.download(cachedKey, base);
+          return base;
+        } catch (NoSuchKeyException e) {
+          // index row outlived the object; render it again below
+        }
+      }
+
+      Path raw = Files.createTempFile("secp-render-raw-", ".pdf");
+      int pageCount;
+      try {
+        storage.download(job.rawKey(), raw);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(base))) {
+          pageCount = PdfPreviewRenderer.renderRasterBasePdf(raw.toFile(), out, job.maxPages(), pageParallelism());
+        }
+      } finally {
+        PreviewStorage.deleteQuietly(raw);
+      }
+
+      String key = PreviewKeys.rasterBaseKey(job.fileId(), job.fileFingerprint(), job.wmVer());
+      storage.upload(key, base);
+      long size = Files.size(base);
+      tx.executeWithoutResult(s -> {
+        asWorkerSession();
+        jdbc.update(
+            """
+            insert into file_variant(file_id, variant, file_fingerprint, wm_ver, content_type, size_bytes, s3_key, page_count, status, created_by)
+            values (?, 'raster_base', ?, ?, 'application/pdf', ?, ?, ?, 'ready', ?)
+            on conflict (file_id, variant, file_fingerprint, wm_ver) do update
+              set s3_key = excluded.s3_key,
+                  size_bytes = excluded.size_bytes,
+                  page_count = excluded.page_count,
+                  status = 'ready',
+                  error = null,
+                  updated_at = now()
+            """,
+            job.fileId(), job.fileFingerprint(), job.wmVer(), size, key, pageCount, job.viewerUserId()
+        );
+      });
+      return base;
+    } catch (IOException | RuntimeException e) {
+      PreviewStorage.deleteQuietly(base);
+      throw e;
+    }
+  }
+
+  private void finish(Job job, String status, String error, Long sizeBytes) {
+    tx.executeWithoutResult(s -> {
+      asWorkerSession();
+      jdbc.update(
+          """
+          update preview_render_job
+             set status = ?, error = ?, size_bytes = ?, finished_at = now()
+           where id = ? and status = 'running'
+          """,
+          status, error, sizeBytes, job.id()
+      );
+    });
+  }
+
+  /**
+   * The api gave up on these; rendering them would only add load. Also closes jobs left
+   * 'running' by a crashed worker.
+   */
+  private void expireAbandoned() {
+    tx.executeWithoutResult(s -> {
+      asWorkerSession();
+      jdbc.update(
+          """
+          update preview_render_job
+             set status = 'failed', error = 'EXPIRED', finished_at = now()
+           where (status = 'queued' and deadline_at <= now())
+              or (status = 'running' and deadline_at <= now() - interval '10 minutes')
+          """
+      );
+    });
+  }
+
+  private int pageParallelism() {
+    return pageParallelism > 0 ? pageParallelism : PdfPreviewRenderer.defaultParallelism();
+  }
+
+  private void asWorkerSession() {
+    jdbc.execute("SET LOCAL app.is_admin = 'true'");
+    jdbc.execute("SET LOCAL app.user_id = ''");
+    jdbc.execute("SET LOCAL app.group_ids = ''");
+  }
+}
@@ -0,0 +1,97 @@
+package com.secp.worker;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * S3 access for preview rendering. Objects are spooled through temp files; nothing is buffered
+ * in memory.
+ */
+@Component
+public class PreviewStorage {
+
+  /** S3 DeleteObjects accepts at most 1000 keys per call. */
+  static final int MAX_KEYS_PER_DELETE = 1000;
+
+  private final S3Client s3;
+  private final String bucket;
+
+  public PreviewStorage(S3Client s3, @Value("${secp.s3.bucket}") String bucket) {
+    this.s3 = s3;
+    this.bucket = bucket;
+  }
+
+  public void download(String key, Path target) throws IOException {
+    Files.deleteIfExists(target);
+    s3.getObject(GetObjectRequest.builder().bucket(bucket).key(key).build(), ResponseTransformer.toFile(target));
+  }
+
+  public void upload(String key, Path file) {
+    s3.putObject(
+        PutObjectRequest.builder().bucket(bucket).key(key).contentType("application/pdf").build(),
+        RequestBody.fromFile(file)
+    );
+  }
+
+  /**
+   * Multi-object delete in chunks of {@link #MAX_KEYS_PER_DELETE}; missing keys count as deleted.
+   *
+   * @return per-key failures reported by S3 (empty when everything was removed)
+   */
+  public List<S3Error> deleteAll(List<String> keys) {
+    List<S3Error> errors = new ArrayList<>();
+    for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_DELETE) {
+      List<ObjectIdentifier> ids = keys.subList(from, Math.min(keys.size(), from + MAX_KEYS_PER_DELETE)).stream()
+          .map(k -> ObjectIdentifier.builder().key(k).build())
+          .toList();
+      DeleteObjectsResponse resp = s3.deleteObjects(DeleteObjectsRequest.builder()
+          .bucket(bucket)
+          .delete(Delete.builder().objects(ids).quiet(true).build())
+          .build());
+      if (resp != null && resp.hasErrors()) {
+        errors.addAll(resp.errors());
+      }
+    }
+    return errors;
+  }
+
+  /**
+   * Drops an unfinished multipart upload and its stored parts; an upload that is already gone counts as aborted.
+   */
+  public void abortMultipartUpload(String key, String uploadId) {
+    try {
+      s3.abortMultipartUpload(AbortMultipartUploadRequest.builder().bucket(bucket).key(key).uploadId(uploadId).build());
+    } catch (NoSuchUploadException ignored) {
+      // completed or aborted already
+    }
+  }
+
+  static void deleteQuietly(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException ignored) {
+      // best-effort
+    }
+  }
+}
@@ -0,0 +1,178 @@
+package com.secp.worker;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deletes abandoned upload state in bounded batches, each in its own short transaction:
+ * file_multipart_upload rows past expires_at together with the parts S3 holds for them, and
+ * file_blob rows no file has referenced for {@code blob-grace-hours} together with their objects.
+ */
+@Component
+public class UploadGarbageCollector {
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final PreviewStorage storage;
+
+  @Value("${worker.upload-gc.enabled:true}")
+  private boolean enabled = true;
+
+  @Value("${worker.upload-gc.batch-size:500}")
+  private int batchSize = 500;
+
+  @Value("${worker.upload-gc.max-batches:20}")
+  private int maxBatches = 20;
+
+  @Value("${worker.upload-gc.blob-grace-hours:24}")
+  private int blobGraceHours = 24;
+
+  @Autowired
+  public UploadGarbageCollector(JdbcTemplate jdbc, TransactionTemplate tx, PreviewStorage storage) {
+    this.jdbc = jdbc;
+    this.tx = tx;
+    this.storage = storage;
+  }
+
+  public record Result(int multipartUploads, int blobs) {
+  }
+
+  @Scheduled(fixedDelayString = "${worker.upload-gc.interval-ms:300000}", initialDelay = 45000)
+  public void tick() {
+    if (!enabled) {
+      return;
+    }
+    try {
+      Result r = collectOnce();
+      if (r.multipartUploads() + r.blobs() > 0) {
+        System.out.println("[worker] upload gc multipartUploads=" + r.multipartUploads() + " blobs=" + r.blobs());
+      }
+    } catch (RuntimeException e) {
+      System.err.println("[worker] upload gc failed error=" + e);
+    }
+  }
+
+  /**
+   * One pass: up to {@code maxBatches} batches per table, stopping early once a batch comes back short.
+   */
+  public Result collectOnce() {
+    int multipart = abortExpiredMultipartUploads();
+    int blobs = deleteUnreferencedBlobs();
+    return new Result(multipart, blobs);
+  }
+
+  private record MultipartUpload(String key, String uploadId) {
+  }
+
+  /**
+   * Deletes expired file_multipart_upload rows batch by batch and aborts each upload in S3 after
+   * its batch committed. An abort that fails is logged and its parts are left behind.
+   */
+  private int abortExpiredMultipartUploads() {
+    int total = 0;
+    for (int i = 0; i < maxBatches; i++) {
+      List<MultipartUpload> batch = tx.execute(s -> deleteExpiredMultipartUploads());
+      if (batch == null || batch.isEmpty()) {
+        break;
+      }
+      total += batch.size();
+      for (MultipartUpload u : batch) {
+        try {
+          storage.abortMultipartUpload(u.key(), u.uploadId());
+        } catch (RuntimeException e) {
+          System.err.println("[worker] upload gc multipart abort failed key=" + u.key() + " error=" + e);
+        }
+      }
+      if (batch.size() < batchSize) {
+        break;
+      }
+    }
+    return total;
+  }
+
+  private List<MultipartUpload> deleteExpiredMultipartUploads() {
+    asWorkerSession();
+    return jdbc.query(
+        """
+        delete from file_multipart_upload
+         where file_id in (
+                 select file_id
+                   from file_multipart_upload
+                  where expires_at < now()
+                  order by expires_at
+                  limit ?
+                  for update skip locked
+               )
+        returning s3_key_raw, upload_id
+        """,
+        (rs, i) -> new MultipartUpload(rs.getString("s3_key_raw"), rs.getString("upload_id")),
+        batchSize
+    );
+  }
+
+  private int deleteUnreferencedBlobs() {
+    int total = 0;
+    for (int i = 0; i < maxBatches; i++) {
+      Integer n = tx.execute(s -> deleteUnreferencedBlobBatch());
+      int deleted = n == null ? 0 : n;
+      total += deleted;
+      if (deleted < batchSize) {
+        break;
+      }
+    }
+    return total;
+  }
+
+  private record Blob(String sha256, String key) {
+  }
+
+  /**
+   * Unlike the multipart sweep, the objects are deleted while the batch's rows are still locked:
+   * an upload linking the same content again waits on the lock and then creates a fresh blob,
+   * instead of linking to a row whose object is already gone. A blob whose object delete failed
+   * keeps its row and is retried next pass.
+   */
+  private int deleteUnreferencedBlobBatch() {
+    asWorkerSession();
+    List<Blob> blobs = jdbc.query(
+        """
+        select sha256, s3_key
+          from file_blob
+         where ref_count = 0
+           and updated_at < now() - make_interval(hours => ?)
+         order by updated_at
+         limit ?
+         for update skip locked
+        """,
+        (rs, i) -> new Blob(rs.getString("sha256"), rs.getString("s3_key")),
+        blobGraceHours,
+        batchSize
+    );
+    if (blobs.isEmpty()) {
+      return 0;
+    }
+    Set<String> failedKeys = new LinkedHashSet<>();
+    for (S3Error err : storage.deleteAll(blobs.stream().map(Blob::key).toList())) {
+      System.err.println("[worker] upload gc blob delete failed key=" + err.key() + " code=" + err.code());
+      failedKeys.add(err.key());
+    }
+    List<String> deleted = blobs.stream().filter(b -> !failedKeys.contains(b.key())).map(Blob::sha256).toList();
+    jdbc.update("delete from file_blob where sha256 = any(?)", (Object) deleted.toArray(String[]::new));
+    return deleted.size();
+  }
+
+  private void asWorkerSession() {
+    jdbc.execute("SET LOCAL app.is_admin = 'true'");
+    jdbc.execute("SET LOCAL app.user_id = ''");
+    jdbc.execute("SET LOCAL app.group_ids = ''");
+  }
+}
@@ -0,0 +1,169 @@
+package com.secp.worker.it;
+
+import com.secp.worker.PreviewGarbageCollector;
+import com.secp.worker.PreviewStorage;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+
+class PreviewGarbageCollectorIT extends WorkerIntegrationTestBase {
+
+  @Test
+  void expiredTokensAndIndexRowsAreDeleted_sharedObjectIsKept() {
+    DriverManagerDataSource ds = dataSource();
+    JdbcTemplate jdbc = new JdbcTemplate(ds);
+
+    UUID group = UUID.randomUUID();
+    UUID user = UUID.randomUUID();
+    jdbc.update("insert into app_group(id, name) values (?,?)", group, "GC");
+    jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+        user, "13920000093", "viewer_gc", "external", false);
+    UUID fileId = UUID.randomUUID();
+    jdbc.update("""
+        insert into file_store(id, group_id, filename, content_type, size_bytes, s3_key_raw, created_by, status)
+        values (?,?,?,?,?,?,?, 'READY')
+        """,
+        fileId, group, "a.pdf", "application/pdf", 1024L, "raw/" + fileId + ".pdf", user);
+
+    jdbc.update("""
+        insert into file_preview_token(file_id, viewer_user_id, token_sha256, expires_at, variant)
+        values (?,?,?, now() - interval '1 minute', 'external'),
+               (?,?,?, now() + interval '5 minutes', 'external')
+        """,
+        fileId, user, "expired-" + fileId, fileId, user, "live-" + fileId);
+
+    String sharedKey = "preview/" + fileId + "/external/" + user + "/wm1.pdf";
+    String orphanKey = "preview/" + fileId + "/external/" + user + "/wm0.pdf";
+    jdbc.update("""
+        insert into preview_index(file_id, viewer_user_id, variant, file_fingerprint, wm_ver, s3_key, size_bytes, expires_at)
+        values (?,?,'external','old',1,?,10, now() - interval '1 hour'),
+               (?,?,'external','new',1,?,10, now() + interval '1 hour'),
+               (?,?,'external','old',0,?,10, now() - interval '1 hour')
+        """,
+        fileId, user, sharedKey, fileId, user, sharedKey, fileId, user, orphanKey);
+
+    S3Client s3 = Mockito.mock(S3Client.class);
+    Mockito.when(s3.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(DeleteObjectsResponse.builder().build());
+    PreviewGarbageCollector gc = new PreviewGarbageCollector(
+        jdbc, new TransactionTemplate(new DataSourceTransactionManager(ds)), new PreviewStorage(s3, "it-bucket"));
+
+    PreviewGarbageCollector.Result r = gc.collectOnce();
+    assertEquals(1, r.tokens());
+    assertEquals(2, r.indexRows());
+    assertEquals(1, r.objects());
+
+    ArgumentCaptor<DeleteObjectsRequest> req = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+    Mockito.verify(s3).deleteObjects(req.capture());
+    List<String> deleted = req.getValue().delete().objects().stream().map(ObjectIdentifier::key).toList();
+    assertEquals(List.of(orphanKey), deleted, "object still referenced by a live row must survive");
+
+    assertEquals(1, jdbc.queryForObject(
+        "select count(1) from file_preview_token where file_id=?", Integer.class, fileId));
+    assertEquals(1, jdbc.queryForObject(
+        "select count(1) from preview_index where file_id=?", Integer.class, fileId));
+
+    PreviewGarbageCollector.Result again = gc.collectOnce();
+    assertEquals(0, again.tokens() + again.indexRows() + again.renderJobs());
+    Mockito.verifyNoMoreInteractions(s3);
+  }
+
+  @Test
+  void expiredA4ExportsAreDeletedWithTheirObjects() {
+    DriverManagerDataSource ds = dataSource();
+    JdbcTemplate jdbc = new JdbcTemplate(ds);
+
+    UUID user = UUID.randomUUID();
+    jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+        user, "13920000094", "a4_gc", "internal", false);
+    UUID projectId = UUID.randomUUID();
+    String staleKey = "a4/project/" + projectId + "/" + user + "/v1-l1.pdf";
+    String liveKey = "a4/project/" + projectId + "/" + user + "/v2-l1.pdf";
+    jdbc.update("""
+        insert into a4_export_index(object_type, object_id, viewer_user_id, data_version, layout_version, s3_key, size_bytes, expires_at)
+        values ('project',?,?,'v1','l1',?,10, now() - interval '1 hour'),
+               ('project',?,?,'v2','l1',?,10, now() + interval '1 hour')
+        """,
+        projectId, user, staleKey, projectId, user, liveKey);
+
+    S3Client s3 = Mockito.mock(S3Client.class);
+    Mockito.when(s3.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(DeleteObjectsResponse.builder().build());
+    PreviewGarbageCollector gc = new PreviewGarbageCollector(
+        jdbc, new TransactionTemplate(new DataSourceTransactionManager(ds)), new PreviewStorage(s3, "it-bucket"));
+
+    PreviewGarbageCollector.Result r = gc.collectOnce();
+    assertEquals(1, r.a4Rows());
+    assertEquals(1, r.objects());
+
+    ArgumentCaptor<DeleteObjectsRequest> req = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+    Mockito.verify(s3).deleteObjects(req.capture());
+    List<String> deleted = req.getValue().delete().objects().stream().map(ObjectIdentifier::key).toList();
+    assertEquals(List.of(staleKey), deleted);
+    assertEquals(List.of(liveKey), jdbc.queryForList(
+        "select s3_key from a4_export_index where object_id=?", String.class, projectId));
+  }
+
+  @Test
+  void expiredBulkExportJobsAreDeletedWithTheirZips_runningOnesAreKept() {
+    DriverManagerDataSource ds = dataSource();
+    JdbcTemplate jdbc = new JdbcTemplate(ds);
+
+    UUID user = UUID.randomUUID();
+    jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+        user, "13920000095", "bulk_gc", "internal", false);
+    UUID expiredDone = UUID.randomUUID();
+    UUID expiredFailed = UUID.randomUUID();
+    UUID expiredRunning = UUID.randomUUID();
+    UUID live = UUID.randomUUID();
+    String expiredKey = "a4-bulk/" + expiredDone + ".zip";
+    jdbc.update("""
+        insert into a4_bulk_export_job(id, requester_user_id, object_type, status, item_count, s3_key, heartbeat_at, expires_at)
+        values (?,?,'project','done',1,?, null, now() - interval '1 hour'),
+               (?,?,'project','failed',1,null, null, now() - interval '1 hour'),
+               (?,?,'project','running',1,null, now(), now() - interval '1 hour'),
+               (?,?,'project','done',1,?, null, now() + interval '1 hour')
+        """,
+        expiredDone, user, expiredKey, expiredFailed, user, expiredRunning, user, live, user, "a4-bulk/" + live + ".zip");
+    jdbc.update("insert into a4_bulk_export_item(job_id, seq, object_id) values (?,1,?)", expiredDone, UUID.randomUUID());
+
+    S3Client s3 = Mockito.mock(S3Client.class);
+    Mockito.when(s3.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(DeleteObjectsResponse.builder().build());
+    PreviewGarbageCollector gc = new PreviewGarbageCollector(
+        jdbc, new TransactionTemplate(new DataSourceTransactionManager(ds)), new PreviewStorage(s3, "it-bucket"));
+
+    PreviewGarbageCollector.Result r = gc.collectOnce();
+    assertEquals(2, r.a4BulkJobs());
+    assertEquals(1, r.objects());
+
+    ArgumentCaptor<DeleteObjectsRequest> req = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+    Mockito.verify(s3).deleteObjects(req.capture());
+    List<String> deleted = req.getValue().delete().objects().stream().map(ObjectIdentifier::key).toList();
+    assertEquals(List.of(expiredKey), deleted);
+    assertEquals(List.of(expiredRunning, live), jdbc.queryForList(
+        "select id from a4_bulk_export_job where requester_user_id=? order by expires_at", UUID.class, user));
+    assertEquals(0, jdbc.queryForObject(
+        "select count(1) from a4_bulk_export_item where job_id=?", Integer.class, expiredDone));
+  }
+
+  private DriverManagerDataSource dataSource() {
+    DriverManagerDataSource ds = new DriverManagerDataSource();
+    ds.setDriverClassName("org.postgresql.Driver");
+    ds.setUrl(postgres.getJdbcUrl());
+    ds.setUsername(postgres.getUsername());
+    ds.setPassword(postgres.getPassword());
+    return ds;
+  }
+}
@@ -0,0 +1,239 @@
+package com.secp.worker.it;
+
+import com.secp.preview.render.PreviewKeys;
+import com.secp.worker.OutboxPoller;
+import com.secp.worker.PreviewPrerenderer;
+import com.secp.worker.PreviewRenderJobWorker;
+import com.secp.worker.PreviewStorage;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreviewPrerenderIT extends WorkerIntegrationTestBase {
+
+  @Test
+  void fileUploaded_enqueuesRasterBaseOnce_andOversizedFileFailsWithoutS3() {
+    DriverManagerDataSource ds = dataSource();
+    JdbcTemplate jdbc = new JdbcTemplate(ds);
+    OutboxPoller poller = new OutboxPoller(jdbc);
+
+    UUID group = UUID.randomUUID();
+    UUID user = UUID.randomUUID();
+    jdbc.update("insert into app_group(id, name) values (?,?)", group, "GP");
+    jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+        user, "13920000091", "uploader", "internal", false);
+
+    UUID fileId = UUID.randomUUID();
+    jdbc.update("""
+        insert into file_store(id, group_id, filename, content_type, size_bytes, sha256, s3_key_raw, created_by, status)
+        values (?,?,?,?,?,?,?,?, 'READY')
+        """,
+        fileId, group, "big.pdf", "application/pdf", 900L * 1024 * 1024, "ab12", "raw/" + fileId + ".pdf", user);
+
+    UUID eventId = UUID.randomUUID();
+    jdbc.update("""
+        insert into event_outbox(event_id, event_type, dedupe_key, group_id, payload)
+        values (?,?,?,?, ?::jsonb)
+        """,
+        eventId, "File.Uploaded", "File.Uploaded:file:" + fileId + ":v1-it", group,
+        "{\"fileId\":\"" + fileId + "\"}");
+
+    poller.pollOnce();
+
+    Map<String, Object> row = jdbc.queryForMap(
+        "select status, file_fingerprint, wm_ver from file_variant where file_id=? and variant='raster_base'", fileId);
+    assertEquals("pending", row.get("status"));
+    assertEquals("ab12", row.get("file_fingerprint"));
+    assertEquals(1, ((Number) row.get("wm_ver")).intValue());
+
+    // replay must not enqueue twice
+    jdbc.update("update event_outbox set status='pending', next_run_at=now(), processed_at=null where event_id=?", eventId);
+    poller.pollOnce();
+    Integer rows = jdbc.queryForObject(
+        "select count(1) from file_variant where file_id=? and variant='raster_base'", Integer.class, fileId);
+    assertEquals(1, rows);
+
+    S3Client s3 = Mockito.mock(S3Client.class);
+    PreviewPrerenderer prerenderer = new PreviewPrerenderer(
+        jdbc, new TransactionTemplate(new DataSourceTransactionManager(ds)), new PreviewStorage(s3, "it-bucket"));
+
+    assertTrue(prerenderer.renderOnce());
+    Map<String, Object> done = jdbc.queryForMap(
+        "select status, error, attempts from file_variant where file_id=? and variant='raster_base'", fileId);
+    assertEquals("failed", done.get("status"));
+    assertEquals("FILE_TOO_LARGE", done.get("error"));
+    assertEquals(1, ((Number) done.get("attempts")).intValue());
+    Mockito.verifyNoInteractions(s3);
+
+    assertFalse(prerenderer.renderOnce(), "nothing left to claim");
+  }
+
+  @Test
+  void abandonedRenderJob_isExpiredInsteadOfRendered() {
+    DriverManagerDataSource ds = dataSource();
+    JdbcTemplate jdbc = new JdbcTemplate(ds);
+
+    UUID group = UUID.randomUUID();
+    UUID user = UUID.randomUUID();
+    jdbc.update("insert into app_group(id, name) values (?,?)", group, "GJ");
+    jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+        user, "13920000092", "viewer", "external", false);
+    UUID fileId = UUID.randomUUID();
+    jdbc.update("""
+        insert into file_store(id, group_id, filename, content_type, size_bytes, s3_key_raw, created_by, status)
+        values (?,?,?,?,?,?,?, 'READY')
+        """,
+        fileId, group, "a.pdf", "application/pdf", 1024L, "raw/" + fileId + ".pdf", user);
+
+    UUID jobId = jdbc.queryForObject("""
+        insert into preview_render_job(file_id, viewer_user_id, variant, file_fingerprint, wm_ver, raw_key, output_key, params, deadline_at)
+        values (?,?,'external','fp',1,?,?, '{}'::jsonb, now() - interval '1 second')
+        returning id
+        """,
+        UUID.class,
+        fileId, user, "raw/" + fileId + ".pdf", "preview/" + fileId + "/external/" + user + "/wm1.pdf");
+
+    S3Client s3 = Mockito.mock(S3Client.class);
+    PreviewRenderJobWorker worker = new PreviewRenderJobWorker(
+        jdbc, new TransactionTemplate(new DataSourceTransactionManager(ds)), new PreviewStorage(s3, "it-bucket"), 1);
+    try {
+      worker.tick();
+    } finally {
+      worker.shutdown();
+    }
+
+    Map<String, Object> job = jdbc.queryForMap("select status, error from preview_render_job where id=?", jobId);
+    assertEquals("failed", job.get("status"));
+    assertEquals("EXPIRED", job.get("error"));
+    Mockito.verifyNoInteractions(s3);
+  }
+
+  @Test
+  void sameBlob_reusesRasterBaseOfOtherFileWithoutRendering() {
+    DriverManagerDataSource ds = dataSource();
+    JdbcTemplate jdbc = new JdbcTemplate(ds);
+    OutboxPoller poller = new OutboxPoller(jdbc);
+
+    UUID group = UUID.randomUUID();
+    UUID user = UUID.randomUUID();
+    jdbc.update("insert into app_group(id, name) values (?,?)", group, "GB");
+    jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+        user, "13920000094", "blob_uploader", "internal", false);
+    String sha = group.toString().replace("-", "") + "00000000000000000000000000000000";
+    jdbc.update("insert into file_blob(sha256, s3_key, size_bytes) values (?,?,?)", sha, "blob/" + sha, 1024L);
+
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    for (UUID fileId : List.of(first, second)) {
+      jdbc.update("""
+          insert into file_store(id, group_id, filename, content_type, size_bytes, sha256, s3_key_raw, blob_sha256, created_by, status)
+          values (?,?,?,?,?,?,?,?,?, 'READY')
+          """,
+          fileId, group, "same.pdf", "application/pdf", 1024L, sha, "blob/" + sha, sha, user);
+      jdbc.update("""
+          insert into event_outbox(event_id, event_type, dedupe_key, group_id, payload)
+          values (?,?,?,?, ?::jsonb)
+          """,
+          UUID.randomUUID(), "File.Uploaded", "File.Uploaded:file:" + fileId + ":v1-it", group,
+          "{\"fileId\":\"" + fileId + "\"}");
+    }
+    assertEquals(2, jdbc.queryForObject("select ref_count from file_blob where sha256=?", Integer.class, sha));
+
+    poller.pollOnce();
+
+    String sharedKey = PreviewKeys.rasterBaseKey(first, "blob:" + sha, 1);
+    assertEquals(sharedKey, PreviewKeys.rasterBaseKey(second, "blob:" + sha, 1));
+    jdbc.update("""
+        update file_variant set status = 'ready', s3_key = ?, size_bytes = 2048, page_count = 3
+         where file_id = ? and variant = 'raster_base' and file_fingerprint = ?
+        """,
+        sharedKey, first, "blob:" + sha);
+
+    S3Client s3 = Mockito.mock(S3Client.class);
+    PreviewPrerenderer prerenderer = new PreviewPrerenderer(
+        jdbc, new TransactionTemplate(new DataSourceTransactionManager(ds)), new PreviewStorage(s3, "it-bucket"));
+    assertTrue(prerenderer.renderOnce());
+
+    Map<String, Object> reused = jdbc.queryForMap(
+        "select status, s3_key, size_bytes, page_count from file_variant where file_id=? and variant='raster_base'", second);
+    assertEquals("ready", reused.get("status"));
+    assertEquals(sharedKey, reused.get("s3_key"));
+    assertEquals(2048L, ((Number) reused.get("size_bytes")).longValue());
+    assertEquals(3, ((Number) reused.get("page_count")).intValue());
+    Mockito.verifyNoInteractions(s3);
+  }
+
+  @Test
+  void transientFailure_isRetriedWithExponentialBackoff() {
+    DriverManagerDataSource ds = dataSource();
+    JdbcTemplate jdbc = new JdbcTemplate(ds);
+    OutboxPoller poller = new OutboxPoller(jdbc);
+
+    UUID group = UUID.randomUUID();
+    UUID user = UUID.randomUUID();
+    jdbc.update("insert into app_group(id, name) values (?,?)", group, "GR");
+    jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+        user, "13920000095", "retry_uploader", "internal", false);
+    UUID fileId = UUID.randomUUID();
+    jdbc.update("""
+        insert into file_store(id, group_id, filename, content_type, size_bytes, sha256, s3_key_raw, created_by, status)
+        values (?,?,?,?,?,?,?,?, 'READY')
+        """,
+        fileId, group, "flaky.pdf", "application/pdf", 1024L, "cd34", "raw/" + fileId + ".pdf", user);
+    jdbc.update("""
+        insert into event_outbox(event_id, event_type, dedupe_key, group_id, payload)
+        values (?,?,?,?, ?::jsonb)
+        """,
+        UUID.randomUUID(), "File.Uploaded", "File.Uploaded:file:" + fileId + ":v1-it", group,
+        "{\"fileId\":\"" + fileId + "\"}");
+    poller.pollOnce();
+
+    S3Client s3 = Mockito.mock(S3Client.class);
+    Mockito.when(s3.getObject(Mockito.any(GetObjectRequest.class), Mockito.any(ResponseTransformer.class)))
+        .thenThrow(SdkClientException.create("s3 unavailable"));
+    PreviewPrerenderer prerenderer = new PreviewPrerenderer(
+        jdbc, new TransactionTemplate(new DataSourceTransactionManager(ds)), new PreviewStorage(s3, "it-bucket"));
+
+    assertTrue(prerenderer.renderOnce());
+    assertEquals(30, retryDelaySeconds(jdbc, fileId), 2);
+    assertFalse(prerenderer.renderOnce(), "not due yet");
+
+    jdbc.update("update file_variant set next_attempt_at = now() - interval '1 second' where file_id=?", fileId);
+    assertTrue(prerenderer.renderOnce());
+    assertEquals(60, retryDelaySeconds(jdbc, fileId), 2);
+
+    Map<String, Object> row = jdbc.queryForMap(
+        "select status, error, attempts from file_variant where file_id=? and variant='raster_base'", fileId);
+    assertEquals("pending", row.get("status"));
+    assertEquals("SdkClientException", row.get("error"));
+    assertEquals(2, ((Number) row.get("attempts")).intValue());
+  }
+
+  private static double retryDelaySeconds(JdbcTemplate jdbc, UUID fileId) {
+    return jdbc.queryForObject(
+        "select extract(epoch from next_attempt_at - now()) from file_variant where file_id=? and variant='raster_base'",
+        Double.class, fileId);
+  }
+
+  private DriverManagerDataSource dataSource() {
+    DriverManagerDataSource ds = new DriverManagerDataSource();
+    ds.setDriverClassName("org.postgresql.Driver");
+    ds.setUrl(postgres.getJdbcUrl());
+    ds.setUsername(postgres.getUsername());
+    ds.setPassword(postgres.getPassword());
+    return ds;
+  }
+}
@@ -0,0 +1,127 @@
+package com.secp.worker.it;
+
+import com.secp.worker.PreviewStorage;
+import com.secp.worker.UploadGarbageCollector;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+
+class UploadGarbageCollectorIT extends WorkerIntegrationTestBase {
+
+  @Test
+  void expiredMultipartUploadsAreAbortedInS3() {
+    DriverManagerDataSource ds = dataSource();
+    JdbcTemplate jdbc = new JdbcTemplate(ds);
+
+    UUID group = UUID.randomUUID();
+    UUID user = UUID.randomUUID();
+    UUID projectId = UUID.randomUUID();
+    UUID caseId = UUID.randomUUID();
+    jdbc.update("insert into app_group(id, name) values (?,?)", group, "GC-MP");
+    jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+        user, "13920000096", "multipart_gc", "internal", false);
+    jdbc.update("insert into project(id, group_id, name, status, created_by) values (?,?,?,?,?)",
+        projectId, group, "P-MP", "ACTIVE", user);
+    jdbc.update("insert into \"case\"(id, group_id, project_id, title, status, created_by) values (?,?,?,?,?,?)",
+        caseId, group, projectId, "C-MP", "OPEN", user);
+    UUID expired = UUID.randomUUID();
+    UUID live = UUID.randomUUID();
+    jdbc.update("""
+        insert into file_multipart_upload(file_id, upload_id, group_id, project_id, case_id, filename, content_type,
+                                          size_bytes, s3_key_raw, part_size, part_count, created_by, expires_at)
+        values (?, 'upload-expired', ?, ?, ?, 'a.zip', 'application/zip', 100, ?, 8388608, 1, ?, now() - interval '1 hour'),
+               (?, 'upload-live', ?, ?, ?, 'b.zip', 'application/zip', 100, ?, 8388608, 1, ?, now() + interval '1 hour')
+        """,
+        expired, group, projectId, caseId, "raw/" + expired + "/a.zip", user,
+        live, group, projectId, caseId, "raw/" + live + "/b.zip", user);
+
+    S3Client s3 = Mockito.mock(S3Client.class);
+    UploadGarbageCollector gc = new UploadGarbageCollector(
+        jdbc, new TransactionTemplate(new DataSourceTransactionManager(ds)), new PreviewStorage(s3, "it-bucket"));
+
+    UploadGarbageCollector.Result r = gc.collectOnce();
+    assertEquals(1, r.multipartUploads());
+
+    ArgumentCaptor<AbortMultipartUploadRequest> req = ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+    Mockito.verify(s3).abortMultipartUpload(req.capture());
+    assertEquals("raw/" + expired + "/a.zip", req.getValue().key());
+    assertEquals("upload-expired", req.getValue().uploadId());
+    assertEquals(List.of(live), jdbc.queryForList(
+        "select file_id from file_multipart_upload where case_id=?", UUID.class, caseId));
+  }
+
+  @Test
+  void unreferencedBlobsPastGraceAreDeletedWithTheirObjects() {
+    DriverManagerDataSource ds = dataSource();
+    JdbcTemplate jdbc = new JdbcTemplate(ds);
+
+    UUID group = UUID.randomUUID();
+    UUID user = UUID.randomUUID();
+    jdbc.update("insert into app_group(id, name) values (?,?)", group, "GC-BLOB");
+    jdbc.update("insert into app_user(id, phone, username, user_type, is_admin) values (?,?,?,?,?)",
+        user, "13920000097", "blob_gc", "internal", false);
+    String tag = group.toString().replace("-", "");
+    String stale = "a" + tag;
+    String fresh = "b" + tag;
+    String linked = "c" + tag;
+    jdbc.update("""
+        insert into file_blob(sha256, s3_key, size_bytes, updated_at)
+        values (?, ?, 10, now() - interval '2 days'),
+               (?, ?, 10, now()),
+               (?, ?, 10, now())
+        """,
+        stale, "blob/" + stale, fresh, "blob/" + fresh, linked, "blob/" + linked);
+    UUID fileId = UUID.randomUUID();
+    jdbc.update("""
+        insert into file_store(id, group_id, filename, content_type, size_bytes, sha256, s3_key_raw, blob_sha256, created_by, status)
+        values (?,?,?,?,?,?,?,?,?, 'READY')
+        """,
+        fileId, group, "a.pdf", "application/pdf", 10L, linked, "blob/" + linked, linked, user);
+    assertEquals(1, jdbc.queryForObject("select ref_count from file_blob where sha256=?", Integer.class, linked));
+    jdbc.update("update file_blob set updated_at = now() - interval '2 days' where sha256=?", linked);
+
+    S3Client s3 = Mockito.mock(S3Client.class);
+    Mockito.when(s3.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(DeleteObjectsResponse.builder().build());
+    UploadGarbageCollector gc = new UploadGarbageCollector(
+        jdbc, new TransactionTemplate(new DataSourceTransactionManager(ds)), new PreviewStorage(s3, "it-bucket"));
+
+    UploadGarbageCollector.Result r = gc.collectOnce();
+    assertEquals(1, r.blobs());
+
+    ArgumentCaptor<DeleteObjectsRequest> req = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+    Mockito.verify(s3).deleteObjects(req.capture());
+    assertEquals(List.of("blob/" + stale),
+        req.getValue().delete().objects().stream().map(ObjectIdentifier::key).toList());
+    assertEquals(List.of(fresh, linked), jdbc.queryForList(
+        "select sha256 from file_blob where sha256 in (?,?,?) order by sha256", String.class, stale, fresh, linked));
+
+    // releasing the last reference starts the grace period over
+    jdbc.update("delete from file_store where id=?", fileId);
+    assertEquals(0, jdbc.queryForObject("select ref_count from file_blob where sha256=?", Integer.class, linked));
+    assertEquals(0, gc.collectOnce().blobs());
+  }
+
+  private DriverManagerDataSource dataSource() {
+    DriverManagerDataSource ds = new DriverManagerDataSource();
+    ds.setDriverClassName("org.postgresql.Driver");
+    ds.setUrl(postgres.getJdbcUrl());
+    ds.setUsername(postgres.getUsername());
+    ds.setPassword(postgres.getPassword());
+    return ds;
+  }
+}